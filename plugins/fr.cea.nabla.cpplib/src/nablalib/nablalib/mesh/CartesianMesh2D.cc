@@ -9,8 +9,11 @@
  *******************************************************************************/
 #include <rapidjson/document.h>
 #include "nablalib/mesh/CartesianMesh2D.h"
+#include "nablalib/mesh/MeshCache.h"
 #include <stdexcept>
 #include <sstream>
+#include <iomanip>
+#include <limits>
 #include <cassert>
 
 namespace nablalib::mesh
@@ -44,6 +47,26 @@ CartesianMesh2D::jsonInit(const char* jsonContent)
 	assert(valueof_ySize.IsDouble());
 	double y_size = valueof_ySize.GetDouble();
 
+	// optional: directory of the binary mesh cache, no cache by default
+	if (o.HasMember("cache"))
+	{
+		const rapidjson::Value& valueof_cache = o["cache"];
+		assert(valueof_cache.IsString());
+		stringstream key;
+		key << setprecision(numeric_limits<double>::max_digits10)
+			<< "CartesianMesh2D_cpp_" << nb_x_quads << "x" << nb_y_quads << "_" << x_size << "x" << y_size;
+		const string file(MeshCache::getFile(valueof_cache.GetString(), key.str()));
+		MeshCache cache;
+		if (cache.read(file, key.str()))
+			load(cache);
+		else
+		{
+			create(nb_x_quads, nb_y_quads, x_size, y_size);
+			save().write(file, key.str());
+		}
+		return;
+	}
+
 	create(nb_x_quads, nb_y_quads, x_size, y_size);
 }
 
@@ -402,6 +425,32 @@ Id CartesianMesh2D::getLeftFaceNeighbour(const Id& faceId) const
   return (faceId - 2);
 }
 
+const vector<vector<Id>>&
+CartesianMesh2D::getColouring(const string& connectivityName) const
+{
+	lock_guard<mutex> lock(m_colourings_mutex);
+	const auto colouring(m_colourings.find(connectivityName));
+	if (colouring != m_colourings.end())
+		return colouring->second;
+
+	vector<vector<Id>> colours;
+	if (connectivityName == "nodesOfCell")
+		colours = colour(getNbCells(), getNbNodes(), [this](const Id& id) { return getNodesOfCell(id); });
+	else if (connectivityName == "nodesOfFace")
+		colours = colour(getNbFaces(), getNbNodes(), [this](const Id& id) { return getNodesOfFace(id); });
+	else if (connectivityName == "facesOfCell")
+		colours = colour(getNbCells(), getNbFaces(), [this](const Id& id) { return getFacesOfCell(id); });
+	else if (connectivityName == "cellsOfNode")
+		colours = colour(getNbNodes(), getNbCells(), [this](const Id& id) { return getCellsOfNode(id); });
+	else if (connectivityName == "cellsOfFace")
+		colours = colour(getNbFaces(), getNbCells(), [this](const Id& id) { return getCellsOfFace(id); });
+	else if (connectivityName == "neighbourCells")
+		colours = colour(getNbCells(), getNbCells(), [this](const Id& id) { return getNeighbourCells(id); });
+	else
+		throw runtime_error("No colouring for connectivity: " + connectivityName);
+	return m_colourings.emplace(connectivityName, move(colours)).first->second;
+}
+
 Id
 CartesianMesh2D::index2IdCell(const size_t& i, const size_t& j) const noexcept
 {
@@ -580,4 +629,114 @@ CartesianMesh2D::create(size_t nb_x_quads, size_t nb_y_quads, double x_size, dou
 	}
 }
 
+namespace
+{
+	vector<int32_t> toInts(const vector<Id>& ids)
+	{
+		return vector<int32_t>(ids.begin(), ids.end());
+	}
+
+	vector<Id> toIds(const vector<int32_t>& ints)
+	{
+		return vector<Id>(ints.begin(), ints.end());
+	}
+}
+
+MeshCache
+CartesianMesh2D::save() const
+{
+	const auto& nodes = m_geometry->getNodes();
+	const auto& edges = m_geometry->getEdges();
+	const auto& quads = m_geometry->getQuads();
+	vector<double> coordinates(2 * nodes.size());
+	for (size_t r(0); r < nodes.size(); ++r)
+	{
+		coordinates[2 * r] = nodes[r][0];
+		coordinates[2 * r + 1] = nodes[r][1];
+	}
+	vector<int32_t> nodes_of_face(2 * edges.size());
+	for (size_t f(0); f < edges.size(); ++f)
+		for (size_t k(0); k < 2; ++k)
+			nodes_of_face[2 * f + k] = static_cast<int32_t>(edges[f].getNodeIds()[k]);
+	vector<int32_t> nodes_of_cell(4 * quads.size());
+	for (size_t c(0); c < quads.size(); ++c)
+		for (size_t k(0); k < 4; ++k)
+			nodes_of_cell[4 * c + k] = static_cast<int32_t>(quads[c].getNodeIds()[k]);
+
+	MeshCache cache;
+	cache.put("sizes", toInts({m_nb_x_quads, m_nb_y_quads, m_top_left_node, m_top_right_node, m_bottom_left_node, m_bottom_right_node}));
+	cache.put("coordinates", move(coordinates));
+	cache.put("nodesOfFace", move(nodes_of_face));
+	cache.put("nodesOfCell", move(nodes_of_cell));
+	cache.put("innerNodes", toInts(m_inner_nodes));
+	cache.put("topNodes", toInts(m_top_nodes));
+	cache.put("bottomNodes", toInts(m_bottom_nodes));
+	cache.put("leftNodes", toInts(m_left_nodes));
+	cache.put("rightNodes", toInts(m_right_nodes));
+	cache.put("innerCells", toInts(m_inner_cells));
+	cache.put("outerCells", toInts(m_outer_cells));
+	cache.put("topCells", toInts(m_top_cells));
+	cache.put("bottomCells", toInts(m_bottom_cells));
+	cache.put("leftCells", toInts(m_left_cells));
+	cache.put("rightCells", toInts(m_right_cells));
+	cache.put("faces", toInts(m_faces));
+	cache.put("outerFaces", toInts(m_outer_faces));
+	cache.put("innerFaces", toInts(m_inner_faces));
+	cache.put("innerHorizontalFaces", toInts(m_inner_horizontal_faces));
+	cache.put("innerVerticalFaces", toInts(m_inner_vertical_faces));
+	cache.put("topFaces", toInts(m_top_faces));
+	cache.put("bottomFaces", toInts(m_bottom_faces));
+	cache.put("leftFaces", toInts(m_left_faces));
+	cache.put("rightFaces", toInts(m_right_faces));
+	return cache;
+}
+
+void
+CartesianMesh2D::load(const MeshCache& cache)
+{
+	const auto& sizes(cache.getInts("sizes"));
+	m_nb_x_quads = sizes[0];
+	m_nb_y_quads = sizes[1];
+	m_top_left_node = sizes[2];
+	m_top_right_node = sizes[3];
+	m_bottom_left_node = sizes[4];
+	m_bottom_right_node = sizes[5];
+
+	const auto& coordinates(cache.getDoubles("coordinates"));
+	vector<RealArray1D<2>> nodes_(coordinates.size() / 2);
+	for (size_t r(0); r < nodes_.size(); ++r)
+		nodes_[r] = RealArray1D<2>{{coordinates[2 * r], coordinates[2 * r + 1]}};
+	const auto& nodes_of_face(cache.getInts("nodesOfFace"));
+	vector<Edge> edges_(nodes_of_face.size() / 2);
+	for (size_t f(0); f < edges_.size(); ++f)
+		edges_[f] = Edge(static_cast<Id>(nodes_of_face[2 * f]), static_cast<Id>(nodes_of_face[2 * f + 1]));
+	const auto& nodes_of_cell(cache.getInts("nodesOfCell"));
+	vector<Quad> quads_(nodes_of_cell.size() / 4);
+	for (size_t c(0); c < quads_.size(); ++c)
+		quads_[c] = Quad(static_cast<Id>(nodes_of_cell[4 * c]), static_cast<Id>(nodes_of_cell[4 * c + 1]),
+				static_cast<Id>(nodes_of_cell[4 * c + 2]), static_cast<Id>(nodes_of_cell[4 * c + 3]));
+	m_geometry = new MeshGeometry<2>(move(nodes_), move(edges_), move(quads_));
+
+	m_inner_nodes = toIds(cache.getInts("innerNodes"));
+	m_top_nodes = toIds(cache.getInts("topNodes"));
+	m_bottom_nodes = toIds(cache.getInts("bottomNodes"));
+	m_left_nodes = toIds(cache.getInts("leftNodes"));
+	m_right_nodes = toIds(cache.getInts("rightNodes"));
+	m_inner_cells = toIds(cache.getInts("innerCells"));
+	m_outer_cells = toIds(cache.getInts("outerCells"));
+	m_top_cells = toIds(cache.getInts("topCells"));
+	m_bottom_cells = toIds(cache.getInts("bottomCells"));
+	m_left_cells = toIds(cache.getInts("leftCells"));
+	m_right_cells = toIds(cache.getInts("rightCells"));
+	m_faces = toIds(cache.getInts("faces"));
+	m_outer_faces = toIds(cache.getInts("outerFaces"));
+	m_inner_faces = toIds(cache.getInts("innerFaces"));
+	m_inner_horizontal_faces = toIds(cache.getInts("innerHorizontalFaces"));
+	m_inner_vertical_faces = toIds(cache.getInts("innerVerticalFaces"));
+	m_top_faces = toIds(cache.getInts("topFaces"));
+	m_bottom_faces = toIds(cache.getInts("bottomFaces"));
+	m_left_faces = toIds(cache.getInts("leftFaces"));
+	m_right_faces = toIds(cache.getInts("rightFaces"));
+}
+
 }
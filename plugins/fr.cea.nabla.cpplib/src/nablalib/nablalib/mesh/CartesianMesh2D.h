@@ -11,8 +11,12 @@
 #define NABLALIB_MESH_CARTESIANMESH2D_H_
 
 #include <utility>
+#include <map>
+#include <mutex>
+#include <string>
 #include "nablalib/types/Types.h"
 #include "nablalib/mesh/MeshGeometry.h"
+#include "nablalib/mesh/MeshCache.h"
 
 using namespace std;
 
@@ -33,6 +37,10 @@ public:
 
 	MeshGeometry<2>* getGeometry() noexcept { return m_geometry; }
 
+	// Cells are numbered row by row: cell (x, y) is y * nbXQuads + x
+	size_t getNbXQuads() const noexcept { return m_nb_x_quads; }
+	size_t getNbYQuads() const noexcept { return m_nb_y_quads; }
+
 	size_t getNbNodes() const noexcept { return m_geometry->getNodes().size(); }
 
 	size_t getNbCells() const noexcept { return m_geometry->getQuads().size(); }
@@ -123,6 +131,12 @@ public:
 	Id getRightFaceNeighbour(const Id& faceId) const;
 	Id getLeftFaceNeighbour(const Id& faceId) const;
 
+	// Colourings for parallel scatter loops: items of a colour share no element of the connectivity
+	const vector<vector<Id>>& getColouring(const string& connectivityName) const;
+	const vector<vector<Id>>& getCellColouring() const { return getColouring("nodesOfCell"); }
+	const vector<vector<Id>>& getFaceColouring() const { return getColouring("nodesOfFace"); }
+	const vector<vector<Id>>& getNodeColouring() const { return getColouring("cellsOfNode"); }
+
  private:
 	Id index2IdCell(const size_t& i, const size_t& j) const noexcept;
 	Id index2IdNode(const size_t& i, const size_t& j) const noexcept;
@@ -148,8 +162,44 @@ public:
 
 	inline vector<Id> cellsOfNodeCollection(const vector<Id>& nodes);
 
+	// Greedy colouring in the order of the items
+	template <typename ElemsOfItem>
+	static vector<vector<Id>> colour(size_t nbItems, size_t nbElems, ElemsOfItem elemsOfItem)
+	{
+		vector<vector<Id>> itemsOfElem(nbElems);
+		for (Id item(0); item < nbItems; ++item)
+			for (const auto& elem : elemsOfItem(item))
+				itemsOfElem[elem].emplace_back(item);
+
+		// forbiddenBy[colour] == item + 1 if a neighbour of item already has this colour
+		vector<size_t> forbiddenBy;
+		vector<size_t> itemColours(nbItems);
+		vector<vector<Id>> colours;
+		for (Id item(0); item < nbItems; ++item)
+		{
+			for (const auto& elem : elemsOfItem(item))
+				for (const auto& neighbour : itemsOfElem[elem])
+					if (neighbour < item) forbiddenBy[itemColours[neighbour]] = item + 1;
+			size_t c(0);
+			while (c < colours.size() && forbiddenBy[c] == item + 1)
+				++c;
+			if (c == colours.size())
+			{
+				colours.emplace_back();
+				forbiddenBy.emplace_back(0);
+			}
+			itemColours[item] = c;
+			colours[c].emplace_back(item);
+		}
+		return colours;
+	}
+
 	void create(size_t nb_x_quads, size_t nb_y_quads, double x_size, double y_size);
 
+	// Geometry and item sets of the built mesh, for the binary mesh cache
+	MeshCache save() const;
+	void load(const MeshCache& cache);
+
 private:
 	MeshGeometry<2>* m_geometry;
 
@@ -184,6 +234,9 @@ private:
 
 	vector<Id> m_inner_cells;
 	vector<Id> m_outer_cells;
+
+	mutable map<string, vector<vector<Id>>> m_colourings;
+	mutable mutex m_colourings_mutex;
 };
 
 }
@@ -0,0 +1,381 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+#include <rapidjson/document.h>
+#include "nablalib/mesh/CartesianMesh3D.h"
+#include <stdexcept>
+#include <cassert>
+
+namespace nablalib::mesh
+{
+
+CartesianMesh3D::CartesianMesh3D(size_t nb_x_cells, size_t nb_y_cells, size_t nb_z_cells, double x_size, double y_size, double z_size)
+{
+	create(nb_x_cells, nb_y_cells, nb_z_cells, x_size, y_size, z_size);
+}
+
+void
+CartesianMesh3D::jsonInit(const char* jsonContent)
+{
+	rapidjson::Document document;
+	assert(!document.Parse(jsonContent).HasParseError());
+	assert(document.IsObject());
+	const rapidjson::Value::Object& o = document.GetObject();
+
+	assert(o.HasMember("nbXCells"));
+	const rapidjson::Value& valueof_nbXCells = o["nbXCells"];
+	assert(valueof_nbXCells.IsInt());
+	size_t nb_x_cells = valueof_nbXCells.GetInt();
+
+	assert(o.HasMember("nbYCells"));
+	const rapidjson::Value& valueof_nbYCells = o["nbYCells"];
+	assert(valueof_nbYCells.IsInt());
+	size_t nb_y_cells = valueof_nbYCells.GetInt();
+
+	assert(o.HasMember("nbZCells"));
+	const rapidjson::Value& valueof_nbZCells = o["nbZCells"];
+	assert(valueof_nbZCells.IsInt());
+	size_t nb_z_cells = valueof_nbZCells.GetInt();
+
+	assert(o.HasMember("xSize"));
+	const rapidjson::Value& valueof_xSize = o["xSize"];
+	assert(valueof_xSize.IsDouble());
+	double x_size = valueof_xSize.GetDouble();
+
+	assert(o.HasMember("ySize"));
+	const rapidjson::Value& valueof_ySize = o["ySize"];
+	assert(valueof_ySize.IsDouble());
+	double y_size = valueof_ySize.GetDouble();
+
+	assert(o.HasMember("zSize"));
+	const rapidjson::Value& valueof_zSize = o["zSize"];
+	assert(valueof_zSize.IsDouble());
+	double z_size = valueof_zSize.GetDouble();
+
+	create(nb_x_cells, nb_y_cells, nb_z_cells, x_size, y_size, z_size);
+}
+
+size_t
+CartesianMesh3D::getNbInnerNodes() const noexcept
+{
+	return (m_nb_x_cells - 1) * (m_nb_y_cells - 1) * (m_nb_z_cells - 1);
+}
+
+size_t
+CartesianMesh3D::getNbInnerCells() const noexcept
+{
+	if (m_nb_x_cells < 2 || m_nb_y_cells < 2 || m_nb_z_cells < 2) return 0;
+	return (m_nb_x_cells - 2) * (m_nb_y_cells - 2) * (m_nb_z_cells - 2);
+}
+
+size_t
+CartesianMesh3D::getNbOuterFaces() const noexcept
+{
+	return 2 * (m_nb_y_cells * m_nb_z_cells + m_nb_x_cells * m_nb_z_cells + m_nb_x_cells * m_nb_y_cells);
+}
+
+const vector<Id>&
+CartesianMesh3D::getInnerNodes()
+{
+	fill(m_inner_nodes, getNbNodes(), getNbInnerNodes(), [this](Id r) { return !isOuterNode(r); });
+	return m_inner_nodes;
+}
+
+const vector<Id>&
+CartesianMesh3D::getOuterNodes()
+{
+	fill(m_outer_nodes, getNbNodes(), getNbOuterNodes(), [this](Id r) { return isOuterNode(r); });
+	return m_outer_nodes;
+}
+
+const vector<Id>&
+CartesianMesh3D::getInnerCells()
+{
+	fill(m_inner_cells, getNbCells(), getNbInnerCells(), [this](Id c) { return !isOuterCell(c); });
+	return m_inner_cells;
+}
+
+const vector<Id>&
+CartesianMesh3D::getOuterCells()
+{
+	fill(m_outer_cells, getNbCells(), getNbOuterCells(), [this](Id c) { return isOuterCell(c); });
+	return m_outer_cells;
+}
+
+const vector<Id>&
+CartesianMesh3D::getInnerFaces()
+{
+	fill(m_inner_faces, getNbFaces(), getNbInnerFaces(), [this](Id f) { return !isOuterFace(f); });
+	return m_inner_faces;
+}
+
+const vector<Id>&
+CartesianMesh3D::getOuterFaces()
+{
+	fill(m_outer_faces, getNbFaces(), getNbOuterFaces(), [this](Id f) { return isOuterFace(f); });
+	return m_outer_faces;
+}
+
+const vector<Id>&
+CartesianMesh3D::getLeftFaces()
+{
+	if (m_left_faces.empty())
+		for (size_t l = 0 ; l < getNbLeftFaces() ; ++l)
+			m_left_faces.emplace_back(l * (m_nb_x_cells + 1));
+	return m_left_faces;
+}
+
+const vector<Id>&
+CartesianMesh3D::getRightFaces()
+{
+	if (m_right_faces.empty())
+		for (size_t l = 0 ; l < getNbRightFaces() ; ++l)
+			m_right_faces.emplace_back(l * (m_nb_x_cells + 1) + m_nb_x_cells);
+	return m_right_faces;
+}
+
+const vector<Id>&
+CartesianMesh3D::getBottomFaces()
+{
+	if (m_bottom_faces.empty())
+		for (size_t l = 0 ; l < getNbBottomFaces() ; ++l)
+			m_bottom_faces.emplace_back(m_nb_x_faces + (l / m_nb_x_cells) * m_nb_x_cells * (m_nb_y_cells + 1) + l % m_nb_x_cells);
+	return m_bottom_faces;
+}
+
+const vector<Id>&
+CartesianMesh3D::getTopFaces()
+{
+	if (m_top_faces.empty())
+		for (size_t l = 0 ; l < getNbTopFaces() ; ++l)
+			m_top_faces.emplace_back(m_nb_x_faces + (l / m_nb_x_cells) * m_nb_x_cells * (m_nb_y_cells + 1) + m_nb_x_cells * m_nb_y_cells + l % m_nb_x_cells);
+	return m_top_faces;
+}
+
+const vector<Id>&
+CartesianMesh3D::getBackFaces()
+{
+	if (m_back_faces.empty())
+		for (size_t l = 0 ; l < getNbBackFaces() ; ++l)
+			m_back_faces.emplace_back(m_nb_x_faces + m_nb_y_faces + l);
+	return m_back_faces;
+}
+
+const vector<Id>&
+CartesianMesh3D::getFrontFaces()
+{
+	if (m_front_faces.empty())
+		for (size_t l = 0 ; l < getNbFrontFaces() ; ++l)
+			m_front_faces.emplace_back(m_nb_x_faces + m_nb_y_faces + getNbCells() + l);
+	return m_front_faces;
+}
+
+RealArray1D<3>
+CartesianMesh3D::getNodeCoordinates(const Id& nodeId) const noexcept
+{
+	const size_t i = nodeId % (m_nb_x_cells + 1);
+	const size_t j = (nodeId / (m_nb_x_cells + 1)) % (m_nb_y_cells + 1);
+	const size_t k = nodeId / ((m_nb_x_cells + 1) * (m_nb_y_cells + 1));
+	return RealArray1D<3>{{m_x_size * i, m_y_size * j, m_z_size * k}};
+}
+
+array<Id, 8>
+CartesianMesh3D::getNodesOfCell(const Id& cellId) const noexcept
+{
+	const size_t i = cellId % m_nb_x_cells;
+	const size_t j = (cellId / m_nb_x_cells) % m_nb_y_cells;
+	const size_t k = cellId / (m_nb_x_cells * m_nb_y_cells);
+	const size_t nx = m_nb_x_cells + 1;
+	const size_t nxy = nx * (m_nb_y_cells + 1);
+	const Id n0 = i + nx * j + nxy * k;
+	return {n0, n0 + 1, n0 + 1 + nx, n0 + nx, n0 + nxy, n0 + 1 + nxy, n0 + 1 + nx + nxy, n0 + nx + nxy};
+}
+
+array<Id, 4>
+CartesianMesh3D::getNodesOfFace(const Id& faceId) const noexcept
+{
+	const size_t nx = m_nb_x_cells + 1;
+	const size_t nxy = nx * (m_nb_y_cells + 1);
+	if (faceId < m_nb_x_faces)
+	{
+		const Id n0 = faceId % nx + nx * ((faceId / nx) % m_nb_y_cells) + nxy * (faceId / (nx * m_nb_y_cells));
+		return {n0, n0 + nx, n0 + nx + nxy, n0 + nxy};
+	}
+	else if (faceId < m_nb_x_faces + m_nb_y_faces)
+	{
+		const Id f = faceId - m_nb_x_faces;
+		const Id n0 = f % m_nb_x_cells + nx * ((f / m_nb_x_cells) % (m_nb_y_cells + 1)) + nxy * (f / (m_nb_x_cells * (m_nb_y_cells + 1)));
+		return {n0, n0 + nxy, n0 + 1 + nxy, n0 + 1};
+	}
+	else
+	{
+		const Id f = faceId - m_nb_x_faces - m_nb_y_faces;
+		const Id n0 = f % m_nb_x_cells + nx * ((f / m_nb_x_cells) % m_nb_y_cells) + nxy * (f / (m_nb_x_cells * m_nb_y_cells));
+		return {n0, n0 + 1, n0 + 1 + nx, n0 + nx};
+	}
+}
+
+vector<Id>
+CartesianMesh3D::getCellsOfNode(const Id& nodeId) const noexcept
+{
+	const size_t nx = m_nb_x_cells + 1;
+	const size_t i = nodeId % nx;
+	const size_t j = (nodeId / nx) % (m_nb_y_cells + 1);
+	const size_t k = nodeId / (nx * (m_nb_y_cells + 1));
+	vector<Id> cells;
+	cells.reserve(MaxNbCellsOfNode);
+	// unsigned indices: i-1 wraps around and is rejected by the upper bound test
+	for (size_t ck = k - 1 ; ck != k + 1 ; ++ck)
+		for (size_t cj = j - 1 ; cj != j + 1 ; ++cj)
+			for (size_t ci = i - 1 ; ci != i + 1 ; ++ci)
+				if (ci < m_nb_x_cells && cj < m_nb_y_cells && ck < m_nb_z_cells)
+					cells.emplace_back(index2IdCell(ci, cj, ck));
+	return cells;
+}
+
+vector<Id>
+CartesianMesh3D::getCellsOfFace(const Id& faceId) const noexcept
+{
+	vector<Id> cells;
+	cells.reserve(MaxNbCellsOfFace);
+	if (faceId < m_nb_x_faces)
+	{
+		const size_t nx = m_nb_x_cells + 1;
+		const size_t i = faceId % nx;
+		const size_t j = (faceId / nx) % m_nb_y_cells;
+		const size_t k = faceId / (nx * m_nb_y_cells);
+		if (i > 0) cells.emplace_back(index2IdCell(i - 1, j, k));
+		if (i < m_nb_x_cells) cells.emplace_back(index2IdCell(i, j, k));
+	}
+	else if (faceId < m_nb_x_faces + m_nb_y_faces)
+	{
+		const Id f = faceId - m_nb_x_faces;
+		const size_t i = f % m_nb_x_cells;
+		const size_t j = (f / m_nb_x_cells) % (m_nb_y_cells + 1);
+		const size_t k = f / (m_nb_x_cells * (m_nb_y_cells + 1));
+		if (j > 0) cells.emplace_back(index2IdCell(i, j - 1, k));
+		if (j < m_nb_y_cells) cells.emplace_back(index2IdCell(i, j, k));
+	}
+	else
+	{
+		const Id f = faceId - m_nb_x_faces - m_nb_y_faces;
+		const size_t i = f % m_nb_x_cells;
+		const size_t j = (f / m_nb_x_cells) % m_nb_y_cells;
+		const size_t k = f / (m_nb_x_cells * m_nb_y_cells);
+		if (k > 0) cells.emplace_back(index2IdCell(i, j, k - 1));
+		if (k < m_nb_z_cells) cells.emplace_back(index2IdCell(i, j, k));
+	}
+	return cells;
+}
+
+vector<Id>
+CartesianMesh3D::getNeighbourCells(const Id& cellId) const noexcept
+{
+	const size_t i = cellId % m_nb_x_cells;
+	const size_t j = (cellId / m_nb_x_cells) % m_nb_y_cells;
+	const size_t k = cellId / (m_nb_x_cells * m_nb_y_cells);
+	vector<Id> cells;
+	cells.reserve(MaxNbNeighbourCells);
+	if (k > 0) cells.emplace_back(index2IdCell(i, j, k - 1));
+	if (j > 0) cells.emplace_back(index2IdCell(i, j - 1, k));
+	if (i > 0) cells.emplace_back(index2IdCell(i - 1, j, k));
+	if (i + 1 < m_nb_x_cells) cells.emplace_back(index2IdCell(i + 1, j, k));
+	if (j + 1 < m_nb_y_cells) cells.emplace_back(index2IdCell(i, j + 1, k));
+	if (k + 1 < m_nb_z_cells) cells.emplace_back(index2IdCell(i, j, k + 1));
+	return cells;
+}
+
+array<Id, 6>
+CartesianMesh3D::getFacesOfCell(const Id& cellId) const noexcept
+{
+	return {getLeftFaceOfCell(cellId), getRightFaceOfCell(cellId),
+			getBottomFaceOfCell(cellId), getTopFaceOfCell(cellId),
+			getBackFaceOfCell(cellId), getFrontFaceOfCell(cellId)};
+}
+
+Id
+CartesianMesh3D::getLeftFaceOfCell(const Id& cellId) const noexcept
+{
+	const size_t i = cellId % m_nb_x_cells;
+	const size_t jk = cellId / m_nb_x_cells;
+	return i + (m_nb_x_cells + 1) * jk;
+}
+
+Id
+CartesianMesh3D::getBottomFaceOfCell(const Id& cellId) const noexcept
+{
+	const size_t ij = cellId % (m_nb_x_cells * m_nb_y_cells);
+	const size_t k = cellId / (m_nb_x_cells * m_nb_y_cells);
+	return m_nb_x_faces + ij + m_nb_x_cells * (m_nb_y_cells + 1) * k;
+}
+
+Id
+CartesianMesh3D::getCommonFace(const Id& cellId1, const Id& cellId2) const noexcept
+{
+	const auto faces1 = getFacesOfCell(cellId1);
+	const auto faces2 = getFacesOfCell(cellId2);
+	for (auto f1 : faces1)
+		for (auto f2 : faces2)
+			if (f1 == f2) return f1;
+	return static_cast<Id>(-1);
+}
+
+Id
+CartesianMesh3D::getBackCell(const Id& faceId) const
+{
+	const auto cells = getCellsOfFace(faceId);
+	if (cells.size() < 2)
+		throw runtime_error("Error in getBackCell(" + to_string(faceId) + "): please consider using this method with inner face only.");
+	return cells[0];
+}
+
+Id
+CartesianMesh3D::getFrontCell(const Id& faceId) const
+{
+	const auto cells = getCellsOfFace(faceId);
+	if (cells.size() < 2)
+		throw runtime_error("Error in getFrontCell(" + to_string(faceId) + "): please consider using this method with inner face only.");
+	return cells[1];
+}
+
+void
+CartesianMesh3D::create(size_t nb_x_cells, size_t nb_y_cells, size_t nb_z_cells, double x_size, double y_size, double z_size)
+{
+	if (nb_x_cells == 0 || nb_y_cells == 0 || nb_z_cells == 0)
+		throw runtime_error("Wrong mesh size: " + to_string(nb_x_cells) + " x " + to_string(nb_y_cells) + " x " + to_string(nb_z_cells));
+
+	m_nb_x_cells = nb_x_cells;
+	m_nb_y_cells = nb_y_cells;
+	m_nb_z_cells = nb_z_cells;
+	m_x_size = x_size;
+	m_y_size = y_size;
+	m_z_size = z_size;
+	m_nb_x_faces = (nb_x_cells + 1) * nb_y_cells * nb_z_cells;
+	m_nb_y_faces = nb_x_cells * (nb_y_cells + 1) * nb_z_cells;
+	m_nb_z_faces = nb_x_cells * nb_y_cells * (nb_z_cells + 1);
+}
+
+bool
+CartesianMesh3D::isOuterNode(const Id& nodeId) const noexcept
+{
+	const size_t i = nodeId % (m_nb_x_cells + 1);
+	const size_t j = (nodeId / (m_nb_x_cells + 1)) % (m_nb_y_cells + 1);
+	const size_t k = nodeId / ((m_nb_x_cells + 1) * (m_nb_y_cells + 1));
+	return i == 0 || i == m_nb_x_cells || j == 0 || j == m_nb_y_cells || k == 0 || k == m_nb_z_cells;
+}
+
+bool
+CartesianMesh3D::isOuterCell(const Id& cellId) const noexcept
+{
+	const size_t i = cellId % m_nb_x_cells;
+	const size_t j = (cellId / m_nb_x_cells) % m_nb_y_cells;
+	const size_t k = cellId / (m_nb_x_cells * m_nb_y_cells);
+	return i == 0 || i == m_nb_x_cells - 1 || j == 0 || j == m_nb_y_cells - 1 || k == 0 || k == m_nb_z_cells - 1;
+}
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+#ifndef NABLALIB_MESH_CARTESIANMESH3D_H_
+#define NABLALIB_MESH_CARTESIANMESH3D_H_
+
+#include <array>
+#include <vector>
+#include "nablalib/types/Types.h"
+
+using namespace std;
+using namespace nablalib::types;
+
+namespace nablalib::mesh
+{
+
+/*
+ * Cartesian 3D mesh of hexahedra.
+ *
+ * No connectivity table is stored: all connectivities are computed
+ * from (i, j, k) indices with:
+ *   node id = i + (nb_x_cells+1) * (j + (nb_y_cells+1) * k)
+ *   cell id = i + nb_x_cells * (j + nb_y_cells * k)
+ * Faces are numbered by normal direction: X faces, then Y faces, then Z faces.
+ * Item sets are allocated on first call only.
+ *
+ * Sides: left/right for x, bottom/top for y, back/front for z.
+ */
+class CartesianMesh3D
+{
+public:
+	static constexpr int MaxNbNodesOfCell = 8;
+	static constexpr int MaxNbNodesOfFace = 4;
+	static constexpr int MaxNbCellsOfNode = 8;
+	static constexpr int MaxNbCellsOfFace = 2;
+	static constexpr int MaxNbFacesOfCell = 6;
+	static constexpr int MaxNbNeighbourCells = 6;
+
+	CartesianMesh3D() = default;
+	CartesianMesh3D(size_t nb_x_cells, size_t nb_y_cells, size_t nb_z_cells, double x_size, double y_size, double z_size);
+
+	void jsonInit(const char* jsonContent);
+
+	size_t getNbXCells() const noexcept { return m_nb_x_cells; }
+	size_t getNbYCells() const noexcept { return m_nb_y_cells; }
+	size_t getNbZCells() const noexcept { return m_nb_z_cells; }
+
+	size_t getNbNodes() const noexcept { return (m_nb_x_cells + 1) * (m_nb_y_cells + 1) * (m_nb_z_cells + 1); }
+	size_t getNbCells() const noexcept { return m_nb_x_cells * m_nb_y_cells * m_nb_z_cells; }
+	size_t getNbFaces() const noexcept { return m_nb_x_faces + m_nb_y_faces + m_nb_z_faces; }
+
+	size_t getNbInnerNodes() const noexcept;
+	const vector<Id>& getInnerNodes();
+	size_t getNbOuterNodes() const noexcept { return getNbNodes() - getNbInnerNodes(); }
+	const vector<Id>& getOuterNodes();
+
+	size_t getNbInnerCells() const noexcept;
+	const vector<Id>& getInnerCells();
+	size_t getNbOuterCells() const noexcept { return getNbCells() - getNbInnerCells(); }
+	const vector<Id>& getOuterCells();
+
+	size_t getNbOuterFaces() const noexcept;
+	const vector<Id>& getOuterFaces();
+	size_t getNbInnerFaces() const noexcept { return getNbFaces() - getNbOuterFaces(); }
+	const vector<Id>& getInnerFaces();
+
+	size_t getNbLeftFaces() const noexcept { return m_nb_y_cells * m_nb_z_cells; }
+	const vector<Id>& getLeftFaces();
+	size_t getNbRightFaces() const noexcept { return m_nb_y_cells * m_nb_z_cells; }
+	const vector<Id>& getRightFaces();
+	size_t getNbBottomFaces() const noexcept { return m_nb_x_cells * m_nb_z_cells; }
+	const vector<Id>& getBottomFaces();
+	size_t getNbTopFaces() const noexcept { return m_nb_x_cells * m_nb_z_cells; }
+	const vector<Id>& getTopFaces();
+	size_t getNbBackFaces() const noexcept { return m_nb_x_cells * m_nb_y_cells; }
+	const vector<Id>& getBackFaces();
+	size_t getNbFrontFaces() const noexcept { return m_nb_x_cells * m_nb_y_cells; }
+	const vector<Id>& getFrontFaces();
+
+	RealArray1D<3> getNodeCoordinates(const Id& nodeId) const noexcept;
+
+	// VTK hexahedron order: nodes of the k face counterclockwise, then nodes of the k+1 face
+	array<Id, 8> getNodesOfCell(const Id& cellId) const noexcept;
+	array<Id, 4> getNodesOfFace(const Id& faceId) const noexcept;
+
+	vector<Id> getCellsOfNode(const Id& nodeId) const noexcept;
+	vector<Id> getCellsOfFace(const Id& faceId) const noexcept;
+	vector<Id> getNeighbourCells(const Id& cellId) const noexcept;
+	// left, right, bottom, top, back, front
+	array<Id, 6> getFacesOfCell(const Id& cellId) const noexcept;
+
+	Id getCommonFace(const Id& cellId1, const Id& cellId2) const noexcept;
+	Id getBackCell(const Id& faceId) const;
+	Id getFrontCell(const Id& faceId) const;
+
+	Id getLeftFaceOfCell(const Id& cellId) const noexcept;
+	Id getRightFaceOfCell(const Id& cellId) const noexcept { return getLeftFaceOfCell(cellId) + 1; }
+	Id getBottomFaceOfCell(const Id& cellId) const noexcept;
+	Id getTopFaceOfCell(const Id& cellId) const noexcept { return getBottomFaceOfCell(cellId) + m_nb_x_cells; }
+	Id getBackFaceOfCell(const Id& cellId) const noexcept { return m_nb_x_faces + m_nb_y_faces + cellId; }
+	Id getFrontFaceOfCell(const Id& cellId) const noexcept { return getBackFaceOfCell(cellId) + m_nb_x_cells * m_nb_y_cells; }
+
+private:
+	void create(size_t nb_x_cells, size_t nb_y_cells, size_t nb_z_cells, double x_size, double y_size, double z_size);
+
+	Id index2IdCell(size_t i, size_t j, size_t k) const noexcept { return i + m_nb_x_cells * (j + m_nb_y_cells * k); }
+	bool isOuterNode(const Id& nodeId) const noexcept;
+	bool isOuterCell(const Id& cellId) const noexcept;
+	bool isOuterFace(const Id& faceId) const noexcept { return getCellsOfFace(faceId).size() == 1; }
+
+	template <typename F>
+	static void fill(vector<Id>& items, size_t nbItems, size_t size, F f)
+	{
+		if (!items.empty() || size == 0) return;
+		items.reserve(size);
+		for (size_t i = 0 ; i < nbItems ; ++i)
+			if (f(i)) items.emplace_back(i);
+	}
+
+private:
+	size_t m_nb_x_cells = 0;
+	size_t m_nb_y_cells = 0;
+	size_t m_nb_z_cells = 0;
+	double m_x_size = 0.0;
+	double m_y_size = 0.0;
+	double m_z_size = 0.0;
+
+	// number of faces of each direction
+	size_t m_nb_x_faces = 0;
+	size_t m_nb_y_faces = 0;
+	size_t m_nb_z_faces = 0;
+
+	vector<Id> m_inner_nodes;
+	vector<Id> m_outer_nodes;
+	vector<Id> m_inner_cells;
+	vector<Id> m_outer_cells;
+	vector<Id> m_inner_faces;
+	vector<Id> m_outer_faces;
+	vector<Id> m_left_faces;
+	vector<Id> m_right_faces;
+	vector<Id> m_bottom_faces;
+	vector<Id> m_top_faces;
+	vector<Id> m_back_faces;
+	vector<Id> m_front_faces;
+};
+
+}
+#endif /* NABLALIB_MESH_CARTESIANMESH3D_H_ */
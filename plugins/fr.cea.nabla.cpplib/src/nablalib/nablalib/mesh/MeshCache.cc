@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+#include "nablalib/mesh/MeshCache.h"
+#include <cstdio>
+#include <cstring>
+#include <filesystem>
+#include <fstream>
+#include <stdexcept>
+#include <fcntl.h>
+#include <sys/mman.h>
+#include <sys/stat.h>
+#include <unistd.h>
+
+namespace nablalib::mesh
+{
+
+namespace
+{
+	const uint64_t Magic = 0x48534d414c42414eULL; // "NABLAMSH" in little endian (host order)
+	const int32_t Version = 1;
+
+	size_t alignedSize(size_t size) { return (size + 7) & ~size_t(7); }
+
+	// Bounds checked reads in a mapped file
+	class MappedReader
+	{
+	public:
+		MappedReader(const char* data, size_t size) : m_data(data), m_size(size), m_position(0) {}
+
+		template <typename T>
+		T get()
+		{
+			T value;
+			copy(&value, sizeof(T));
+			return value;
+		}
+
+		string getString()
+		{
+			const int32_t length(get<int32_t>());
+			if (length < 0) throw runtime_error("Invalid string length in mesh cache");
+			string s(length, '\0');
+			copy(s.data(), length);
+			return s;
+		}
+
+		// Values are aligned on 8 bytes in the file: they are copied without conversion
+		template <typename T>
+		void getValues(vector<T>& values, int32_t length)
+		{
+			if (length < 0 || m_position + length * sizeof(T) > m_size) throw runtime_error("Truncated mesh cache");
+			const T* begin(reinterpret_cast<const T*>(m_data + m_position));
+			values.assign(begin, begin + length);
+			m_position += length * sizeof(T);
+		}
+
+		void align() { m_position = alignedSize(m_position); }
+
+	private:
+		void copy(void* destination, size_t size)
+		{
+			if (m_position + size > m_size) throw runtime_error("Truncated mesh cache");
+			memcpy(destination, m_data + m_position, size);
+			m_position += size;
+		}
+
+		const char* m_data;
+		size_t m_size;
+		size_t m_position;
+	};
+
+	void putString(ofstream& out, const string& s, size_t& position)
+	{
+		const int32_t length(static_cast<int32_t>(s.size()));
+		out.write(reinterpret_cast<const char*>(&length), sizeof(length));
+		out.write(s.data(), length);
+		position += sizeof(length) + length;
+	}
+
+	template <typename T>
+	void putArray(ofstream& out, const string& name, char type, const vector<T>& values, size_t& position)
+	{
+		static const char zeros[8] = {0};
+		putString(out, name, position);
+		const int32_t length(static_cast<int32_t>(values.size()));
+		out.write(&type, 1);
+		out.write(reinterpret_cast<const char*>(&length), sizeof(length));
+		position += 1 + sizeof(length);
+		out.write(zeros, alignedSize(position) - position);
+		position = alignedSize(position);
+		out.write(reinterpret_cast<const char*>(values.data()), values.size() * sizeof(T));
+		position += values.size() * sizeof(T);
+	}
+}
+
+const vector<int32_t>&
+MeshCache::getInts(const string& name) const
+{
+	static const vector<int32_t> empty;
+	const auto values(m_ints.find(name));
+	return (values == m_ints.end() ? empty : values->second);
+}
+
+const vector<double>&
+MeshCache::getDoubles(const string& name) const
+{
+	static const vector<double> empty;
+	const auto values(m_doubles.find(name));
+	return (values == m_doubles.end() ? empty : values->second);
+}
+
+string
+MeshCache::getFile(const string& directory, const string& key)
+{
+	return (filesystem::path(directory) / (key + ".bin")).string();
+}
+
+bool
+MeshCache::read(const string& file, const string& key)
+{
+	const int fd(open(file.c_str(), O_RDONLY));
+	if (fd == -1)
+		return false;
+	struct stat st;
+	if (fstat(fd, &st) == -1 || st.st_size == 0)
+	{
+		close(fd);
+		return false;
+	}
+	const size_t size(static_cast<size_t>(st.st_size));
+	void* data(mmap(nullptr, size, PROT_READ, MAP_PRIVATE, fd, 0));
+	close(fd);
+	if (data == MAP_FAILED)
+		return false;
+
+	bool valid(false);
+	try
+	{
+		MappedReader reader(static_cast<const char*>(data), size);
+		if (reader.get<uint64_t>() == Magic && reader.get<int32_t>() == Version && reader.getString() == key)
+		{
+			const int32_t nbArrays(reader.get<int32_t>());
+			for (int32_t i(0); i < nbArrays; ++i)
+			{
+				const string name(reader.getString());
+				const char type(reader.get<char>());
+				const int32_t length(reader.get<int32_t>());
+				reader.align();
+				if (type == 'I')
+					reader.getValues(m_ints[name], length);
+				else if (type == 'D')
+					reader.getValues(m_doubles[name], length);
+				else
+					throw runtime_error("Unknown array type in mesh cache");
+			}
+			valid = true;
+		}
+	}
+	catch (const runtime_error&)
+	{
+		// truncated or corrupted file: the mesh is built again
+	}
+	munmap(data, size);
+	if (!valid)
+	{
+		m_ints.clear();
+		m_doubles.clear();
+	}
+	return valid;
+}
+
+void
+MeshCache::write(const string& file, const string& key) const
+{
+	const filesystem::path path(filesystem::absolute(file));
+	filesystem::create_directories(path.parent_path());
+	const string tmpFile(path.string() + "." + to_string(getpid()) + ".tmp");
+	{
+		ofstream out(tmpFile, ios::binary | ios::trunc);
+		if (!out)
+			throw runtime_error("Unable to write mesh cache " + file);
+		size_t position(0);
+		const int32_t nbArrays(static_cast<int32_t>(m_ints.size() + m_doubles.size()));
+		out.write(reinterpret_cast<const char*>(&Magic), sizeof(Magic));
+		out.write(reinterpret_cast<const char*>(&Version), sizeof(Version));
+		position += sizeof(Magic) + sizeof(Version);
+		putString(out, key, position);
+		out.write(reinterpret_cast<const char*>(&nbArrays), sizeof(nbArrays));
+		position += sizeof(nbArrays);
+		for (const auto& e : m_ints)
+			putArray(out, e.first, 'I', e.second, position);
+		for (const auto& e : m_doubles)
+			putArray(out, e.first, 'D', e.second, position);
+		if (!out)
+			throw runtime_error("Unable to write mesh cache " + file);
+	}
+	if (rename(tmpFile.c_str(), path.c_str()) != 0)
+	{
+		remove(tmpFile.c_str());
+		throw runtime_error("Unable to write mesh cache " + file);
+	}
+}
+
+}
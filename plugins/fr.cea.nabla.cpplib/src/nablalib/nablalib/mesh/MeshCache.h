@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+#ifndef NABLALIB_MESH_MESHCACHE_H_
+#define NABLALIB_MESH_MESHCACHE_H_
+
+#include <cstdint>
+#include <map>
+#include <string>
+#include <vector>
+
+using namespace std;
+
+namespace nablalib::mesh
+{
+
+/*
+ * Binary file of named int and double arrays describing a built mesh,
+ * read through a memory mapping. Same little endian layout as the
+ * Java MeshCache: magic, version, key, number of arrays, then for each array
+ * its name, its type ('I' or 'D'), its length and its values aligned on 8 bytes.
+ * The key identifies the mesh parameters: a file with another key is ignored.
+ */
+class MeshCache
+{
+public:
+	void put(const string& name, vector<int32_t> values) { m_ints[name] = move(values); }
+	void put(const string& name, vector<double> values) { m_doubles[name] = move(values); }
+
+	// Empty if absent
+	const vector<int32_t>& getInts(const string& name) const;
+	const vector<double>& getDoubles(const string& name) const;
+
+	static string getFile(const string& directory, const string& key);
+
+	// Returns false if the file does not exist, has another key or another version
+	bool read(const string& file, const string& key);
+
+	// Writes into a temporary file renamed to file: concurrent runs never read a partial file
+	void write(const string& file, const string& key) const;
+
+private:
+	map<string, vector<int32_t>> m_ints;
+	map<string, vector<double>> m_doubles;
+};
+
+}
+#endif /* NABLALIB_MESH_MESHCACHE_H_ */
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+#include <filesystem>
+
+#include "PvdFileWriter3D.h"
+
+using namespace std;
+
+namespace nablalib::mesh
+{
+PvdFileWriter3D::PvdFileWriter3D(const string& moduleName, const string& directoryName)
+: m_module_name(moduleName)
+, m_directory_name(directoryName)
+, m_state(closed)
+{
+	if (!isDisabled() && !filesystem::exists(m_directory_name))
+		filesystem::create_directory(m_directory_name);
+}
+
+PvdFileWriter3D::~PvdFileWriter3D() {}
+
+void
+PvdFileWriter3D::startVtuFile(
+		const int& iteration,
+		const double& time,
+		const size_t& nbNodes,
+		const RealArray1D<3>* nodes,
+		const CartesianMesh3D& mesh)
+{
+	if (isDisabled()) return;
+	changeState(closed, ready);
+
+	const size_t nbCells = mesh.getNbCells();
+	const string fileName = m_module_name + "." + to_string(iteration) + ".vtu";
+	m_file_name_by_times[time] = fileName;
+	m_vtu_writer.open(m_directory_name + "/" + fileName);
+
+	m_vtu_writer << "<?xml version=\"1.0\"?>" << endl;
+	m_vtu_writer << "<VTKFile type=\"UnstructuredGrid\">" << endl;
+	m_vtu_writer << "	<UnstructuredGrid>" << endl;
+	m_vtu_writer << "		<Piece NumberOfPoints=\"" << nbNodes << "\" NumberOfCells=\"" << nbCells << "\">" << endl;
+	m_vtu_writer << "			<Points>" << endl;
+	m_vtu_writer << "				<DataArray type=\"Float32\" NumberOfComponents=\"3\" format=\"ascii\">" << endl;
+	for (size_t r=0 ; r<nbNodes ; ++r)
+		m_vtu_writer << " " << nodes[r][0] << " " << nodes[r][1] << " " << nodes[r][2];
+	m_vtu_writer << endl;
+	m_vtu_writer << "				</DataArray>" << endl;
+	m_vtu_writer << "			</Points>" << endl;
+	m_vtu_writer << "			<Cells>" << endl;
+	m_vtu_writer << "				<DataArray type=\"Int32\" Name=\"connectivity\" format=\"ascii\">" << endl;
+	for (size_t j=0 ; j<nbCells ; ++j)
+	{
+		m_vtu_writer << " ";
+		for (auto nodeId : mesh.getNodesOfCell(j))
+			m_vtu_writer << " " << nodeId;
+	}
+	m_vtu_writer << endl;
+	m_vtu_writer << "				</DataArray>" << endl;
+	m_vtu_writer << "				<DataArray type=\"Int32\" Name=\"offsets\" format=\"ascii\">" << endl;
+	for (size_t j=1 ; j<=nbCells ; ++j)
+		m_vtu_writer << " " << j * CartesianMesh3D::MaxNbNodesOfCell;
+	m_vtu_writer << endl;
+	m_vtu_writer << "				</DataArray>" << endl;
+	m_vtu_writer << "				<DataArray type=\"UInt8\" Name=\"types\" format=\"ascii\">" << endl;
+	for (size_t j=0 ; j<nbCells ; ++j)
+		m_vtu_writer << " " << VtkHexahedron;
+	m_vtu_writer << endl;
+	m_vtu_writer << "				</DataArray>" << endl;
+	m_vtu_writer << "			</Cells>" << endl;
+}
+
+void
+PvdFileWriter3D::openNodeData()
+{
+	if (isDisabled()) return;
+	changeState(ready, onNodes);
+	m_vtu_writer << "			<PointData>" << endl;
+}
+
+void
+PvdFileWriter3D::openCellData()
+{
+	if (isDisabled()) return;
+	changeState(nodesFinished, onCells);
+	m_vtu_writer << "			<CellData>" << endl;
+}
+
+void
+PvdFileWriter3D::openNodeArray(const string& name, const int& arraySize)
+{
+	if (isDisabled()) return;
+	changeState(onNodes, onNodeArray);
+	m_vtu_writer << "				<DataArray Name=\"" + name + "\" type=\"Float32\" NumberOfComponents=\"" + to_string(arraySize) + "\" format=\"ascii\">" << endl;
+}
+
+void
+PvdFileWriter3D::openCellArray(const string& name, const int& arraySize)
+{
+	if (isDisabled()) return;
+	changeState(onCells, onCellArray);
+	m_vtu_writer << "				<DataArray Name=\"" + name + "\" type=\"Float32\" NumberOfComponents=\"" + to_string(arraySize) + "\" format=\"ascii\">" << endl;
+}
+
+void
+PvdFileWriter3D::closeNodeArray()
+{
+	if (isDisabled()) return;
+	changeState(onNodeArray, onNodes);
+	m_vtu_writer << endl;
+	m_vtu_writer << "				</DataArray>" << endl;
+}
+
+void
+PvdFileWriter3D::closeCellArray()
+{
+	if (isDisabled()) return;
+	changeState(onCellArray, onCells);
+	m_vtu_writer << endl;
+	m_vtu_writer << "				</DataArray>" << endl;
+}
+
+void
+PvdFileWriter3D::closeNodeData()
+{
+	if (isDisabled()) return;
+	changeState(onNodes, nodesFinished);
+	m_vtu_writer << "			</PointData>" << endl;
+}
+
+void
+PvdFileWriter3D::closeCellData()
+{
+	if (isDisabled()) return;
+	changeState(onCells, cellsFinished);
+	m_vtu_writer << "			</CellData>" << endl;
+}
+
+void
+PvdFileWriter3D::closeVtuFile()
+{
+	if (isDisabled()) return;
+	changeState(cellsFinished, closed);
+	m_vtu_writer << "		</Piece>" << endl;
+	m_vtu_writer << "	</UnstructuredGrid>" << endl;
+	m_vtu_writer << "</VTKFile>" << endl;
+	m_vtu_writer.close();
+
+	ofstream pvdWriter;
+	pvdWriter.open(m_directory_name + "/" + m_module_name + ".pvd");
+	pvdWriter << "<?xml version=\"1.0\"?>" << endl;
+	pvdWriter << "<VTKFile type=\"Collection\" version=\"0.1\">" << endl;
+	pvdWriter << "	<Collection>" << endl;
+	for (auto itr = m_file_name_by_times.begin() ; itr != m_file_name_by_times.end() ; itr++)
+		pvdWriter << "			<DataSet timestep=\"" << itr->first << "\" group=\"\" part=\"0\" file=\"" + itr->second + "\"/>" << endl;
+	pvdWriter << "	</Collection>" << endl;
+	pvdWriter << "</VTKFile>" << endl;
+	pvdWriter.close();
+}
+
+void
+PvdFileWriter3D::changeState(const State& expectedState, const State& newState)
+{
+	if (m_state != expectedState)
+	{
+		ostringstream stringStream;
+		stringStream << "Unexpected pvd file writer state. Expected: ";
+		stringStream << expectedState;
+		stringStream << ", but was: ";
+		stringStream << m_state;
+		throw runtime_error(stringStream.str());
+	}
+	m_state = newState;
+}
+}
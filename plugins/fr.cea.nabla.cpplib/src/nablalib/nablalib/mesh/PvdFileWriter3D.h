@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+#ifndef NABLALIB_MESH_PVDFILEWRITER3D_H_
+#define NABLALIB_MESH_PVDFILEWRITER3D_H_
+
+#include <string>
+#include <map>
+#include <fstream>
+
+#include "nablalib/types/Types.h"
+#include "nablalib/mesh/CartesianMesh3D.h"
+
+using namespace std;
+
+namespace nablalib::mesh
+{
+
+class PvdFileWriter3D
+{
+public:
+	enum State { closed, ready, onNodes, nodesFinished, onCells, cellsFinished, onNodeArray, onCellArray };
+	PvdFileWriter3D(const string& moduleName, const string& directoryName);
+	~PvdFileWriter3D();
+
+	bool isDisabled() { return m_directory_name.empty(); }
+	const string& outputDirectory() { return m_directory_name; }
+
+	// hexahedra are written from the mesh index arithmetic: no connectivity array is needed
+	void startVtuFile(
+			const int& iteration,
+			const double& time,
+			const size_t& nbNodes,
+			const RealArray1D<3>* nodes,
+			const CartesianMesh3D& mesh);
+
+	void openNodeData();
+	void openCellData();
+	void openNodeArray(const string& name, const int& arraySize);
+	void openCellArray(const string& name, const int& arraySize);
+	void closeNodeData();
+	void closeCellData();
+	void closeNodeArray();
+	void closeCellArray();
+
+	void closeVtuFile();
+
+	void write(const double& data)
+	{
+		m_vtu_writer << " " << data;
+	}
+
+	template<size_t N> void write(const RealArray1D<N>& data)
+	{
+		for (size_t i=0 ; i<N ; ++i)
+			m_vtu_writer << " " << data[i];
+	}
+
+protected:
+	ofstream m_vtu_writer;
+
+private:
+	static constexpr int VtkHexahedron = 12;
+	void changeState(const State& expectedState, const State& newState);
+	map<double, string> m_file_name_by_times;
+	string m_module_name;
+	string m_directory_name;
+	State m_state;
+};
+}
+#endif /* NABLALIB_MESH_PVDFILEWRITER3D_H_ */
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir
+
+import fr.cea.nabla.ir.ir.Instruction
+import fr.cea.nabla.ir.ir.IrFactory
+
+class InstructionExtensions
+{
+	public static val ANNOTATION_DESTINATION_SOURCE = "destination-result"
+	public static val ANNOTATION_DESTINATION_DETAIL = "destination"
+
+	/**
+	 * True if the array result of the instruction is written into an existing array,
+	 * instead of a new one, see UseDestinationResults.
+	 */
+	static def boolean hasDestination(Instruction it)
+	{
+		annotations.exists[x | x.source == ANNOTATION_DESTINATION_SOURCE]
+	}
+
+	/**
+	 * Name of the existing array: the destination argument of the function
+	 * for a return or a local variable declaration, null for an affectation
+	 * whose destination is its left part.
+	 */
+	static def String getDestination(Instruction it)
+	{
+		val annotation = annotations.findFirst[x | x.source == ANNOTATION_DESTINATION_SOURCE]
+		if (annotation === null) null
+		else annotation.details.get(ANNOTATION_DESTINATION_DETAIL)
+	}
+
+	static def void setDestination(Instruction it, String destinationName)
+	{
+		annotations += IrFactory::eINSTANCE.createIrAnnotation =>
+		[
+			source = ANNOTATION_DESTINATION_SOURCE
+			if (destinationName !== null) details.put(ANNOTATION_DESTINATION_DETAIL, destinationName)
+		]
+	}
+}
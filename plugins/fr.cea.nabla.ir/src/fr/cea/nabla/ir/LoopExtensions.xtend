@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir
+
+import fr.cea.nabla.ir.ir.Affectation
+import fr.cea.nabla.ir.ir.ArgOrVarRef
+import fr.cea.nabla.ir.ir.ConnectivityCall
+import fr.cea.nabla.ir.ir.IrFactory
+import fr.cea.nabla.ir.ir.ItemId
+import fr.cea.nabla.ir.ir.ItemIdDefinition
+import fr.cea.nabla.ir.ir.ItemIdValueIterator
+import fr.cea.nabla.ir.ir.Iterator
+import fr.cea.nabla.ir.ir.Loop
+import fr.cea.nabla.ir.ir.MeshExtensionProvider
+
+class LoopExtensions
+{
+	public static val ANNOTATION_COLOURING_SOURCE = "scatter-colouring"
+	public static val ANNOTATION_CONNECTIVITY_DETAIL = "connectivity"
+	public static val ANNOTATION_SWAP_SOURCE = "buffer-swap"
+	public static val STRUCTURED_MESH = "CartesianMesh2D"
+
+	/**
+	 * Name of the connectivity colouring the items of a scatter loop:
+	 * items of a colour share no element of this connectivity.
+	 * Null if the loop is not executed colour by colour.
+	 */
+	static def String getColouringConnectivity(Loop it)
+	{
+		val annotation = annotations.findFirst[x | x.source == ANNOTATION_COLOURING_SOURCE]
+		if (annotation === null) null
+		else annotation.details.get(ANNOTATION_CONNECTIVITY_DETAIL)
+	}
+
+	static def boolean isColoured(Loop it)
+	{
+		colouringConnectivity !== null
+	}
+
+	static def void setColouringConnectivity(Loop it, String connectivityName)
+	{
+		annotations += IrFactory::eINSTANCE.createIrAnnotation =>
+		[
+			source = ANNOTATION_COLOURING_SOURCE
+			details.put(ANNOTATION_CONNECTIVITY_DETAIL, connectivityName)
+		]
+	}
+
+	/**
+	 * True if the loop copies the next value of a time loop variable into
+	 * its current value, X_n = X_nplus1, and the arrays of the two variables
+	 * can be swapped instead, except for the last iteration, see SwapTimeLoopBuffers.
+	 */
+	static def boolean isBufferSwap(Loop it)
+	{
+		annotations.exists[x | x.source == ANNOTATION_SWAP_SOURCE]
+	}
+
+	static def void setBufferSwap(Loop it, boolean bufferSwap)
+	{
+		annotations.removeIf[x | x.source == ANNOTATION_SWAP_SOURCE]
+		if (bufferSwap)
+			annotations += IrFactory::eINSTANCE.createIrAnnotation => [ source = ANNOTATION_SWAP_SOURCE ]
+	}
+
+	/** The copy X_n{r} = X_nplus1{r} of a buffer swap loop: its references name the swapped variables */
+	static def Affectation getSwapAffectation(Loop it)
+	{
+		eAllContents.filter(Affectation).head
+	}
+
+	/** The X_nplus1{r} of the copy of a buffer swap loop */
+	static def ArgOrVarRef getSwapSource(Loop it)
+	{
+		swapAffectation.right as ArgOrVarRef
+	}
+
+	/**
+	 * True for meshes whose nbXQuads x nbYQuads cells are numbered row by row,
+	 * cell (x, y) being y * nbXQuads + x, when they are not renumbered.
+	 */
+	static def boolean isStructured(MeshExtensionProvider it)
+	{
+		extensionName == STRUCTURED_MESH
+	}
+
+	/**
+	 * True if the loop iterates on all the cells of a structured mesh:
+	 * it can be executed as nested loops on the rows and the columns.
+	 */
+	static def boolean isStructuredCellLoop(Loop it)
+	{
+		val b = iterationBlock
+		if (b instanceof Iterator)
+		{
+			val c = b.container
+			if (c instanceof ConnectivityCall)
+				return c.args.empty && c.connectivity.name == "cells"
+					&& c.connectivity.eContainer instanceof MeshExtensionProvider
+					&& (c.connectivity.eContainer as MeshExtensionProvider).structured
+		}
+		return false
+	}
+
+	/** The structured cell loop whose item is id, null if id is not such a loop item */
+	static def Loop getStructuredCellLoop(ItemId it)
+	{
+		val definition = eContainer
+		if (definition instanceof ItemIdDefinition)
+		{
+			val v = definition.value
+			if (v instanceof ItemIdValueIterator)
+			{
+				val loop = v.iterator.eContainer
+				if (v.shift == 0 && loop instanceof Loop && (loop as Loop).structuredCellLoop)
+					return loop as Loop
+			}
+		}
+		return null
+	}
+}
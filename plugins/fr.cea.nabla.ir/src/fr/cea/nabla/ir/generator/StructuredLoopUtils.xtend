@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.generator
+
+import fr.cea.nabla.ir.ir.ConnectivityCall
+import fr.cea.nabla.ir.ir.Iterator
+import fr.cea.nabla.ir.ir.Loop
+
+import static extension fr.cea.nabla.ir.LoopExtensions.*
+
+/**
+ * Structured loops on the cells of a CartesianMesh2D: nested loops on the rows y
+ * and the columns x of the grid, the index of cell (x, y) being y * nbXQuads + x.
+ * Neighbours of the loop cell are computed from (x, y) instead of mesh calls.
+ * Generated modules define the nbXQuads and nbYQuads members.
+ */
+class StructuredLoopUtils
+{
+	static def getColumnIndexName(Loop it) { cellIndexName + 'X' }
+	static def getRowIndexName(Loop it) { cellIndexName + 'Y' }
+
+	/** Index of the loop cell, i.e. rowIndexName * nbXQuads + columnIndexName */
+	static def getCellIndexName(Loop it) { (iterationBlock as Iterator).index.name }
+
+	/**
+	 * Arithmetic content of a singleton connectivity call on the cell
+	 * of a structured loop, null if it is not on such a cell.
+	 */
+	static def CharSequence getStructuredContent(ConnectivityCall it)
+	{
+		if (args.size != 1) return null
+		val loop = args.head.structuredCellLoop
+		if (loop === null) return null
+
+		val c = loop.cellIndexName
+		val x = loop.columnIndexName
+		val y = loop.rowIndexName
+		val bottomFace = '''(2 * «x» + «y» * (2 * nbXQuads + 1))'''
+		switch connectivity.name
+		{
+			case 'leftCell': '''(«x» == 0 ? «c» : «c» - 1)'''
+			case 'rightCell': '''(«x» == nbXQuads - 1 ? «c» : «c» + 1)'''
+			case 'bottomCell': '''(«y» == 0 ? «c» : «c» - nbXQuads)'''
+			case 'topCell': '''(«y» == nbYQuads - 1 ? «c» : «c» + nbXQuads)'''
+			case 'bottomFaceOfCell': bottomFace
+			case 'leftFaceOfCell': '''(«bottomFace» + 1)'''
+			case 'rightFaceOfCell': '''(«bottomFace» + («x» == nbXQuads - 1 ? 2 : 3))'''
+			case 'topFaceOfCell': '''(«bottomFace» + («y» < nbYQuads - 1 ? 2 * nbXQuads + 1 : 2 * nbXQuads + 1 - «x»))'''
+			default: null
+		}
+	}
+
+	/**
+	 * Fixed number of elements of a multiple connectivity call on the cell
+	 * of a structured loop, e.g. MaxNbNodesOfCell, null if it varies.
+	 */
+	static def String getStructuredStride(ConnectivityCall it)
+	{
+		if (args.size == 1 && args.head.structuredCellLoop !== null
+			&& (connectivity.name == 'nodesOfCell' || connectivity.name == 'facesOfCell'))
+			'MaxNb' + connectivity.name.toFirstUpper
+		else
+			null
+	}
+}
@@ -21,35 +21,65 @@ import fr.cea.nabla.ir.ir.IrModule
 import fr.cea.nabla.ir.ir.IrRoot
 import fr.cea.nabla.ir.ir.LinearAlgebraType
 import fr.cea.nabla.ir.ir.Variable
+import fr.cea.nabla.ir.transformers.CompositeTransformationStep
+import fr.cea.nabla.ir.transformers.FuseJobLoops
+import fr.cea.nabla.ir.transformers.IrTransformationStep
+import fr.cea.nabla.ir.transformers.SwapTimeLoopBuffers
 import java.util.ArrayList
+import java.util.HashMap
 import java.util.LinkedHashSet
 
 import static extension fr.cea.nabla.ir.ContainerExtensions.*
 import static extension fr.cea.nabla.ir.ExtensionProviderExtensions.*
 import static extension fr.cea.nabla.ir.IrModuleExtensions.*
 import static extension fr.cea.nabla.ir.IrRootExtensions.*
+import static extension fr.cea.nabla.ir.LoopExtensions.*
 import static extension fr.cea.nabla.ir.IrTypeExtensions.*
 import static extension fr.cea.nabla.ir.generator.Utils.*
 import static extension fr.cea.nabla.ir.generator.cpp.CppGeneratorUtils.*
 
-class CppApplicationGenerator extends CppGenerator implements ApplicationGenerator
+class CppApplicationGenerator extends CppGenerator implements ApplicationGenerator
 {
 	val boolean hasLevelDB
 	val cMakeVars = new LinkedHashSet<Pair<String, String>>
+	val targetOptions = new HashMap<String, String>
 
+	/** Variables of the target are CMake variables, except CppGeneratorOptions keys */
 	new(Backend backend, String wsPath, boolean hasLevelDB, Iterable<Pair<String, String>> cmakeVars)
 	{
 		super(backend)
 		this.hasLevelDB = hasLevelDB
-		cmakeVars.forEach[x | this.cMakeVars += x]
+		for (x : cmakeVars)
+			if (CppGeneratorOptions.Keys.contains(x.key)) targetOptions.put(x.key, x.value)
+			else this.cMakeVars += x
 
 		// Set WS_PATH variables in CMake and unzip NRepository if necessary
 		this.cMakeVars += new Pair(CMakeContentProvider.WS_PATH, wsPath)
 		UnzipHelper::unzipNRepository(wsPath)
 	}
-
+
+	/** Options are not yet set when the IR is transformed: they are read from the map */
+	override getIrTransformationStep()
+	{
+		val steps = new ArrayList<IrTransformationStep>
+		if (backend.irTransformationStep !== null)
+			steps += backend.irTransformationStep
+		if (targetOptions.get(CppGeneratorOptions.Buffers) == CppGeneratorOptions.SwapBuffers)
+			steps += new SwapTimeLoopBuffers
+		// after the swaps whose writers are whole loop bodies
+		if (targetOptions.get(CppGeneratorOptions.Fusion) == CppGeneratorOptions.LoopFusion)
+			steps += new FuseJobLoops
+		switch steps.size
+		{
+			case 0: null
+			case 1: steps.head
+			default: new CompositeTransformationStep('C++ IR transformations', steps)
+		}
+	}
+
 	override getGenerationContents(IrRoot ir)
 	{
+		CppGeneratorOptions.set(targetOptions)
 		val fileContents = new ArrayList<GenerationContent>
 		for (module : ir.modules)
 		{
@@ -109,7 +139,7 @@ class CppApplicationGenerator extends CppGenerator implements ApplicationGenerat
 			«IF postProcessing !== null»std::string «IrUtils.OutputPathNameAndValue.key»;«ENDIF»
 			«FOR v : options»
 			«typeContentProvider.getCppType(v.type)» «v.name»;
-			«ENDFOR»
+			«ENDFOR»
 			«FOR v : validExtensionProviders»
 			«v.className» «v.instanceName»;
 			«ENDFOR»
@@ -117,7 +147,7 @@ class CppApplicationGenerator extends CppGenerator implements ApplicationGenerat
 
 			void jsonInit(const char* jsonContent);
 		};
-
+
 		«className»(«meshClassName»& aMesh, Options& aOptions);
 		~«className»();
 		«IF main»
@@ -159,6 +189,9 @@ class CppApplicationGenerator extends CppGenerator implements ApplicationGenerat
 		// Mesh and mesh variables
 		«meshClassName»& mesh;
 		«FOR c : irRoot.mesh.connectivities.filter[multiple] BEFORE 'size_t ' SEPARATOR ', ' AFTER ';'»«c.nbElemsVar»«ENDFOR»
+		«IF structuredLoops»
+		size_t nbXQuads, nbYQuads;
+		«ENDIF»
 
 		// User options
 		Options& options;
@@ -191,7 +224,7 @@ class CppApplicationGenerator extends CppGenerator implements ApplicationGenerat
 	#endif
 	'''
 
-	private def getSourceFileContent(IrModule it)
+	private def getSourceFileContent(IrModule it)
 	'''
 	«fileHeader»
 
@@ -205,7 +238,7 @@ class CppApplicationGenerator extends CppGenerator implements ApplicationGenerat
 			#include "«m.className».h"
 		«ENDFOR»
 	«ENDIF»
-
+
 	«val internFunctions = functions.filter(InternFunction)»
 	«IF !internFunctions.empty»
 
@@ -262,12 +295,16 @@ class CppApplicationGenerator extends CppGenerator implements ApplicationGenerat
 	}
 
 	/******************** Module definition ********************/
-
-	«className»::«className»(«meshClassName»& aMesh, Options& aOptions)
+
+	«className»::«className»(«meshClassName»& aMesh, Options& aOptions)
 	: mesh(aMesh)
 	«FOR c : irRoot.mesh.connectivities.filter[multiple]»
 	, «c.nbElemsVar»(«c.connectivityAccessor»)
 	«ENDFOR»
+	«IF structuredLoops»
+	, nbXQuads(mesh.getNbXQuads())
+	, nbYQuads(mesh.getNbYQuads())
+	«ENDIF»
 	, options(aOptions)
 	«IF postProcessing !== null», writer("«irRoot.name»", options.«IrUtils.OutputPathNameAndValue.key»)«ENDIF»
 	«FOR v : variablesWithDefaultValue.filter[x | !x.constExpr]»
@@ -286,7 +323,7 @@ class CppApplicationGenerator extends CppGenerator implements ApplicationGenerat
 
 		«ENDIF»
 		«IF main»
-		// Copy node coordinates
+		// Copy node coordinates
 		const auto& gNodes = mesh.getGeometry()->getNodes();
 		«val iterator = backend.typeContentProvider.formatIterators(irRoot.initNodeCoordVariable.type as ConnectivityType, #["rNodes"])»
 		for (size_t rNodes=0; rNodes<nbNodes; rNodes++)
@@ -295,12 +332,12 @@ class CppApplicationGenerator extends CppGenerator implements ApplicationGenerat
 			«irRoot.initNodeCoordVariable.name»«iterator»[1] = gNodes[rNodes][1];
 		}
 		«ENDIF»
-	}
+	}
 
 	«className»::~«className»()
 	{
 	}
-	«IF kokkosTeamThread»
+	«IF kokkosTeamThread»
 
 	const std::pair<size_t, size_t> «className»::computeTeamWorkRange(const member_type& thread, const size_t& nb_elmt) noexcept
 	{
@@ -377,7 +414,7 @@ class CppApplicationGenerator extends CppGenerator implements ApplicationGenerat
 	}
 	«ENDIF»
 
-	void «className»::«irRoot.main.codeName»()
+	void «className»::«irRoot.main.codeName»()
 	{
 		«backend.traceContentProvider.getBeginOfSimuTrace(it)»
 
@@ -483,14 +520,20 @@ class CppApplicationGenerator extends CppGenerator implements ApplicationGenerat
 		return ret;
 	}
 	«ENDIF»
-	'''
-
-	private def getConnectivityAccessor(Connectivity c)
-	{
-		if (c.inTypes.empty)
-			'''mesh.getNb«c.name.toFirstUpper»()'''
-		else
-			'''CartesianMesh2D::MaxNb«c.name.toFirstUpper»'''
+	'''
+
+	/** Loops on cells of a CartesianMesh2D are generated as nested (x, y) loops */
+	private def isStructuredLoops(IrModule it)
+	{
+		CppGeneratorOptions.structuredLoops && irRoot.mesh.structured
+	}
+
+	private def getConnectivityAccessor(Connectivity c)
+	{
+		if (c.inTypes.empty)
+			'''mesh.getNb«c.name.toFirstUpper»()'''
+		else
+			'''CartesianMesh2D::MaxNb«c.name.toFirstUpper»'''
 	}
 
 	private def isLevelDB(IrModule it)
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.generator.cpp
+
+import java.util.Map
+
+/**
+ * Options of the C++ generators: variables of the C++ target
+ * in the ngen file, e.g. loops = "structured";
+ * They are not written in the CMakeLists.txt file.
+ * Content providers are shared by the backends: options are set for
+ * the duration of a generation by CppApplicationGenerator.
+ */
+class CppGeneratorOptions
+{
+	/** "items" (default): loops on item ids, "structured": nested (x, y) loops on the cells of a CartesianMesh2D */
+	public static val Loops = "loops"
+	public static val StructuredLoops = "structured"
+	/** "copy" (default): next values of time loop variables copied into current values, "swap": containers swapped, see SwapTimeLoopBuffers */
+	public static val Buffers = "buffers"
+	public static val SwapBuffers = "swap"
+	/** "none" (default): one loop per job, "loops": loops of consecutive jobs on the same items fused, see FuseJobLoops */
+	public static val Fusion = "fusion"
+	public static val LoopFusion = "loops"
+
+	public static val Keys = #[Loops, Buffers, Fusion]
+
+	static Map<String, String> values = emptyMap
+
+	static def void set(Map<String, String> options)
+	{
+		values = options ?: emptyMap
+	}
+
+	static def get(String key)
+	{
+		values.get(key)
+	}
+
+	static def isStructuredLoops()
+	{
+		values.get(Loops) == StructuredLoops
+	}
+}
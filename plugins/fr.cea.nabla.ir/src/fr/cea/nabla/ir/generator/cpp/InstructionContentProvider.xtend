@@ -34,13 +34,15 @@ import org.eclipse.xtend.lib.annotations.Data
 
 import static extension fr.cea.nabla.ir.ArgOrVarExtensions.*
 import static extension fr.cea.nabla.ir.ContainerExtensions.*
+import static extension fr.cea.nabla.ir.LoopExtensions.*
+import static extension fr.cea.nabla.ir.generator.StructuredLoopUtils.*
 import static extension fr.cea.nabla.ir.generator.Utils.*
 import static extension fr.cea.nabla.ir.generator.cpp.CppGeneratorUtils.*
 import static extension fr.cea.nabla.ir.generator.cpp.ItemIndexAndIdValueContentProvider.*
 
 @Data
-abstract class InstructionContentProvider
-{
+abstract class InstructionContentProvider
+{
 	protected val extension TypeContentProvider
 	protected val extension ExpressionContentProvider
 	protected abstract def CharSequence getReductionContent(ReductionInstruction it)
@@ -79,12 +81,38 @@ abstract class InstructionContentProvider
 
 	def dispatch CharSequence getContent(Loop it)
 	{
-		if (parallel)
+		if (bufferSwap)
+			bufferSwapContent
+		else
+			loopContent
+	}
+
+	protected def CharSequence getLoopContent(Loop it)
+	{
+		if (parallel && coloured)
+			colouredLoopContent
+		else if (CppGeneratorOptions.structuredLoops && structuredCellLoop)
+			structuredLoopContent
+		else if (parallel)
 			iterationBlock.defineInterval(parallelLoopContent)
 		else
 			iterationBlock.defineInterval(sequentialLoopContent)
 	}
 
+	/**
+	 * Copy X_n = X_nplus1 of a time loop replaced by a swap of the containers,
+	 * except for the last iteration: X_nplus1 is unchanged after the loop.
+	 */
+	protected def getBufferSwapContent(Loop it)
+	'''
+		if (continueLoop)
+			std::swap(«swapAffectation.left.codeName», «swapSource.codeName»);
+		else
+		{
+			«loopContent»
+		}
+	'''
+
 	def dispatch CharSequence getContent(If it)
 	'''
 		if («condition.content») 
@@ -151,6 +179,55 @@ abstract class InstructionContentProvider
 		}
 	'''
 
+	/**
+	 * Scatter loop: items of a colour share no element of the colouring connectivity,
+	 * they are processed in parallel, colour after colour.
+	 */
+	protected def CharSequence getColouredLoopContent(Loop it)
+	'''
+		{
+			const auto& «iterationBlock.indexName»Colours(mesh.getColouring("«colouringConnectivity»"));
+			for (const auto& «iterationBlock.indexName»OfColour : «iterationBlock.indexName»Colours)
+			{
+				«getParallelForContent(iterationBlock.indexName + 'OfColour.size()', iterationBlock.indexName + 'K', '''
+					const size_t «iterationBlock.indexName»(«iterationBlock.indexName»OfColour[«iterationBlock.indexName»K]);
+					«body.innerContent»''')»
+			}
+		}
+	'''
+
+	/**
+	 * Loop on the cells of a CartesianMesh2D: rows in parallel, columns in an
+	 * inner loop the compiler can vectorize, neighbours by index arithmetic.
+	 */
+	protected def CharSequence getStructuredLoopContent(Loop it)
+	{
+		val rowContent = '''
+			for (size_t «columnIndexName»=0; «columnIndexName»<nbXQuads; «columnIndexName»++)
+			{
+				const size_t «cellIndexName»(«rowIndexName» * nbXQuads + «columnIndexName»);
+				«body.innerContent»
+			}'''
+		if (parallel)
+			getParallelForContent('nbYQuads', rowIndexName, rowContent)
+		else
+			'''
+				for (size_t «rowIndexName»=0; «rowIndexName»<nbYQuads; «rowIndexName»++)
+				{
+					«rowContent»
+				}
+			'''
+	}
+
+	/** Parallel loop on [0, nbElems), sequential by default */
+	protected def CharSequence getParallelForContent(String nbElems, String indexName, CharSequence innerContent)
+	'''
+		for (size_t «indexName»=0; «indexName»<«nbElems»; «indexName»++)
+		{
+			«innerContent»
+		}
+	'''
+
 	// ### IterationBlock Extensions ###
 	protected def dispatch defineInterval(Iterator it, CharSequence innerContent)
 	{
@@ -232,6 +309,14 @@ class StlThreadInstructionContentProvider extends InstructionContentProvider
 			«body.innerContent»
 		});
 	'''
+
+	override getParallelForContent(String nbElems, String indexName, CharSequence innerContent)
+	'''
+		parallel_exec(«nbElems», [&](const size_t& «indexName»)
+		{
+			«innerContent»
+		});
+	'''
 }
 
 @Data
@@ -258,6 +343,14 @@ class KokkosInstructionContentProvider extends InstructionContentProvider
 		});
 	'''
 
+	override getParallelForContent(String nbElems, String indexName, CharSequence innerContent)
+	'''
+		Kokkos::parallel_for(«nbElems», KOKKOS_LAMBDA(const size_t& «indexName»)
+		{
+			«innerContent»
+		});
+	'''
+
 	protected def getFirstArgument(ReductionInstruction it) 
 	{
 		iterationBlock.nbElems
@@ -283,6 +376,46 @@ class KokkosTeamThreadInstructionContentProvider extends KokkosInstructionConten
 			super.getParallelLoopContent(it)
 	}
 
+	override getColouredLoopContent(Loop it)
+	{
+		val jobCaller = IrUtils.getContainerOfType(it, JobCaller)
+
+		// Teams can not be synchronized between colours: one thread runs the loop
+		if (jobCaller === null)
+			'''
+				if (teamMember.league_rank() == 0)
+					Kokkos::single(Kokkos::PerTeam(teamMember), KOKKOS_LAMBDA()
+					{
+						«sequentialLoopContent»
+					});
+			'''
+		else
+			super.getColouredLoopContent(it)
+	}
+
+	override getStructuredLoopContent(Loop it)
+	{
+		val jobCaller = IrUtils.getContainerOfType(it, JobCaller)
+
+		// Cells are shared by the threads of the team: row and column from the cell index
+		if (jobCaller === null && parallel)
+			'''
+				{
+					«iterationBlock.autoTeamWork»
+
+					Kokkos::parallel_for(Kokkos::TeamThreadRange(teamMember, teamWork.second), KOKKOS_LAMBDA(const size_t& «cellIndexName»Team)
+					{
+						const size_t «cellIndexName»(«cellIndexName»Team + teamWork.first);
+						const size_t «rowIndexName»(«cellIndexName» / nbXQuads);
+						const size_t «columnIndexName»(«cellIndexName» - «rowIndexName» * nbXQuads);
+						«body.innerContent»
+					});
+				}
+			'''
+		else
+			super.getStructuredLoopContent(it)
+	}
+
 	private def getParallelLoopBlock(Loop it)
 	'''
 		{
@@ -325,6 +458,12 @@ class OpenMpInstructionContentProvider extends InstructionContentProvider
 		«sequentialLoopContent»
 	'''
 
+	override getParallelForContent(String nbElems, String indexName, CharSequence innerContent)
+	'''
+		#pragma omp parallel for
+		«super.getParallelForContent(nbElems, indexName, innerContent)»
+	'''
+
 	private def getModifiedVariables(Loop l)
 	{
 		val modifiedVars = l.eAllContents.filter(Affectation).map[left.target].toSet
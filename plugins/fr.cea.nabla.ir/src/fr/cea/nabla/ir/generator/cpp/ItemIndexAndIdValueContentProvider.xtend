@@ -16,6 +16,7 @@ import fr.cea.nabla.ir.ir.ItemIndexValue
 import fr.cea.nabla.ir.ir.SetRef
 
 import static extension fr.cea.nabla.ir.ContainerExtensions.*
+import static extension fr.cea.nabla.ir.generator.StructuredLoopUtils.*
 
 class ItemIndexAndIdValueContentProvider 
 {
@@ -38,6 +39,7 @@ class ItemIndexAndIdValueContentProvider
 		val c = container
 		switch c
 		{
+			ConnectivityCall case CppGeneratorOptions.structuredLoops && c.structuredContent !== null: c.structuredContent
 			ConnectivityCall: '''mesh.«c.accessor»'''
 			SetRef: '''«c.target.name»'''
 		}
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.generator.java
+
+import fr.cea.nabla.ir.IrUtils
+import fr.cea.nabla.ir.ir.ExecuteTimeLoopJob
+import fr.cea.nabla.ir.ir.IrModule
+import fr.cea.nabla.ir.ir.IrRoot
+import fr.cea.nabla.ir.ir.Job
+import fr.cea.nabla.ir.ir.JobCaller
+
+import static extension fr.cea.nabla.ir.IrModuleExtensions.*
+import static extension fr.cea.nabla.ir.IrRootExtensions.*
+import static extension fr.cea.nabla.ir.generator.Utils.*
+import static extension fr.cea.nabla.ir.generator.java.JavaGeneratorUtils.*
+
+/**
+ * JMH benchmark module of an application, option benchmark = "jmh", in the
+ * jmh/<application> directory next to the source folder of the generated code,
+ * not to be compiled with it: a @Benchmark per job, except time loops, and per time loop
+ * of the main job caller a @Benchmark of one time step, i.e. the jobs it calls
+ * in the order of their @. The state is the modules after the jobs called
+ * before the first time loop, created from a data file whose mesh parameters
+ * can be overridden. The pom.xml builds target/benchmarks.jar from the sources
+ * of the application, in the source folder, and of javalib. Jobs are public in this mode.
+ */
+class BenchmarkContentProvider
+{
+	public static val Directory = 'jmh'
+	public static val JmhVersion = '1.37'
+
+	static def getBenchmarkClassName(IrRoot it)
+	{
+		mainModule.className + 'Benchmark'
+	}
+
+	/** Maven layout: src/main/java/<package>/jmh/<class>.java in the module */
+	static def getBenchmarkFileName(IrRoot it)
+	{
+		'src/main/java/' + mainModule.packageName.replace('.', '/') + '/' + Directory + '/' + benchmarkClassName + '.java'
+	}
+
+	static def getBenchmarkContent(IrRoot it)
+	'''
+		«fileHeader»
+
+		package «mainModule.packageName».«Directory»;
+
+		import java.io.FileReader;
+		import java.io.IOException;
+		import java.util.concurrent.TimeUnit;
+
+		import org.openjdk.jmh.annotations.*;
+
+		import com.google.gson.Gson;
+		import com.google.gson.JsonObject;
+
+		import fr.cea.nabla.javalib.mesh.*;
+		import «mainModule.packageName».*;
+
+		@State(Scope.Benchmark)
+		@BenchmarkMode(Mode.AverageTime)
+		@OutputTimeUnit(TimeUnit.MICROSECONDS)
+		public class «benchmarkClassName»
+		{
+			/** Data file of the application */
+			@Param({"«name».json"})
+			public String dataFile;
+
+			/** Parameters of the mesh replacing the ones of the data file, e.g. "nbXQuads=400 nbYQuads=400" */
+			@Param({""})
+			public String meshParameters;
+
+			«FOR m : modules»
+			private «m.className» «m.name»;
+			«ENDFOR»
+
+			@Setup(Level.Trial)
+			public void setUpBenchmark() throws IOException
+			{
+				final Gson gson = new Gson();
+				final JsonObject o;
+				try (FileReader reader = new FileReader(dataFile))
+				{
+					o = gson.fromJson(reader, JsonObject.class);
+				}
+
+				// Mesh instanciation
+				assert(o.has("mesh"));
+				final JsonObject meshObject = o.getAsJsonObject("mesh");
+				for (String p : meshParameters.trim().split("\\s+"))
+				{
+					if (p.isEmpty()) continue;
+					final String[] keyValue = p.split("=");
+					if (keyValue.length != 2 || !meshObject.has(keyValue[0]))
+						throw new RuntimeException("Invalid mesh parameter: " + p);
+					meshObject.addProperty(keyValue[0], keyValue[1]);
+				}
+				«mainModule.meshClassName» mesh = new «mainModule.meshClassName»();
+				mesh.jsonInit(meshObject.toString());
+
+				// Module instanciation(s)
+				«FOR m : modules»
+				«m.className».Options «m.name»Options = new «m.className».Options();
+				if (o.has("«m.name»")) «m.name»Options.jsonInit(o.get("«m.name»").toString());
+				«m.name» = new «m.className»(mesh, «m.name»Options);
+				«IF !m.main»«m.name».setMainModule(«mainModule.name»);«ENDIF»
+				«ENDFOR»
+
+				// Jobs before the time loop
+				«FOR j : initialCalls»
+				«j.benchmarkCall»
+				«ENDFOR»
+			}
+			«FOR j : jobs.filter[x | !(x instanceof JobCaller)]»
+
+			@Benchmark
+			public void «j.codeName»()
+			{
+				«j.benchmarkCall»
+			}
+			«ENDFOR»
+			«FOR t : main.calls.filter(ExecuteTimeLoopJob)»
+
+			/** One time step of «(t as Job).codeName» */
+			@Benchmark
+			public void «(t as Job).codeName»Step()
+			{
+				«FOR j : t.calls»
+				«j.benchmarkCall»
+				«ENDFOR»
+			}
+			«ENDFOR»
+		}
+	'''
+
+	/** sourceFolder is the source folder of the application, next to the jmh directory */
+	static def getPomContent(IrRoot it, String sourceFolder)
+	'''
+		<?xml version="1.0" encoding="UTF-8"?>
+		<!-- DO NOT EDIT THIS FILE - it is machine generated -->
+		<!--
+			JMH benchmarks of «name»:
+			mvn package -Dnabla.javalib=<src directory of the fr.cea.nabla.javalib plugin>
+			java -jar target/benchmarks.jar -p dataFile=<data file> -p meshParameters="nbXQuads=400 nbYQuads=400"
+		-->
+		<project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+			xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">
+			<modelVersion>4.0.0</modelVersion>
+			<groupId>fr.cea.nabla.benchmarks</groupId>
+			<artifactId>«mainModule.packageName»-«Directory»</artifactId>
+			<version>1.0</version>
+			<packaging>jar</packaging>
+
+			<properties>
+				<project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>
+				<maven.compiler.release>11</maven.compiler.release>
+				<jmh.version>«JmhVersion»</jmh.version>
+			</properties>
+
+			<dependencies>
+				<dependency>
+					<groupId>org.openjdk.jmh</groupId>
+					<artifactId>jmh-core</artifactId>
+					<version>${jmh.version}</version>
+				</dependency>
+				<dependency>
+					<groupId>com.google.code.gson</groupId>
+					<artifactId>gson</artifactId>
+					<version>2.8.6</version>
+				</dependency>
+				<dependency>
+					<groupId>org.apache.commons</groupId>
+					<artifactId>commons-math3</artifactId>
+					<version>3.6.1</version>
+				</dependency>
+				<dependency>
+					<groupId>commons-io</groupId>
+					<artifactId>commons-io</artifactId>
+					<version>2.6</version>
+				</dependency>
+				<dependency>
+					<groupId>org.iq80.leveldb</groupId>
+					<artifactId>leveldb</artifactId>
+					<version>0.12</version>
+				</dependency>
+			</dependencies>
+
+			<build>
+				<plugins>
+					<plugin>
+						<groupId>org.codehaus.mojo</groupId>
+						<artifactId>build-helper-maven-plugin</artifactId>
+						<version>3.4.0</version>
+						<executions>
+							<execution>
+								<id>add-sources</id>
+								<phase>generate-sources</phase>
+								<goals><goal>add-source</goal></goals>
+								<configuration>
+									<sources>
+										<!-- generated sources of the application -->
+										<source>${project.basedir}/../../«sourceFolder»</source>
+										<source>${nabla.javalib}</source>
+									</sources>
+								</configuration>
+							</execution>
+						</executions>
+					</plugin>
+					<plugin>
+						<groupId>org.apache.maven.plugins</groupId>
+						<artifactId>maven-compiler-plugin</artifactId>
+						<version>3.11.0</version>
+						<configuration>
+							<includes>
+								<include>«mainModule.packageName»/**/*.java</include>
+								<include>fr/cea/nabla/javalib/**/*.java</include>
+								<include>linearalgebrajava/**/*.java</include>
+							</includes>
+							<annotationProcessorPaths>
+								<path>
+									<groupId>org.openjdk.jmh</groupId>
+									<artifactId>jmh-generator-annprocess</artifactId>
+									<version>${jmh.version}</version>
+								</path>
+							</annotationProcessorPaths>
+						</configuration>
+					</plugin>
+					<plugin>
+						<groupId>org.apache.maven.plugins</groupId>
+						<artifactId>maven-shade-plugin</artifactId>
+						<version>3.5.1</version>
+						<executions>
+							<execution>
+								<phase>package</phase>
+								<goals><goal>shade</goal></goals>
+								<configuration>
+									<finalName>benchmarks</finalName>
+									<transformers>
+										<transformer implementation="org.apache.maven.plugins.shade.resource.ManifestResourceTransformer">
+											<mainClass>org.openjdk.jmh.Main</mainClass>
+										</transformer>
+										<transformer implementation="org.apache.maven.plugins.shade.resource.ServicesResourceTransformer"/>
+									</transformers>
+								</configuration>
+							</execution>
+						</executions>
+					</plugin>
+				</plugins>
+			</build>
+		</project>
+	'''
+
+	/** Jobs of the main job caller before its first time loop */
+	private static def getInitialCalls(IrRoot it)
+	{
+		val firstTimeLoop = main.calls.findFirst[x | x instanceof JobCaller]
+		main.calls.filter[x | !(x instanceof JobCaller) && (firstTimeLoop === null || x.at < firstTimeLoop.at)]
+	}
+
+	/** Call of the job on the instance of its module */
+	private static def getBenchmarkCall(Job it)
+	'''«IrUtils.getContainerOfType(it, IrModule).name».«codeName»(); // @«at»'''
+}
@@ -17,9 +17,11 @@ import fr.cea.nabla.ir.ir.BinaryExpression
 import fr.cea.nabla.ir.ir.BoolConstant
 import fr.cea.nabla.ir.ir.Cardinality
 import fr.cea.nabla.ir.ir.ContractedIf
+import fr.cea.nabla.ir.ir.Expression
 import fr.cea.nabla.ir.ir.Function
 import fr.cea.nabla.ir.ir.FunctionCall
 import fr.cea.nabla.ir.ir.IntConstant
+import fr.cea.nabla.ir.ir.InternFunction
 import fr.cea.nabla.ir.ir.IrModule
 import fr.cea.nabla.ir.ir.MaxConstant
 import fr.cea.nabla.ir.ir.MinConstant
@@ -29,16 +31,18 @@ import fr.cea.nabla.ir.ir.RealConstant
 import fr.cea.nabla.ir.ir.UnaryExpression
 import fr.cea.nabla.ir.ir.Variable
 import fr.cea.nabla.ir.ir.VectorConstant
+import fr.cea.nabla.ir.transformers.UseDestinationResults
 
 import static extension fr.cea.nabla.ir.ArgOrVarExtensions.*
 import static extension fr.cea.nabla.ir.ContainerExtensions.*
 import static extension fr.cea.nabla.ir.IrTypeExtensions.*
 import static extension fr.cea.nabla.ir.generator.Utils.*
+import static extension fr.cea.nabla.ir.generator.java.FlatArrayContentProvider.*
 import static extension fr.cea.nabla.ir.generator.java.JavaGeneratorUtils.*
 import static extension fr.cea.nabla.ir.generator.java.TypeContentProvider.*
 
-class ExpressionContentProvider
-{
+class ExpressionContentProvider
+{
 	static def dispatch CharSequence getContent(ContractedIf it) 
 	'''(«condition.content» ? «thenExpression.content» : «elseExpression.content»)'''
 
@@ -62,25 +66,25 @@ class ExpressionContentProvider
 			'''ArrayOperations.«operator.operatorName»(«content»)'''
 	}
 
-	static def dispatch CharSequence getContent(Parenthesis it) '''(«expression.content»)'''
+	static def dispatch CharSequence getContent(Parenthesis it) '''(«expression.content»)'''
 	static def dispatch CharSequence getContent(IntConstant it) '''«value»'''
 	static def dispatch CharSequence getContent(RealConstant it) '''«value»'''
 	static def dispatch CharSequence getContent(BoolConstant it) '''«value»'''
-
-	static def dispatch CharSequence getContent(MinConstant it) 
+
+	static def dispatch CharSequence getContent(MinConstant it) 
 	{
 		val t = type
-		switch t
-		{
+		switch t
+		{
 			case (t.scalar && t.primitive == PrimitiveType::INT): '''Integer.MIN_VALUE'''
-			// Be careful at MIN_VALUE which is a positive value for double.
-			case (t.scalar && t.primitive == PrimitiveType::REAL): '''-Double.MAX_VALUE'''
-			default: throw new Exception('Invalid expression Min for type: ' + t.label)
+			// Be careful at MIN_VALUE which is a positive value for double.
+			case (t.scalar && t.primitive == PrimitiveType::REAL): '''-Double.MAX_VALUE'''
+			default: throw new Exception('Invalid expression Min for type: ' + t.label)
 		}
-	}
-
-	static def dispatch CharSequence getContent(MaxConstant it) 
-	{
+	}
+
+	static def dispatch CharSequence getContent(MaxConstant it) 
+	{
 		val t = type
 		switch t
 		{
@@ -88,8 +92,8 @@ class ExpressionContentProvider
 			case (t.scalar && t.primitive == PrimitiveType::REAL): '''Double.MAX_VALUE'''
 			default: throw new Exception('Invalid expression Max for type: ' + t.label)
 		}
-	}
-
+	}
+
 	static def dispatch CharSequence getContent(BaseTypeConstant it) 
 	{
 		val t = type as BaseType
@@ -105,6 +109,36 @@ class ExpressionContentProvider
 	static def dispatch CharSequence getContent(VectorConstant it)
 	'''new «type.javaType» «FOR v : values BEFORE '{' SEPARATOR ', ' AFTER '}'»«v.content»«ENDFOR»'''
 
+	/**
+	 * Statements writing the array value of the expression into the existing array dest,
+	 * see UseDestinationResults: calls of the Into variants of the functions
+	 * and of ArrayOperations, elements of vector constants, or a copy.
+	 */
+	static def CharSequence getDestinationContent(Expression it, String dest)
+	{
+		switch it
+		{
+			Parenthesis: expression.getDestinationContent(dest)
+			FunctionCall case function instanceof InternFunction:
+				'''«function.codeName»«UseDestinationResults.VariantSuffix»(«dest»«FOR a : args», «a.content»«ENDFOR»);'''
+			BinaryExpression:
+				'''ArrayOperations.«operator.operatorName»«UseDestinationResults.VariantSuffix»(«dest», «left.content», «right.content»);'''
+			UnaryExpression:
+				'''ArrayOperations.«operator.operatorName»«UseDestinationResults.VariantSuffix»(«dest», «expression.content»);'''
+			VectorConstant:
+			'''
+				«FOR i : 0..<values.size»
+					«IF values.get(i).type.scalar»
+						«dest»[«i»] = «values.get(i).content»;
+					«ELSE»
+						«values.get(i).getDestinationContent(dest + '[' + i + ']')»
+					«ENDIF»
+				«ENDFOR»
+			'''
+			default: '''ArrayOperations.copyInto(«dest», «content»);'''
+		}
+	}
+
 	static def dispatch CharSequence getContent(Cardinality it)
 	{
 		val call = container.connectivityCall
@@ -112,6 +146,8 @@ class ExpressionContentProvider
 		{
 			if (call.args.empty)
 				call.connectivity.nbElemsVar
+			else if (call.csr)
+				'''«call.csrAccessor».getNbElems(«call.args.head.name»)'''
 			else
 				'''mesh.«call.accessor».length'''
 		}
@@ -119,12 +155,14 @@ class ExpressionContentProvider
 			'''1'''
 	}
 
-	static def dispatch CharSequence getContent(FunctionCall it) 
-	'''«function.codeName»(«FOR a:args SEPARATOR ', '»«a.content»«ENDFOR»)'''
+	static def dispatch CharSequence getContent(FunctionCall it) 
+	'''«function.codeName»(«FOR a:args SEPARATOR ', '»«a.content»«ENDFOR»)'''
 
 	static def dispatch CharSequence getContent(ArgOrVarRef it)
 	{
-		if (target.linearAlgebra && !(iterators.empty && indices.empty))
+		if (flat)
+			flatContent
+		else if (target.linearAlgebra && !(iterators.empty && indices.empty))
 			'''«getCodeName».getValue(«formatIteratorsAndIndices(target.type, iterators, indices)»)'''
 		else
 			'''«getCodeName»«formatIteratorsAndIndices(target.type, iterators, indices)»'''
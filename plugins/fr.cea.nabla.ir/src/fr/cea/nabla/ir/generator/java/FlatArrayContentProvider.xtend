@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.generator.java
+
+import fr.cea.nabla.ir.ir.Affectation
+import fr.cea.nabla.ir.ir.ArgOrVar
+import fr.cea.nabla.ir.ir.ArgOrVarRef
+import fr.cea.nabla.ir.ir.ConnectivityType
+import fr.cea.nabla.ir.ir.PrimitiveType
+import java.util.List
+
+import static extension fr.cea.nabla.ir.ArgOrVarExtensions.*
+import static extension fr.cea.nabla.ir.ContainerExtensions.*
+import static extension fr.cea.nabla.ir.generator.java.ExpressionContentProvider.*
+import static extension fr.cea.nabla.ir.generator.java.TypeContentProvider.*
+
+/**
+ * Flat storage of the global connectivity variables, option storage = "flat":
+ * a cell × node → ℝ[2, 2] variable is one double[] of nbCells * maxNodesOfCell * 2 * 2
+ * values with row-major strides, instead of nbCells * (1 + maxNodesOfCell * 3) arrays.
+ * References to blocks, e.g. Ajr{j, r}, are read as copies with FlatArrays.get
+ * and affected with FlatArrays.set, or System.arraycopy from another block.
+ *
+ * With option storage = "chunked", the flat arrays are ChunkedDoubleArray
+ * with long offsets: elements are read with get and affected with set.
+ */
+class FlatArrayContentProvider
+{
+	static def boolean isFlat(ArgOrVar it)
+	{
+		(JavaGeneratorOptions.flatStorage || JavaGeneratorOptions.chunkedStorage) && global && !linearAlgebra
+			&& type instanceof ConnectivityType && (type as ConnectivityType).base.primitive == PrimitiveType.REAL
+	}
+
+	static def boolean isFlat(ArgOrVarRef it)
+	{
+		target.flat
+	}
+
+	static def getFlatJavaType(ArgOrVar it)
+	{
+		if (JavaGeneratorOptions.chunkedStorage) 'ChunkedDoubleArray'
+		else (type as ConnectivityType).base.primitive.javaType + '[]'
+	}
+
+	static def getFlatAllocation(ArgOrVar it)
+	{
+		if (JavaGeneratorOptions.chunkedStorage)
+			''' = new ChunkedDoubleArray((long) «dimensions.join(' * ')»)'''
+		else
+			''' = new «(type as ConnectivityType).base.primitive.javaType»[Utils.arraySize((long) «dimensions.join(' * ')», "values of «name»")]'''
+	}
+
+	/** Dimensions of the variable, e.g. [nbCells, maxNodesOfCell, 2, 2] for a cell × node → ℝ[2, 2] variable */
+	static def List<String> getDimensions(ArgOrVar it)
+	{
+		val t = type as ConnectivityType
+		(t.connectivities.map[nbElemsVar] + t.base.sizes.map[x | x.content.toString.operand]).toList
+	}
+
+	/**
+	 * Dimensions of the variable read from another object, e.g. [m.nbCells, m.maxNodesOfCell, 2, 2]
+	 * for the prefix 'm.': sizes of the nested array in LevelDBUtils.serialize.
+	 */
+	static def List<String> getDimensions(ArgOrVar it, String prefix)
+	{
+		dimensions.map[x | if (x.matches('[a-zA-Z_]\\w*')) prefix + x else x]
+	}
+
+	/** Dimensions of the referenced block, e.g. [2, 2] for Ajr{j, r}, empty for an element */
+	static def List<String> getBlockDimensions(ArgOrVarRef it)
+	{
+		target.dimensions.drop(iterators.size + indices.size).toList
+	}
+
+	/** Offset of the referenced element or block in the flat array */
+	static def String getFlatOffset(ArgOrVarRef it)
+	{
+		val dimensions = target.dimensions
+		val indexes = (iterators.map[name] + indices.map[x | x.content.toString.operand]).toList
+		if (indexes.empty) return '0'
+
+		// long products of sizes in chunked arrays
+		var offset = if (JavaGeneratorOptions.chunkedStorage && (indexes.size > 1 || !blockDimensions.empty)) '(long) ' + indexes.head.operand else indexes.head
+		for (i : 1..<indexes.size)
+			offset = (if (i == 1) offset else '(' + offset + ')') + ' * ' + dimensions.get(i) + ' + ' + indexes.get(i)
+		if (blockDimensions.empty) offset
+		else if (indexes.size == 1) offset + ' * ' + blockDimensions.join(' * ')
+		else offset.operand + ' * ' + blockDimensions.join(' * ')
+	}
+
+	static def CharSequence getFlatContent(ArgOrVarRef it)
+	{
+		val blockDimensions = blockDimensions
+		if (blockDimensions.empty && JavaGeneratorOptions.chunkedStorage)
+			'''«codeName».get(«flatOffset»)'''
+		else if (blockDimensions.empty)
+			'''«codeName»[«flatOffset»]'''
+		else if (blockDimensions.size <= 2)
+			'''FlatArrays.get(«codeName», «flatOffset», «blockDimensions.join(', ')»)'''
+		else
+			throw new RuntimeException("Unsupported reference to a block of rank " + blockDimensions.size + " of flat variable: " + target.name)
+	}
+
+	static def CharSequence getFlatContent(Affectation it)
+	{
+		val blockDimensions = left.blockDimensions
+		val r = right
+		if (blockDimensions.empty && JavaGeneratorOptions.chunkedStorage)
+			'''«left.codeName».set(«left.flatOffset», «right.content»);'''
+		else if (blockDimensions.empty)
+			'''«left.codeName»[«left.flatOffset»] = «right.content»;'''
+		else if (r instanceof ArgOrVarRef && (r as ArgOrVarRef).flat && (r as ArgOrVarRef).blockDimensions == blockDimensions && JavaGeneratorOptions.chunkedStorage)
+			'''ChunkedDoubleArray.copy(«(r as ArgOrVarRef).codeName», «(r as ArgOrVarRef).flatOffset», «left.codeName», «left.flatOffset», (long) «blockDimensions.join(' * ')»);'''
+		else if (r instanceof ArgOrVarRef && (r as ArgOrVarRef).flat && (r as ArgOrVarRef).blockDimensions == blockDimensions)
+			'''System.arraycopy(«(r as ArgOrVarRef).codeName», «(r as ArgOrVarRef).flatOffset», «left.codeName», «left.flatOffset», «blockDimensions.join(' * ')»);'''
+		else
+			'''FlatArrays.set(«left.codeName», «left.flatOffset», «right.content»);'''
+	}
+
+	/** Content of a size or an index in a product or a sum */
+	private static def String operand(String s)
+	{
+		if (s.matches('\\w+')) s
+		else '(' + s + ')'
+	}
+}
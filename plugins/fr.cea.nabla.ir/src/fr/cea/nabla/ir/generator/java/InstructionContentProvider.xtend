@@ -20,27 +20,43 @@ import fr.cea.nabla.ir.ir.ItemIdDefinition
 import fr.cea.nabla.ir.ir.ItemIndexDefinition
 import fr.cea.nabla.ir.ir.Iterator
 import fr.cea.nabla.ir.ir.Loop
+import fr.cea.nabla.ir.ir.PrimitiveType
 import fr.cea.nabla.ir.ir.ReductionInstruction
 import fr.cea.nabla.ir.ir.Return
 import fr.cea.nabla.ir.ir.SetDefinition
 import fr.cea.nabla.ir.ir.Variable
 import fr.cea.nabla.ir.ir.VariableDeclaration
 import fr.cea.nabla.ir.ir.While
+import fr.cea.nabla.ir.transformers.UseDestinationResults
 
 import static extension fr.cea.nabla.ir.ArgOrVarExtensions.*
 import static extension fr.cea.nabla.ir.ContainerExtensions.*
+import static extension fr.cea.nabla.ir.InstructionExtensions.*
+import static extension fr.cea.nabla.ir.IrTypeExtensions.*
+import static extension fr.cea.nabla.ir.LoopExtensions.*
+import static extension fr.cea.nabla.ir.generator.StructuredLoopUtils.*
 import static extension fr.cea.nabla.ir.generator.Utils.*
 import static extension fr.cea.nabla.ir.generator.java.ExpressionContentProvider.*
+import static extension fr.cea.nabla.ir.generator.java.FlatArrayContentProvider.*
 import static extension fr.cea.nabla.ir.generator.java.ItemIndexAndIdValueContentProvider.*
 import static extension fr.cea.nabla.ir.generator.java.JavaGeneratorUtils.*
 import static extension fr.cea.nabla.ir.generator.java.TypeContentProvider.*
+import static extension fr.cea.nabla.ir.generator.java.VectorContentProvider.*
 
-class InstructionContentProvider 
-{
+class InstructionContentProvider 
+{
 	static def dispatch CharSequence getContent(VariableDeclaration it)
-	'''
-		«IF variable.const»final «ENDIF»«variable.type.javaType» «variable.name»«variable.defaultValueContent»;
-	'''
+	{
+		if (hasDestination)
+			// returned local array of a function variant: the destination itself
+			'''
+				«variable.type.javaType» «variable.name» = ArrayOperations.clear(«destination»);
+			'''
+		else
+			'''
+				«IF variable.const»final «ENDIF»«variable.type.javaType» «variable.name»«variable.defaultValueContent»;
+			'''
+	}
 
 	static def dispatch CharSequence getContent(InstructionBlock it)
 	'''
@@ -52,36 +68,87 @@ class InstructionContentProvider
 
 	static def dispatch CharSequence getContent(Affectation it)
 	{
-		if (left.target.linearAlgebra && !(left.iterators.empty && left.indices.empty))
+		if (left.flat)
+			flatContent
+		else if (hasDestination)
+			right.getDestinationContent(left.content.toString)
+		else if (left.target.linearAlgebra && !(left.iterators.empty && left.indices.empty))
 			'''«left.codeName».setValue(«formatIteratorsAndIndices(left.target.type, left.iterators, left.indices)», «right.content»);'''
 		else
 			'''«left.content» = «right.content»;'''
 	}
 
+	/**
+	 * Scalar int and real reductions run on primitive streams: binaryFunction must be
+	 * associative with the default value of the result as identity, as for Stream.reduce.
+	 * Other reductions, e.g. on arrays, run with an accumulator per fork-join task,
+	 * modified in place by the Into variant of binaryFunction if any, see UseDestinationResults.
+	 * With option parallelism = "pool", all reductions run with an accumulator per worker
+	 * of the ParallelExecutor.
+	 */
 	static def dispatch CharSequence getContent(ReductionInstruction it)
 	'''
 		«result.type.javaType» «result.name»«result.defaultValueContent»;
+		«IF primitiveResult && !JavaGeneratorOptions.poolParallelism»
+		«iterationBlock.defineInterval('''
+		«result.name» = IntStream.range(0, «iterationBlock.nbElems»).parallel().«IF result.type.primitive == PrimitiveType.REAL»mapToDouble«ELSE»map«ENDIF»(«iterationBlock.indexName» ->
+		{
+			«FOR innerInstruction : innerInstructions»
+			«innerInstruction.content»
+			«ENDFOR»
+			return «lambda.content»;
+		}).reduce(«result.defaultValue.content», (r1, r2) -> «binaryFunction.codeName»(r1, r2));''')»
+		«ELSE»
 		«iterationBlock.defineInterval('''
-		«result.name» = IntStream.range(0, «iterationBlock.nbElems»).boxed().parallel().reduce
+		«result.name» = «IF JavaGeneratorOptions.poolParallelism»executor.reduce«IF primitiveResult»«result.type.primitive.javaType.toFirstUpper»«ENDIF»«ELSE»Reductions.reduce«ENDIF»
 		(
-			«result.defaultValue.content»,
+			«iterationBlock.nbElems»,
+			«IF !primitiveResult»() -> «ENDIF»«result.defaultValue.content»,
 			(accu, «iterationBlock.indexName») ->
 			{
 				«FOR innerInstruction : innerInstructions»
 				«innerInstruction.content»
 				«ENDFOR»
+				«IF hasDestination»
+				return «binaryFunction.codeName»«UseDestinationResults.VariantSuffix»(accu, accu, «lambda.content»);
+				«ELSE»
 				return «binaryFunction.codeName»(accu, «lambda.content»);
+				«ENDIF»
 			},
-			(r1, r2) -> «binaryFunction.codeName»(r1, r2)
+			(r1, r2) -> «binaryFunction.codeName»«IF hasDestination»«UseDestinationResults.VariantSuffix»(r1, r1, r2)«ELSE»(r1, r2)«ENDIF»
 		);''')»
+		«ENDIF»
 	'''
 
+	/** Scalar int and real results are reduced without boxing */
+	private static def boolean isPrimitiveResult(ReductionInstruction it)
+	{
+		result.type.scalar && (result.type.primitive == PrimitiveType.REAL || result.type.primitive == PrimitiveType.INT)
+	}
+
 	static def dispatch CharSequence getContent(Loop it)
 	{
+		if (bufferSwap)
+			bufferSwapContent
+		else
+			loopContent
+	}
+
+	private static def CharSequence getLoopContent(Loop it)
+	{
+		if (parallelLoop && coloured)
+			return colouredLoopContent
+		if (JavaGeneratorOptions.structuredLoops && structuredCellLoop)
+			return structuredLoopContent
+		if (vectorizable)
+			return vectorLoopContent
+
 		iterationBlock.defineInterval(
 		'''
-			«IF parallelLoop»
-				IntStream.range(0, «iterationBlock.nbElems»).parallel().forEach(«iterationBlock.indexName» -> 
+			«IF parallelLoop && JavaGeneratorOptions.subdomainParallelism»
+				partition.parallelFor(«iterationBlock.nbElems», «iterationBlock.indexName» -> 
+			«ELSEIF parallelLoop»
+				«getParallelForContent(iterationBlock.nbElems, iterationBlock.indexName)»
 			«ELSE»
 				for (int «iterationBlock.indexName»=0; «iterationBlock.indexName»<«iterationBlock.nbElems»; «iterationBlock.indexName»++)
 			«ENDIF»
@@ -91,6 +158,122 @@ class InstructionContentProvider
 		''')
 	}
 
+	/**
+	 * Copy X_n = X_nplus1 of a time loop replaced by a swap of the arrays,
+	 * except for the last iteration: X_nplus1 is unchanged after the loop.
+	 */
+	private static def getBufferSwapContent(Loop it)
+	{
+		val a = swapAffectation
+		val type = if (a.left.flat) a.left.target.flatJavaType else a.left.target.type.javaType
+		'''
+			if (continueLoop)
+			{
+				final «type» swap = «a.left.codeName»;
+				«a.left.codeName» = «swapSource.codeName»;
+				«swapSource.codeName» = swap;
+			}
+			else
+			{
+				«loopContent»
+			}
+		'''
+	}
+
+	/**
+	 * Loop on chunks of items, in parallel for a parallel loop: in each chunk,
+	 * vectors of items, then the remaining items with the scalar body.
+	 */
+	private static def getVectorLoopContent(Loop it)
+	{
+		val index = iterationBlock.indexName
+		val nbChunks = '(' + iterationBlock.nbElems + ' + ' + (VectorContentProvider.ChunkSize - 1) + ') / ' + VectorContentProvider.ChunkSize
+		iterationBlock.defineInterval(
+		'''
+			«IF parallelLoop && JavaGeneratorOptions.subdomainParallelism»
+				partition.parallelFor(«nbChunks», «index»Chunk -> 
+			«ELSEIF parallelLoop»
+				«getParallelForContent(nbChunks, index + 'Chunk')»
+			«ELSE»
+				for (int «index»Chunk=0; «index»Chunk<«nbChunks»; «index»Chunk++)
+			«ENDIF»
+			{
+				final int «index»Begin = «index»Chunk * «VectorContentProvider.ChunkSize»;
+				final int «index»End = Math.min(«index»Begin + «VectorContentProvider.ChunkSize», «iterationBlock.nbElems»);
+				final int «index»VectorEnd = «index»Begin + «VectorContentProvider.Species».loopBound(«index»End - «index»Begin);
+				int «index» = «index»Begin;
+				for (; «index»<«index»VectorEnd; «index»+=«VectorContentProvider.Species».length())
+				{
+					«FOR a : vectorAffectations»
+					«a.vectorContent»
+					«ENDFOR»
+				}
+				for (; «index»<«index»End; «index»++)
+				{
+					«body.innerContent»
+				}
+			}«IF parallelLoop»);«ENDIF»
+		''')
+	}
+
+	/**
+	 * Scatter loop: items of a colour share no element of the colouring connectivity,
+	 * they are processed in parallel, colour after colour. The items of a colour are
+	 * read in place in the values of the colouring, without copy.
+	 */
+	private static def getColouredLoopContent(Loop it)
+	{
+		val index = iterationBlock.indexName
+		'''
+			{
+				final CsrConnectivity «index»Colours = mesh.get«colouringConnectivity.toFirstUpper»Connectivity().getColouring();
+				final int[] «index»ColourItems = «index»Colours.getValues();
+				for (int «index»Colour=0; «index»Colour<«index»Colours.getNbItems(); «index»Colour++)
+				{
+					final int «index»ColourOffset = «index»Colours.getOffset(«index»Colour);
+					«IF JavaGeneratorOptions.subdomainParallelism»
+						partition.parallelFor(«index»Colours.getNbElems(«index»Colour), «index»K -> 
+					«ELSE»
+						«getParallelForContent(index + 'Colours.getNbElems(' + index + 'Colour)', index + 'K')»
+					«ENDIF»
+					{
+						final int «index» = «index»ColourItems[«index»ColourOffset + «index»K];
+						«body.innerContent»
+					});
+				}
+			}
+		'''
+	}
+
+	/**
+	 * Loop on the cells of a CartesianMesh2D: rows in parallel, columns
+	 * in an inner loop the JIT can unroll, neighbours by index arithmetic.
+	 */
+	private static def getStructuredLoopContent(Loop it)
+	'''
+		«IF parallelLoop»
+			«getParallelForContent('nbYQuads', rowIndexName)»
+		«ELSE»
+			for (int «rowIndexName»=0; «rowIndexName»<nbYQuads; «rowIndexName»++)
+		«ENDIF»
+		{
+			for (int «columnIndexName»=0; «columnIndexName»<nbXQuads; «columnIndexName»++)
+			{
+				final int «cellIndexName» = «rowIndexName» * nbXQuads + «columnIndexName»;
+				«body.innerContent»
+			}
+		}«IF parallelLoop»);«ENDIF»
+	'''
+
+	/** Beginning of a parallel loop on [0, nbElems): the body follows, then ); */
+	private static def getParallelForContent(CharSequence nbElems, CharSequence indexName)
+	{
+		if (JavaGeneratorOptions.poolParallelism)
+			'''executor.parallelFor(«nbElems», «indexName» -> '''
+		else
+			'''IntStream.range(0, «nbElems»).parallel().forEach(«indexName» -> '''
+	}
+
 	static def dispatch CharSequence getContent(If it)
 	'''
 		if («condition.content»)
@@ -126,9 +309,17 @@ class InstructionContentProvider
 	'''
 
 	static def dispatch CharSequence getContent(Return it)
-	'''
-		return «expression.content»;
-	'''
+	{
+		if (hasDestination)
+			'''
+				«expression.getDestinationContent(destination)»
+				return «destination»;
+			'''
+		else
+			'''
+				return «expression.content»;
+			'''
+	}
 
 	static def dispatch CharSequence getContent(Exit it)
 	'''
@@ -139,13 +330,13 @@ class InstructionContentProvider
 	{ 
 		getContent
 	}
-
-	static def dispatch getInnerContent(InstructionBlock it)
+
+	static def dispatch getInnerContent(InstructionBlock it)
 	'''
 		«FOR i : instructions»
-			«i.content»
+			«i.content»
 		«ENDFOR»
-	'''
+	'''
 
 	private static def getDefaultValueContent(Variable it)
 	{
@@ -163,7 +354,9 @@ class InstructionContentProvider
 			'''
 				{
 					«IF container instanceof ConnectivityCall»«getSetDefinitionContent(container.uniqueName, container as ConnectivityCall)»«ENDIF»
+					«IF !container.connectivityCall.csr»
 					final int «getNbElems» = «container.uniqueName».length;
+					«ENDIF»
 					«innerContent»
 				}
 			'''
@@ -189,7 +382,29 @@ class InstructionContentProvider
 	}
 
 	private static def getSetDefinitionContent(String setName, ConnectivityCall call)
-	'''
-		final int«IF call.connectivity.multiple»[]«ENDIF» «setName» = mesh.«call.accessor»;
-	'''
+	{
+		val stride = if (JavaGeneratorOptions.structuredLoops) call.structuredStride else null
+		if (call.csr && JavaGeneratorOptions.chunkedStorage)
+		'''
+			final CsrConnectivity «setName» = «call.csrAccessor»;
+			final long «setName»Offset = «setName».getLongOffset(«call.args.head.name»);
+			final int nb«setName.toFirstUpper» = «setName».getNbElems(«call.args.head.name»);
+		'''
+		else if (call.csr && stride !== null)
+		'''
+			final int[] «setName» = «call.csrAccessor».getValues();
+			final int «setName»Offset = CartesianMesh2D.«stride» * «call.args.head.name»;
+			final int nb«setName.toFirstUpper» = CartesianMesh2D.«stride»;
+		'''
+		else if (call.csr)
+		'''
+			final int[] «setName» = «call.csrAccessor».getValues();
+			final int «setName»Offset = «call.csrAccessor».getOffset(«call.args.head.name»);
+			final int nb«setName.toFirstUpper» = «call.csrAccessor».getNbElems(«call.args.head.name»);
+		'''
+		else
+		'''
+			final int«IF call.connectivity.multiple»[]«ENDIF» «setName» = mesh.«call.accessor»;
+		'''
+	}
 }
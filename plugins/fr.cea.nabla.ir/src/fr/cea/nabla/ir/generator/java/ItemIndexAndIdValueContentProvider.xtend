@@ -10,12 +10,17 @@
 package fr.cea.nabla.ir.generator.java
 
 import fr.cea.nabla.ir.ir.ConnectivityCall
+import fr.cea.nabla.ir.ir.ItemIdDefinition
 import fr.cea.nabla.ir.ir.ItemIdValueContainer
 import fr.cea.nabla.ir.ir.ItemIdValueIterator
 import fr.cea.nabla.ir.ir.ItemIndexValue
+import fr.cea.nabla.ir.ir.Job
 import fr.cea.nabla.ir.ir.SetRef
+import java.util.LinkedHashMap
 
 import static extension fr.cea.nabla.ir.ContainerExtensions.*
+import static extension fr.cea.nabla.ir.generator.StructuredLoopUtils.*
+import static extension fr.cea.nabla.ir.generator.java.JavaGeneratorUtils.*
 
 class ItemIndexAndIdValueContentProvider 
 {
@@ -23,14 +28,50 @@ class ItemIndexAndIdValueContentProvider
 	{
 		if (container.connectivity.indexEqualId) 
 			'''«id.name»'''
-		else 
-			'''Utils.indexOf(mesh.«container.accessor», «id.name»)'''
+		else
+		{
+			val transposed = getTransposedIterator
+			if (container.csr && JavaGeneratorOptions.chunkedStorage)
+				// local indices tables are aligned with int arrays of values
+				'''«container.csrAccessor».indexOf(«container.args.head.name», «id.name»)'''
+			else if (transposed === null)
+				'''Utils.indexOf(mesh.«container.accessor», «id.name»)'''
+			else
+			{
+				// id is iterated by a transposed connectivity: precomputed O(1) lookup
+				val c = transposed.iterator.container
+				'''«localIndicesName»[«c.offsetVar»+«transposed.getIndexValue»]'''
+			}
+		}
+	}
+
+	/**
+	 * Definitions of the local indices tables used by the item indices of the job,
+	 * at its beginning: they are not looked up in the loops.
+	 */
+	static def getLocalIndicesDefinitions(Job it)
+	{
+		val definitions = new LinkedHashMap<String, CharSequence>
+		for (v : eAllContents.filter(ItemIndexValue).filter[x | !x.container.connectivity.indexEqualId].toIterable)
+		{
+			val transposed = v.transposedIterator
+			if (transposed !== null && !JavaGeneratorOptions.chunkedStorage)
+				definitions.put(v.localIndicesName, '''«transposed.iterator.container.connectivityCall.csrAccessor».getLocalIndicesIn(«v.container.csrAccessor»)''')
+		}
+		'''
+			«FOR name : definitions.keySet»
+			final int[] «name» = «definitions.get(name)»;
+			«ENDFOR»
+		'''
 	}
 
 	static def dispatch getContent(ItemIdValueIterator it)
 	{
-		if (iterator.container.connectivityCall.connectivity.indexEqualId) getIndexValue
-		else iterator.container.uniqueName + '[' + getIndexValue + ']'
+		val c = iterator.container
+		if (c.connectivityCall.connectivity.indexEqualId) getIndexValue
+		else if (c.connectivityCall.csr && JavaGeneratorOptions.chunkedStorage) c.uniqueName + '.getValue(' + c.offsetVar + '+' + getIndexValue + ')'
+		else if (c.connectivityCall.csr) c.uniqueName + '[' + c.offsetVar + '+' + getIndexValue + ']'
+		else c.uniqueName + '[' + getIndexValue + ']'
 	}
 
 	static def dispatch getContent(ItemIdValueContainer it)
@@ -38,11 +79,40 @@ class ItemIndexAndIdValueContentProvider
 		val c = container
 		switch c
 		{
+			ConnectivityCall case JavaGeneratorOptions.structuredLoops && c.structuredContent !== null: c.structuredContent
 			ConnectivityCall: '''mesh.«c.accessor»'''
 			SetRef: '''«c.target.name»'''
 		}
 	}
 
+	/** e.g. cellsOfNodeLocalIndicesInNodesOfCell for indexOf(r, nodesOfCell(j)), j in cellsOfNode(r) */
+	private static def getLocalIndicesName(ItemIndexValue it)
+	{
+		transposedIterator.iterator.container.connectivityCall.connectivity.name + 'LocalIndicesIn' + container.connectivity.name.toFirstUpper
+	}
+
+	/**
+	 * Returns the iterator defining the argument of the container if it iterates
+	 * on a connectivity of id, e.g. j in cellsOfNode(r) for indexOf(r, nodesOfCell(j)),
+	 * null otherwise.
+	 */
+	private static def getTransposedIterator(ItemIndexValue it)
+	{
+		if (!container.csr) return null
+		val argDefinition = container.args.head.eContainer
+		if (argDefinition instanceof ItemIdDefinition)
+		{
+			val argValue = argDefinition.value
+			if (argValue instanceof ItemIdValueIterator)
+			{
+				val c = argValue.iterator.container
+				if (argValue.shift == 0 && c instanceof ConnectivityCall && (c as ConnectivityCall).csr && (c as ConnectivityCall).args.head === id)
+					return argValue
+			}
+		}
+		return null
+	}
+
 	private static def getIndexValue(ItemIdValueIterator it)
 	{
 		val index = iterator.index.name
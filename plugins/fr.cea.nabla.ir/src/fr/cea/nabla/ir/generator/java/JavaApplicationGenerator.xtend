@@ -18,49 +18,105 @@ import fr.cea.nabla.ir.ir.ConnectivityType
 import fr.cea.nabla.ir.ir.InternFunction
 import fr.cea.nabla.ir.ir.IrModule
 import fr.cea.nabla.ir.ir.IrRoot
+import fr.cea.nabla.ir.ir.Job
 import fr.cea.nabla.ir.ir.LinearAlgebraType
+import fr.cea.nabla.ir.ir.MeshExtensionProvider
 import fr.cea.nabla.ir.ir.Variable
+import fr.cea.nabla.ir.transformers.CompositeTransformationStep
+import fr.cea.nabla.ir.transformers.FuseJobLoops
+import fr.cea.nabla.ir.transformers.IrTransformationStep
+import fr.cea.nabla.ir.transformers.ScalarizeArrayExpressions
+import fr.cea.nabla.ir.transformers.SwapTimeLoopBuffers
+import fr.cea.nabla.ir.transformers.UseDestinationResults
 import java.util.ArrayList
+import java.util.Map
 
 import static extension fr.cea.nabla.ir.ContainerExtensions.*
 import static extension fr.cea.nabla.ir.ExtensionProviderExtensions.*
 import static extension fr.cea.nabla.ir.IrModuleExtensions.*
 import static extension fr.cea.nabla.ir.IrRootExtensions.*
 import static extension fr.cea.nabla.ir.IrTypeExtensions.*
+import static extension fr.cea.nabla.ir.LoopExtensions.*
 import static extension fr.cea.nabla.ir.generator.Utils.*
+import static extension fr.cea.nabla.ir.generator.java.BenchmarkContentProvider.*
 import static extension fr.cea.nabla.ir.generator.java.ExpressionContentProvider.*
+import static extension fr.cea.nabla.ir.generator.java.FlatArrayContentProvider.*
 import static extension fr.cea.nabla.ir.generator.java.FunctionContentProvider.*
 import static extension fr.cea.nabla.ir.generator.java.JavaGeneratorUtils.*
 import static extension fr.cea.nabla.ir.generator.java.JobContentProvider.*
 import static extension fr.cea.nabla.ir.generator.java.JsonContentProvider.*
 import static extension fr.cea.nabla.ir.generator.java.TypeContentProvider.*
 
-class JavaApplicationGenerator implements ApplicationGenerator
+class JavaApplicationGenerator implements ApplicationGenerator
 {
+	static val UnstructuredMesh = 'UnstructuredMesh2D'
+
 	val boolean hasLevelDB
+	val String outputPath
+	val Map<String, String> targetOptions
 
 	new(boolean hasLevelDB)
+	{
+		this(hasLevelDB, '', emptyMap)
+	}
+
+	/**
+	 * outputPath is the source folder of the generated code, e.g. /NabLabExamples/src-gen-java.
+	 * Target options are the variables of the Java target: see JavaGeneratorOptions
+	 */
+	new(boolean hasLevelDB, String outputPath, Map<String, String> targetOptions)
 	{
 		this.hasLevelDB = hasLevelDB
+		this.outputPath = outputPath
+		this.targetOptions = targetOptions
 	}
 
 	override getName() { 'Java' }
 
-	override getIrTransformationStep() { null }
+	/** Options are not yet set when the IR is transformed: they are read from the map */
+	override getIrTransformationStep()
+	{
+		val steps = new ArrayList<IrTransformationStep>
+		// before the scalarization of X_nplus1{r} = ... for the writers of X_nplus1 to be recognized
+		if (targetOptions.get(JavaGeneratorOptions.Buffers) == JavaGeneratorOptions.SwapBuffers)
+			steps += new SwapTimeLoopBuffers
+		// after the swaps whose writers are whole loop bodies
+		if (targetOptions.get(JavaGeneratorOptions.Fusion) == JavaGeneratorOptions.LoopFusion)
+			steps += new FuseJobLoops
+		if (targetOptions.get(JavaGeneratorOptions.Expressions) == JavaGeneratorOptions.ScalarExpressions)
+			steps += new ScalarizeArrayExpressions
+		if (targetOptions.get(JavaGeneratorOptions.Results) == JavaGeneratorOptions.DestinationResults)
+			steps += new UseDestinationResults
+		switch steps.size
+		{
+			case 0: null
+			case 1: steps.head
+			default: new CompositeTransformationStep('Java IR transformations', steps)
+		}
+	}
 
 	override getGenerationContents(IrRoot ir)
 	{
+		JavaGeneratorOptions.set(targetOptions)
 		val fileContents = new ArrayList<GenerationContent>
 		for (module : ir.modules)
 			fileContents += new GenerationContent(module.className + '.java', module.fileContent, false)
+		if (JavaGeneratorOptions.jmhBenchmark)
+		{
+			// file names are relative to the directory of the application in the source folder
+			val directory = '../../' + BenchmarkContentProvider.Directory + '/' + ir.dirName + '/'
+			val sourceFolder = outputPath.replaceAll('/+$', '').replaceAll('.*/', '')
+			fileContents += new GenerationContent(directory + ir.benchmarkFileName, ir.benchmarkContent, false)
+			fileContents += new GenerationContent(directory + 'pom.xml', ir.getPomContent(sourceFolder), false)
+		}
 		return fileContents
 	}
 
-	private def getFileContent(IrModule it)
+	private def getFileContent(IrModule it)
 	'''
 		«fileHeader»
 
-		«val mainModule = irRoot.mainModule»
+		«val mainModule = irRoot.mainModule»
 		package «packageName»;
 
 		«IF hasLevelDB»
@@ -75,23 +131,28 @@ class JavaApplicationGenerator implements ApplicationGenerator
 		import java.io.FileReader;
 		import java.io.IOException;
 		import java.util.stream.IntStream;
+		«IF JavaGeneratorOptions.vectorSimd»
+
+		import jdk.incubator.vector.DoubleVector;
+		import jdk.incubator.vector.VectorSpecies;
+		«ENDIF»
 
 		import com.google.gson.Gson;
 		import com.google.gson.JsonObject;
 		import com.google.gson.JsonElement;
-
-		import fr.cea.nabla.javalib.*;
+
+		import fr.cea.nabla.javalib.*;
 		import fr.cea.nabla.javalib.mesh.*;
-
-		public final class «className»
+
+		public final class «className»
 		{
-			public final static class Options
+			public final static class Options
 			{
 				«IF postProcessing !== null»
 				public String «IrUtils.OutputPathNameAndValue.key»;
-				«ENDIF»
-				«FOR v : options»
-				public «v.type.javaType» «v.name»;
+				«ENDIF»
+				«FOR v : options»
+				public «v.type.javaType» «v.name»;
 				«ENDFOR»
 				«FOR v : validExtensionProviders»
 				public «v.packageName».«v.className» «v.instanceName»;
@@ -131,11 +192,29 @@ class JavaApplicationGenerator implements ApplicationGenerator
 				}
 			}
 
+			«IF JavaGeneratorOptions.vectorSimd»
+			// Vectors of the SIMD loops
+			private static final VectorSpecies<Double> «VectorContentProvider.Species» = DoubleVector.SPECIES_PREFERRED;
+
+			«ENDIF»
 			// Mesh and mesh variables
 			private final «meshClassName» mesh;
+			«IF JavaGeneratorOptions.subdomainParallelism»
+			private final MeshPartition partition;
+			«ELSEIF JavaGeneratorOptions.poolParallelism»
+			private final ParallelExecutor executor;
+			«ENDIF»
 			@SuppressWarnings("unused")
 			«FOR c : irRoot.mesh.connectivities.filter[multiple] BEFORE 'private final int ' SEPARATOR ', ' AFTER ';'»«c.nbElemsVar»«ENDFOR»
+			«IF structuredLoops»
+			private final int nbXQuads, nbYQuads;
+			«ENDIF»
 
+			«IF JavaGeneratorOptions.jobTimers»
+			// Job timers, shared by the modules
+			«IF main»protected final«ELSE»private«ENDIF» JobTimers timers;
+
+			«ENDIF»
 			// User options
 			private final Options options;
 			«IF postProcessing !== null»private final PvdFileWriter2D writer;«ENDIF»
@@ -152,22 +231,41 @@ class JavaApplicationGenerator implements ApplicationGenerator
 				«ENDIF»
 
 			«ENDIF»
-			// Global variables
+			// Global variables
 			«FOR v : variables.filter[!option]»
-			protected «IF v.const»final «ENDIF»«v.type.javaType» «v.name»;
+			protected «IF v.const»final «ENDIF»«IF v.flat»«v.flatJavaType»«ELSE»«v.type.javaType»«ENDIF» «v.name»;
 			«ENDFOR»
-
-			public «className»(«meshClassName» aMesh, Options aOptions)
+
+			public «className»(«meshClassName» aMesh, Options aOptions)
 			{
 				// Mesh and mesh variables initialization
 				mesh = aMesh;
+				«IF JavaGeneratorOptions.subdomainParallelism»
+				partition = MeshPartition.create(mesh.getNbNodes(), mesh.getNbCells(), mesh.getNbFaces());
+				«ELSEIF JavaGeneratorOptions.poolParallelism»
+				executor = ParallelExecutor.get(«JavaGeneratorOptions.nbThreads», «JavaGeneratorOptions.grain»);
+				«ENDIF»
 				«FOR c : irRoot.mesh.connectivities.filter[multiple]»
 					«c.nbElemsVar» = «c.connectivityAccessor»;
 				«ENDFOR»
+				«IF structuredLoops»
+				// Structured loops compute cell ids from the row and the column
+				if (mesh.getNaturalCellIds() != null)
+					throw new RuntimeException("Structured loops need a mesh without renumbering");
+				nbXQuads = mesh.getNbXQuads();
+				nbYQuads = mesh.getNbYQuads();
+				«ENDIF»
 
 				// User options
 				options = aOptions;
 				«IF postProcessing !== null»writer = new PvdFileWriter2D("«irRoot.name»", options.«IrUtils.OutputPathNameAndValue.key»);«ENDIF»
+				«IF JavaGeneratorOptions.jobTimers && main»
+
+				// Job timers: names and callers of the jobs of all the modules
+				timers = new JobTimers("«irRoot.name»",
+					new String[] {«FOR j : irRoot.jobs SEPARATOR ', '»"«j.codeName»"«ENDFOR»},
+					new int[] {«FOR j : irRoot.jobs SEPARATOR ', '»«IF j.caller instanceof Job»«irRoot.jobs.indexOf(j.caller)»«ELSE»-1«ENDIF»«ENDFOR»});
+				«ENDIF»
 
 				// Initialize variables with default values
 				«FOR v : variablesWithDefaultValue»
@@ -176,19 +274,31 @@ class JavaApplicationGenerator implements ApplicationGenerator
 
 				// Allocate arrays
 				«FOR v : variables.filter[!option && defaultValue === null && !type.scalar]»
-						«v.name»«getJavaAllocation(v.type, v.name)»;
+						«v.name»«IF v.flat»«v.flatAllocation»«ELSE»«getJavaAllocation(v.type, v.name)»«ENDIF»;
 				«ENDFOR»
 				«IF main»
 
 				// Copy node coordinates
-				double[][] gNodes = mesh.getGeometry().getNodes();
+				double[] gNodes = mesh.getGeometry().getCoordinates();
+				«IF irRoot.initNodeCoordVariable.flat && JavaGeneratorOptions.chunkedStorage»
+				«irRoot.initNodeCoordVariable.name».copyFrom(gNodes, 0, 0, gNodes.length);
+				«ELSEIF irRoot.initNodeCoordVariable.flat»
+				System.arraycopy(gNodes, 0, «irRoot.initNodeCoordVariable.name», 0, gNodes.length);
+				«ELSE»
+				«IF JavaGeneratorOptions.subdomainParallelism»
+				partition.parallelFor(nbNodes, rNodes ->
+				«ELSEIF JavaGeneratorOptions.poolParallelism»
+				executor.parallelFor(nbNodes, rNodes ->
+				«ELSE»
 				IntStream.range(0, nbNodes).parallel().forEach(rNodes ->
+				«ENDIF»
 				{
-					«irRoot.initNodeCoordVariable.name»[rNodes][0] = gNodes[rNodes][0];
-					«irRoot.initNodeCoordVariable.name»[rNodes][1] = gNodes[rNodes][1];
+					«irRoot.initNodeCoordVariable.name»[rNodes][0] = gNodes[2 * rNodes];
+					«irRoot.initNodeCoordVariable.name»[rNodes][1] = gNodes[2 * rNodes + 1];
 				});
 				«ENDIF»
-			}
+				«ENDIF»
+			}
 			«FOR j : jobs»
 
 				«j.content»
@@ -199,17 +309,19 @@ class JavaApplicationGenerator implements ApplicationGenerator
 			«ENDFOR»
 
 			«IF main»
-			public void «irRoot.main.codeName»()
-			{
-				System.out.println("Start execution of «name»");
-				«FOR j : irRoot.main.calls»
-					«j.callName»(); // @«j.at»
-				«ENDFOR»
-				System.out.println("End of execution of «name»");
-			}
+			public void «irRoot.main.codeName»()
+			{
+				System.out.println("Start execution of «name»");
+				«irRoot.main.callsContent»
+				System.out.println("End of execution of «name»");
+				«IF JavaGeneratorOptions.jobTimers»
+				timers.print(System.out);
+				timers.write("«irRoot.name»Timers");
+				«ENDIF»
+			}
 
-			public static void main(String[] args) throws IOException
-			{
+			public static void main(String[] args) throws IOException
+			{
 				if (args.length == 1)
 				{
 					final String dataFileName = args[0];
@@ -241,7 +353,7 @@ class JavaApplicationGenerator implements ApplicationGenerator
 						LevelDBUtils.destroyDB("«dbName».current");
 						if (!ok) System.exit(1);
 					}
-					«ENDIF»
+					«ENDIF»
 				}
 				else
 				{
@@ -249,7 +361,7 @@ class JavaApplicationGenerator implements ApplicationGenerator
 					System.err.println("        Expecting user data file name, for example «irRoot.name».json");
 					System.exit(1);
 				}
-			}
+			}
 			«IF postProcessing !== null»
 
 			private void dumpVariables(int iteration)
@@ -258,8 +370,7 @@ class JavaApplicationGenerator implements ApplicationGenerator
 				{
 					try
 					{
-						Quad[] quads = mesh.getGeometry().getQuads();
-						writer.startVtpFile(iteration, «irRoot.currentTimeVariable.name», «irRoot.nodeCoordVariable.name», quads);
+						writer.startVtpFile(iteration, «irRoot.currentTimeVariable.name», «irRoot.nodeCoordVariable.name», mesh.getGeometry());
 						«val outputVarsByConnectivities = irRoot.postProcessing.outputVariables.groupBy(x | x.support.name)»
 						writer.openNodeData();
 						«val nodeVariables = outputVarsByConnectivities.get("node")»
@@ -310,7 +421,11 @@ class JavaApplicationGenerator implements ApplicationGenerator
 				try
 				{
 					«FOR v : irRoot.variables.filter[!option]»
+					«IF v.flat»
+					batch.put(bytes("«getDbKey(v)»"), LevelDBUtils.serialize(«getDbValue(it, v, '.')», new int[] {«getDbSizes(it, v)»}));
+					«ELSE»
 					batch.put(bytes("«getDbKey(v)»"), LevelDBUtils.serialize(«getDbValue(it, v, '.')»));
+					«ENDIF»
 					«ENDFOR»
 
 					db.write(batch);
@@ -329,10 +444,13 @@ class JavaApplicationGenerator implements ApplicationGenerator
 			{
 				mainModule = aMainModule;
 				mainModule.«name» = this;
+				«IF JavaGeneratorOptions.jobTimers»
+				timers = mainModule.timers;
+				«ENDIF»
 			}
 			«ENDIF»
-		};
-	'''
+		};
+	'''
 
 	private def getInstanciation(IrModule it)
 	'''
@@ -340,14 +458,31 @@ class JavaApplicationGenerator implements ApplicationGenerator
 		if (o.has("«name»")) «name»Options.jsonInit(o.get("«name»").toString());
 		«className» «name» = new «className»(mesh, «name»Options);
 		«IF !main»«name».setMainModule(«irRoot.mainModule.name»);«ENDIF»
-	'''
-
-	private def getConnectivityAccessor(Connectivity c)
-	{
-		if (c.inTypes.empty)
-			'''mesh.getNb«c.name.toFirstUpper»()'''
-		else
-			'''CartesianMesh2D.MaxNb«c.name.toFirstUpper»'''
+	'''
+
+	/** Loops on cells of a CartesianMesh2D are generated as nested (x, y) loops */
+	private def isStructuredLoops(IrModule it)
+	{
+		JavaGeneratorOptions.structuredLoops && irRoot.mesh.structured
+	}
+
+	/** Sizes of a flat variable read from the module m, e.g. nbCells, maxNodesOfCell, 2 */
+	private def getDbSizes(IrModule m, Variable v)
+	{
+		val value = getDbValue(m, v, '.')
+		v.getDimensions(value.substring(0, value.length - v.name.length)).join(', ')
+	}
+
+	/** Maximum numbers of elements of an unstructured mesh depend on the mesh instance */
+	private def getConnectivityAccessor(Connectivity c)
+	{
+		val provider = c.eContainer as MeshExtensionProvider
+		if (c.inTypes.empty)
+			'''mesh.getNb«c.name.toFirstUpper»()'''
+		else if (provider.extensionName == UnstructuredMesh)
+			'''mesh.getMaxNb«c.name.toFirstUpper»()'''
+		else
+			'''«provider.className».MaxNb«c.name.toFirstUpper»'''
 	}
 
 	private def getWriteCallContent(Variable v)
@@ -355,6 +490,10 @@ class JavaApplicationGenerator implements ApplicationGenerator
 		val t = v.type
 		switch t
 		{
+			ConnectivityType case v.flat && t.base.sizes.empty && JavaGeneratorOptions.chunkedStorage: '''«v.name».get(i)'''
+			ConnectivityType case v.flat && t.base.sizes.empty: '''«v.name»[i]'''
+			ConnectivityType case v.flat && JavaGeneratorOptions.chunkedStorage: '''«v.name», (long) i * «v.dimensions.drop(1).join(' * ')», «v.dimensions.drop(1).join(' * ')»'''
+			ConnectivityType case v.flat: '''«v.name», i * «v.dimensions.drop(1).join(' * ')», «v.dimensions.drop(1).join(' * ')»'''
 			ConnectivityType: '''«v.name»«formatIteratorsAndIndices(t, #["i"])»'''
 			LinearAlgebraType: '''«v.name».getValue(i)'''
 			default: throw new RuntimeException("Unexpected type: " + class.name)
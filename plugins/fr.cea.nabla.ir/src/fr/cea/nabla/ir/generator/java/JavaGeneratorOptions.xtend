@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.generator.java
+
+import java.util.Map
+
+/**
+ * Options of the Java generator: variables of the Java target
+ * in the ngen file, e.g. parallelism = "subdomains";
+ * Content providers are static: options are set for
+ * the duration of a generation by JavaApplicationGenerator.
+ */
+class JavaGeneratorOptions
+{
+	/** "streams" (default): parallel loops on IntStream, "subdomains": loops on a MeshPartition, "pool": loops on a ParallelExecutor */
+	public static val Parallelism = "parallelism"
+	public static val SubdomainsParallelism = "subdomains"
+	public static val PoolParallelism = "pool"
+	/** Number of threads of the ParallelExecutor, all the processors by default */
+	public static val Threads = "threads"
+	/** Number of indexes of the chunks of the ParallelExecutor, one chunk per thread by default */
+	public static val Grain = "grain"
+	/** "items" (default): loops on item ids, "structured": nested (x, y) loops on the cells of a CartesianMesh2D */
+	public static val Loops = "loops"
+	public static val StructuredLoops = "structured"
+	/**
+	 * "arrays" (default): nested arrays, "flat": one double[] per global real connectivity variable,
+	 * "chunked": one ChunkedDoubleArray per such variable and connectivity tables read with long offsets,
+	 * beyond the size limit of Java arrays
+	 */
+	public static val Storage = "storage"
+	public static val FlatStorage = "flat"
+	public static val ChunkedStorage = "chunked"
+	/** "arrays" (default): ArrayOperations on arrays, "scalar": expressions on arrays of constant sizes unrolled, see ScalarizeArrayExpressions */
+	public static val Expressions = "expressions"
+	public static val ScalarExpressions = "scalar"
+	/** "new" (default): array results in new arrays, "destination": written into the affected arrays, see UseDestinationResults */
+	public static val Results = "results"
+	public static val DestinationResults = "destination"
+	/** "copy" (default): next values of time loop variables copied into current values, "swap": arrays swapped, see SwapTimeLoopBuffers */
+	public static val Buffers = "buffers"
+	public static val SwapBuffers = "swap"
+	/** "none" (default): one loop per job, "loops": loops of consecutive jobs on the same items fused, see FuseJobLoops */
+	public static val Fusion = "fusion"
+	public static val LoopFusion = "loops"
+	/** "sequential" (default): jobs called one after the other, "concurrent": jobs with the same @ run as concurrent tasks */
+	public static val Jobs = "jobs"
+	public static val ConcurrentJobs = "concurrent"
+	/** "none" (default): scalar loops, "vector": simple loops on items with the Java Vector API, see VectorContentProvider */
+	public static val Simd = "simd"
+	public static val VectorSimd = "vector"
+	/** "none" (default): no timers, "jobs": number of calls and time of each job printed at the end and written in <name>Timers.csv and .json */
+	public static val Timers = "timers"
+	public static val JobTimers = "jobs"
+	/** "none" (default): no benchmark, "jmh": JMH benchmark module of the application, see BenchmarkContentProvider */
+	public static val Benchmark = "benchmark"
+	public static val JmhBenchmark = "jmh"
+
+	static Map<String, String> values = emptyMap
+
+	static def void set(Map<String, String> options)
+	{
+		values = options ?: emptyMap
+	}
+
+	static def get(String key)
+	{
+		values.get(key)
+	}
+
+	static def isSubdomainParallelism()
+	{
+		values.get(Parallelism) == SubdomainsParallelism
+	}
+
+	static def isPoolParallelism()
+	{
+		values.get(Parallelism) == PoolParallelism
+	}
+
+	/** Value of the Threads option, 0 if it is not set */
+	static def int getNbThreads()
+	{
+		getIntValue(Threads)
+	}
+
+	/** Value of the Grain option, 0 if it is not set */
+	static def int getGrain()
+	{
+		getIntValue(Grain)
+	}
+
+	static def isStructuredLoops()
+	{
+		values.get(Loops) == StructuredLoops
+	}
+
+	static def isFlatStorage()
+	{
+		values.get(Storage) == FlatStorage
+	}
+
+	static def isChunkedStorage()
+	{
+		values.get(Storage) == ChunkedStorage
+	}
+
+	static def isConcurrentJobs()
+	{
+		values.get(Jobs) == ConcurrentJobs
+	}
+
+	static def isVectorSimd()
+	{
+		values.get(Simd) == VectorSimd
+	}
+
+	static def isJobTimers()
+	{
+		values.get(Timers) == JobTimers
+	}
+
+	static def isJmhBenchmark()
+	{
+		values.get(Benchmark) == JmhBenchmark
+	}
+
+	private static def int getIntValue(String key)
+	{
+		val value = values.get(key)
+		if (value === null)
+			0
+		else if (value.matches('\\d+'))
+			Integer.parseInt(value)
+		else
+			throw new RuntimeException('Invalid value of option ' + key + ': ' + value)
+	}
+}
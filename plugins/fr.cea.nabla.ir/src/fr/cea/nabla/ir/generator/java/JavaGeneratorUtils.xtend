@@ -9,10 +9,13 @@
  *******************************************************************************/
 package fr.cea.nabla.ir.generator.java
 
+import fr.cea.nabla.ir.ir.ConnectivityCall
+import fr.cea.nabla.ir.ir.Container
 import fr.cea.nabla.ir.ir.ExternFunction
 import fr.cea.nabla.ir.ir.InternFunction
 import fr.cea.nabla.ir.ir.IrModule
 
+import static extension fr.cea.nabla.ir.ContainerExtensions.*
 import static extension fr.cea.nabla.ir.ExtensionProviderExtensions.*
 import static extension fr.cea.nabla.ir.IrModuleExtensions.*
 
@@ -40,4 +43,21 @@ class JavaGeneratorUtils
 	{
 		irRoot.name.toLowerCase
 	}
+
+	/**
+	 * Multiple connectivities with one argument are read from the CSR table
+	 * of the mesh: an offset and a size in a shared array, no allocation.
+	 */
+	static def isCsr(ConnectivityCall it)
+	{
+		connectivity.multiple && args.size == 1
+	}
+
+	static def getCsrAccessor(ConnectivityCall it)
+	'''mesh.get«connectivity.name.toFirstUpper»Connectivity()'''
+
+	static def getOffsetVar(Container it)
+	{
+		uniqueName + 'Offset'
+	}
 }
@@ -1,75 +1,122 @@
-/*******************************************************************************
- * Copyright (c) 2021 CEA
- * This program and the accompanying materials are made available under the 
- * terms of the Eclipse Public License 2.0 which is available at
- * http://www.eclipse.org/legal/epl-2.0.
- *
- * SPDX-License-Identifier: EPL-2.0
- * Contributors: see AUTHORS file
- *******************************************************************************/
-package fr.cea.nabla.ir.generator.java
-
-import fr.cea.nabla.ir.IrUtils
-import fr.cea.nabla.ir.ir.ExecuteTimeLoopJob
-import fr.cea.nabla.ir.ir.IrRoot
-import fr.cea.nabla.ir.ir.Job
-
-import static extension fr.cea.nabla.ir.JobCallerExtensions.*
-import static extension fr.cea.nabla.ir.generator.Utils.*
-import static extension fr.cea.nabla.ir.generator.java.ExpressionContentProvider.*
-import static extension fr.cea.nabla.ir.generator.java.InstructionContentProvider.*
-
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.generator.java
+
+import fr.cea.nabla.ir.IrUtils
+import fr.cea.nabla.ir.ir.ExecuteTimeLoopJob
+import fr.cea.nabla.ir.ir.IrRoot
+import fr.cea.nabla.ir.ir.Job
+import fr.cea.nabla.ir.ir.JobCaller
+
+import static extension fr.cea.nabla.ir.JobCallerExtensions.*
+import static extension fr.cea.nabla.ir.generator.Utils.*
+import static extension fr.cea.nabla.ir.generator.java.ExpressionContentProvider.*
+import static extension fr.cea.nabla.ir.generator.java.InstructionContentProvider.*
+import static extension fr.cea.nabla.ir.generator.java.ItemIndexAndIdValueContentProvider.*
+
 class JobContentProvider 
 {
 	static def getContent(Job it)
-	'''
+	'''
 		«comment»
-		protected void «codeName»()
+		«IF JavaGeneratorOptions.jmhBenchmark»public«ELSE»protected«ENDIF» void «codeName»()
 		{
+			«IF JavaGeneratorOptions.jobTimers»
+			timers.start(«timerIndex»);
+			«ENDIF»
 			«innerContent»
+			«IF JavaGeneratorOptions.jobTimers»
+			timers.stop(«timerIndex»);
+			«ENDIF»
 		}
 	'''
 
+	/** Index of the job in the JobTimers of the application: its index in IrRoot.jobs */
+	static def getTimerIndex(Job it)
+	{
+		IrUtils.getContainerOfType(it, IrRoot).jobs.indexOf(it)
+	}
+
+	/**
+	 * Calls of the jobs in the order of their @. With option jobs = "concurrent",
+	 * jobs with the same @ do not depend on each other: they run as concurrent tasks,
+	 * except time loops which are called alone.
+	 */
+	static def getCallsContent(JobCaller it)
+	{
+		if (JavaGeneratorOptions.concurrentJobs)
+		{
+			val jobsByAt = calls.groupBy[at]
+			'''
+				«FOR at : jobsByAt.keySet.sort»
+					«val concurrentJobs = jobsByAt.get(at).filter[x | !(x instanceof JobCaller)].toList»
+					«IF concurrentJobs.size > 1»
+						ConcurrentJobs.run(«FOR j : concurrentJobs SEPARATOR ', '»() -> «j.callName»()«ENDFOR»); // @«at»
+					«ELSE»
+						«FOR j : concurrentJobs»
+							«j.callName»(); // @«at»
+						«ENDFOR»
+					«ENDIF»
+					«FOR j : jobsByAt.get(at).filter[x | x instanceof JobCaller]»
+						«j.callName»(); // @«at»
+					«ENDFOR»
+				«ENDFOR»
+			'''
+		}
+		else
+			'''
+				«FOR j : calls»
+					«j.callName»(); // @«j.at»
+				«ENDFOR»
+			'''
+	}
+
 	private static def dispatch CharSequence getInnerContent(Job it)
-	'''
+	'''
+		«localIndicesDefinitions»
 		«instruction.innerContent»
 	'''
-
-	private static def dispatch CharSequence getInnerContent(ExecuteTimeLoopJob it)
-	'''
-		«val itVar = iterationCounter.codeName»
-		«val irRoot = IrUtils.getContainerOfType(it, IrRoot)»
-		«val tn = irRoot.currentTimeVariable.codeName»
-		«val deltat = irRoot.timeStepVariable.codeName»
-		«val ppInfo = irRoot.postProcessing»
-		«itVar» = 0;
-		boolean continueLoop = true;
-		do
-		{
-			«itVar»++;
-			«IF caller.main»
-				System.out.printf("START ITERATION «iterationCounter.name»: %5d - t: %5.5f - deltat: %5.5f\n", «itVar», «tn», «deltat»);
-				«IF ppInfo !== null»
-					if («ppInfo.periodReference.codeName» >= «ppInfo.lastDumpVariable.codeName» + «ppInfo.periodValue.codeName»)
-						dumpVariables(«itVar»);
-				«ENDIF»
-			«ELSE»
-				System.out.printf("Start iteration «iterationCounter.name»: %5d\n", «itVar»);
-			«ENDIF»
-
-			«FOR j : calls»
-				«j.callName»(); // @«j.at»
-			«ENDFOR»
-
-			// Evaluate loop condition with variables at time n
-			continueLoop = («whileCondition.content»);
-
-			«instruction.innerContent»
-		} while (continueLoop);
-		«IF caller.main»
-
-			System.out.printf("FINAL TIME: %5.5f - deltat: %5.5f\n", «tn», «deltat»);
-			«IF ppInfo !== null»dumpVariables(«itVar»+1);«ENDIF»
-		«ENDIF»
-	'''
+
+	private static def dispatch CharSequence getInnerContent(ExecuteTimeLoopJob it)
+	'''
+		«val itVar = iterationCounter.codeName»
+		«val irRoot = IrUtils.getContainerOfType(it, IrRoot)»
+		«val tn = irRoot.currentTimeVariable.codeName»
+		«val deltat = irRoot.timeStepVariable.codeName»
+		«val ppInfo = irRoot.postProcessing»
+		«itVar» = 0;
+		boolean continueLoop = true;
+		do
+		{
+			«itVar»++;
+			«IF caller.main»
+				System.out.printf("START ITERATION «iterationCounter.name»: %5d - t: %5.5f - deltat: %5.5f\n", «itVar», «tn», «deltat»);
+				«IF ppInfo !== null»
+					if («ppInfo.periodReference.codeName» >= «ppInfo.lastDumpVariable.codeName» + «ppInfo.periodValue.codeName»)
+						dumpVariables(«itVar»);
+				«ENDIF»
+			«ELSE»
+				System.out.printf("Start iteration «iterationCounter.name»: %5d\n", «itVar»);
+			«ENDIF»
+
+			«callsContent»
+
+			// Evaluate loop condition with variables at time n
+			continueLoop = («whileCondition.content»);
+
+			«instruction.innerContent»
+		} while (continueLoop);
+		«IF caller.main»
+
+			System.out.printf("FINAL TIME: %5.5f - deltat: %5.5f\n", «tn», «deltat»);
+			«IF ppInfo !== null»dumpVariables(«itVar»+1);«ENDIF»
+		«ENDIF»
+	'''
 }
\ No newline at end of file
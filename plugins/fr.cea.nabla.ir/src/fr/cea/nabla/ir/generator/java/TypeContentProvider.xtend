@@ -63,7 +63,7 @@ class TypeContentProvider
 		}
 	}
 
-	private static def String getJavaType(PrimitiveType t)
+	static def String getJavaType(PrimitiveType t)
 	{
 		switch t
 		{
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.generator.java
+
+import fr.cea.nabla.ir.ir.Affectation
+import fr.cea.nabla.ir.ir.ArgOrVarRef
+import fr.cea.nabla.ir.ir.BinaryExpression
+import fr.cea.nabla.ir.ir.ConnectivityCall
+import fr.cea.nabla.ir.ir.ConnectivityType
+import fr.cea.nabla.ir.ir.Expression
+import fr.cea.nabla.ir.ir.Instruction
+import fr.cea.nabla.ir.ir.InstructionBlock
+import fr.cea.nabla.ir.ir.IrType
+import fr.cea.nabla.ir.ir.Iterator
+import fr.cea.nabla.ir.ir.Loop
+import fr.cea.nabla.ir.ir.Parenthesis
+import fr.cea.nabla.ir.ir.PrimitiveType
+import fr.cea.nabla.ir.ir.UnaryExpression
+import java.util.List
+
+import static extension fr.cea.nabla.ir.ArgOrVarExtensions.*
+import static extension fr.cea.nabla.ir.IrTypeExtensions.*
+import static extension fr.cea.nabla.ir.generator.java.ExpressionContentProvider.*
+
+/**
+ * SIMD loops with the Java Vector API, option simd = "vector": a loop on all the items
+ * of a connectivity whose body only affects real variables of this connectivity at the item
+ * with + - * / of such variables at the item and of loop invariant scalars,
+ * e.g. rho{j} = m{j} / V{j}, processes DoubleSpecies.length() items at a time,
+ * then the remaining items one by one. The other loops are generated as usual.
+ *
+ * The jdk.incubator.vector module requires a JDK 16 or later: the generated code
+ * must be compiled and run with --add-modules jdk.incubator.vector.
+ */
+class VectorContentProvider
+{
+	/** Name of the VectorSpecies constant of the generated classes */
+	public static val Species = 'DoubleSpecies'
+	/** Number of items of the chunks of the parallel vector loops */
+	public static val ChunkSize = 1024
+
+	static val Operations = #{ '+' -> 'add', '-' -> 'sub', '*' -> 'mul', '/' -> 'div' }
+
+	static def boolean isVectorizable(Loop it)
+	{
+		val b = iterationBlock
+		// chunked variables are not double[]
+		if (!JavaGeneratorOptions.vectorSimd || JavaGeneratorOptions.chunkedStorage || !(b instanceof Iterator)) return false
+
+		val c = (b as Iterator).container
+		if (!(c instanceof ConnectivityCall) || !(c as ConnectivityCall).args.empty) return false
+
+		val instructions = body.topLevelInstructions
+		!instructions.empty && instructions.forall[x | x instanceof Affectation && (x as Affectation).isVectorizable(b as Iterator)]
+	}
+
+	/** Affectations of the body of a vectorizable loop */
+	static def getVectorAffectations(Loop it)
+	{
+		body.topLevelInstructions.filter(Affectation)
+	}
+
+	/** Vector statement of an affectation of a vectorizable loop */
+	static def CharSequence getVectorContent(Affectation it)
+	'''«right.vectorContent».intoArray(«left.codeName», «left.iterators.head.name»);'''
+
+	private static def boolean isVectorizable(Affectation it, Iterator iterator)
+	{
+		left.isItemElement(iterator) && right.isVectorizable(iterator)
+	}
+
+	private static def boolean isVectorizable(Expression e, Iterator iterator)
+	{
+		if (e.invariant) return true
+		switch e
+		{
+			ArgOrVarRef: e.isItemElement(iterator)
+			BinaryExpression: Operations.containsKey(e.operator) && e.type.realScalar
+				&& e.left.isVectorizable(iterator) && e.right.isVectorizable(iterator)
+			UnaryExpression: e.operator == '-' && e.type.realScalar && e.expression.isVectorizable(iterator)
+			Parenthesis: e.expression.isVectorizable(iterator)
+			default: false
+		}
+	}
+
+	/**
+	 * True for a reference to the element of the item of the loop of a global real variable
+	 * on the connectivity of the loop only, e.g. rho{j}: a double[] indexed by the item.
+	 */
+	private static def boolean isItemElement(ArgOrVarRef it, Iterator iterator)
+	{
+		val t = target.type
+		iterators.size == 1 && iterators.head === iterator.index && indices.empty
+			&& target.global && !target.linearAlgebra
+			&& t instanceof ConnectivityType && (t as ConnectivityType).connectivities.size == 1
+			&& (t as ConnectivityType).connectivities.head === (iterator.container as ConnectivityCall).connectivity
+			&& (t as ConnectivityType).base.realScalar
+	}
+
+	/** True for a scalar int or real expression which does not depend on the item of the loop */
+	private static def boolean isInvariant(Expression e)
+	{
+		e.type.scalar && (e.type.primitive == PrimitiveType.INT || e.type.primitive == PrimitiveType.REAL)
+			&& !(e instanceof ArgOrVarRef && !(e as ArgOrVarRef).iterators.empty)
+			&& e.eAllContents.filter(ArgOrVarRef).forall[x | x.iterators.empty]
+	}
+
+	/**
+	 * DoubleVector of the values of e for the items of the vector:
+	 * invariants are broadcast, or passed as scalar right operands.
+	 */
+	private static def CharSequence getVectorContent(Expression e)
+	{
+		if (e.invariant)
+			'''DoubleVector.broadcast(«Species», «e.content»)'''
+		else switch e
+		{
+			ArgOrVarRef: '''DoubleVector.fromArray(«Species», «e.codeName», «e.iterators.head.name»)'''
+			BinaryExpression: '''«e.left.vectorContent».«Operations.get(e.operator)»(«IF e.right.invariant»«e.right.content»«ELSE»«e.right.vectorContent»«ENDIF»)'''
+			UnaryExpression: '''«e.expression.vectorContent».neg()'''
+			Parenthesis: e.expression.vectorContent
+			default: throw new RuntimeException('Unexpected expression in a vector loop: ' + e.class.simpleName)
+		}
+	}
+
+	private static def boolean isRealScalar(IrType t)
+	{
+		t.scalar && t.primitive == PrimitiveType.REAL
+	}
+
+	private static def List<Instruction> getTopLevelInstructions(Instruction i)
+	{
+		if (i instanceof InstructionBlock) i.instructions
+		else #[i]
+	}
+}
@@ -73,8 +73,15 @@ class Context
 
 			if (ir.mesh !== null)
 			{
-				meshProvider = new MeshExtensionProviderHelper
-				meshProvider.init(ir.mesh.connectivities)
+				try
+				{
+					meshProvider = new MeshExtensionProviderHelper(ir.mesh)
+					meshProvider.init(ir.mesh.connectivities)
+				}
+				catch (ClassNotFoundException e)
+				{
+					throw new ExtensionProviderNotFound(ir.mesh, e)
+				}
 			}
 		}
 	}
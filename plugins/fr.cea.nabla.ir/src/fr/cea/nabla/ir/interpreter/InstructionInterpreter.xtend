@@ -36,6 +36,7 @@ import static fr.cea.nabla.ir.interpreter.NablaValueSetter.*
 import static fr.cea.nabla.ir.interpreter.VariableValueFactory.*
 
 import static extension fr.cea.nabla.ir.ContainerExtensions.*
+import static extension fr.cea.nabla.ir.LoopExtensions.*
 import static extension fr.cea.nabla.ir.generator.Utils.*
 
 class InstructionInterpreter
@@ -109,7 +110,8 @@ class InstructionInterpreter
 			{
 				context.logFinest("We deal with loop " + b.container.uniqueName)
 				val container = context.getContainerValue(b.container)
-				if (parallelLoop)
+				// coloured scatter loops are interpreted sequentially
+				if (parallelLoop && !coloured)
 				{
 					//NB Can't return in parallelForEach
 					IntStream.range(0, container.size).parallel().forEach([loopIteratorValue |
@@ -121,8 +121,7 @@ class JobInterpreter
 		{
 			val time = context.getReal(ir.currentTimeVariable)
 			val coords = (context.getVariableValue(ir.nodeCoordVariable) as NV2Real).data
-			val quads = context.meshProvider.quads
-			w.startVtpFile(iteration, time, coords, quads);
+			w.startVtpFile(iteration, time, coords, context.meshProvider.geometry);
 			val outputVars = ppInfo.outputVariables
 
 			w.openNodeData();
@@ -140,7 +139,7 @@ class JobInterpreter
 			{
 				w.openCellArray(v.outputName, v.target.type.baseSizes.size)
 				val value = context.getVariableValue(v.target)
-				for (i : 0..<quads.length)
+				for (i : 0..<context.meshProvider.geometry.nbCells)
 					w.write(value.getValue(#[i]))
 				w.closeCellArray();
 			}
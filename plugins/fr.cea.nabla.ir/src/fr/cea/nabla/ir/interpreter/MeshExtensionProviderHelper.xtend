@@ -12,28 +12,62 @@ package fr.cea.nabla.ir.interpreter
 import fr.cea.nabla.ir.ir.Connectivity
 import fr.cea.nabla.ir.ir.IrModule
 import fr.cea.nabla.ir.ir.Iterator
-import fr.cea.nabla.javalib.mesh.CartesianMesh2D
+import fr.cea.nabla.ir.ir.MeshExtensionProvider
+import fr.cea.nabla.javalib.mesh.MeshGeometry
 import java.lang.reflect.Method
 import java.net.URLClassLoader
 import java.util.HashMap
 import java.util.logging.Logger
 
+import static extension fr.cea.nabla.ir.ExtensionProviderExtensions.*
+
+/**
+ * The mesh class is found in the javalib mesh package
+ * from the name of the mesh extension, e.g. CartesianMesh2D.
+ */
 class MeshExtensionProviderHelper implements ExtensionProviderHelper
 {
+	public static val MeshPackageName = "fr.cea.nabla.javalib.mesh"
+
 	protected URLClassLoader cl
-	val Class<?> providerClass = typeof(CartesianMesh2D)
-	static CartesianMesh2D providerInstance = null // singleton
+	val Class<?> providerClass
+	static Object providerInstance = null // singleton
+	static String providerJsonContent = null // mesh block of the singleton
 
 	val methods = new HashMap<Connectivity, Method>
 	val sizes = new HashMap<Connectivity, Integer>
 
-	def getNodes() { providerInstance.geometry.nodes }
-	def getQuads() { providerInstance.geometry.quads }
+	new(MeshExtensionProvider provider) throws ClassNotFoundException
+	{
+		providerClass = Class.forName(MeshPackageName + '.' + provider.className)
+	}
+
+	def getGeometry() { providerClass.getMethod("getGeometry").invoke(providerInstance) as MeshGeometry }
+	def getNodes() { geometry.nodes }
 
 	override createProviderInstance(IrModule module)
 	{
-		if (providerInstance === null)
-			providerInstance = providerClass.constructor.newInstance as CartesianMesh2D
+		// the singleton is kept while the mesh class does not change
+		if (providerInstance === null || providerInstance.class != providerClass)
+		{
+			providerInstance = providerClass.constructor.newInstance
+			providerJsonContent = null
+		}
+	}
+
+	/**
+	 * The mesh is only built if its Json block changed since the last run.
+	 * Between JVMs, the "cache" option of the mesh block gives a binary cache file.
+	 */
+	override jsonInit(IrModule module, String jsonContent)
+	{
+		if (jsonContent != providerJsonContent)
+		{
+			providerJsonContent = null
+			val jsonInitMethod = providerClass.getDeclaredMethod("jsonInit", String)
+			jsonInitMethod.invoke(providerInstance, jsonContent)
+			providerJsonContent = jsonContent
+		}
 	}
 
 	override getProviderClass(String functionName)
@@ -96,10 +130,13 @@ class MeshExtensionProviderHelper implements ExtensionProviderHelper
 		call(method, newIntArrayOfSize(0)) as Integer
 	}
 
+	/** Getter of the mesh instance if any, e.g. for unstructured meshes, static field otherwise */
 	private def int getMaxNbElems(Connectivity connectivity)
 	{
-		val fieldName = "MaxNb" + connectivity.name.toFirstUpper
-		val field = providerClass.getDeclaredField(fieldName)
+		val name = "MaxNb" + connectivity.name.toFirstUpper
+		if (providerClass.methods.exists[x | x.name == "get" + name && x.parameterCount == 0])
+			return call(getMeshMethod("get" + name, 0), newIntArrayOfSize(0)) as Integer
+		val field = providerClass.getDeclaredField(name)
 		field.setAccessible(true)
 		return field.getInt(providerInstance)
 	}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.transformers
+
+import fr.cea.nabla.ir.IrUtils
+import fr.cea.nabla.ir.ir.Affectation
+import fr.cea.nabla.ir.ir.ArgOrVarRef
+import fr.cea.nabla.ir.ir.Connectivity
+import fr.cea.nabla.ir.ir.ConnectivityCall
+import fr.cea.nabla.ir.ir.IrRoot
+import fr.cea.nabla.ir.ir.ItemId
+import fr.cea.nabla.ir.ir.ItemIdDefinition
+import fr.cea.nabla.ir.ir.ItemIdValueIterator
+import fr.cea.nabla.ir.ir.ItemIndex
+import fr.cea.nabla.ir.ir.ItemIndexDefinition
+import fr.cea.nabla.ir.ir.Iterator
+import fr.cea.nabla.ir.ir.Loop
+import java.util.HashSet
+import java.util.Set
+
+import static extension fr.cea.nabla.ir.ContainerExtensions.*
+import static extension fr.cea.nabla.ir.LoopExtensions.*
+
+class ColourScatterLoops extends IrTransformationStep
+{
+	new()
+	{
+		super('Colour parallel loops scattering values to connected items')
+	}
+
+	/**
+	 * A parallel loop on items j scatters when it accesses a variable it writes
+	 * at an item r of a connectivity C(j) without j: two items sharing r race.
+	 * If C is the same multiple connectivity for all these accesses and the loop
+	 * iterates on all the items, it is annotated to be executed colour by colour,
+	 * items of the same colour sharing no element of C.
+	 * Otherwise, the loop is executed sequentially.
+	 */
+	override transform(IrRoot ir)
+	{
+		trace('    IR -> IR: ' + description)
+		val loops = ir.eAllContents.filter(Loop).filter[x | x.multithreadable && IrUtils.isTopLevelConnectivityIterable(x)].toList
+		for (loop : loops)
+		{
+			val scatterConnectivities = loop.scatterConnectivities
+			if (!scatterConnectivities.empty)
+			{
+				val c = scatterConnectivities.head
+				val container = (loop.iterationBlock as Iterator).container
+				if (scatterConnectivities.size == 1 && c !== null && c.multiple
+					&& container instanceof ConnectivityCall && (container as ConnectivityCall).connectivity.indexEqualId)
+				{
+					trace('        Loop on ' + container.uniqueName + ' coloured by ' + c.name)
+					loop.colouringConnectivity = c.name
+				}
+				else
+				{
+					trace('        Loop on ' + container.uniqueName + ' can not be coloured: sequential execution')
+					loop.multithreadable = false
+				}
+			}
+		}
+		return true
+	}
+
+	/**
+	 * Connectivities of the accesses to written variables not owned by the loop item,
+	 * null for an access through an unknown item.
+	 */
+	private def Set<Connectivity> getScatterConnectivities(Loop it)
+	{
+		val iterator = iterationBlock as Iterator
+		val loopItemIds = eAllContents.filter(ItemIdDefinition).filter[x | x.isIteratorValue(iterator)].map[id].toSet
+		val writtenVariables = eAllContents.filter(Affectation).map[left].filter[x | !x.iterators.empty].map[target].toSet
+		val connectivities = new HashSet<Connectivity>
+		for (ref : eAllContents.filter(ArgOrVarRef).filter[x | !x.iterators.empty && writtenVariables.contains(x.target)].toIterable)
+			if (!ref.iterators.exists[x | x === iterator.index || loopItemIds.contains(x.definitionId)])
+				connectivities += ref.iterators.map[x | x.getScatterConnectivity(loopItemIds)]
+		return connectivities
+	}
+
+	private def boolean isIteratorValue(ItemIdDefinition it, Iterator iterator)
+	{
+		val v = value
+		v instanceof ItemIdValueIterator && (v as ItemIdValueIterator).iterator === iterator && (v as ItemIdValueIterator).shift == 0
+	}
+
+	/** The item id of an index defined by an ItemIndexDefinition, null otherwise */
+	private def ItemId getDefinitionId(ItemIndex it)
+	{
+		val definition = eContainer
+		if (definition instanceof ItemIndexDefinition) definition.value.id
+		else null
+	}
+
+	/** C if the index is the one of an item r iterated in C(j), j being the loop item, null otherwise */
+	private def Connectivity getScatterConnectivity(ItemIndex it, Set<ItemId> loopItemIds)
+	{
+		val idDefinition = definitionId?.eContainer
+		if (idDefinition instanceof ItemIdDefinition)
+		{
+			val v = idDefinition.value
+			if (v instanceof ItemIdValueIterator)
+			{
+				val c = v.iterator.container
+				if (c instanceof ConnectivityCall && (c as ConnectivityCall).args.size == 1 && loopItemIds.contains((c as ConnectivityCall).args.head))
+					return (c as ConnectivityCall).connectivity
+			}
+		}
+		return null
+	}
+}
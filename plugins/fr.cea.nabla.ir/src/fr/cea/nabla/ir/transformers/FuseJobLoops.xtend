@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.transformers
+
+import fr.cea.nabla.ir.ir.Affectation
+import fr.cea.nabla.ir.ir.ArgOrVarRef
+import fr.cea.nabla.ir.ir.ConnectivityCall
+import fr.cea.nabla.ir.ir.InstructionBlock
+import fr.cea.nabla.ir.ir.IrFactory
+import fr.cea.nabla.ir.ir.IrRoot
+import fr.cea.nabla.ir.ir.Iterator
+import fr.cea.nabla.ir.ir.Job
+import fr.cea.nabla.ir.ir.JobCaller
+import fr.cea.nabla.ir.ir.Loop
+import fr.cea.nabla.ir.ir.Variable
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.EcoreUtil
+
+import static extension fr.cea.nabla.ir.LoopExtensions.*
+
+class FuseJobLoops extends IrTransformationStep
+{
+	new()
+	{
+		super('Fuse the loops of consecutive jobs on the same items')
+	}
+
+	/**
+	 * Consecutive jobs of a caller whose instruction is a loop on all the items
+	 * of the same connectivity, e.g. computeCjr and computeLjr on the cells,
+	 * are fused into one job: the mesh is traversed once, the body of the
+	 * second loop being executed after the body of the first one for each item.
+	 *
+	 * The second job is moved at the @ of the first one: the variables it reads
+	 * must be written by jobs called before, or by the first job at the item
+	 * of its loop and read by the second job at the item of its loop only.
+	 */
+	override transform(IrRoot ir)
+	{
+		trace('    IR -> IR: ' + description)
+		var nbFusions = 0
+
+		for (caller : ir.eAllContents.filter(JobCaller).toList)
+		{
+			// calls are sorted by @: each job is fused with the next one while possible
+			var i = 0
+			while (i < caller.calls.size - 1)
+			{
+				val j1 = caller.calls.get(i)
+				val j2 = caller.calls.get(i + 1)
+				if (j1.canBeFusedWith(j2))
+				{
+					j1.fuse(j2)
+					nbFusions++
+				}
+				else
+					i++
+			}
+		}
+
+		trace('        ' + nbFusions + ' job fusions')
+		return true
+	}
+
+	private def boolean canBeFusedWith(Job j1, Job j2)
+	{
+		val l1 = j1.topLevelLoop
+		val l2 = j2.topLevelLoop
+		if (l1 === null || l2 === null || j1.eContainer !== j2.eContainer) return false
+
+		val i1 = l1.iterationBlock as Iterator
+		val i2 = l2.iterationBlock as Iterator
+		if ((i1.container as ConnectivityCall).connectivity !== (i2.container as ConnectivityCall).connectivity
+			|| i2.counter !== null) return false
+
+		// the first job does not depend on the second one
+		if (j2.outVars.exists[x | j1.inVars.contains(x) || j1.outVars.contains(x)]) return false
+
+		// variables written by the first job and read by the second one at the same item
+		for (v : j1.outVars.filter[x | j2.inVars.contains(x)])
+			if (!l1.eAllContents.filter(Affectation).filter[x | x.left.target === v].forall[x | x.left.isAtItem(i1)]
+				|| !l2.eAllContents.filter(ArgOrVarRef).filter[x | x.target === v].forall[x | x.isAtItem(i2)])
+				return false
+
+		// other variables read by the second job written before the first job
+		return j2.inVars.forall[v | v.isWrittenBefore(j1, j2)]
+	}
+
+	/**
+	 * The loop of a job which is a parallel or sequential loop on all the items
+	 * of a connectivity, and not coloured: null for another job.
+	 */
+	private def Loop getTopLevelLoop(Job j)
+	{
+		if (j instanceof JobCaller) return null
+
+		val instruction = j.instruction
+		val l = if (instruction instanceof InstructionBlock && (instruction as InstructionBlock).instructions.size == 1)
+			(instruction as InstructionBlock).instructions.head
+		else
+			instruction
+
+		if (l instanceof Loop)
+		{
+			val b = l.iterationBlock
+			if (!l.coloured && b instanceof Iterator && (b as Iterator).container instanceof ConnectivityCall
+				&& ((b as Iterator).container as ConnectivityCall).args.empty)
+				return l
+		}
+		return null
+	}
+
+	private def boolean isAtItem(ArgOrVarRef ref, Iterator iterator)
+	{
+		!ref.iterators.empty && ref.iterators.head === iterator.index
+	}
+
+	/**
+	 * True if the writers of v, except the fused jobs, are called before j1:
+	 * outside the caller of j1, or in it at a smaller @.
+	 */
+	private def boolean isWrittenBefore(Variable v, Job j1, Job j2)
+	{
+		v.previousJobs.forall[w |
+			val called = j1.caller.getCalledJob(w)
+			called === null || called === j1 || called === j2 || called.at < j1.at
+		]
+	}
+
+	/** The job of caller.calls calling j, directly or not, or j itself, null if j is not called by caller */
+	private def Job getCalledJob(JobCaller caller, Job j)
+	{
+		var Job current = j
+		while (current.caller !== null && current.caller !== caller)
+		{
+			val c = current.caller
+			if (c instanceof Job) current = c
+			else return null
+		}
+		if (current.caller === caller) current else null
+	}
+
+	/**
+	 * The body of the loop of j2 is appended to the body of the loop of j1,
+	 * with the iterator of j1, and j2 is deleted.
+	 */
+	private def void fuse(Job j1, Job j2)
+	{
+		val l1 = j1.topLevelLoop
+		val l2 = j2.topLevelLoop
+		val i1 = l1.iterationBlock as Iterator
+		val i2 = l2.iterationBlock as Iterator
+		replaceReferences(i2, i1, l2.body)
+		replaceReferences(i2.index, i1.index, l2.body)
+
+		val b1 = l1.body
+		val b2 = l2.body
+		l1.body = IrFactory::eINSTANCE.createInstructionBlock =>
+		[
+			instructions += b1
+			instructions += b2
+		]
+		l1.multithreadable = l1.multithreadable && l2.multithreadable
+
+		j1.name = j1.name + j2.name.toFirstUpper
+		for (v : j2.inVars.filter[x | !j1.inVars.contains(x) && !j1.outVars.contains(x)].toList)
+			j1.inVars += v
+		for (v : j2.outVars.filter[x | !j1.outVars.contains(x)].toList)
+			j1.outVars += v
+		for (j : j2.previousJobs.filter[x | x !== j1 && !j1.previousJobs.contains(x)].toList)
+			j1.previousJobs += j
+		for (j : j2.nextJobs.filter[x | x !== j1 && !j1.nextJobs.contains(x)].toList)
+			j1.nextJobs += j
+		for (j : j2.previousJobsWithSameCaller.filter[x | x !== j1 && !j1.previousJobsWithSameCaller.contains(x)].toList)
+			j1.previousJobsWithSameCaller += j
+		for (j : j2.nextJobsWithSameCaller.filter[x | x !== j1 && !j1.nextJobsWithSameCaller.contains(x)].toList)
+			j1.nextJobsWithSameCaller += j
+
+		// removes j2 from its caller, the jobs of the IrRoot and the dependencies
+		EcoreUtil::delete(j2, true)
+	}
+
+	private def void replaceReferences(EObject oldObject, EObject newObject, EObject scope)
+	{
+		for (setting : EcoreUtil.UsageCrossReferencer::find(oldObject, scope))
+			EcoreUtil::replace(setting.EObject, setting.EStructuralFeature, oldObject, newObject)
+	}
+}
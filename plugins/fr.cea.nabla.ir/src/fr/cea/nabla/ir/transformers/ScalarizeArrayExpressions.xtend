@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.transformers
+
+import fr.cea.nabla.ir.IrUtils
+import fr.cea.nabla.ir.ir.Affectation
+import fr.cea.nabla.ir.ir.ArgOrVar
+import fr.cea.nabla.ir.ir.ArgOrVarRef
+import fr.cea.nabla.ir.ir.BaseType
+import fr.cea.nabla.ir.ir.BaseTypeConstant
+import fr.cea.nabla.ir.ir.BinaryExpression
+import fr.cea.nabla.ir.ir.BoolConstant
+import fr.cea.nabla.ir.ir.Expression
+import fr.cea.nabla.ir.ir.Function
+import fr.cea.nabla.ir.ir.Instruction
+import fr.cea.nabla.ir.ir.IntConstant
+import fr.cea.nabla.ir.ir.IrFactory
+import fr.cea.nabla.ir.ir.IrRoot
+import fr.cea.nabla.ir.ir.IrType
+import fr.cea.nabla.ir.ir.Job
+import fr.cea.nabla.ir.ir.Parenthesis
+import fr.cea.nabla.ir.ir.PrimitiveType
+import fr.cea.nabla.ir.ir.RealConstant
+import fr.cea.nabla.ir.ir.UnaryExpression
+import fr.cea.nabla.ir.ir.Variable
+import fr.cea.nabla.ir.ir.VariableDeclaration
+import fr.cea.nabla.ir.ir.VectorConstant
+import java.util.ArrayList
+import java.util.List
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.EcoreUtil
+
+import static fr.cea.nabla.ir.transformers.IrTransformationUtils.*
+
+import static extension fr.cea.nabla.ir.IrTypeExtensions.*
+
+class ScalarizeArrayExpressions extends IrTransformationStep
+{
+	static val ElementwiseOperators = #['+', '-', '*', '/']
+	static val MaxNbElements = 16
+
+	new()
+	{
+		super('Scalarize expressions on arrays of constant sizes')
+	}
+
+	/**
+	 * Expressions on arrays of constant sizes, e.g. ℝ[2] or ℝ[2, 2], are unrolled
+	 * into scalar expressions to avoid the allocation of temporary arrays:
+	 * X_nplus1[r] = X_n[r] + deltat * ur[r] becomes one affectation per element,
+	 * X_nplus1[r][0] = X_n[r][0] + deltat * ur[r][0], X_nplus1[r][1] = ...
+	 * The default value of a local array becomes a vector constant of the elements.
+	 * Function calls and non trivial scalar operands are evaluated once,
+	 * in local variables declared before the affectation.
+	 *
+	 * An affectation of an array replaces the reference in Java, whereas elements
+	 * are written in place: variables whose arrays may be shared are not unrolled.
+	 */
+	override transform(IrRoot ir)
+	{
+		trace('    IR -> IR: ' + description)
+		val sharedArrays = new SharedArrays(ir)
+		var nbAffectations = 0
+		var nbDeclarations = 0
+
+		for (affectation : ir.eAllContents.filter(Affectation).toList)
+		{
+			val sizes = affectation.left.type.constantSizes
+			if (sizes !== null && affectation.right.allocating && affectation.right.isScalarizable(sizes)
+				&& affectation.left.target instanceof Variable && !sharedArrays.contains(affectation.left.target)
+				&& affectation.readsLeftElementwise)
+			{
+				val instructions = new ArrayList<Instruction>
+				affectation.right.evaluateOnce(affectation, instructions)
+				for (index : sizes.indexes)
+					instructions += IrFactory::eINSTANCE.createAffectation =>
+					[
+						left = affectation.left.getElement(index) as ArgOrVarRef
+						right = affectation.right.getElement(index)
+					]
+				replace(affectation, instructions)
+				nbAffectations++
+			}
+		}
+
+		for (declaration : ir.eAllContents.filter(VariableDeclaration).toList)
+		{
+			val v = declaration.variable
+			val sizes = v.type.constantSizes
+			if (sizes !== null && v.defaultValue !== null && v.defaultValue.arithmetic && v.defaultValue.isScalarizable(sizes))
+			{
+				val instructions = new ArrayList<Instruction>
+				v.defaultValue.evaluateOnce(declaration, instructions)
+				v.defaultValue = v.defaultValue.createVectorConstant(v.type.primitive, sizes, #[])
+				if (!instructions.empty)
+				{
+					instructions += declaration
+					replace(declaration, instructions)
+				}
+				nbDeclarations++
+			}
+		}
+
+		trace('        ' + nbAffectations + ' affectations and ' + nbDeclarations + ' declarations scalarized')
+		return true
+	}
+
+	/** Sizes of a BaseType array with IntConstant sizes, e.g. [2, 2] for ℝ[2, 2], null otherwise */
+	private def List<Integer> getConstantSizes(IrType t)
+	{
+		if (t instanceof BaseType)
+		{
+			val sizes = t.sizes
+			if (!sizes.empty && sizes.forall[x | x instanceof IntConstant])
+			{
+				val values = sizes.map[x | (x as IntConstant).value].toList
+				if (values.reduce[a, b | a * b] <= MaxNbElements)
+					return values
+			}
+		}
+		return null
+	}
+
+	/** Indexes of the elements of an array, in row-major order */
+	private def List<List<Integer>> getIndexes(List<Integer> sizes)
+	{
+		val indexes = new ArrayList<List<Integer>>
+		if (sizes.empty)
+			indexes += new ArrayList<Integer>
+		else
+			for (i : 0..<sizes.head)
+				for (tail : sizes.tail.toList.indexes)
+					indexes += (#[i] + tail).toList
+		return indexes
+	}
+
+	/** Arithmetic expressions allocate their result array in Java */
+	private def boolean isArithmetic(Expression e)
+	{
+		switch e
+		{
+			BinaryExpression: true
+			UnaryExpression: true
+			Parenthesis: e.expression.arithmetic
+			default: false
+		}
+	}
+
+	/** Arithmetic expressions and array constants allocate an array in Java */
+	private def boolean isAllocating(Expression e)
+	{
+		switch e
+		{
+			BaseTypeConstant: true
+			VectorConstant: true
+			default: e.arithmetic
+		}
+	}
+
+	/** True if the elements of e can be computed one by one as scalar expressions */
+	private def boolean isScalarizable(Expression e, List<Integer> sizes)
+	{
+		if (e.type.scalar) return true
+		if (e.type.constantSizes != sizes) return false
+		switch e
+		{
+			BinaryExpression: ElementwiseOperators.contains(e.operator) && e.left.isScalarizable(sizes) && e.right.isScalarizable(sizes)
+			UnaryExpression: e.operator == '-' && e.expression.isScalarizable(sizes)
+			Parenthesis: e.expression.isScalarizable(sizes)
+			VectorConstant: e.values.forall[x | x.isScalarizable(sizes.tail.toList)]
+			// references and constants are indexed, other arrays are evaluated once in a variable
+			default: true
+		}
+	}
+
+	/** Scalars read as they are in each element */
+	private def boolean isTrivial(Expression e)
+	{
+		switch e
+		{
+			ArgOrVarRef: true
+			IntConstant: true
+			RealConstant: true
+			BoolConstant: true
+			default: false
+		}
+	}
+
+	/**
+	 * Replaces the non trivial scalar operands and the arrays which are not unrolled,
+	 * e.g. function calls, by references to local variables declared in instructions.
+	 */
+	private def void evaluateOnce(Expression e, Instruction instruction, List<Instruction> instructions)
+	{
+		if (e.type.scalar)
+		{
+			if (!e.trivial) e.replaceByVariable(instruction, instructions)
+			return
+		}
+
+		switch e
+		{
+			BinaryExpression:
+			{
+				e.left.evaluateOnce(instruction, instructions)
+				e.right.evaluateOnce(instruction, instructions)
+			}
+			UnaryExpression: e.expression.evaluateOnce(instruction, instructions)
+			Parenthesis: e.expression.evaluateOnce(instruction, instructions)
+			BaseTypeConstant: e.value.evaluateOnce(instruction, instructions)
+			VectorConstant: for (v : e.values.toList) v.evaluateOnce(instruction, instructions)
+			ArgOrVarRef: {}
+			default: e.replaceByVariable(instruction, instructions)
+		}
+	}
+
+	private def void replaceByVariable(Expression e, Instruction instruction, List<Instruction> instructions)
+	{
+		val v = IrFactory::eINSTANCE.createVariable =>
+		[
+			name = instruction.getTmpVariableName(instructions)
+			type = EcoreUtil::copy(e.type)
+			const = true
+			constExpr = false
+			option = false
+		]
+		EcoreUtil::replace(e, createRef(v, e.type))
+		v.defaultValue = e
+		instructions += IrFactory::eINSTANCE.createVariableDeclaration => [ variable = v ]
+	}
+
+	/** First name tmp<n> unused in the job or the function of the instruction and in the new instructions */
+	private def String getTmpVariableName(Instruction instruction, List<Instruction> instructions)
+	{
+		val EObject scope = IrUtils.getContainerOfType(instruction, Job) ?: IrUtils.getContainerOfType(instruction, Function)
+		val names = scope.eAllContents.filter(ArgOrVar).map[name].toSet
+		names += instructions.filter(VariableDeclaration).map[variable.name]
+		var n = 0
+		while (names.contains('tmp' + n)) n++
+		return 'tmp' + n
+	}
+
+	/** Scalar expression of the element of e at index */
+	private def Expression getElement(Expression e, List<Integer> index)
+	{
+		if (e.type.scalar) return EcoreUtil::copy(e)
+		val elementType = e.type.primitive.createType(#[])
+		switch e
+		{
+			ArgOrVarRef: EcoreUtil::copy(e) =>
+			[
+				for (i : index) indices += createIntConstant(i)
+				type = elementType
+			]
+			BinaryExpression: IrFactory::eINSTANCE.createBinaryExpression =>
+			[
+				operator = e.operator
+				left = e.left.getElement(index)
+				right = e.right.getElement(index)
+				type = elementType
+			]
+			UnaryExpression: IrFactory::eINSTANCE.createUnaryExpression =>
+			[
+				operator = e.operator
+				expression = e.expression.getElement(index)
+				type = elementType
+			]
+			Parenthesis: IrFactory::eINSTANCE.createParenthesis =>
+			[
+				expression = e.expression.getElement(index)
+				type = elementType
+			]
+			BaseTypeConstant: e.value.getElement(#[])
+			VectorConstant: e.values.get(index.head).getElement(index.tail.toList)
+			default: throw new RuntimeException('Unexpected expression in scalarization: ' + e.class.name)
+		}
+	}
+
+	/** Vector constant of the elements of e, e.g. [[e[0][0], e[0][1]], [e[1][0], e[1][1]]] */
+	private def Expression createVectorConstant(Expression e, PrimitiveType primitive, List<Integer> sizes, List<Integer> index)
+	{
+		if (index.size == sizes.size)
+			e.getElement(index)
+		else
+			IrFactory::eINSTANCE.createVectorConstant =>
+			[
+				type = primitive.createType(sizes.drop(index.size).toList)
+				for (i : 0..<sizes.get(index.size))
+					values += e.createVectorConstant(primitive, sizes, (index + #[i]).toList)
+			]
+	}
+
+	/**
+	 * True if the right part reads the affected variable only at the affected elements:
+	 * otherwise an element could be read after having been written.
+	 */
+	private def boolean readsLeftElementwise(Affectation it)
+	{
+		right.eAllContents.filter(ArgOrVarRef).filter[x | x.target === left.target].forall[x |
+			x.iterators == left.iterators && x.indices.size == left.indices.size
+			&& (0..<x.indices.size).forall[i | EcoreUtil::equals(x.indices.get(i), left.indices.get(i))]
+		]
+	}
+
+	private def createType(PrimitiveType p, List<Integer> sizes)
+	{
+		IrFactory::eINSTANCE.createBaseType =>
+		[
+			primitive = p
+			for (s : sizes) it.sizes += createIntConstant(s)
+		]
+	}
+
+	private def IntConstant createIntConstant(int v)
+	{
+		IrFactory::eINSTANCE.createIntConstant =>
+		[
+			value = v
+			type = IrFactory::eINSTANCE.createBaseType => [ primitive = PrimitiveType::INT ]
+			constExpr = true
+		]
+	}
+
+	private def createRef(Variable v, IrType t)
+	{
+		IrFactory::eINSTANCE.createArgOrVarRef =>
+		[
+			target = v
+			type = EcoreUtil::copy(t)
+		]
+	}
+}
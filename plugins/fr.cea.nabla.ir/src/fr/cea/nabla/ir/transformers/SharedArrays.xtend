@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.transformers
+
+import fr.cea.nabla.ir.ir.Affectation
+import fr.cea.nabla.ir.ir.ArgOrVar
+import fr.cea.nabla.ir.ir.ArgOrVarRef
+import fr.cea.nabla.ir.ir.ContractedIf
+import fr.cea.nabla.ir.ir.Expression
+import fr.cea.nabla.ir.ir.Function
+import fr.cea.nabla.ir.ir.FunctionCall
+import fr.cea.nabla.ir.ir.InternFunction
+import fr.cea.nabla.ir.ir.IrRoot
+import fr.cea.nabla.ir.ir.Parenthesis
+import fr.cea.nabla.ir.ir.ReductionInstruction
+import fr.cea.nabla.ir.ir.Return
+import fr.cea.nabla.ir.ir.Variable
+import fr.cea.nabla.ir.ir.VariableDeclaration
+import java.util.HashMap
+import java.util.HashSet
+import java.util.Set
+
+import static extension fr.cea.nabla.ir.IrTypeExtensions.*
+
+/**
+ * Variables whose arrays may be referenced by another variable.
+ * An affectation of an array replaces the reference in Java, whereas elements
+ * are written in place: only the arrays of the other variables can be written in place.
+ */
+class SharedArrays
+{
+	val mayReturnArgumentByFunction = new HashMap<Function, Boolean>
+	val Set<ArgOrVar> sharedVariables
+
+	/**
+	 * Variables affected with the value of a reference to an array,
+	 * directly, through a contracted if or through a function returning one of its arguments,
+	 * and the referenced variables.
+	 */
+	new(IrRoot ir)
+	{
+		sharedVariables = new HashSet<ArgOrVar>
+		for (v : ir.eAllContents.filter(Variable).filter[x | x.defaultValue !== null].toIterable)
+			v.share(v.defaultValue.aliasedVariables)
+		for (a : ir.eAllContents.filter(Affectation).toIterable)
+			a.left.target.share(a.right.aliasedVariables)
+		for (r : ir.eAllContents.filter(ReductionInstruction).filter[x | x.binaryFunction.mayReturnArgument].toIterable)
+			r.result.share(r.lambda.aliasedVariables)
+		for (call : ir.eAllContents.filter(FunctionCall).filter[x | x.function.mayReturnArgument].toIterable)
+			for (arg : call.args)
+				sharedVariables += arg.aliasedVariables
+	}
+
+	def boolean contains(ArgOrVar v)
+	{
+		sharedVariables.contains(v)
+	}
+
+	/**
+	 * True if the function may return the array of one of its arguments,
+	 * possibly through local variables. Extern functions are unknown.
+	 */
+	def boolean mayReturnArgument(Function f)
+	{
+		if (f.returnType === null || f.returnType.scalar) return false
+		if (!(f instanceof InternFunction)) return true
+		val known = mayReturnArgumentByFunction.get(f)
+		if (known !== null) return known
+
+		// recursive calls
+		mayReturnArgumentByFunction.put(f, true)
+		val body = (f as InternFunction).body
+		val instructions = (#[body] + body.eAllContents.toIterable).toList
+		val holders = new HashSet<ArgOrVar>(f.inArgs)
+		var changed = true
+		while (changed)
+		{
+			changed = false
+			for (v : instructions.filter(VariableDeclaration).map[variable].filter[x | x.defaultValue !== null && !holders.contains(x)])
+				if (v.defaultValue.aliasedVariables.exists[x | holders.contains(x)])
+				{
+					holders += v
+					changed = true
+				}
+			for (a : instructions.filter(Affectation).filter[x | !holders.contains(x.left.target)])
+				if (a.right.aliasedVariables.exists[x | holders.contains(x)])
+				{
+					holders += a.left.target
+					changed = true
+				}
+		}
+		val result = instructions.filter(Return).exists[x | x.expression.aliasedVariables.exists[y | holders.contains(y)]]
+		mayReturnArgumentByFunction.put(f, result)
+		return result
+	}
+
+	private def void share(ArgOrVar v, Set<ArgOrVar> aliasedVariables)
+	{
+		if (!aliasedVariables.empty)
+		{
+			sharedVariables += v
+			sharedVariables += aliasedVariables
+		}
+	}
+
+	/** Variables whose array may be the value of e */
+	private def Set<ArgOrVar> getAliasedVariables(Expression e)
+	{
+		val variables = new HashSet<ArgOrVar>
+		e.collectAliasedVariables(variables)
+		return variables
+	}
+
+	private def void collectAliasedVariables(Expression e, Set<ArgOrVar> variables)
+	{
+		if (!e.type.scalar)
+		{
+			switch e
+			{
+				ArgOrVarRef: variables += e.target
+				Parenthesis: e.expression.collectAliasedVariables(variables)
+				ContractedIf:
+				{
+					e.thenExpression.collectAliasedVariables(variables)
+					e.elseExpression.collectAliasedVariables(variables)
+				}
+				FunctionCall case e.function.mayReturnArgument:
+					for (arg : e.args) arg.collectAliasedVariables(variables)
+			}
+		}
+	}
+}
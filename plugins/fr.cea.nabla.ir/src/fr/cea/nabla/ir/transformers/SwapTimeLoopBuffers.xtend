@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.transformers
+
+import fr.cea.nabla.ir.ir.Affectation
+import fr.cea.nabla.ir.ir.ArgOrVarRef
+import fr.cea.nabla.ir.ir.ConnectivityCall
+import fr.cea.nabla.ir.ir.ConnectivityType
+import fr.cea.nabla.ir.ir.ExecuteTimeLoopJob
+import fr.cea.nabla.ir.ir.Instruction
+import fr.cea.nabla.ir.ir.InstructionBlock
+import fr.cea.nabla.ir.ir.IrRoot
+import fr.cea.nabla.ir.ir.Iterator
+import fr.cea.nabla.ir.ir.Job
+import fr.cea.nabla.ir.ir.Loop
+import fr.cea.nabla.ir.ir.Variable
+import java.util.List
+
+import static extension fr.cea.nabla.ir.ArgOrVarExtensions.*
+import static extension fr.cea.nabla.ir.LoopExtensions.*
+
+class SwapTimeLoopBuffers extends IrTransformationStep
+{
+	new()
+	{
+		super('Swap time loop buffers instead of copying them')
+	}
+
+	/**
+	 * At the end of each iteration of a time loop, X_n = X_nplus1 copies the
+	 * arrays element by element, in the loops created by ReplaceAffectations.
+	 * The arrays are swapped instead when the old values of X_nplus1 are never read:
+	 * X_nplus1 must be entirely written by a job of the time loop before
+	 * any other job of the iteration reads it, and must not be dumped.
+	 * The copy is kept for the last iteration, so that X_nplus1 is unchanged
+	 * after the loop, e.g. for a tear down job or the non regression database.
+	 */
+	override transform(IrRoot ir)
+	{
+		trace('    IR -> IR: ' + description)
+		var nbSwaps = 0
+
+		for (job : ir.eAllContents.filter(ExecuteTimeLoopJob).toList)
+			for (loop : job.instruction.topLevelInstructions.filter(Loop))
+			{
+				val next = job.getCopiedVariable(loop)
+				if (next !== null && !ir.isDumped(next) && job.isOverwrittenBeforeRead(next))
+				{
+					loop.bufferSwap = true
+					nbSwaps++
+				}
+			}
+
+		trace('        ' + nbSwaps + ' copies replaced by swaps')
+		return true
+	}
+
+	/**
+	 * The next variable X_nplus1 if the loop only copies it into
+	 * the current variable X_n of the time loop, null otherwise.
+	 */
+	private def Variable getCopiedVariable(ExecuteTimeLoopJob job, Loop loop)
+	{
+		val affectations = loop.eAllContents.filter(Affectation).toList
+		if (affectations.size != 1) return null
+
+		val a = affectations.head
+		val r = a.right
+		if (r instanceof ArgOrVarRef)
+		{
+			val current = a.left.target
+			val next = r.target
+			if (current instanceof Variable && next instanceof Variable
+				&& job.inVars.contains(current) && job.outVars.contains(next)
+				&& current.global && next.global && !current.linearAlgebra && !next.linearAlgebra)
+				return next as Variable
+		}
+		return null
+	}
+
+	private def boolean isDumped(IrRoot ir, Variable v)
+	{
+		ir.nodeCoordVariable === v
+			|| ir.postProcessing !== null && ir.postProcessing.outputVariables.exists[x | x.target === v]
+	}
+
+	/**
+	 * True if a job called by the time loop writes all the elements of next,
+	 * and all the jobs of the iteration reading next are called after it.
+	 */
+	private def boolean isOverwrittenBeforeRead(ExecuteTimeLoopJob job, Variable next)
+	{
+		val writer = job.calls.findFirst[x | x.writesEntirely(next)]
+		if (writer === null) return false
+
+		for (reader : next.nextJobs)
+		{
+			val called = job.getCalledJob(reader)
+			// jobs outside the time loop read next after the copy of the last iteration
+			if (called !== null && called.at <= writer.at) return false
+		}
+		return true
+	}
+
+	/** The job of job.calls calling j, directly or not, or j itself, null if j is not in the time loop */
+	private def Job getCalledJob(ExecuteTimeLoopJob job, Job j)
+	{
+		var Job current = j
+		while (current.caller !== null && current.caller !== job)
+		{
+			val caller = current.caller
+			if (caller instanceof Job) current = caller
+			else return null
+		}
+		if (current.caller === job) current else null
+	}
+
+	/**
+	 * True if the job writes v as a whole, or item by item in a loop on all the items
+	 * of its connectivity, unconditionally.
+	 */
+	private def boolean writesEntirely(Job job, Variable v)
+	{
+		job.instruction.topLevelInstructions.exists[i |
+			switch i
+			{
+				Affectation: i.left.target === v && i.left.iterators.empty && i.left.indices.empty
+				Loop: i.writesEntirely(v)
+				default: false
+			}
+		]
+	}
+
+	private def boolean writesEntirely(Loop loop, Variable v)
+	{
+		val t = v.type
+		val b = loop.iterationBlock
+		if (t instanceof ConnectivityType && b instanceof Iterator)
+		{
+			val connectivities = (t as ConnectivityType).connectivities
+			val iterator = b as Iterator
+			val c = iterator.container
+			if (connectivities.size == 1 && c instanceof ConnectivityCall
+				&& (c as ConnectivityCall).args.empty && (c as ConnectivityCall).connectivity === connectivities.head)
+				return loop.body.topLevelInstructions.filter(Affectation).exists[x |
+					x.left.target === v && x.left.iterators.size == 1 && x.left.iterators.head === iterator.index && x.left.indices.empty
+				]
+		}
+		return false
+	}
+
+	private def List<Instruction> getTopLevelInstructions(Instruction i)
+	{
+		if (i instanceof InstructionBlock) i.instructions
+		else #[i]
+	}
+}
@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.ir.transformers
+
+import fr.cea.nabla.ir.ir.Affectation
+import fr.cea.nabla.ir.ir.ArgOrVar
+import fr.cea.nabla.ir.ir.ArgOrVarRef
+import fr.cea.nabla.ir.ir.BaseType
+import fr.cea.nabla.ir.ir.BinaryExpression
+import fr.cea.nabla.ir.ir.ContractedIf
+import fr.cea.nabla.ir.ir.Expression
+import fr.cea.nabla.ir.ir.FunctionCall
+import fr.cea.nabla.ir.ir.InstructionBlock
+import fr.cea.nabla.ir.ir.InternFunction
+import fr.cea.nabla.ir.ir.IrFactory
+import fr.cea.nabla.ir.ir.IrModule
+import fr.cea.nabla.ir.ir.IrRoot
+import fr.cea.nabla.ir.ir.IrType
+import fr.cea.nabla.ir.ir.Parenthesis
+import fr.cea.nabla.ir.ir.PrimitiveType
+import fr.cea.nabla.ir.ir.ReductionInstruction
+import fr.cea.nabla.ir.ir.Return
+import fr.cea.nabla.ir.ir.UnaryExpression
+import fr.cea.nabla.ir.ir.Variable
+import fr.cea.nabla.ir.ir.VariableDeclaration
+import fr.cea.nabla.ir.ir.VectorConstant
+import java.util.Collection
+import java.util.HashSet
+import java.util.LinkedHashMap
+import java.util.LinkedList
+import org.eclipse.emf.ecore.util.EcoreUtil
+
+import static extension fr.cea.nabla.ir.ArgOrVarExtensions.*
+import static extension fr.cea.nabla.ir.InstructionExtensions.*
+import static extension fr.cea.nabla.ir.IrTypeExtensions.*
+
+class UseDestinationResults extends IrTransformationStep
+{
+	public static val VariantSuffix = 'Into'
+	static val ElementwiseOperators = #['+', '-', '*', '/']
+
+	new()
+	{
+		super('Write array results into their destination')
+	}
+
+	/**
+	 * An affectation of an array by a function call or an arithmetic expression,
+	 * X{r} = f(a, b) or X{r} = a + b, replaces X{r} by a new array in Java.
+	 * The result is written into the array of X{r} instead: by a variant
+	 * fInto(X{r}, a, b) of the function writing its result into its first argument,
+	 * or by ArrayOperations.plusInto(X{r}, a, b).
+	 * In the variants, the result of a return is also written into the destination,
+	 * and a local array declared without value and returned is the destination itself.
+	 * Parallel reductions of arrays by an elementwise function, e.g. sumR1,
+	 * accumulate in place with the variant.
+	 *
+	 * X must not share its array with another variable, see SharedArrays,
+	 * and the array must not be read by the function once written.
+	 */
+	override transform(IrRoot ir)
+	{
+		trace('    IR -> IR: ' + description)
+		val sharedArrays = new SharedArrays(ir)
+		val functions = new LinkedList<InternFunction>
+		var nbAffectations = 0
+		var nbReductions = 0
+
+		for (affectation : ir.eAllContents.filter(Affectation).toList)
+			if (affectation.left.type.supported && affectation.left.target instanceof Variable && !affectation.left.target.linearAlgebra
+				&& !sharedArrays.contains(affectation.left.target) && affectation.writableInPlace)
+			{
+				affectation.destination = null
+				affectation.right.collectDestinationCalls(functions)
+				nbAffectations++
+			}
+
+		// accumulators of the tasks of parallel reductions, see java.InstructionContentProvider
+		for (reduction : ir.eAllContents.filter(ReductionInstruction).toList)
+			if (reduction.result.type.supported && reduction.binaryFunction instanceof InternFunction
+				&& (reduction.binaryFunction as InternFunction).elementwise)
+			{
+				reduction.destination = null
+				functions += reduction.binaryFunction as InternFunction
+				nbReductions++
+			}
+
+		// variants, including the ones called by the returns of the variants
+		val variants = new LinkedHashMap<InternFunction, InternFunction>
+		while (!functions.empty)
+		{
+			val f = functions.removeFirst
+			if (!variants.containsKey(f))
+			{
+				val variant = f.createVariant(sharedArrays)
+				variants.put(f, variant)
+				for (r : variant.eAllContents.filter(Return).toIterable)
+					r.expression.collectDestinationCalls(functions)
+			}
+		}
+		for (f : variants.keySet)
+		{
+			val module = f.eContainer as IrModule
+			module.functions.add(module.functions.indexOf(f) + 1, variants.get(f))
+		}
+
+		trace('        ' + nbAffectations + ' affectations, ' + nbReductions + ' reductions and ' + variants.size + ' function variants')
+		return true
+	}
+
+	/** Arrays of rank 1 or 2 of ints or reals, supported by ArrayOperations.copyInto */
+	private def boolean isSupported(IrType t)
+	{
+		t instanceof BaseType && !t.scalar && (t as BaseType).sizes.size <= 2
+			&& (t.primitive == PrimitiveType.INT || t.primitive == PrimitiveType.REAL)
+	}
+
+	/**
+	 * True if the right part can be computed into the left part: references
+	 * to the left variable passed to the operation must be the left part itself,
+	 * and then the operation must read its operands element by element.
+	 */
+	private def boolean isWritableInPlace(Affectation it)
+	{
+		val r = right.unparenthesized
+		switch r
+		{
+			FunctionCall case r.function instanceof InternFunction && r.function.returnType.supported:
+				r.args.forall[x | x.isReadInPlace(left) && (x.unparenthesized.readsOnly(left) || (r.function as InternFunction).elementwise)]
+			BinaryExpression case ElementwiseOperators.contains(r.operator) && r.type.supported:
+				r.left.isReadInPlace(left) && r.right.isReadInPlace(left)
+			UnaryExpression case r.operator == '-' && r.type.supported:
+				r.expression.isReadInPlace(left)
+			default: false
+		}
+	}
+
+	/**
+	 * True if the operand, evaluated before the operation, does not reference
+	 * the array of the left part, or references it as a whole.
+	 */
+	private def boolean isReadInPlace(Expression operand, ArgOrVarRef left)
+	{
+		val e = operand.unparenthesized
+		if (e.type.scalar) return true
+		switch e
+		{
+			ArgOrVarRef: e.target !== left.target || e.isSameRef(left)
+			ContractedIf: !e.eAllContents.filter(ArgOrVarRef).exists[x | x.target === left.target]
+			// the other arrays are new arrays
+			default: true
+		}
+	}
+
+	/** True if the expression is not a reference to the array of the left part */
+	private def boolean readsOnly(Expression e, ArgOrVarRef left)
+	{
+		e.type.scalar || !(e instanceof ArgOrVarRef) || (e as ArgOrVarRef).target !== left.target
+	}
+
+	private def boolean isSameRef(ArgOrVarRef a, ArgOrVarRef b)
+	{
+		a.target === b.target && a.iterators == b.iterators && a.indices.size == b.indices.size
+			&& (0..<a.indices.size).forall[i | EcoreUtil::equals(a.indices.get(i), b.indices.get(i))]
+	}
+
+	/**
+	 * True if the function only returns an elementwise operation on its arguments,
+	 * e.g. sumR1(a, b) returning a + b: its destination can be one of its arguments.
+	 */
+	private def boolean isElementwise(InternFunction f)
+	{
+		val body = f.body
+		val instruction = if (body instanceof InstructionBlock && (body as InstructionBlock).instructions.size == 1)
+			(body as InstructionBlock).instructions.head
+		else
+			body
+		if (instruction instanceof Return)
+		{
+			val e = instruction.expression.unparenthesized
+			val operands = switch e
+			{
+				BinaryExpression case ElementwiseOperators.contains(e.operator): #[e.left, e.right]
+				UnaryExpression case e.operator == '-': #[e.expression]
+				default: null
+			}
+			operands !== null && operands.map[unparenthesized].forall[x | x.type.scalar || x instanceof ArgOrVarRef && (x as ArgOrVarRef).iterators.empty && (x as ArgOrVarRef).indices.empty]
+		}
+		else
+			false
+	}
+
+	/**
+	 * Functions called to write their result into a destination, as the generator
+	 * writes e: in a variant for a call, element by element for a vector constant.
+	 */
+	private def void collectDestinationCalls(Expression e, Collection<InternFunction> functions)
+	{
+		switch e
+		{
+			Parenthesis: e.expression.collectDestinationCalls(functions)
+			FunctionCall case e.function instanceof InternFunction: functions += e.function as InternFunction
+			VectorConstant: for (v : e.values.filter[x | !x.type.scalar]) v.collectDestinationCalls(functions)
+		}
+	}
+
+	/**
+	 * Copy of the function writing its result into a new first argument.
+	 * The returned local variable, if any, is declared as the destination.
+	 */
+	private def InternFunction createVariant(InternFunction f, SharedArrays sharedArrays)
+	{
+		val returnedLocalIndex = f.getReturnedLocalIndex(sharedArrays)
+		val variant = EcoreUtil::copy(f)
+		val destinationName = f.destinationName
+		variant.name = f.name + VariantSuffix
+		variant.inArgs.add(0, IrFactory::eINSTANCE.createArg =>
+		[
+			name = destinationName
+			type = EcoreUtil::copy(variant.returnType)
+		])
+
+		if (returnedLocalIndex >= 0)
+			(variant.eAllContents.toList.get(returnedLocalIndex) as VariableDeclaration).destination = destinationName
+		else
+			for (r : variant.eAllContents.filter(Return).toIterable)
+				r.destination = destinationName
+		return variant
+	}
+
+	/**
+	 * Index in the contents of the function of the declaration of the local variable
+	 * returned by all the returns, -1 if there is not such a variable:
+	 * the variable must be declared without value, its array must not be shared
+	 * and only its elements must be affected.
+	 */
+	private def int getReturnedLocalIndex(InternFunction f, SharedArrays sharedArrays)
+	{
+		val contents = f.eAllContents.toList
+		val returns = contents.filter(Return).map[expression].toList
+		if (returns.empty || !returns.forall[x | x instanceof ArgOrVarRef && (x as ArgOrVarRef).iterators.empty && (x as ArgOrVarRef).indices.empty])
+			return -1
+
+		val v = (returns.head as ArgOrVarRef).target
+		if (v instanceof Variable && returns.forall[x | (x as ArgOrVarRef).target === v] && !sharedArrays.contains(v)
+			&& (v as Variable).defaultValue === null
+			&& contents.filter(Affectation).forall[x | x.left.target !== v || x.left.type.scalar])
+			contents.indexOf(contents.filter(VariableDeclaration).findFirst[x | x.variable === v])
+		else
+			-1
+	}
+
+	/** First name dest<n> unused in the function */
+	private def String getDestinationName(InternFunction f)
+	{
+		val names = new HashSet<String>
+		names += f.eAllContents.filter(ArgOrVar).map[name].toIterable
+		var name = 'dest'
+		var n = 0
+		while (names.contains(name)) name = 'dest' + n++
+		return name
+	}
+
+	private def Expression getUnparenthesized(Expression e)
+	{
+		if (e instanceof Parenthesis) e.expression.unparenthesized
+		else e
+	}
+}
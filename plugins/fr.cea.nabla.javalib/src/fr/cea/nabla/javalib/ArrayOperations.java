@@ -9,6 +9,13 @@
  *******************************************************************************/
 package fr.cea.nabla.javalib;
 
+import java.util.Arrays;
+
+/**
+ * Elementwise operations on arrays. Each operation allocates its result,
+ * or writes it into the dest array of the same sizes with the xxxInto variant,
+ * dest possibly being one of the operands.
+ */
 public class ArrayOperations 
 {
 	// INT
@@ -17,140 +24,227 @@ public class ArrayOperations
 		return plus(b, a);
 	}
 
+	public static int[] plusInto(int[] dest, int a, int[] b)
+	{
+		return plusInto(dest, b, a);
+	}
+
 	public static int[] multiply(int a, int[] b)
 	{
 		return multiply(b, a);
 	}
 
+	public static int[] multiplyInto(int[] dest, int a, int[] b)
+	{
+		return multiplyInto(dest, b, a);
+	}
+
 	public static double[] multiply(int a, double[] b)
 	{
 		return multiply(b, a);
 	}
 
+	public static double[] multiplyInto(double[] dest, int a, double[] b)
+	{
+		return multiplyInto(dest, b, a);
+	}
+
 	public static double[][] multiply(int a, double[][] b)
 	{
 		return multiply(b, a);
 	}
 
+	public static double[][] multiplyInto(double[][] dest, int a, double[][] b)
+	{
+		return multiplyInto(dest, b, a);
+	}
+
 	// REAL
 	public static double[] plus(double a, double[] b)
 	{
 		return plus(b, a);
 	}
 
+	public static double[] plusInto(double[] dest, double a, double[] b)
+	{
+		return plusInto(dest, b, a);
+	}
+
 	public static double[] multiply(double a, double[] b)
 	{
 		return multiply(b, a);
 	}
+
+	public static double[] multiplyInto(double[] dest, double a, double[] b)
+	{
+		return multiplyInto(dest, b, a);
+	}
 	
 	public static double[][] multiply(double a, double[][] b)
 	{
 		return multiply(b, a);
 	}
 
+	public static double[][] multiplyInto(double[][] dest, double a, double[][] b)
+	{
+		return multiplyInto(dest, b, a);
+	}
+
 	// INT ARRAY1D
 	public static int[] plus(int[] a, int b) 
 	{
-		int[] result = new int[a.length];
+		return plusInto(new int[a.length], a, b);
+	}
+
+	public static int[] plusInto(int[] dest, int[] a, int b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] + b;
-		return result;
+			dest[i] = a[i] + b;
+		return dest;
 	}
 
 	public static int[] minus(int[] a, int b) 
 	{
-		int[] result = new int[a.length];
+		return minusInto(new int[a.length], a, b);
+	}
+
+	public static int[] minusInto(int[] dest, int[] a, int b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] - b;
-		return result;
+			dest[i] = a[i] - b;
+		return dest;
 	}
 
 	public static int[] multiply(int[] a, int b) 
 	{
-		int[] result = new int[a.length];
+		return multiplyInto(new int[a.length], a, b);
+	}
+
+	public static int[] multiplyInto(int[] dest, int[] a, int b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] * b;
-		return result;
+			dest[i] = a[i] * b;
+		return dest;
 	}
 
 	public static int[] divide(int[] a, int b) 
 	{
-		int[] result = new int[a.length];
+		return divideInto(new int[a.length], a, b);
+	}
+
+	public static int[] divideInto(int[] dest, int[] a, int b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] / b;
-		return result;
+			dest[i] = a[i] / b;
+		return dest;
 	}
 
 	public static double[] plus(int[] a, double b) 
 	{
-		double[] result = new double[a.length];
+		return plusInto(new double[a.length], a, b);
+	}
+
+	public static double[] plusInto(double[] dest, int[] a, double b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] + b;
-		return result;
+			dest[i] = a[i] + b;
+		return dest;
 	}
 
 	public static double[] minus(int[] a, double b) 
 	{
-		double[] result = new double[a.length];
+		return minusInto(new double[a.length], a, b);
+	}
+
+	public static double[] minusInto(double[] dest, int[] a, double b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] - b;
-		return result;
+			dest[i] = a[i] - b;
+		return dest;
 	}
 
 	public static double[] multiply(int[] a, double b) 
 	{
-		double[] result = new double[a.length];
+		return multiplyInto(new double[a.length], a, b);
+	}
+
+	public static double[] multiplyInto(double[] dest, int[] a, double b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] * b;
-		return result;
+			dest[i] = a[i] * b;
+		return dest;
 	}
 
 	public static double[] divide(int[] a, double b) 
 	{
-		double[] result = new double[a.length];
+		return divideInto(new double[a.length], a, b);
+	}
+
+	public static double[] divideInto(double[] dest, int[] a, double b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] / b;
-		return result;
+			dest[i] = a[i] / b;
+		return dest;
 	}
 	
 	public static int[] plus(int[] a, int[] b) 
 	{
-		int[] result = new int[a.length];
+		return plusInto(new int[a.length], a, b);
+	}
+
+	public static int[] plusInto(int[] dest, int[] a, int[] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] + b[i];
-		return result;
+			dest[i] = a[i] + b[i];
+		return dest;
 	}
 
 	public static int[] minus(int[] a, int[] b) 
 	{
-		int[] result = new int[a.length];
+		return minusInto(new int[a.length], a, b);
+	}
+
+	public static int[] minusInto(int[] dest, int[] a, int[] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] - b[i];
-		return result;
+			dest[i] = a[i] - b[i];
+		return dest;
 	}
 
 	public static int[] multiply(int[] a, int[] b) 
 	{
-		int[] result = new int[a.length];
+		return multiplyInto(new int[a.length], a, b);
+	}
+
+	public static int[] multiplyInto(int[] dest, int[] a, int[] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] * b[i];
-		return result;
+			dest[i] = a[i] * b[i];
+		return dest;
 	}
 
 	public static int[] divide(int[] a, int[] b) 
 	{
-		int[] result = new int[a.length];
+		return divideInto(new int[a.length], a, b);
+	}
+
+	public static int[] divideInto(int[] dest, int[] a, int[] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] / b[i];
-		return result;
+			dest[i] = a[i] / b[i];
+		return dest;
 	}
 
 	public static int[] minus(int[] a)
 	{
-		int[] result = new int[a.length];
+		return minusInto(new int[a.length], a);
+	}
+
+	public static int[] minusInto(int[] dest, int[] a)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = -a[i];
-		return result;
+			dest[i] = -a[i];
+		return dest;
 	}
 
 	// REAL ARRAY1D
@@ -159,91 +253,147 @@ public class ArrayOperations
 		return plus(a, (double)b);
 	}
 
+	public static double[] plusInto(double[] dest, double[] a, int b)
+	{
+		return plusInto(dest, a, (double)b);
+	}
+
 	public static double[] minus(double[] a, int b) 
 	{
 		return minus(a, (double)b);
 	}
 
+	public static double[] minusInto(double[] dest, double[] a, int b)
+	{
+		return minusInto(dest, a, (double)b);
+	}
+
 	public static double[] multiply(double[] a, int b) 
 	{
 		return multiply(a, (double)b);
 	}
 
+	public static double[] multiplyInto(double[] dest, double[] a, int b)
+	{
+		return multiplyInto(dest, a, (double)b);
+	}
+
 	public static double[] divide(double[] a, int b) 
 	{
 		return divide(a, (double)b);
 	}
+
+	public static double[] divideInto(double[] dest, double[] a, int b)
+	{
+		return divideInto(dest, a, (double)b);
+	}
 	
 	public static double[] plus(double[] a, double b) 
 	{
-		double[] result = new double[a.length];
+		return plusInto(new double[a.length], a, b);
+	}
+
+	public static double[] plusInto(double[] dest, double[] a, double b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] + b;
-		return result;
+			dest[i] = a[i] + b;
+		return dest;
 	}
 
 	public static double[] minus(double[] a, double b) 
 	{
-		double[] result = new double[a.length];
+		return minusInto(new double[a.length], a, b);
+	}
+
+	public static double[] minusInto(double[] dest, double[] a, double b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] - b;
-		return result;
+			dest[i] = a[i] - b;
+		return dest;
 	}
 
 	public static double[] multiply(double[] a, double b) 
 	{
-		double[] result = new double[a.length];
+		return multiplyInto(new double[a.length], a, b);
+	}
+
+	public static double[] multiplyInto(double[] dest, double[] a, double b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] * b;
-		return result;
+			dest[i] = a[i] * b;
+		return dest;
 	}
 
 	public static double[] divide(double[] a, double b) 
 	{
-		double[] result = new double[a.length];
+		return divideInto(new double[a.length], a, b);
+	}
+
+	public static double[] divideInto(double[] dest, double[] a, double b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] / b;
-		return result;
+			dest[i] = a[i] / b;
+		return dest;
 	}
 
 	public static double[] plus(double[] a, double[] b) 
 	{
-		double[] result = new double[a.length];
+		return plusInto(new double[a.length], a, b);
+	}
+
+	public static double[] plusInto(double[] dest, double[] a, double[] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] + b[i];
-		return result;
+			dest[i] = a[i] + b[i];
+		return dest;
 	}
 
 	public static double[] minus(double[] a, double[] b) 
 	{
-		double[] result = new double[a.length];
+		return minusInto(new double[a.length], a, b);
+	}
+
+	public static double[] minusInto(double[] dest, double[] a, double[] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] - b[i];
-		return result;
+			dest[i] = a[i] - b[i];
+		return dest;
 	}
 
 	public static double[] multiply(double[] a, double[] b) 
 	{
-		double[] result = new double[a.length];
+		return multiplyInto(new double[a.length], a, b);
+	}
+
+	public static double[] multiplyInto(double[] dest, double[] a, double[] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] * b[i];
-		return result;
+			dest[i] = a[i] * b[i];
+		return dest;
 	}
 
 	public static double[] divide(double[] a, double[] b) 
 	{
-		double[] result = new double[a.length];
+		return divideInto(new double[a.length], a, b);
+	}
+
+	public static double[] divideInto(double[] dest, double[] a, double[] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = a[i] / b[i];
-		return result;
+			dest[i] = a[i] / b[i];
+		return dest;
 	}
 
 	public static double[] minus(double[] a)
 	{
-		double[] result = new double[a.length];
+		return minusInto(new double[a.length], a);
+	}
+
+	public static double[] minusInto(double[] dest, double[] a)
+	{
 		for (int i=0 ; i<a.length ; ++i)
-			result[i] = -a[i];
-		return result;
+			dest[i] = -a[i];
+		return dest;
 	}
 
 	// REAL ARAY2D
@@ -251,63 +401,151 @@ public class ArrayOperations
 	{ 
 		return multiply(a, (double)b);
 	}
+
+	public static double[][] multiplyInto(double[][] dest, double[][] a, int b)
+	{
+		return multiplyInto(dest, a, (double)b);
+	}
 	
 	public static double[][] multiply(double[][] a, double b) 
 	{ 
-		double[][] result = new double[a.length][a[0].length];
+		return multiplyInto(new double[a.length][a[0].length], a, b);
+	}
+
+	public static double[][] multiplyInto(double[][] dest, double[][] a, double b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
 			for (int j=0 ; j<a[0].length ; ++j)
-				result[i][j] = a[i][j] * b;
-		return result;
+				dest[i][j] = a[i][j] * b;
+		return dest;
 	}
 	
 	public static double[][] multiply(double[][] a, double[][] b) 
 	{ 
-		double[][] result = new double[a.length][a[0].length];
+		return multiplyInto(new double[a.length][a[0].length], a, b);
+	}
+
+	public static double[][] multiplyInto(double[][] dest, double[][] a, double[][] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
 			for (int j=0 ; j<a[0].length ; ++j)
-				result[i][j] = a[i][j] * b[i][j];
-		return result;
+				dest[i][j] = a[i][j] * b[i][j];
+		return dest;
 	}
 	
 	public static double[][] divide(double[][] a, int v) 
 	{ 
 		return divide(a, (double)v);
 	}
+
+	public static double[][] divideInto(double[][] dest, double[][] a, int v)
+	{
+		return divideInto(dest, a, (double)v);
+	}
 	
 	public static double[][] divide(double[][] a, double v) 
 	{ 
-		double[][] result = new double[a.length][a[0].length];
+		return divideInto(new double[a.length][a[0].length], a, v);
+	}
+
+	public static double[][] divideInto(double[][] dest, double[][] a, double v)
+	{
 		for (int i=0 ; i<a.length ; ++i)
 			for (int j=0 ; j<a[0].length ; ++j)
-				result[i][j] = a[i][j] / v;
-		return result;
+				dest[i][j] = a[i][j] / v;
+		return dest;
 	}
 
 	public static double[][] plus(double[][] a, double[][] b) 
 	{ 
-		double[][] result = new double[a.length][a[0].length];
+		return plusInto(new double[a.length][a[0].length], a, b);
+	}
+
+	public static double[][] plusInto(double[][] dest, double[][] a, double[][] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
 			for (int j=0 ; j<a[0].length ; ++j)
-				result[i][j] = a[i][j] + b[i][j];
-		return result;
+				dest[i][j] = a[i][j] + b[i][j];
+		return dest;
 	}
 
 	public static double[][] minus(double[][] a, double[][] b) 
 	{ 
-		double[][] result = new double[a.length][a[0].length];
+		return minusInto(new double[a.length][a[0].length], a, b);
+	}
+
+	public static double[][] minusInto(double[][] dest, double[][] a, double[][] b)
+	{
 		for (int i=0 ; i<a.length ; ++i)
 			for (int j=0 ; j<a[0].length ; ++j)
-				result[i][j] = a[i][j] - b[i][j];
-		return result;
+				dest[i][j] = a[i][j] - b[i][j];
+		return dest;
 	}
 	
 	public static double[][] minus(double[][] a) 
 	{ 
-		double[][] result = new double[a.length][a[0].length];
+		return minusInto(new double[a.length][a[0].length], a);
+	}
+
+	public static double[][] minusInto(double[][] dest, double[][] a)
+	{
 		for (int i=0 ; i<a.length ; ++i)
 			for (int j=0 ; j<a[0].length ; ++j)
-				result[i][j] = -a[i][j];
-		return result;
-	}	
+				dest[i][j] = -a[i][j];
+		return dest;
+	}
+
+	// COPY AND CLEAR
+	public static int[] copyInto(int[] dest, int[] a)
+	{
+		System.arraycopy(a, 0, dest, 0, a.length);
+		return dest;
+	}
+
+	public static int[][] copyInto(int[][] dest, int[][] a)
+	{
+		for (int i=0 ; i<a.length ; ++i)
+			System.arraycopy(a[i], 0, dest[i], 0, a[i].length);
+		return dest;
+	}
+
+	public static double[] copyInto(double[] dest, double[] a)
+	{
+		System.arraycopy(a, 0, dest, 0, a.length);
+		return dest;
+	}
+
+	public static double[][] copyInto(double[][] dest, double[][] a)
+	{
+		for (int i=0 ; i<a.length ; ++i)
+			System.arraycopy(a[i], 0, dest[i], 0, a[i].length);
+		return dest;
+	}
+
+	/** Sets all the elements to 0, as in a new array */
+	public static int[] clear(int[] a)
+	{
+		Arrays.fill(a, 0);
+		return a;
+	}
+
+	public static int[][] clear(int[][] a)
+	{
+		for (int[] row : a)
+			Arrays.fill(row, 0);
+		return a;
+	}
+
+	public static double[] clear(double[] a)
+	{
+		Arrays.fill(a, 0.0);
+		return a;
+	}
+
+	public static double[][] clear(double[][] a)
+	{
+		for (double[] row : a)
+			Arrays.fill(row, 0.0);
+		return a;
+	}
 }
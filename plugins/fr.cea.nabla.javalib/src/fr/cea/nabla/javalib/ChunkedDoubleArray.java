@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib;
+
+/**
+ * Array of doubles indexed by long, beyond the size limit of Java arrays:
+ * value i is element i & (2^chunkBits - 1) of chunk i >> chunkBits,
+ * all the chunks having 2^chunkBits values except the last one.
+ * Storage of the flat variables of the generated code with option storage = "chunked".
+ */
+public class ChunkedDoubleArray
+{
+	/** Chunks of 2^27 values: 1 GB */
+	public static final int DefaultChunkBits = 27;
+
+	private final long size;
+	private final int chunkBits;
+	private final long chunkMask;
+	private final double[][] chunks;
+
+	public ChunkedDoubleArray(long size)
+	{
+		this(size, DefaultChunkBits);
+	}
+
+	public ChunkedDoubleArray(long size, int chunkBits)
+	{
+		if (size < 0 || chunkBits < 1 || chunkBits > 30)
+			throw new RuntimeException("Invalid chunked array: " + size + " values in chunks of 2^" + chunkBits);
+		this.size = size;
+		this.chunkBits = chunkBits;
+		this.chunkMask = (1L << chunkBits) - 1;
+		this.chunks = new double[(int) ((size + chunkMask) >> chunkBits)][];
+		for (int c = 0; c < chunks.length; c++)
+			chunks[c] = new double[(int) Math.min(chunkMask + 1, size - ((long) c << chunkBits))];
+	}
+
+	public long getSize() { return size; }
+
+	public double get(long i)
+	{
+		return chunks[(int) (i >> chunkBits)][(int) (i & chunkMask)];
+	}
+
+	public void set(long i, double value)
+	{
+		chunks[(int) (i >> chunkBits)][(int) (i & chunkMask)] = value;
+	}
+
+	/** Copies length values of src from srcPos to this array from destPos */
+	public void copyFrom(double[] src, int srcPos, long destPos, int length)
+	{
+		while (length > 0)
+		{
+			final double[] chunk = chunks[(int) (destPos >> chunkBits)];
+			final int chunkPos = (int) (destPos & chunkMask);
+			final int n = Math.min(length, chunk.length - chunkPos);
+			System.arraycopy(src, srcPos, chunk, chunkPos, n);
+			srcPos += n;
+			destPos += n;
+			length -= n;
+		}
+	}
+
+	/** Copies length values of this array from srcPos to dest from destPos */
+	public void copyTo(long srcPos, double[] dest, int destPos, int length)
+	{
+		while (length > 0)
+		{
+			final double[] chunk = chunks[(int) (srcPos >> chunkBits)];
+			final int chunkPos = (int) (srcPos & chunkMask);
+			final int n = Math.min(length, chunk.length - chunkPos);
+			System.arraycopy(chunk, chunkPos, dest, destPos, n);
+			srcPos += n;
+			destPos += n;
+			length -= n;
+		}
+	}
+
+	/** Copies length values of src from srcPos to dest from destPos, as System.arraycopy */
+	public static void copy(ChunkedDoubleArray src, long srcPos, ChunkedDoubleArray dest, long destPos, long length)
+	{
+		while (length > 0)
+		{
+			final double[] srcChunk = src.chunks[(int) (srcPos >> src.chunkBits)];
+			final int srcChunkPos = (int) (srcPos & src.chunkMask);
+			final double[] destChunk = dest.chunks[(int) (destPos >> dest.chunkBits)];
+			final int destChunkPos = (int) (destPos & dest.chunkMask);
+			final int n = (int) Math.min(length, Math.min(srcChunk.length - srcChunkPos, destChunk.length - destChunkPos));
+			System.arraycopy(srcChunk, srcChunkPos, destChunk, destChunkPos, n);
+			srcPos += n;
+			destPos += n;
+			length -= n;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib;
+
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Concurrent execution of jobs with the same hierarchical logical time:
+ * they do not depend on each other. Each job is a fork-join task of the
+ * common pool, the calling thread executes the first one, so the parallel
+ * loops of the jobs share the workers while a small job overlaps a large one.
+ */
+public class ConcurrentJobs
+{
+	/**
+	 * Returns when all the jobs are done. If a job fails, its exception
+	 * is thrown and the jobs not yet started may be cancelled.
+	 */
+	public static void run(Runnable... jobs)
+	{
+		if (jobs.length == 1)
+		{
+			jobs[0].run();
+			return;
+		}
+
+		final ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[jobs.length];
+		for (int i = 0; i < jobs.length; i++)
+			tasks[i] = ForkJoinTask.adapt(jobs[i]);
+		ForkJoinTask.invokeAll(tasks);
+	}
+}
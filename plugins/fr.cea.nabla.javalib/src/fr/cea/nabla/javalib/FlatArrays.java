@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib;
+
+/**
+ * Blocks of variables stored in one flat array with row-major strides,
+ * e.g. Ajr[j][r] of a cell x node -> R[2, 2] variable is the block
+ * of 4 values at offset (j * maxNodesOfCell + r) * 4.
+ * Blocks are read as copies with the shape of the nested arrays.
+ */
+public class FlatArrays
+{
+	// DOUBLE
+	public static double[] get(double[] a, int offset, int n)
+	{
+		final double[] block = new double[n];
+		System.arraycopy(a, offset, block, 0, n);
+		return block;
+	}
+
+	public static double[][] get(double[] a, int offset, int n1, int n2)
+	{
+		final double[][] block = new double[n1][n2];
+		for (int i=0 ; i<n1 ; ++i)
+			System.arraycopy(a, offset + i * n2, block[i], 0, n2);
+		return block;
+	}
+
+	public static void set(double[] a, int offset, double[] block)
+	{
+		System.arraycopy(block, 0, a, offset, block.length);
+	}
+
+	public static void set(double[] a, int offset, double[][] block)
+	{
+		for (int i=0 ; i<block.length ; ++i)
+			System.arraycopy(block[i], 0, a, offset + i * block[i].length, block[i].length);
+	}
+
+	// CHUNKED DOUBLE: option storage = "chunked", long offsets
+	public static double[] get(ChunkedDoubleArray a, long offset, int n)
+	{
+		final double[] block = new double[n];
+		a.copyTo(offset, block, 0, n);
+		return block;
+	}
+
+	public static double[][] get(ChunkedDoubleArray a, long offset, int n1, int n2)
+	{
+		final double[][] block = new double[n1][n2];
+		for (int i=0 ; i<n1 ; ++i)
+			a.copyTo(offset + (long) i * n2, block[i], 0, n2);
+		return block;
+	}
+
+	public static void set(ChunkedDoubleArray a, long offset, double[] block)
+	{
+		a.copyFrom(block, 0, offset, block.length);
+	}
+
+	public static void set(ChunkedDoubleArray a, long offset, double[][] block)
+	{
+		for (int i=0 ; i<block.length ; ++i)
+			a.copyFrom(block[i], 0, offset + (long) i * block[i].length, block[i].length);
+	}
+
+	// INT
+	public static int[] get(int[] a, int offset, int n)
+	{
+		final int[] block = new int[n];
+		System.arraycopy(a, offset, block, 0, n);
+		return block;
+	}
+
+	public static int[][] get(int[] a, int offset, int n1, int n2)
+	{
+		final int[][] block = new int[n1][n2];
+		for (int i=0 ; i<n1 ; ++i)
+			System.arraycopy(a, offset + i * n2, block[i], 0, n2);
+		return block;
+	}
+
+	public static void set(int[] a, int offset, int[] block)
+	{
+		System.arraycopy(block, 0, a, offset, block.length);
+	}
+
+	public static void set(int[] a, int offset, int[][] block)
+	{
+		for (int i=0 ; i<block.length ; ++i)
+			System.arraycopy(block[i], 0, a, offset + i * block[i].length, block[i].length);
+	}
+
+	// BOOLEAN
+	public static boolean[] get(boolean[] a, int offset, int n)
+	{
+		final boolean[] block = new boolean[n];
+		System.arraycopy(a, offset, block, 0, n);
+		return block;
+	}
+
+	public static boolean[][] get(boolean[] a, int offset, int n1, int n2)
+	{
+		final boolean[][] block = new boolean[n1][n2];
+		for (int i=0 ; i<n1 ; ++i)
+			System.arraycopy(a, offset + i * n2, block[i], 0, n2);
+		return block;
+	}
+
+	public static void set(boolean[] a, int offset, boolean[] block)
+	{
+		System.arraycopy(block, 0, a, offset, block.length);
+	}
+
+	public static void set(boolean[] a, int offset, boolean[][] block)
+	{
+		for (int i=0 ; i<block.length ; ++i)
+			System.arraycopy(block[i], 0, a, offset + i * block[i].length, block[i].length);
+	}
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Number of calls and total time of each job of an application,
+ * measured with System.nanoTime by the generated code.
+ *
+ * The share of a job is its part of the time of its caller, e.g. a time loop
+ * for the jobs of a time step, or of the sum of the jobs without caller job.
+ * Jobs running concurrently have their own counters: they are not synchronized.
+ */
+public class JobTimers
+{
+	private final String name;
+	private final String[] jobNames;
+	private final int[] callers;
+	private final long[] starts;
+	private final long[] totals;
+	private final long[] calls;
+
+	/**
+	 * callers[i] is the index of the job calling job i,
+	 * -1 if job i is called by the main job caller.
+	 */
+	public JobTimers(String name, String[] jobNames, int[] callers)
+	{
+		if (jobNames.length != callers.length)
+			throw new RuntimeException("Job names and callers must have the same length: " + jobNames.length + " != " + callers.length);
+		this.name = name;
+		this.jobNames = jobNames;
+		this.callers = callers;
+		this.starts = new long[jobNames.length];
+		this.totals = new long[jobNames.length];
+		this.calls = new long[jobNames.length];
+	}
+
+	public void start(int job)
+	{
+		starts[job] = System.nanoTime();
+	}
+
+	public void stop(int job)
+	{
+		add(job, System.nanoTime() - starts[job]);
+	}
+
+	/** Adds a call of nanos nanoseconds to the job */
+	public void add(int job, long nanos)
+	{
+		totals[job] += nanos;
+		calls[job]++;
+	}
+
+	public int getNbJobs() { return jobNames.length; }
+	public long getCalls(int job) { return calls[job]; }
+	/** Total time in nanoseconds */
+	public long getTotal(int job) { return totals[job]; }
+
+	/** Mean time of a call in nanoseconds, 0 if the job has not been called */
+	public double getMean(int job)
+	{
+		return calls[job] == 0 ? 0.0 : (double) totals[job] / calls[job];
+	}
+
+	/** Part of the time of the caller of the job, in [0, 1] */
+	public double getShare(int job)
+	{
+		long reference = 0;
+		if (callers[job] < 0)
+		{
+			for (int i = 0; i < totals.length; i++)
+				if (callers[i] < 0) reference += totals[i];
+		}
+		else
+			reference = totals[callers[job]];
+		return reference == 0 ? 0.0 : (double) totals[job] / reference;
+	}
+
+	/** Table of the jobs, indented by caller */
+	public void print(PrintStream out)
+	{
+		out.println("Job timers of " + name);
+		out.printf("  %-40s %10s %14s %14s %8s%n", "Job", "Calls", "Total (s)", "Mean (ms)", "Share");
+		for (int i = 0; i < jobNames.length; i++)
+			out.printf(Locale.ROOT, "  %-40s %10d %14.6f %14.6f %7.2f%%%n",
+				"  ".repeat(getDepth(i)) + jobNames[i], calls[i], totals[i] * 1e-9, getMean(i) * 1e-6, getShare(i) * 100);
+	}
+
+	public String toCsv()
+	{
+		final StringBuilder sb = new StringBuilder("job,caller,calls,total_ns,mean_ns,share\n");
+		for (int i = 0; i < jobNames.length; i++)
+			sb.append(String.format(Locale.ROOT, "%s,%s,%d,%d,%.1f,%.6f\n",
+				jobNames[i], callers[i] < 0 ? "" : jobNames[callers[i]], calls[i], totals[i], getMean(i), getShare(i)));
+		return sb.toString();
+	}
+
+	public String toJson()
+	{
+		final StringBuilder sb = new StringBuilder("{\n\t\"name\": \"" + name + "\",\n\t\"jobs\":\n\t[\n");
+		for (int i = 0; i < jobNames.length; i++)
+		{
+			sb.append(String.format(Locale.ROOT, "\t\t{\"job\": \"%s\", \"caller\": %s, \"calls\": %d, \"totalNs\": %d, \"meanNs\": %.1f, \"share\": %.6f}",
+				jobNames[i], callers[i] < 0 ? "null" : "\"" + jobNames[callers[i]] + "\"", calls[i], totals[i], getMean(i), getShare(i)));
+			sb.append(i < jobNames.length - 1 ? ",\n" : "\n");
+		}
+		return sb.append("\t]\n}\n").toString();
+	}
+
+	/** Writes the timers in baseName.csv and baseName.json */
+	public void write(String baseName)
+	{
+		write(baseName + ".csv", toCsv());
+		write(baseName + ".json", toJson());
+	}
+
+	private static void write(String fileName, String content)
+	{
+		try (Writer w = new FileWriter(fileName))
+		{
+			w.write(content);
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException("Cannot write job timers in " + fileName, e);
+		}
+	}
+
+	private int getDepth(int job)
+	{
+		int depth = 0;
+		for (int c = callers[job]; c >= 0; c = callers[c])
+			depth++;
+		return depth;
+	}
+}
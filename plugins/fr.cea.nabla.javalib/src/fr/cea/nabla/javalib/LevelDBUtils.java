@@ -141,6 +141,46 @@ public class LevelDBUtils
 		return bytes(sb.toString());
 	}
 
+	/**
+	 * Flat array of dimensions sizes, e.g. {nbCells, 2} for a cell -> R[2] variable,
+	 * serialized as the nested array of these dimensions.
+	 */
+	public static byte[] serialize(final double[] data, final int[] sizes)
+	{
+		// a block of the inner dimensions ends with an additional space, as in the nested serialization
+		final int[] blockSizes = new int[sizes.length - 1];
+		int blockSize = 1;
+		for (int k = sizes.length - 1 ; k > 0 ; --k)
+			blockSizes[k - 1] = (blockSize *= sizes[k]);
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0 ; i < data.length ; ++i)
+		{
+			sb.append(data[i]).append(" ");
+			for (int b : blockSizes)
+				if ((i + 1) % b == 0) sb.append(" ");
+		}
+		return bytes(sb.toString());
+	}
+
+	/** Chunked array of dimensions sizes, serialized as the flat array of these dimensions */
+	public static byte[] serialize(final ChunkedDoubleArray data, final int[] sizes)
+	{
+		final int[] blockSizes = new int[sizes.length - 1];
+		int blockSize = 1;
+		for (int k = sizes.length - 1 ; k > 0 ; --k)
+			blockSizes[k - 1] = (blockSize *= sizes[k]);
+
+		StringBuilder sb = new StringBuilder();
+		for (long i = 0 ; i < data.getSize() ; ++i)
+		{
+			sb.append(data.get(i)).append(" ");
+			for (int b : blockSizes)
+				if ((i + 1) % b == 0) sb.append(" ");
+		}
+		return bytes(sb.toString());
+	}
+
 	public static byte[] serialize(final Vector vector)
 	{
 		return serialize(vector.getData().toArray());
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib;
+
+import java.util.HashMap;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated pool of nbThreads workers for the parallel loops and reductions
+ * of generated code, instead of the common fork-join pool of parallel streams.
+ *
+ * Scheduling is static: with a grain of 0, worker t executes the t-th of
+ * nbThreads contiguous balanced chunks, otherwise chunks of grain indexes are
+ * dealt to the workers in turn. The workers are the ones of a WorkerPool:
+ * the calling thread is worker 0 and a nested loop is sequential.
+ * Reductions combine the results of the workers in order: they do not
+ * depend on the timing of the threads.
+ *
+ * The number of threads and the grain given by the generated code,
+ * e.g. from the target variables, are overridden by the nabla.threads
+ * and nabla.grain system properties.
+ */
+public class ParallelExecutor
+{
+	public static final String NbThreadsProperty = "nabla.threads";
+	public static final String GrainProperty = "nabla.grain";
+
+	private static final HashMap<String, ParallelExecutor> executors = new HashMap<>();
+
+	@FunctionalInterface
+	public interface DoubleAccumulator
+	{
+		double accumulate(double accu, int index);
+	}
+
+	@FunctionalInterface
+	public interface IntAccumulator
+	{
+		int accumulate(int accu, int index);
+	}
+
+	private final int nbThreads;
+	private final int grain;
+	private final WorkerPool pool;
+
+	/**
+	 * Executor of nbThreads workers, all the processors if nbThreads is 0.
+	 * Executors are shared by all the modules with the same parameters.
+	 */
+	public static synchronized ParallelExecutor get(int nbThreads, int grain)
+	{
+		final int n = Integer.getInteger(NbThreadsProperty, nbThreads > 0 ? nbThreads : Runtime.getRuntime().availableProcessors());
+		final int g = Integer.getInteger(GrainProperty, grain);
+		return executors.computeIfAbsent(n + "/" + g, k -> new ParallelExecutor(n, g));
+	}
+
+	private ParallelExecutor(int nbThreads, int grain)
+	{
+		if (nbThreads < 1)
+			throw new RuntimeException("Invalid number of threads: " + nbThreads);
+		if (grain < 0)
+			throw new RuntimeException("Invalid grain: " + grain);
+		this.nbThreads = nbThreads;
+		this.grain = grain;
+		this.pool = WorkerPool.get(nbThreads);
+	}
+
+	public int getNbThreads() { return nbThreads; }
+	public int getGrain() { return grain; }
+
+	/** Executes action on each index of [0, nbElems) */
+	public void parallelFor(int nbElems, IntConsumer action)
+	{
+		run(nbElems, t -> forEachIndex(t, nbElems, action));
+	}
+
+	public double reduceDouble(int nbElems, double identity, DoubleAccumulator accumulator, DoubleBinaryOperator combiner)
+	{
+		final double[] results = new double[nbThreads];
+		run(nbElems, t ->
+		{
+			final double[] accu = { identity };
+			forEachIndex(t, nbElems, i -> accu[0] = accumulator.accumulate(accu[0], i));
+			results[t] = accu[0];
+		});
+		double result = results[0];
+		for (int t = 1; t < nbThreads; t++)
+			result = combiner.applyAsDouble(result, results[t]);
+		return result;
+	}
+
+	public int reduceInt(int nbElems, int identity, IntAccumulator accumulator, IntBinaryOperator combiner)
+	{
+		final int[] results = new int[nbThreads];
+		run(nbElems, t ->
+		{
+			final int[] accu = { identity };
+			forEachIndex(t, nbElems, i -> accu[0] = accumulator.accumulate(accu[0], i));
+			results[t] = accu[0];
+		});
+		int result = results[0];
+		for (int t = 1; t < nbThreads; t++)
+			result = combiner.applyAsInt(result, results[t]);
+		return result;
+	}
+
+	/**
+	 * Reduction of values that are not int or double, e.g. arrays: each worker
+	 * accumulates into its own accumulator, a new identity value, as Reductions.reduce.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T reduce(int nbElems, Supplier<T> identity, Reductions.Accumulator<T> accumulator, BinaryOperator<T> combiner)
+	{
+		final Object[] results = new Object[nbThreads];
+		run(nbElems, t ->
+		{
+			final Object[] accu = { identity.get() };
+			forEachIndex(t, nbElems, i -> accu[0] = accumulator.accumulate((T) accu[0], i));
+			results[t] = accu[0];
+		});
+		T result = (T) results[0];
+		for (int t = 1; t < nbThreads; t++)
+			result = combiner.apply(result, (T) results[t]);
+		return result;
+	}
+
+	/** Executes the indexes of worker t */
+	private void forEachIndex(int t, int nbElems, IntConsumer action)
+	{
+		if (grain == 0)
+		{
+			for (int i = begin(t, nbElems), e = begin(t + 1, nbElems); i < e; i++)
+				action.accept(i);
+		}
+		else
+		{
+			for (int chunk = t * grain; chunk < nbElems; chunk += nbThreads * grain)
+				for (int i = chunk, e = Math.min(chunk + grain, nbElems); i < e; i++)
+					action.accept(i);
+		}
+	}
+
+	private int begin(int t, int nbElems)
+	{
+		return (int) ((long) nbElems * t / nbThreads);
+	}
+
+	/**
+	 * Executes workerTask on each worker t of the pool, or on the calling
+	 * thread only for each t for a loop of at most one chunk.
+	 */
+	private void run(int nbElems, IntConsumer workerTask)
+	{
+		if (nbElems <= grain)
+		{
+			for (int t = 0; t < nbThreads; t++)
+				workerTask.accept(t);
+		}
+		else
+			pool.run(workerTask);
+	}
+}
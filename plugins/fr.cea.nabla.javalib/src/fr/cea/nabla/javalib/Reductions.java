@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Parallel reduction on the indexes of [0, nbElems) for values that are not
+ * int or double, e.g. arrays, without boxing of the indexes.
+ *
+ * The range is split into fork-join tasks. Each task accumulates its indexes
+ * into its own accumulator, a new identity value, and the accumulators of the
+ * tasks are combined two by two at the end: accumulators and the first
+ * argument of the combiner can be modified in place.
+ */
+public class Reductions
+{
+	/** Number of tasks per worker of the pool, to balance the load */
+	private static final int TasksPerWorker = 4;
+	/** Minimal number of indexes of a task */
+	private static final int MinGrain = 64;
+
+	@FunctionalInterface
+	public interface Accumulator<T>
+	{
+		T accumulate(T accu, int index);
+	}
+
+	public static <T> T reduce(int nbElems, Supplier<T> identity, Accumulator<T> accumulator, BinaryOperator<T> combiner)
+	{
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		final int nbTasks = pool.getParallelism() * TasksPerWorker;
+		final int grain = Math.max(MinGrain, (nbElems + nbTasks - 1) / nbTasks);
+		if (nbElems <= grain)
+			return accumulate(0, nbElems, identity, accumulator);
+		else
+			return pool.invoke(new ReductionTask<T>(0, nbElems, grain, identity, accumulator, combiner));
+	}
+
+	private static <T> T accumulate(int begin, int end, Supplier<T> identity, Accumulator<T> accumulator)
+	{
+		T accu = identity.get();
+		for (int i = begin; i < end; i++)
+			accu = accumulator.accumulate(accu, i);
+		return accu;
+	}
+
+	private static class ReductionTask<T> extends RecursiveTask<T>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int begin, end, grain;
+		private final Supplier<T> identity;
+		private final Accumulator<T> accumulator;
+		private final BinaryOperator<T> combiner;
+
+		ReductionTask(int begin, int end, int grain, Supplier<T> identity, Accumulator<T> accumulator, BinaryOperator<T> combiner)
+		{
+			this.begin = begin;
+			this.end = end;
+			this.grain = grain;
+			this.identity = identity;
+			this.accumulator = accumulator;
+			this.combiner = combiner;
+		}
+
+		@Override
+		protected T compute()
+		{
+			if (end - begin <= grain)
+				return accumulate(begin, end, identity, accumulator);
+
+			final int middle = (begin + end) >>> 1;
+			final ReductionTask<T> left = new ReductionTask<T>(begin, middle, grain, identity, accumulator, combiner);
+			final ReductionTask<T> right = new ReductionTask<T>(middle, end, grain, identity, accumulator, combiner);
+			right.fork();
+			final T leftResult = left.compute();
+			return combiner.apply(leftResult, right.join());
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib;
+
+import java.util.HashMap;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.function.IntConsumer;
+
+/**
+ * Fixed set of nbWorkers workers: run(task) executes task(w) on worker w
+ * for each w and returns when all the workers are done. The calling thread
+ * is worker 0, nbWorkers-1 daemon threads are started and wait on barriers
+ * between two runs.
+ *
+ * A run from a worker, or from the calling thread while it executes task(0),
+ * i.e. a nested loop, executes task(w) for each w on the current thread.
+ * The first exception of the workers is thrown by run.
+ */
+public class WorkerPool
+{
+	private static final HashMap<Integer, WorkerPool> pools = new HashMap<>();
+
+	private final int nbWorkers;
+	private final CyclicBarrier start;
+	private final CyclicBarrier end;
+	private IntConsumer task;
+	private Thread caller;
+	private Throwable failure;
+
+	/** Pools are shared by all the executors with the same number of workers */
+	public static synchronized WorkerPool get(int nbWorkers)
+	{
+		return pools.computeIfAbsent(nbWorkers, WorkerPool::new);
+	}
+
+	private WorkerPool(int nbWorkers)
+	{
+		if (nbWorkers < 1)
+			throw new RuntimeException("Invalid number of workers: " + nbWorkers);
+		this.nbWorkers = nbWorkers;
+		this.start = new CyclicBarrier(nbWorkers);
+		this.end = new CyclicBarrier(nbWorkers);
+		for (int w = 1; w < nbWorkers; w++)
+		{
+			final Worker worker = new Worker(w);
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	public int getNbWorkers() { return nbWorkers; }
+
+	/** True if the current thread is a worker of a pool or the calling thread running task(0) */
+	private boolean isNested()
+	{
+		final Thread current = Thread.currentThread();
+		return current instanceof Worker || current == caller;
+	}
+
+	/** Executes task(w) on each worker w */
+	public void run(IntConsumer workerTask)
+	{
+		if (nbWorkers == 1 || isNested())
+		{
+			for (int w = 0; w < nbWorkers; w++)
+				workerTask.accept(w);
+			return;
+		}
+
+		synchronized (this)
+		{
+			task = workerTask;
+			caller = Thread.currentThread();
+			failure = null;
+			try
+			{
+				await(start);
+				runTask(0);
+				await(end);
+			}
+			finally
+			{
+				task = null;
+				caller = null;
+			}
+			if (failure != null)
+			{
+				if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+				if (failure instanceof Error) throw (Error) failure;
+				throw new RuntimeException(failure);
+			}
+		}
+	}
+
+	private void runTask(int w)
+	{
+		try
+		{
+			task.accept(w);
+		}
+		catch (Throwable e)
+		{
+			synchronized (start)
+			{
+				if (failure == null) failure = e;
+			}
+		}
+	}
+
+	private static void await(CyclicBarrier barrier)
+	{
+		try
+		{
+			barrier.await();
+		}
+		catch (InterruptedException | BrokenBarrierException e)
+		{
+			throw new RuntimeException("Worker synchronization failed", e);
+		}
+	}
+
+	private class Worker extends Thread
+	{
+		private final int w;
+
+		Worker(int w)
+		{
+			super("nabla-worker-" + w);
+			this.w = w;
+		}
+
+		@Override
+		public void run()
+		{
+			while (true)
+			{
+				await(start);
+				runTask(w);
+				await(end);
+			}
+		}
+	}
+}
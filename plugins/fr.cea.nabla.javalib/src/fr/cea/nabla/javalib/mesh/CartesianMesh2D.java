@@ -9,13 +9,8 @@
  */
 package fr.cea.nabla.javalib.mesh;
 
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import com.google.gson.JsonElement;
@@ -24,15 +19,19 @@ import com.google.gson.JsonParser;
 
 public class CartesianMesh2D
 {
-	public static int MaxNbNodesOfCell = 4;
-	public static int MaxNbNodesOfFace = 2;
-	public static int MaxNbCellsOfNode = 4;
-	public static int MaxNbCellsOfFace = 2;
-	public static int MaxNbFacesOfCell = 4;
-	public static int MaxNbNeighbourCells = 4;
+	public static final int MaxNbNodesOfCell = 4;
+	public static final int MaxNbNodesOfFace = 2;
+	public static final int MaxNbCellsOfNode = 4;
+	public static final int MaxNbCellsOfFace = 2;
+	public static final int MaxNbFacesOfCell = 4;
+	public static final int MaxNbNeighbourCells = 4;
 
 	private MeshGeometry geometry;
 
+	// Implicit mode: no Quad and Edge objects, connectivities are computed
+	// by index arithmetic and CSR tables are only built on demand.
+	private boolean implicit;
+
 	private int nbXQuads;
 	private int nbYQuads;
 
@@ -65,11 +64,41 @@ public class CartesianMesh2D
 	private int[] leftFaces;
 	private int[] rightFaces;
 
+	private CsrConnectivity nodesOfCell;
+	private CsrConnectivity nodesOfFace;
+	private CsrConnectivity facesOfCell;
+	private CsrConnectivity cellsOfNode;
+	private CsrConnectivity cellsOfFace;
+	private CsrConnectivity neighbourCells;
+
+	// Items renumbered along a space filling curve: permutations
+	// from/to the natural row major numbering, null if not renumbered.
+	// Arithmetic methods work on natural ids.
+	private int[] naturalNodeIds;
+	private int[] naturalCellIds;
+	private int[] naturalFaceIds;
+	private int[] nodeIdsOfNatural;
+	private int[] cellIdsOfNatural;
+	private int[] faceIdsOfNatural;
+
 	public CartesianMesh2D(int nbXQuads, int nbYQuads, double xSize, double ySize)
 	{
 		create(nbXQuads, nbYQuads, xSize, ySize);
 	}
 
+	public CartesianMesh2D(int nbXQuads, int nbYQuads, double xSize, double ySize, SpaceFillingCurve.Curve renumbering)
+	{
+		this(nbXQuads, nbYQuads, xSize, ySize, renumbering, false);
+	}
+
+	public CartesianMesh2D(int nbXQuads, int nbYQuads, double xSize, double ySize, SpaceFillingCurve.Curve renumbering, boolean implicit)
+	{
+		this.implicit = implicit;
+		create(nbXQuads, nbYQuads, xSize, ySize);
+		if (renumbering != SpaceFillingCurve.Curve.none)
+			renumber(renumbering);
+	}
+
 	/** Constructor for Json creation */
 	public CartesianMesh2D() {}
 
@@ -92,19 +121,70 @@ public class CartesianMesh2D
 		final JsonElement valueof_ySize = o.get("ySize");
 		assert(valueof_ySize.isJsonPrimitive());
 		double ySize = valueof_ySize.getAsJsonPrimitive().getAsDouble();
+		// optional: "none" (default), "morton" or "hilbert"
+		SpaceFillingCurve.Curve renumbering = SpaceFillingCurve.Curve.none;
+		if (o.has("renumbering"))
+		{
+			final JsonElement valueof_renumbering = o.get("renumbering");
+			assert(valueof_renumbering.isJsonPrimitive());
+			renumbering = SpaceFillingCurve.parse(valueof_renumbering.getAsJsonPrimitive().getAsString());
+		}
+		// optional: false (default) or true for the implicit mode
+		implicit = false;
+		if (o.has("implicit"))
+		{
+			final JsonElement valueof_implicit = o.get("implicit");
+			assert(valueof_implicit.isJsonPrimitive());
+			implicit = valueof_implicit.getAsJsonPrimitive().getAsBoolean();
+		}
+		// optional: directory of the binary mesh cache, no cache by default
+		if (o.has("cache"))
+		{
+			final JsonElement valueof_cache = o.get("cache");
+			assert(valueof_cache.isJsonPrimitive());
+			final String key = "CartesianMesh2D_" + nbXQuads + "x" + nbYQuads + "_" + xSize + "x" + ySize
+					+ "_" + renumbering + (implicit ? "_implicit" : "");
+			final Path cacheFile = MeshCache.getFile(valueof_cache.getAsJsonPrimitive().getAsString(), key);
+			final MeshCache cache = MeshCache.read(cacheFile, key);
+			if (cache != null)
+				load(cache);
+			else
+			{
+				create(nbXQuads, nbYQuads, xSize, ySize);
+				if (renumbering != SpaceFillingCurve.Curve.none)
+					renumber(renumbering);
+				try
+				{
+					save().write(cacheFile, key);
+				}
+				catch (RuntimeException e)
+				{
+					// the mesh is built: the simulation goes on without cache
+					System.err.println("Mesh cache not written: " + e.getMessage());
+				}
+			}
+			return;
+		}
 
 		create(nbXQuads, nbYQuads, xSize, ySize);
+		if (renumbering != SpaceFillingCurve.Curve.none)
+			renumber(renumbering);
 	}
 
 	public MeshGeometry getGeometry() { return geometry; }
+	public boolean isImplicit() { return implicit; }
 
-	public int getNbNodes() { return geometry.getNodes().length; }
+	/** Cells are numbered row by row: cell (x, y) is y * nbXQuads + x if the mesh is not renumbered */
+	public int getNbXQuads() { return nbXQuads; }
+	public int getNbYQuads() { return nbYQuads; }
+
+	public int getNbNodes() { return geometry.getNbNodes(); }
 	public int[] getNodes() { return IntStream.range(0, this.getNbNodes()).toArray(); }
 
-	public int getNbCells() { return geometry.getQuads().length; }
+	public int getNbCells() { return geometry.getNbCells(); }
 	public int[] getCells() { return IntStream.range(0, this.getNbCells()).toArray(); }
 
-	public int getNbFaces() { return geometry.getEdges().length; }
+	public int getNbFaces() { return geometry.getNbEdges(); }
 	public int[] getFaces() { return IntStream.range(0, this.getNbFaces()).toArray(); }
 
 	public int getNbInnerNodes() { return innerNodes.length;}
@@ -155,11 +235,13 @@ public class CartesianMesh2D
 
 	public int[] getNodesOfCell(int cellId)
 	{
+		if (implicit) return elems(this::nodesOfCellElems, cellId, MaxNbNodesOfCell);
 		return geometry.getQuads()[cellId].getNodeIds();
 	}
 
 	public int[] getNodesOfFace(int faceId)
 	{
+		if (implicit) return elems(this::nodesOfFaceElems, faceId, MaxNbNodesOfFace);
 		return geometry.getEdges()[faceId].getNodeIds();
 	}
 
@@ -173,240 +255,268 @@ public class CartesianMesh2D
 		return this.getNodesOfFace(faceId)[1];
 	}
 
-	public int[] getCellsOfNode(int nodeId) 
+	public int[] getCellsOfNode(int nodeId)
 	{
-		Map.Entry<Integer, Integer> index = id2IndexNode(nodeId);
-		int i = index.getKey();
-		int j = index.getValue();
-		
-		ArrayList<Integer> cellsOfNode = new ArrayList<Integer>();
-		if (i < nbYQuads && j < nbXQuads) cellsOfNode.add(index2IdCell(i, j));
-		if (i < nbYQuads && j > 0) cellsOfNode.add(index2IdCell(i, j-1));
-		if (i > 0 && j < nbXQuads) cellsOfNode.add(index2IdCell(i-1, j));
-		if (i > 0 && j > 0) cellsOfNode.add(index2IdCell(i-1, j-1));
-		Collections.sort(cellsOfNode);
-		return cellsOfNode.stream().mapToInt(x->x).toArray();
+		if (implicit) return elems(this::cellsOfNodeElems, nodeId, MaxNbCellsOfNode);
+		return cellsOfNode.getElems(nodeId);
 	}
 
 	public int[] getCellsOfFace(int faceId)
 	{
-		int i_f = (faceId / ((2 * nbXQuads) + 1));
-		int k_f = (faceId - (i_f * ((2 * nbXQuads) + 1)));
-		ArrayList<Integer> cellsOfFace = new ArrayList<Integer>();
-		if (i_f < nbYQuads) // all except upper bound faces
-		{
-			if (k_f == (2 * nbXQuads))
-				cellsOfFace.add(index2IdCell(i_f, nbXQuads - 1));
-			else
-			{
-				if (k_f == 1) // left bound edge
-					cellsOfFace.add(index2IdCell(i_f, 0));
-				else
-				{
-					if (((k_f % 2) == 0)) // horizontal edge
-					{
-						cellsOfFace.add(index2IdCell(i_f, k_f / 2));
-						if ((i_f > 0))  // Not bottom bound edge
-							cellsOfFace.add(index2IdCell(i_f - 1, k_f / 2));
-					} 
-					else // vertical edge (neither left bound nor right bound)
-					{
-						cellsOfFace.add(index2IdCell(i_f, (((k_f - 1) / 2) - 1)));
-						cellsOfFace.add(index2IdCell(i_f, ((k_f - 1) / 2)));
-					}
-				}
-			}
-		} 
-		else  // upper bound faces
-			cellsOfFace.add(index2IdCell(i_f - 1, k_f));
-		return cellsOfFace.stream().mapToInt(x->x).toArray();
+		if (implicit) return elems(this::cellsOfFaceElems, faceId, MaxNbCellsOfFace);
+		return cellsOfFace.getElems(faceId);
 	}
 
-	public int[] getNeighbourCells(int cellId) 
+	public int[] getNeighbourCells(int cellId)
 	{
-		Map.Entry<Integer, Integer> index = id2IndexCell(cellId);
-		int i = index.getKey();
-		int j = index.getValue();
-		ArrayList<Integer> neighbourCells = new ArrayList<Integer>();
-		if (i >= 1)	neighbourCells.add(index2IdCell(i-1, j));
-		if (i < nbYQuads - 1) neighbourCells.add(index2IdCell(i+1, j));
-		if (j >= 1) neighbourCells.add(index2IdCell(i, j-1));
-		if (j < (nbXQuads - 1)) neighbourCells.add(index2IdCell(i, j+1));
-		Collections.sort(neighbourCells);
-		return neighbourCells.stream().mapToInt(x->x).toArray();
+		if (implicit) return elems(this::neighbourCellsElems, cellId, MaxNbNeighbourCells);
+		return neighbourCells.getElems(cellId);
 	}
 
 	public int[] getFacesOfCell(int cellId)
 	{
-		Map.Entry<Integer, Integer> index = id2IndexCell(cellId);
-		int i = index.getKey();
-		int j = index.getValue();
-		int bottomFace = (2 * j + i * (2 * nbXQuads + 1));
-		int leftFace = bottomFace + 1;
-		int rightFace = bottomFace + (j == nbXQuads-1 ? 2 : 3);
-		int topFace = bottomFace + (i < nbYQuads-1 ? 2 * nbXQuads + 1 : 2 * nbXQuads + 1 - j);
-		return new int[] {bottomFace, leftFace, rightFace, topFace};
+		if (implicit) return elems(this::facesOfCellElems, cellId, MaxNbFacesOfCell);
+		return facesOfCell.getElems(cellId);
 	}
 
 	public int getCommonFace(int cell1, int cell2)
 	{
-		int[] cell1Faces = getFacesOfCell(cell1);
-		int[] cell2Faces = getFacesOfCell(cell2);
-
-		Set<Integer> set = new HashSet<>(Arrays.stream(cell1Faces).boxed().collect(Collectors.toList()));
-		set.retainAll(Arrays.stream(cell2Faces).boxed().collect(Collectors.toList()));
-		if (set.isEmpty()) 
+		if (implicit)
+		{
+			final int[] faces2 = getFacesOfCell(cell2);
+			for (int face1 : getFacesOfCell(cell1))
+				for (int face2 : faces2)
+					if (face1 == face2)
+						return face1;
 			return -1;
-		else 
-			return new ArrayList<>(set).get(0);
+		}
+		for (int k1 = 0, n1 = facesOfCell.getNbElems(cell1); k1 < n1; k1++)
+		{
+			final int face = facesOfCell.getElem(cell1, k1);
+			if (facesOfCell.indexOf(cell2, face) != -1)
+				return face;
+		}
+		return -1;
 	}
 
 	public int getBackCell(int faceId)
 	{
-		int[] cells = getCellsOfFace(faceId);
-		if ( cells.length < 2) 
+		if (getNbCellsOfFace(faceId) < 2)
 			throw new RuntimeException("Error in getBackCell(" + faceId + "): please consider using this method with inner face only.");
 		else
-			return cells[0];
+			return (implicit ? getCellsOfFace(faceId)[0] : cellsOfFace.getElem(faceId, 0));
 	}
 
 	public int getFrontCell(int faceId) 
 	{
-		int[] cells = getCellsOfFace(faceId);
-		if ( cells.length < 2) 
+		if (getNbCellsOfFace(faceId) < 2)
 			throw new RuntimeException("Error in getFrontCell(" + faceId + "): please consider using this method with inner face only.");
 		else
-			return cells[1];
+			return (implicit ? getCellsOfFace(faceId)[1] : cellsOfFace.getElem(faceId, 1));
+	}
+
+	private int getNbCellsOfFace(int faceId)
+	{
+		return (implicit ? getCellsOfFace(faceId).length : cellsOfFace.getNbElems(faceId));
+	}
+
+	/*
+	 * CSR connectivity tables, built once at mesh creation.
+	 * They give access to connectivities without any allocation.
+	 * In implicit mode, a table is built on its first access.
+	 */
+	public CsrConnectivity getNodesOfCellConnectivity()
+	{
+		if (nodesOfCell == null)
+			synchronized (this) { if (nodesOfCell == null) nodesOfCell = CsrConnectivity.create(getNbCells(), MaxNbNodesOfCell, this::nodesOfCellElems); }
+		return nodesOfCell;
+	}
+
+	public CsrConnectivity getNodesOfFaceConnectivity()
+	{
+		if (nodesOfFace == null)
+			synchronized (this) { if (nodesOfFace == null) nodesOfFace = CsrConnectivity.create(getNbFaces(), MaxNbNodesOfFace, this::nodesOfFaceElems); }
+		return nodesOfFace;
+	}
+
+	public CsrConnectivity getFacesOfCellConnectivity()
+	{
+		if (facesOfCell == null)
+			synchronized (this) { if (facesOfCell == null) facesOfCell = CsrConnectivity.create(getNbCells(), MaxNbFacesOfCell, this::facesOfCellElems); }
+		return facesOfCell;
+	}
+
+	public CsrConnectivity getCellsOfNodeConnectivity()
+	{
+		if (cellsOfNode == null)
+			synchronized (this) { if (cellsOfNode == null) cellsOfNode = CsrConnectivity.create(getNbNodes(), MaxNbCellsOfNode, true, this::cellsOfNodeElems); }
+		return cellsOfNode;
+	}
+
+	public CsrConnectivity getCellsOfFaceConnectivity()
+	{
+		if (cellsOfFace == null)
+			synchronized (this) { if (cellsOfFace == null) cellsOfFace = CsrConnectivity.create(getNbFaces(), MaxNbCellsOfFace, false, this::cellsOfFaceElems); }
+		return cellsOfFace;
 	}
 
+	public CsrConnectivity getNeighbourCellsConnectivity()
+	{
+		if (neighbourCells == null)
+			synchronized (this) { if (neighbourCells == null) neighbourCells = CsrConnectivity.create(getNbCells(), MaxNbNeighbourCells, true, this::neighbourCellsElems); }
+		return neighbourCells;
+	}
+
+	/*
+	 * Colourings for parallel scatter loops: items of a colour share no node,
+	 * or no cell for nodes. Computed on first access.
+	 */
+	public CsrConnectivity getCellColouring() { return getNodesOfCellConnectivity().getColouring(); }
+	public CsrConnectivity getFaceColouring() { return getNodesOfFaceConnectivity().getColouring(); }
+	public CsrConnectivity getNodeColouring() { return getCellsOfNodeConnectivity().getColouring(); }
+
 	public int getTopFaceOfCell(int cellId)
 	{
-		Map.Entry<Integer, Integer> index = id2IndexCell(cellId);
-		int i = index.getKey();
-		int j = index.getValue();
+		cellId = naturalCell(cellId);
+		int i = cellId / nbXQuads;
+		int j = cellId % nbXQuads;
 		int bottomFace = 2 * j + i * (2 * nbXQuads + 1);
 		int topFace = bottomFace + (i < nbYQuads - 1 ? 2 * nbXQuads + 1 :2 * nbXQuads + 1 - j);
-		return topFace;
+		return face(topFace);
 	}
 
 	public int getBottomFaceOfCell(int cellId)
 	{
-		Map.Entry<Integer, Integer> index = id2IndexCell(cellId);
-		int i = index.getKey();
-		int j = index.getValue();
+		cellId = naturalCell(cellId);
+		int i = cellId / nbXQuads;
+		int j = cellId % nbXQuads;
 		int bottomFace = 2 * j + i * (2 * nbXQuads + 1);
-		return bottomFace;
+		return face(bottomFace);
 	}
 
 	public int getLeftFaceOfCell(int cellId)
 	{
-		int bottomFace = this.getBottomFaceOfCell(cellId);
+		cellId = naturalCell(cellId);
+		int i = cellId / nbXQuads;
+		int j = cellId % nbXQuads;
+		int bottomFace = 2 * j + i * (2 * nbXQuads + 1);
 		int leftFace = bottomFace + 1;
-		return leftFace;
+		return face(leftFace);
 	}
 
 	public int getRightFaceOfCell(int cellId)
 	{
-		Map.Entry<Integer, Integer> index = id2IndexCell(cellId);
-		Integer i = index.getKey();
-		Integer j = index.getValue();
+		cellId = naturalCell(cellId);
+		int i = cellId / nbXQuads;
+		int j = cellId % nbXQuads;
 		int bottomFace = 2 * j + i * (2 * nbXQuads + 1);
 		int rightFace = bottomFace + (j == nbXQuads - 1 ? 2 : 3);
-		return rightFace;
+		return face(rightFace);
 	}
 
 	public int getTopCell(int cellId)
 	{
-		Map.Entry<Integer, Integer> index = id2IndexCell(cellId);
-		Integer i = index.getKey();
-		Integer j = index.getValue();
+		int naturalId = naturalCell(cellId);
+		int i = naturalId / nbXQuads;
+		int j = naturalId % nbXQuads;
 		if (i == nbYQuads - 1) return cellId;
-		return index2IdCell(i+1, j);
+		return cell(index2IdCell(i+1, j));
 	}
 
 	public int getBottomCell(int cellId)
 	{
-		Map.Entry<Integer, Integer> index = id2IndexCell(cellId);
-		Integer i = index.getKey();
-		Integer j = index.getValue();
+		int naturalId = naturalCell(cellId);
+		int i = naturalId / nbXQuads;
+		int j = naturalId % nbXQuads;
 		if (i == 0) return cellId;
-		return index2IdCell(i-1, j);
+		return cell(index2IdCell(i-1, j));
 	}
 
 	public int getLeftCell(int cellId)
 	{
-		Map.Entry<Integer, Integer> index = id2IndexCell(cellId);
-		Integer i = index.getKey();
-		Integer j = index.getValue();
+		int naturalId = naturalCell(cellId);
+		int i = naturalId / nbXQuads;
+		int j = naturalId % nbXQuads;
 		if (j == 0) return cellId;
-		return index2IdCell(i, j-1);
+		return cell(index2IdCell(i, j-1));
 	}
 
 	public int getRightCell(int cellId)
 	{
-		Map.Entry<Integer, Integer> index = id2IndexCell(cellId);
-		Integer i = index.getKey();
-		Integer j = index.getValue();
+		int naturalId = naturalCell(cellId);
+		int i = naturalId / nbXQuads;
+		int j = naturalId % nbXQuads;
 		if (j == nbXQuads-1) return cellId;
-		return index2IdCell(i, j+1);
+		return cell(index2IdCell(i, j+1));
 	}
 
 	public int getBottomFaceNeighbour(int faceId)
 	{
-		  return (faceId - (2 * nbXQuads + 1));
+		faceId = naturalFace(faceId);
+		return face(faceId - (2 * nbXQuads + 1));
 	}
 
 	public int getBottomLeftFaceNeighbour(int faceId)
 	{
-		Edge[] edges = geometry.getEdges();
-		if(isVerticalEdge(edges[faceId]))
-			return (faceId - 3);
+		faceId = naturalFace(faceId);
+		if (isVerticalFace(faceId))
+			return face(faceId - 3);
 		else
-			return ((faceId + 1) - (2 * nbXQuads + 1));
+			return face((faceId + 1) - (2 * nbXQuads + 1));
 	}
 
 	public int getBottomRightFaceNeighbour(int faceId)
 	{
-		Edge[] edges = geometry.getEdges();
-		if (isVerticalEdge(edges[faceId]))
-		    return (faceId - 1);
+		faceId = naturalFace(faceId);
+		if (isVerticalFace(faceId))
+			return face(faceId - 1);
 		else  // horizontal
-		    return ((faceId + 3) - (2 * nbXQuads + 1));
+			return face((faceId + 3) - (2 * nbXQuads + 1));
 	}
 
 	public int getTopFaceNeighbour(int faceId)
 	{
-		return (faceId + (2 * nbXQuads + 1));
+		faceId = naturalFace(faceId);
+		return face(faceId + (2 * nbXQuads + 1));
 	}
 
 	public int getTopLeftFaceNeighbour(int faceId)
 	{
-		Edge[] edges = geometry.getEdges();
-		if (isVerticalEdge(edges[faceId]))
-			return ((faceId - 3) + (2 * nbXQuads + 1));
+		faceId = naturalFace(faceId);
+		if (isVerticalFace(faceId))
+			return face((faceId - 3) + (2 * nbXQuads + 1));
 		else  // horizontal
-		    return (faceId + 1);
+			return face(faceId + 1);
 	}
 
 	public int getTopRightFaceNeighbour(int faceId)
 	{
-		Edge[] edges = geometry.getEdges();
-		if (isVerticalEdge(edges[faceId]))
-		    return ((faceId - 1) + (2 * nbXQuads + 1));
-		  else  // horizontal
-		    return (faceId + 3);
+		faceId = naturalFace(faceId);
+		if (isVerticalFace(faceId))
+			return face((faceId - 1) + (2 * nbXQuads + 1));
+		else  // horizontal
+			return face(faceId + 3);
 	}
 
 	public int getRightFaceNeighbour(int faceId)
 	{
-		 return (faceId + 2);
+		faceId = naturalFace(faceId);
+		return face(faceId + 2);
 	}
 
 	public int getLeftFaceNeighbour(int faceId)
 	{
-		return (faceId - 2);
+		faceId = naturalFace(faceId);
+		return face(faceId - 2);
 	}
 
+	/** Original (natural) ids of renumbered nodes, null if the mesh is not renumbered */
+	public int[] getNaturalNodeIds() { return naturalNodeIds; }
+	/** Original (natural) ids of renumbered cells, null if the mesh is not renumbered */
+	public int[] getNaturalCellIds() { return naturalCellIds; }
+	/** Original (natural) ids of renumbered faces, null if the mesh is not renumbered */
+	public int[] getNaturalFaceIds() { return naturalFaceIds; }
+
 	public void dump()
 	{
 		geometry.dump();
@@ -426,194 +536,500 @@ public class CartesianMesh2D
 				System.out.print(collection[i] + (i < collection.length -1 ? ", " : "\n"));
 	}
 
-	private boolean isInnerEdge(Edge edge)
+	private boolean isInnerCell(int naturalCellId)
 	{
-		Map.Entry<Integer, Integer> index1 = id2IndexNode(edge.getNodeIds()[0]);
-		Integer i1 = index1.getKey();
-		Integer j1 = index1.getValue();
-		Map.Entry<Integer, Integer> index2 = id2IndexNode(edge.getNodeIds()[1]);
-		Integer i2 = index2.getKey();
-		Integer j2 = index2.getValue();
-		  // If nodes are located on the same boundary, then the face is an outer one
-		  if ((i1 == 0 && i2 == 0) || (i1 == nbYQuads && i2 == nbYQuads) ||
-		      (j1 == 0 && j2 == 0) || (j1 == nbXQuads && j2 == nbXQuads))
-		    return false;
-		  // else it's an inner one
-		  return true;
+		int i = naturalCellId / nbXQuads;
+		int j = naturalCellId % nbXQuads;
+		return (j != 0 && j != nbXQuads - 1 && i != 0 && i != nbYQuads - 1);
 	}
 
-	private boolean isVerticalEdge(Edge edge)
+	/** Outer faces are the top row, the bottom faces of the first row and the left and right faces of each row */
+	private boolean isInnerFace(int naturalFaceId)
 	{
-		  return (edge.getNodeIds()[0] == edge.getNodeIds()[1] + nbXQuads + 1 ||
-				  edge.getNodeIds()[1] == edge.getNodeIds()[0] + nbXQuads + 1);
+		int i_f = naturalFaceId / (2 * nbXQuads + 1);
+		int k_f = naturalFaceId - i_f * (2 * nbXQuads + 1);
+		if (i_f == nbYQuads) return false;
+		if (isVerticalFace(naturalFaceId)) return (k_f != 1 && k_f != 2 * nbXQuads);
+		return (i_f != 0);
 	}
 
-	private boolean isHorizontalEdge(Edge edge)
+	/** Natural face numbering: per row, bottom and left faces of each cell, the right face of the row and the top row */
+	private boolean isVerticalFace(int naturalFaceId)
 	{
-		  return (edge.getNodeIds()[0] == edge.getNodeIds()[1] + 1 ||
-				  edge.getNodeIds()[1] == edge.getNodeIds()[0] + 1);
+		int i_f = naturalFaceId / (2 * nbXQuads + 1);
+		int k_f = naturalFaceId - i_f * (2 * nbXQuads + 1);
+		return (i_f < nbYQuads && (k_f % 2 == 1 || k_f == 2 * nbXQuads));
 	}
 
+	private int naturalNode(int nodeId) { return naturalNodeIds == null ? nodeId : naturalNodeIds[nodeId]; }
+	private int naturalCell(int cellId) { return naturalCellIds == null ? cellId : naturalCellIds[cellId]; }
+	private int naturalFace(int faceId) { return naturalFaceIds == null ? faceId : naturalFaceIds[faceId]; }
+	private int cell(int naturalCellId) { return cellIdsOfNatural == null ? naturalCellId : cellIdsOfNatural[naturalCellId]; }
+	private int face(int naturalFaceId) { return faceIdsOfNatural == null ? naturalFaceId : faceIdsOfNatural[naturalFaceId]; }
+
 	private int index2IdCell(int i, int j)
 	{
 		return ((i * nbXQuads) + j);
 	}
 
-	private Map.Entry<Integer, Integer> id2IndexCell(int cellId)
+	/*
+	 * Connectivities of the current numbering, from the natural ones below:
+	 * used by the implicit mode for accessors and CSR tables built on demand.
+	 */
+	private int nodesOfCellElems(int cellId, int[] nodes) { return renameElems(nodes, nodesOfCell(naturalCell(cellId), nodes), nodeIdsOfNatural, false); }
+	private int nodesOfFaceElems(int faceId, int[] nodes) { return renameElems(nodes, nodesOfFace(naturalFace(faceId), nodes), nodeIdsOfNatural, false); }
+	private int facesOfCellElems(int cellId, int[] faces) { return renameElems(faces, facesOfCell(naturalCell(cellId), faces), faceIdsOfNatural, false); }
+	private int cellsOfNodeElems(int nodeId, int[] cells) { return renameElems(cells, cellsOfNode(naturalNode(nodeId), cells), cellIdsOfNatural, true); }
+	private int cellsOfFaceElems(int faceId, int[] cells) { return renameElems(cells, cellsOfFace(naturalFace(faceId), cells), cellIdsOfNatural, false); }
+	private int neighbourCellsElems(int cellId, int[] cells) { return renameElems(cells, neighbourCells(naturalCell(cellId), cells), cellIdsOfNatural, true); }
+
+	private static int renameElems(int[] elems, int nbElems, int[] renaming, boolean sorted)
+	{
+		if (renaming != null)
+			for (int k = 0; k < nbElems; k++)
+				elems[k] = renaming[elems[k]];
+		if (sorted) Arrays.sort(elems, 0, nbElems);
+		return nbElems;
+	}
+
+	private static int[] elems(CsrConnectivity.ItemElems f, int item, int maxNbElems)
 	{
-		int i = Math.abs((cellId / nbXQuads));
-		int j = (cellId % nbXQuads);
-		return Map.entry(i, j);
+		final int[] elems = new int[maxNbElems];
+		final int nbElems = f.fill(item, elems);
+		return (nbElems == maxNbElems ? elems : Arrays.copyOf(elems, nbElems));
 	}
 
-	private Map.Entry<Integer, Integer> id2IndexNode(int nodeId)
+	/** Counterclockwise from the bottom left node, as the Quad objects */
+	private int nodesOfCell(int cellId, int[] nodes)
 	{
-		int i = Math.abs((nodeId / (nbXQuads + 1)));
-		int j = (nodeId % (nbXQuads + 1));
-		return Map.entry(i, j);
+		int i = cellId / nbXQuads;
+		int j = cellId % nbXQuads;
+		int bottomLeft = i * (nbXQuads + 1) + j;
+		nodes[0] = bottomLeft;
+		nodes[1] = bottomLeft + 1;
+		nodes[2] = bottomLeft + nbXQuads + 2;
+		nodes[3] = bottomLeft + nbXQuads + 1;
+		return MaxNbNodesOfCell;
 	}
 
-	private int[] cellsOfNodeCollection(int[] nodeIds)
+	/** Bottom or left node first, as the Edge objects */
+	private int nodesOfFace(int faceId, int[] nodes)
 	{
-		HashSet<Integer> cellsOfNode = new HashSet<Integer>();
-		for (int nodeId : nodeIds)
+		int i_f = faceId / (2 * nbXQuads + 1);
+		int k_f = faceId - i_f * (2 * nbXQuads + 1);
+		if (i_f == nbYQuads) // upper bound faces
 		{
-			for (int cellId : getCellsOfNode(nodeId))
-				cellsOfNode.add(cellId);
+			nodes[0] = i_f * (nbXQuads + 1) + k_f;
+			nodes[1] = nodes[0] + 1;
 		}
-		return cellsOfNode.stream().mapToInt(x->x).toArray();
+		else
+		{
+			nodes[0] = i_f * (nbXQuads + 1) + k_f / 2;
+			nodes[1] = nodes[0] + (isVerticalFace(faceId) ? nbXQuads + 1 : 1);
+		}
+		return MaxNbNodesOfFace;
 	}
 
+	private int cellsOfNode(int nodeId, int[] cells)
+	{
+		int i = nodeId / (nbXQuads + 1);
+		int j = nodeId % (nbXQuads + 1);
+		int nbCells = 0;
+		if (i < nbYQuads && j < nbXQuads) cells[nbCells++] = index2IdCell(i, j);
+		if (i < nbYQuads && j > 0) cells[nbCells++] = index2IdCell(i, j-1);
+		if (i > 0 && j < nbXQuads) cells[nbCells++] = index2IdCell(i-1, j);
+		if (i > 0 && j > 0) cells[nbCells++] = index2IdCell(i-1, j-1);
+		return nbCells;
+	}
+
+	private int cellsOfFace(int faceId, int[] cells)
+	{
+		int i_f = (faceId / ((2 * nbXQuads) + 1));
+		int k_f = (faceId - (i_f * ((2 * nbXQuads) + 1)));
+		int nbCells = 0;
+		if (i_f < nbYQuads) // all except upper bound faces
+		{
+			if (k_f == (2 * nbXQuads))
+				cells[nbCells++] = index2IdCell(i_f, nbXQuads - 1);
+			else
+			{
+				if (k_f == 1) // left bound edge
+					cells[nbCells++] = index2IdCell(i_f, 0);
+				else
+				{
+					if (((k_f % 2) == 0)) // horizontal edge
+					{
+						cells[nbCells++] = index2IdCell(i_f, k_f / 2);
+						if ((i_f > 0))  // Not bottom bound edge
+							cells[nbCells++] = index2IdCell(i_f - 1, k_f / 2);
+					} 
+					else // vertical edge (neither left bound nor right bound)
+					{
+						cells[nbCells++] = index2IdCell(i_f, (((k_f - 1) / 2) - 1));
+						cells[nbCells++] = index2IdCell(i_f, ((k_f - 1) / 2));
+					}
+				}
+			}
+		} 
+		else  // upper bound faces
+			cells[nbCells++] = index2IdCell(i_f - 1, k_f);
+		return nbCells;
+	}
+
+	private int neighbourCells(int cellId, int[] cells)
+	{
+		int i = cellId / nbXQuads;
+		int j = cellId % nbXQuads;
+		int nbCells = 0;
+		if (i >= 1) cells[nbCells++] = index2IdCell(i-1, j);
+		if (i < nbYQuads - 1) cells[nbCells++] = index2IdCell(i+1, j);
+		if (j >= 1) cells[nbCells++] = index2IdCell(i, j-1);
+		if (j < (nbXQuads - 1)) cells[nbCells++] = index2IdCell(i, j+1);
+		return nbCells;
+	}
+
+	private int facesOfCell(int cellId, int[] faces)
+	{
+		int i = cellId / nbXQuads;
+		int j = cellId % nbXQuads;
+		int bottomFace = (2 * j + i * (2 * nbXQuads + 1));
+		faces[0] = bottomFace;
+		faces[1] = bottomFace + 1;
+		faces[2] = bottomFace + (j == nbXQuads-1 ? 2 : 3);
+		faces[3] = bottomFace + (i < nbYQuads-1 ? 2 * nbXQuads + 1 : 2 * nbXQuads + 1 - j);
+		return MaxNbFacesOfCell;
+	}
+
+	/**
+	 * Items are built by index arithmetic into primitive arrays, in parallel.
+	 * Faces of row j are the bottom and left faces of the cells of the row,
+	 * then the right face of the row. The last row only has the top faces.
+	 */
 	private void create(int nbXQuads, int nbYQuads, double xSize, double ySize)
 	{
 		if (nbXQuads == -1 || nbYQuads == -1 || xSize == -1 || ySize == -1)
 			throw new RuntimeException("Mesh attributes uninitialized");
+		// interleaved coordinates are the largest array: 2 per node, more than the number of faces
+		Utils.arraySize(2L * (nbXQuads + 1) * (nbYQuads + 1), "node coordinates of a " + nbXQuads + " x " + nbYQuads + " mesh");
 
 		this.nbXQuads = nbXQuads;
 		this.nbYQuads = nbYQuads;
-
-		double[][] nodes = new double[(nbXQuads + 1) * (nbYQuads + 1)][2];
-		Quad[] quads = new Quad[nbXQuads * nbYQuads];
-		Edge[] edges = new Edge[2 * quads.length + nbXQuads + nbYQuads];
-
-		int[] outerNodesIds = new int[2 * (nbXQuads + nbYQuads)];
-		innerNodes = new int[nodes.length - outerNodesIds.length];
-		topNodes = new int[nbXQuads + 1];
-		bottomNodes = new int[nbXQuads + 1];
-		leftNodes = new int[nbYQuads + 1];
-		rightNodes = new int[nbYQuads + 1];
-
-		innerCells = new int[(nbXQuads - 2)*(nbYQuads - 2)];
-		outerCells = new int[2 * nbXQuads + 2 * (nbYQuads - 2)];
-
-		int nodeId = 0;
-		int innerNodeId = 0;
-		int topNodeId = 0;
-		int bottomNodeId = 0;
-		int leftNodeId = 0;
-		int rightNodeId = 0;
-
-		// node creation
-		for (int j = 0; j <=nbYQuads; j++)
-			for (int i = 0; i<=nbXQuads; i++)
+		// jsonInit may be called again on the same instance
+		nodesOfCell = nodesOfFace = facesOfCell = cellsOfNode = cellsOfFace = neighbourCells = null;
+		naturalNodeIds = naturalCellIds = naturalFaceIds = null;
+		nodeIdsOfNatural = cellIdsOfNatural = faceIdsOfNatural = null;
+
+		final int nbXNodes = nbXQuads + 1;
+		final int nbYNodes = nbYQuads + 1;
+		final int nbFacesPerRow = 2 * nbXQuads + 1;
+		final int nbCells = nbXQuads * nbYQuads;
+		final int nbFaces = 2 * nbCells + nbXQuads + nbYQuads;
+		final double[] coordinates = new double[2 * nbXNodes * nbYNodes];
+		final Quad[] quads = (implicit ? null : new Quad[nbCells]);
+		final Edge[] edges = (implicit ? null : new Edge[nbFaces]);
+
+		// node and edge creation, row by row
+		IntStream.range(0, nbYNodes).parallel().forEach(j ->
+		{
+			int edgeId = j * nbFacesPerRow;
+			for (int i = 0; i < nbXNodes; i++)
 			{
-				nodes[nodeId][0] = xSize * i;
-				nodes[nodeId][1] = ySize * j;
-				if (i!=0 && j!=0 && i!=nbXQuads && j!=nbYQuads)
-					innerNodes[innerNodeId++] = nodeId;
-				else
-				{
-					if (j==0) bottomNodes[bottomNodeId++] =nodeId;
-					if (j==nbYQuads) topNodes[topNodeId++] = nodeId;
-					if (i==0) leftNodes[leftNodeId++] = nodeId;
-					if (i==nbXQuads) rightNodes[rightNodeId++] = nodeId;
-				}
-				nodeId++;
-		}
+				final int nodeId = j * nbXNodes + i;
+				coordinates[2 * nodeId] = xSize * i;
+				coordinates[2 * nodeId + 1] = ySize * j;
+				if (implicit) continue;
+				if (i < nbXQuads) edges[edgeId++] = new Edge(nodeId, nodeId + 1);
+				if (j < nbYQuads) edges[edgeId++] = new Edge(nodeId, nodeId + nbXNodes);
+			}
+		});
 
-		// edge creation
-		int nbXNodes = nbXQuads+1;
-		int edgeId = 0;
-		for (int i = 0; i<nodes.length; i++)
+		if (implicit)
 		{
-			int rightNodeIndex = i+1;
-			if (rightNodeIndex%nbXNodes!=0) edges[edgeId++] = new Edge(i, rightNodeIndex);
-			int belowNodeIndex = i + nbXNodes;
-			if (belowNodeIndex<nodes.length) edges[edgeId++] = new Edge(i, belowNodeIndex);
+			// no quad, no table: tables are built on their first access
+			this.geometry = new MeshGeometry(coordinates, nbFaces, nbCells, MaxNbNodesOfCell, this::nodesOfCellElems);
 		}
-
-		// quad creation
-		int quadId = 0;
-		int innerCellId = 0;
-		int outerCellId = 0;
-		for (int j = 0; j < nbYQuads; j++)
-			for (int i = 0; i < nbXQuads; i++)
+		else
+		{
+			// quad creation
+			IntStream.range(0, quads.length).parallel().forEach(quadId ->
 			{
-				if( (i != 0) && (i != nbXQuads - 1) && (j != 0) && (j!= nbYQuads - 1) )
-					innerCells[innerCellId++] = quadId;
-				else
-					outerCells[outerCellId++] = quadId;
-
-				int upperLeftNodeIndex = (j*nbXNodes)+i;
-				int lowerLeftNodeIndex = upperLeftNodeIndex + nbXNodes;
-				quads[quadId++] = new Quad(upperLeftNodeIndex, upperLeftNodeIndex+1, lowerLeftNodeIndex+1, lowerLeftNodeIndex);
-			}
-
-		this.geometry = new MeshGeometry(nodes, edges, quads);
+				final int upperLeftNodeIndex = (quadId / nbXQuads) * nbXNodes + quadId % nbXQuads;
+				final int lowerLeftNodeIndex = upperLeftNodeIndex + nbXNodes;
+				quads[quadId] = new Quad(upperLeftNodeIndex, upperLeftNodeIndex + 1, lowerLeftNodeIndex + 1, lowerLeftNodeIndex);
+			});
+
+			this.geometry = new MeshGeometry(coordinates, edges, quads);
+
+			// connectivity tables
+			nodesOfCell = CsrConnectivity.create(quads.length, MaxNbNodesOfCell, (c, b) -> { System.arraycopy(quads[c].getNodeIds(), 0, b, 0, MaxNbNodesOfCell); return MaxNbNodesOfCell; });
+			nodesOfFace = CsrConnectivity.create(edges.length, MaxNbNodesOfFace, (f, b) -> { System.arraycopy(edges[f].getNodeIds(), 0, b, 0, MaxNbNodesOfFace); return MaxNbNodesOfFace; });
+			facesOfCell = CsrConnectivity.create(quads.length, MaxNbFacesOfCell, this::facesOfCell);
+			cellsOfNode = CsrConnectivity.create(nbXNodes * nbYNodes, MaxNbCellsOfNode, true, this::cellsOfNode);
+			cellsOfFace = CsrConnectivity.create(edges.length, MaxNbCellsOfFace, false, this::cellsOfFace);
+			neighbourCells = CsrConnectivity.create(quads.length, MaxNbNeighbourCells, true, this::neighbourCells);
+		}
 		this.topLeftNode = (nbXQuads + 1) * nbYQuads;
 		this.topRightNode = (nbXQuads + 1) * (nbYQuads +1) - 1;
 		this.bottomLeftNode = 0;
 		this.bottomRightNode = nbXQuads;
 
-		ArrayList<Integer> outFaces = new ArrayList<Integer>();
-		ArrayList<Integer> inFaces = new ArrayList<Integer>();
-		ArrayList<Integer> inVFaces = new ArrayList<Integer>();
-		ArrayList<Integer> inHFaces = new ArrayList<Integer>();
-		ArrayList<Integer> tFaces = new ArrayList<Integer>();
-		ArrayList<Integer> bFaces = new ArrayList<Integer>();
-		ArrayList<Integer> lFaces = new ArrayList<Integer>();
-		ArrayList<Integer> rFaces = new ArrayList<Integer>();
+		// node sets
+		final int nbXInnerNodes = Math.max(0, nbXQuads - 1);
+		innerNodes = IntStream.range(0, nbXInnerNodes * Math.max(0, nbYQuads - 1)).parallel()
+				.map(k -> (k / nbXInnerNodes + 1) * nbXNodes + k % nbXInnerNodes + 1).toArray();
+		topNodes = IntStream.range(0, nbXNodes).map(i -> nbYQuads * nbXNodes + i).toArray();
+		bottomNodes = IntStream.range(0, nbXNodes).toArray();
+		leftNodes = IntStream.range(0, nbYNodes).map(j -> j * nbXNodes).toArray();
+		rightNodes = IntStream.range(0, nbYNodes).map(j -> j * nbXNodes + nbXQuads).toArray();
+
+		// cell sets
+		final int nbXInnerCells = Math.max(0, nbXQuads - 2);
+		innerCells = IntStream.range(0, nbXInnerCells * Math.max(0, nbYQuads - 2)).parallel()
+				.map(k -> (k / nbXInnerCells + 1) * nbXQuads + k % nbXInnerCells + 1).toArray();
+		outerCells = IntStream.range(0, nbCells).parallel().filter(c -> !isInnerCell(c)).toArray();
+		topCells = IntStream.range(0, nbXQuads).map(i -> (nbYQuads - 1) * nbXQuads + i).toArray();
+		bottomCells = IntStream.range(0, nbXQuads).toArray();
+		leftCells = IntStream.range(0, nbYQuads).map(j -> j * nbXQuads).toArray();
+		rightCells = IntStream.range(0, nbYQuads).map(j -> j * nbXQuads + nbXQuads - 1).toArray();
+
+		// face sets
+		outerFaces = IntStream.range(0, nbFaces).parallel().filter(f -> !isInnerFace(f)).toArray();
+		innerFaces = IntStream.range(0, nbFaces).parallel().filter(this::isInnerFace).toArray();
+		final int nbXInnerVerticalFaces = Math.max(0, nbXQuads - 1);
+		innerVerticalFaces = IntStream.range(0, nbXInnerVerticalFaces * nbYQuads).parallel()
+				.map(k -> (k / nbXInnerVerticalFaces) * nbFacesPerRow + 2 * (k % nbXInnerVerticalFaces) + 3).toArray();
+		innerHorizontalFaces = IntStream.range(0, nbXQuads * Math.max(0, nbYQuads - 1)).parallel()
+				.map(k -> (k / nbXQuads + 1) * nbFacesPerRow + 2 * (k % nbXQuads)).toArray();
+		topFaces = IntStream.range(0, nbXQuads).map(i -> nbYQuads * nbFacesPerRow + i).toArray();
+		bottomFaces = IntStream.range(0, nbXQuads).map(i -> 2 * i).toArray();
+		leftFaces = IntStream.range(0, nbYQuads).map(j -> j * nbFacesPerRow + 1).toArray();
+		rightFaces = IntStream.range(0, nbYQuads).map(j -> j * nbFacesPerRow + 2 * nbXQuads).toArray();
+	}
 
-		for (edgeId = 0; edgeId <edges.length; edgeId ++)
+	/**
+	 * Renumbers nodes and cells along the curve through their (i, j) indices.
+	 * Faces are numbered in order of first appearance in the faces of the renumbered cells.
+	 * Geometry, connectivity tables and item sets are permuted accordingly.
+	 */
+	private void renumber(SpaceFillingCurve.Curve curve)
+	{
+		final double[] naturalCoordinates = geometry.getCoordinates();
+		final int nbFaces = geometry.getNbEdges();
+
+		naturalNodeIds = SpaceFillingCurve.order(curve, nbXQuads + 1, nbYQuads + 1);
+		naturalCellIds = SpaceFillingCurve.order(curve, nbXQuads, nbYQuads);
+		nodeIdsOfNatural = SpaceFillingCurve.inverse(naturalNodeIds);
+		cellIdsOfNatural = SpaceFillingCurve.inverse(naturalCellIds);
+		naturalFaceIds = new int[nbFaces];
+		faceIdsOfNatural = new int[nbFaces];
+		Arrays.fill(faceIdsOfNatural, -1);
+		final int[] naturalFacesOfCell = new int[MaxNbFacesOfCell];
+		int nbNumberedFaces = 0;
+		for (int naturalCellId : naturalCellIds)
+			for (int k = 0, n = facesOfCell(naturalCellId, naturalFacesOfCell); k < n; k++)
+			{
+				final int naturalFaceId = naturalFacesOfCell[k];
+				if (faceIdsOfNatural[naturalFaceId] == -1)
+				{
+					faceIdsOfNatural[naturalFaceId] = nbNumberedFaces;
+					naturalFaceIds[nbNumberedFaces++] = naturalFaceId;
+				}
+			}
+
+		final double[] coordinates = new double[naturalCoordinates.length];
+		for (int r = 0; r < naturalNodeIds.length; r++)
 		{
-			// Top boundary faces
-			if (edgeId >= 2 * nbXQuads * nbYQuads + nbYQuads) tFaces.add(edgeId);
-			// Bottom boundary faces
-			if ((edgeId < 2 * nbXQuads) && (edgeId % 2 == 0)) bFaces.add(edgeId);
-			// Left boundary faces
-			if ((edgeId % (2 * nbXQuads + 1) == 1) && (edgeId < (2 * nbXQuads + 1) * nbYQuads)) lFaces.add(edgeId);
-			// Right boundary faces
-			if (edgeId % (2 * nbXQuads + 1) == 2 * nbXQuads) rFaces.add(edgeId);
-
-			Edge edge = edges[edgeId];
-
-			if (!isInnerEdge(edge))
-				outFaces.add(edgeId);
-			else
+			coordinates[2 * r] = naturalCoordinates[2 * naturalNodeIds[r]];
+			coordinates[2 * r + 1] = naturalCoordinates[2 * naturalNodeIds[r] + 1];
+		}
+		if (implicit)
+		{
+			// nodes of cells and tables built on demand go through the permutations
+			this.geometry = new MeshGeometry(coordinates, nbFaces, naturalCellIds.length, MaxNbNodesOfCell, this::nodesOfCellElems);
+		}
+		else
+		{
+			final Edge[] naturalEdges = geometry.getEdges();
+			final Quad[] naturalQuads = geometry.getQuads();
+			final Edge[] edges = new Edge[naturalEdges.length];
+			for (int f = 0; f < edges.length; f++)
 			{
-				inFaces.add(edgeId);
-				if (isVerticalEdge(edge))
-					inVFaces.add(edgeId);
-				else if (isHorizontalEdge(edge))
-					inHFaces.add(edgeId);
-				else
-					throw new RuntimeException("The inner edge " + edgeId + " should be either vertical or horizontal");
+				final int[] ids = naturalEdges[naturalFaceIds[f]].getNodeIds();
+				edges[f] = new Edge(nodeIdsOfNatural[ids[0]], nodeIdsOfNatural[ids[1]]);
+			}
+			final Quad[] quads = new Quad[naturalQuads.length];
+			for (int c = 0; c < quads.length; c++)
+			{
+				final int[] ids = naturalQuads[naturalCellIds[c]].getNodeIds();
+				quads[c] = new Quad(nodeIdsOfNatural[ids[0]], nodeIdsOfNatural[ids[1]], nodeIdsOfNatural[ids[2]], nodeIdsOfNatural[ids[3]]);
 			}
+			this.geometry = new MeshGeometry(coordinates, edges, quads);
+
+			// local orders of nodes and faces of cells (counterclockwise, bottom/left/right/top)
+			// and of cells of faces (back/front) are kept, the other tables stay sorted
+			nodesOfCell = nodesOfCell.permute(naturalCellIds, nodeIdsOfNatural, false);
+			nodesOfFace = nodesOfFace.permute(naturalFaceIds, nodeIdsOfNatural, false);
+			facesOfCell = facesOfCell.permute(naturalCellIds, faceIdsOfNatural, false);
+			cellsOfNode = cellsOfNode.permute(naturalNodeIds, cellIdsOfNatural, true);
+			cellsOfFace = cellsOfFace.permute(naturalFaceIds, cellIdsOfNatural, false);
+			neighbourCells = neighbourCells.permute(naturalCellIds, cellIdsOfNatural, true);
 		}
-		outerFaces = outFaces.stream().mapToInt(x->x).toArray();
-		innerFaces = inFaces.stream().mapToInt(x->x).toArray();
-		innerVerticalFaces = inVFaces.stream().mapToInt(x->x).toArray();
-		innerHorizontalFaces = inHFaces.stream().mapToInt(x->x).toArray();
-
-		topFaces = tFaces.stream().mapToInt(x->x).toArray();
-		bottomFaces = bFaces.stream().mapToInt(x->x).toArray();
-		leftFaces = lFaces.stream().mapToInt(x->x).toArray();
-		rightFaces = rFaces.stream().mapToInt(x->x).toArray();
-
-		// Construction of boundary cell sets
-		topCells = cellsOfNodeCollection(topNodes);
-		bottomCells = cellsOfNodeCollection(bottomNodes);
-		leftCells = cellsOfNodeCollection(leftNodes);
-		rightCells = cellsOfNodeCollection(rightNodes);
+		this.geometry.setOriginalIds(naturalNodeIds, naturalCellIds);
+
+		topLeftNode = nodeIdsOfNatural[topLeftNode];
+		topRightNode = nodeIdsOfNatural[topRightNode];
+		bottomLeftNode = nodeIdsOfNatural[bottomLeftNode];
+		bottomRightNode = nodeIdsOfNatural[bottomRightNode];
+
+		// boundary lines keep their geometric order, the other sets are sorted
+		topNodes = rename(topNodes, nodeIdsOfNatural, false);
+		bottomNodes = rename(bottomNodes, nodeIdsOfNatural, false);
+		leftNodes = rename(leftNodes, nodeIdsOfNatural, false);
+		rightNodes = rename(rightNodes, nodeIdsOfNatural, false);
+		innerNodes = rename(innerNodes, nodeIdsOfNatural, true);
+		topFaces = rename(topFaces, faceIdsOfNatural, false);
+		bottomFaces = rename(bottomFaces, faceIdsOfNatural, false);
+		leftFaces = rename(leftFaces, faceIdsOfNatural, false);
+		rightFaces = rename(rightFaces, faceIdsOfNatural, false);
+		outerFaces = rename(outerFaces, faceIdsOfNatural, true);
+		innerFaces = rename(innerFaces, faceIdsOfNatural, true);
+		innerHorizontalFaces = rename(innerHorizontalFaces, faceIdsOfNatural, true);
+		innerVerticalFaces = rename(innerVerticalFaces, faceIdsOfNatural, true);
+		innerCells = rename(innerCells, cellIdsOfNatural, true);
+		outerCells = rename(outerCells, cellIdsOfNatural, true);
+		topCells = rename(topCells, cellIdsOfNatural, true);
+		bottomCells = rename(bottomCells, cellIdsOfNatural, true);
+		leftCells = rename(leftCells, cellIdsOfNatural, true);
+		rightCells = rename(rightCells, cellIdsOfNatural, true);
+	}
+
+	/**
+	 * Arrays of the built mesh: the connectivity tables existing at creation
+	 * (none in implicit mode), the item sets and the renumbering permutations.
+	 */
+	private MeshCache save()
+	{
+		final MeshCache cache = new MeshCache();
+		cache.put("sizes", new int[] { nbXQuads, nbYQuads, getNbFaces(), topLeftNode, topRightNode, bottomLeftNode, bottomRightNode });
+		cache.put("coordinates", geometry.getCoordinates());
+		putConnectivity(cache, "nodesOfCell", nodesOfCell);
+		putConnectivity(cache, "nodesOfFace", nodesOfFace);
+		putConnectivity(cache, "facesOfCell", facesOfCell);
+		putConnectivity(cache, "cellsOfNode", cellsOfNode);
+		putConnectivity(cache, "cellsOfFace", cellsOfFace);
+		putConnectivity(cache, "neighbourCells", neighbourCells);
+		cache.put("innerNodes", innerNodes);
+		cache.put("topNodes", topNodes);
+		cache.put("bottomNodes", bottomNodes);
+		cache.put("leftNodes", leftNodes);
+		cache.put("rightNodes", rightNodes);
+		cache.put("innerCells", innerCells);
+		cache.put("outerCells", outerCells);
+		cache.put("topCells", topCells);
+		cache.put("bottomCells", bottomCells);
+		cache.put("leftCells", leftCells);
+		cache.put("rightCells", rightCells);
+		cache.put("outerFaces", outerFaces);
+		cache.put("innerFaces", innerFaces);
+		cache.put("innerHorizontalFaces", innerHorizontalFaces);
+		cache.put("innerVerticalFaces", innerVerticalFaces);
+		cache.put("topFaces", topFaces);
+		cache.put("bottomFaces", bottomFaces);
+		cache.put("leftFaces", leftFaces);
+		cache.put("rightFaces", rightFaces);
+		cache.put("naturalNodeIds", naturalNodeIds);
+		cache.put("naturalCellIds", naturalCellIds);
+		cache.put("naturalFaceIds", naturalFaceIds);
+		return cache;
+	}
+
+	/** Restores a mesh saved in implicit mode if implicit is set, in explicit mode otherwise */
+	private void load(MeshCache cache)
+	{
+		nodesOfCell = nodesOfFace = facesOfCell = cellsOfNode = cellsOfFace = neighbourCells = null;
+		nodeIdsOfNatural = cellIdsOfNatural = faceIdsOfNatural = null;
+		final int[] sizes = cache.getInts("sizes");
+		nbXQuads = sizes[0];
+		nbYQuads = sizes[1];
+		final int nbFaces = sizes[2];
+		topLeftNode = sizes[3];
+		topRightNode = sizes[4];
+		bottomLeftNode = sizes[5];
+		bottomRightNode = sizes[6];
+
+		naturalNodeIds = cache.getInts("naturalNodeIds");
+		naturalCellIds = cache.getInts("naturalCellIds");
+		naturalFaceIds = cache.getInts("naturalFaceIds");
+		if (naturalNodeIds != null)
+		{
+			nodeIdsOfNatural = SpaceFillingCurve.inverse(naturalNodeIds);
+			cellIdsOfNatural = SpaceFillingCurve.inverse(naturalCellIds);
+			faceIdsOfNatural = SpaceFillingCurve.inverse(naturalFaceIds);
+		}
+
+		final double[] coordinates = cache.getDoubles("coordinates");
+		if (implicit)
+			geometry = new MeshGeometry(coordinates, nbFaces, nbXQuads * nbYQuads, MaxNbNodesOfCell, this::nodesOfCellElems);
+		else
+		{
+			nodesOfCell = getConnectivity(cache, "nodesOfCell");
+			nodesOfFace = getConnectivity(cache, "nodesOfFace");
+			facesOfCell = getConnectivity(cache, "facesOfCell");
+			cellsOfNode = getConnectivity(cache, "cellsOfNode");
+			cellsOfFace = getConnectivity(cache, "cellsOfFace");
+			neighbourCells = getConnectivity(cache, "neighbourCells");
+			final int[] cellNodes = nodesOfCell.getValues();
+			final int[] faceNodes = nodesOfFace.getValues();
+			final Quad[] quads = new Quad[nodesOfCell.getNbItems()];
+			final Edge[] edges = new Edge[nbFaces];
+			IntStream.range(0, quads.length).parallel().forEach(c ->
+				quads[c] = new Quad(cellNodes[4 * c], cellNodes[4 * c + 1], cellNodes[4 * c + 2], cellNodes[4 * c + 3]));
+			IntStream.range(0, edges.length).parallel().forEach(f ->
+				edges[f] = new Edge(faceNodes[2 * f], faceNodes[2 * f + 1]));
+			geometry = new MeshGeometry(coordinates, edges, quads);
+		}
+		if (naturalNodeIds != null)
+			geometry.setOriginalIds(naturalNodeIds, naturalCellIds);
+
+		innerNodes = cache.getInts("innerNodes");
+		topNodes = cache.getInts("topNodes");
+		bottomNodes = cache.getInts("bottomNodes");
+		leftNodes = cache.getInts("leftNodes");
+		rightNodes = cache.getInts("rightNodes");
+		innerCells = cache.getInts("innerCells");
+		outerCells = cache.getInts("outerCells");
+		topCells = cache.getInts("topCells");
+		bottomCells = cache.getInts("bottomCells");
+		leftCells = cache.getInts("leftCells");
+		rightCells = cache.getInts("rightCells");
+		outerFaces = cache.getInts("outerFaces");
+		innerFaces = cache.getInts("innerFaces");
+		innerHorizontalFaces = cache.getInts("innerHorizontalFaces");
+		innerVerticalFaces = cache.getInts("innerVerticalFaces");
+		topFaces = cache.getInts("topFaces");
+		bottomFaces = cache.getInts("bottomFaces");
+		leftFaces = cache.getInts("leftFaces");
+		rightFaces = cache.getInts("rightFaces");
+	}
+
+	private static void putConnectivity(MeshCache cache, String name, CsrConnectivity c)
+	{
+		if (c == null) return;
+		cache.put(name + ".offsets", c.getOffsets());
+		cache.put(name + ".values", c.getValues());
+	}
+
+	private static CsrConnectivity getConnectivity(MeshCache cache, String name)
+	{
+		return new CsrConnectivity(cache.getInts(name + ".offsets"), cache.getInts(name + ".values"));
+	}
+
+	private static int[] rename(int[] items, int[] renaming, boolean sorted)
+	{
+		final int[] renamed = new int[items.length];
+		for (int k = 0; k < items.length; k++)
+			renamed[k] = renaming[items[k]];
+		if (sorted) Arrays.sort(renamed);
+		return renamed;
 	}
 }
@@ -0,0 +1,484 @@
+/**
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ */
+package fr.cea.nabla.javalib.mesh;
+
+import java.util.stream.IntStream;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Cartesian 3D mesh of hexahedra.
+ *
+ * No connectivity table is stored: all connectivities are computed
+ * from (i, j, k) indices with:
+ *   node id = i + (nbXCells+1) * (j + (nbYCells+1) * k)
+ *   cell id = i + nbXCells * (j + nbYCells * k)
+ * Faces are numbered by normal direction: X faces, then Y faces, then Z faces.
+ * Item sets are allocated on first call only.
+ *
+ * Sides: left/right for x, bottom/top for y, back/front for z.
+ */
+public class CartesianMesh3D
+{
+	public static int MaxNbNodesOfCell = 8;
+	public static int MaxNbNodesOfFace = 4;
+	public static int MaxNbCellsOfNode = 8;
+	public static int MaxNbCellsOfFace = 2;
+	public static int MaxNbFacesOfCell = 6;
+	public static int MaxNbNeighbourCells = 6;
+
+	private int nbXCells;
+	private int nbYCells;
+	private int nbZCells;
+	private double xSize;
+	private double ySize;
+	private double zSize;
+
+	// number of faces of each direction
+	private int nbXFaces;
+	private int nbYFaces;
+	private int nbZFaces;
+
+	private int[] innerNodes;
+	private int[] outerNodes;
+	private int[] innerCells;
+	private int[] outerCells;
+	private int[] innerFaces;
+	private int[] outerFaces;
+	private int[] leftFaces;
+	private int[] rightFaces;
+	private int[] bottomFaces;
+	private int[] topFaces;
+	private int[] backFaces;
+	private int[] frontFaces;
+
+	public CartesianMesh3D(int nbXCells, int nbYCells, int nbZCells, double xSize, double ySize, double zSize)
+	{
+		create(nbXCells, nbYCells, nbZCells, xSize, ySize, zSize);
+	}
+
+	/** Constructor for Json creation */
+	public CartesianMesh3D() {}
+
+	public void jsonInit(final String jsonContent)
+	{
+		final JsonObject o = JsonParser.parseString(jsonContent).getAsJsonObject();
+		assert(o.has("nbXCells"));
+		final JsonElement valueof_nbXCells = o.get("nbXCells");
+		assert(valueof_nbXCells.isJsonPrimitive());
+		int nbXCells = valueof_nbXCells.getAsJsonPrimitive().getAsInt();
+		assert(o.has("nbYCells"));
+		final JsonElement valueof_nbYCells = o.get("nbYCells");
+		assert(valueof_nbYCells.isJsonPrimitive());
+		int nbYCells = valueof_nbYCells.getAsJsonPrimitive().getAsInt();
+		assert(o.has("nbZCells"));
+		final JsonElement valueof_nbZCells = o.get("nbZCells");
+		assert(valueof_nbZCells.isJsonPrimitive());
+		int nbZCells = valueof_nbZCells.getAsJsonPrimitive().getAsInt();
+		assert(o.has("xSize"));
+		final JsonElement valueof_xSize = o.get("xSize");
+		assert(valueof_xSize.isJsonPrimitive());
+		double xSize = valueof_xSize.getAsJsonPrimitive().getAsDouble();
+		assert(o.has("ySize"));
+		final JsonElement valueof_ySize = o.get("ySize");
+		assert(valueof_ySize.isJsonPrimitive());
+		double ySize = valueof_ySize.getAsJsonPrimitive().getAsDouble();
+		assert(o.has("zSize"));
+		final JsonElement valueof_zSize = o.get("zSize");
+		assert(valueof_zSize.isJsonPrimitive());
+		double zSize = valueof_zSize.getAsJsonPrimitive().getAsDouble();
+
+		create(nbXCells, nbYCells, nbZCells, xSize, ySize, zSize);
+	}
+
+	public int getNbXCells() { return nbXCells; }
+	public int getNbYCells() { return nbYCells; }
+	public int getNbZCells() { return nbZCells; }
+
+	public int getNbNodes() { return (nbXCells + 1) * (nbYCells + 1) * (nbZCells + 1); }
+	public int[] getNodes() { return IntStream.range(0, this.getNbNodes()).toArray(); }
+
+	public int getNbCells() { return nbXCells * nbYCells * nbZCells; }
+	public int[] getCells() { return IntStream.range(0, this.getNbCells()).toArray(); }
+
+	public int getNbFaces() { return nbXFaces + nbYFaces + nbZFaces; }
+	public int[] getFaces() { return IntStream.range(0, this.getNbFaces()).toArray(); }
+
+	public int getNbInnerNodes() { return Math.max(nbXCells - 1, 0) * Math.max(nbYCells - 1, 0) * Math.max(nbZCells - 1, 0); }
+	public int getNbOuterNodes() { return getNbNodes() - getNbInnerNodes(); }
+	public int getNbInnerCells() { return Math.max(nbXCells - 2, 0) * Math.max(nbYCells - 2, 0) * Math.max(nbZCells - 2, 0); }
+	public int getNbOuterCells() { return getNbCells() - getNbInnerCells(); }
+	public int getNbOuterFaces() { return 2 * (nbYCells * nbZCells + nbXCells * nbZCells + nbXCells * nbYCells); }
+	public int getNbInnerFaces() { return getNbFaces() - getNbOuterFaces(); }
+	public int getNbLeftFaces() { return nbYCells * nbZCells; }
+	public int getNbRightFaces() { return nbYCells * nbZCells; }
+	public int getNbBottomFaces() { return nbXCells * nbZCells; }
+	public int getNbTopFaces() { return nbXCells * nbZCells; }
+	public int getNbBackFaces() { return nbXCells * nbYCells; }
+	public int getNbFrontFaces() { return nbXCells * nbYCells; }
+
+	public int[] getInnerNodes()
+	{
+		if (innerNodes == null) innerNodes = IntStream.range(0, getNbNodes()).filter(r -> !isOuterNode(r)).toArray();
+		return innerNodes;
+	}
+
+	public int[] getOuterNodes()
+	{
+		if (outerNodes == null) outerNodes = IntStream.range(0, getNbNodes()).filter(this::isOuterNode).toArray();
+		return outerNodes;
+	}
+
+	public int[] getInnerCells()
+	{
+		if (innerCells == null) innerCells = IntStream.range(0, getNbCells()).filter(c -> !isOuterCell(c)).toArray();
+		return innerCells;
+	}
+
+	public int[] getOuterCells()
+	{
+		if (outerCells == null) outerCells = IntStream.range(0, getNbCells()).filter(this::isOuterCell).toArray();
+		return outerCells;
+	}
+
+	public int[] getInnerFaces()
+	{
+		if (innerFaces == null) innerFaces = IntStream.range(0, getNbFaces()).filter(f -> !isOuterFace(f)).toArray();
+		return innerFaces;
+	}
+
+	public int[] getOuterFaces()
+	{
+		if (outerFaces == null) outerFaces = IntStream.range(0, getNbFaces()).filter(this::isOuterFace).toArray();
+		return outerFaces;
+	}
+
+	public int[] getLeftFaces()
+	{
+		if (leftFaces == null) leftFaces = IntStream.range(0, getNbLeftFaces()).map(l -> l * (nbXCells + 1)).toArray();
+		return leftFaces;
+	}
+
+	public int[] getRightFaces()
+	{
+		if (rightFaces == null) rightFaces = IntStream.range(0, getNbRightFaces()).map(l -> l * (nbXCells + 1) + nbXCells).toArray();
+		return rightFaces;
+	}
+
+	public int[] getBottomFaces()
+	{
+		if (bottomFaces == null) bottomFaces = IntStream.range(0, getNbBottomFaces()).map(l -> nbXFaces + (l / nbXCells) * nbXCells * (nbYCells + 1) + l % nbXCells).toArray();
+		return bottomFaces;
+	}
+
+	public int[] getTopFaces()
+	{
+		if (topFaces == null) topFaces = IntStream.range(0, getNbTopFaces()).map(l -> nbXFaces + (l / nbXCells) * nbXCells * (nbYCells + 1) + nbXCells * nbYCells + l % nbXCells).toArray();
+		return topFaces;
+	}
+
+	public int[] getBackFaces()
+	{
+		if (backFaces == null) backFaces = IntStream.range(0, getNbBackFaces()).map(l -> nbXFaces + nbYFaces + l).toArray();
+		return backFaces;
+	}
+
+	public int[] getFrontFaces()
+	{
+		if (frontFaces == null) frontFaces = IntStream.range(0, getNbFrontFaces()).map(l -> nbXFaces + nbYFaces + nbXCells * nbYCells * nbZCells + l).toArray();
+		return frontFaces;
+	}
+
+	/** Coordinates of the node in the initial mesh */
+	public double[] getNodeCoordinates(int nodeId)
+	{
+		final int i = nodeId % (nbXCells + 1);
+		final int j = (nodeId / (nbXCells + 1)) % (nbYCells + 1);
+		final int k = nodeId / ((nbXCells + 1) * (nbYCells + 1));
+		return new double[] { i * xSize, j * ySize, k * zSize };
+	}
+
+	/** Node coordinates of the initial mesh, interleaved: x0, y0, z0, x1... */
+	public double[] getCoordinates()
+	{
+		final double[] coords = new double[3 * getNbNodes()];
+		IntStream.range(0, getNbNodes()).parallel().forEach(r ->
+		{
+			coords[3 * r] = (r % (nbXCells + 1)) * xSize;
+			coords[3 * r + 1] = ((r / (nbXCells + 1)) % (nbYCells + 1)) * ySize;
+			coords[3 * r + 2] = (r / ((nbXCells + 1) * (nbYCells + 1))) * zSize;
+		});
+		return coords;
+	}
+
+	/**
+	 * Node coordinates of the initial mesh, as an array of nbNodes x 3
+	 * ready to initialize the node coordinates variable.
+	 */
+	public double[][] getNodeCoordinates()
+	{
+		final double[][] coords = new double[getNbNodes()][];
+		IntStream.range(0, coords.length).parallel().forEach(r -> coords[r] = getNodeCoordinates(r));
+		return coords;
+	}
+
+	public int[] getNodesOfCell(int cellId)
+	{
+		final int[] nodes = new int[MaxNbNodesOfCell];
+		getNodesOfCell(cellId, nodes);
+		return nodes;
+	}
+
+	/**
+	 * Allocation free version of getNodesOfCell.
+	 * VTK hexahedron order: nodes of the k face counterclockwise, then nodes of the k+1 face.
+	 */
+	public void getNodesOfCell(int cellId, int[] nodes)
+	{
+		final int i = cellId % nbXCells;
+		final int j = (cellId / nbXCells) % nbYCells;
+		final int k = cellId / (nbXCells * nbYCells);
+		final int nx = nbXCells + 1;
+		final int nxy = nx * (nbYCells + 1);
+		final int n0 = i + nx * j + nxy * k;
+		nodes[0] = n0;
+		nodes[1] = n0 + 1;
+		nodes[2] = n0 + 1 + nx;
+		nodes[3] = n0 + nx;
+		nodes[4] = n0 + nxy;
+		nodes[5] = n0 + 1 + nxy;
+		nodes[6] = n0 + 1 + nx + nxy;
+		nodes[7] = n0 + nx + nxy;
+	}
+
+	public int[] getNodesOfFace(int faceId)
+	{
+		final int nx = nbXCells + 1;
+		final int nxy = nx * (nbYCells + 1);
+		if (faceId < nbXFaces)
+		{
+			// face normal to x, at node (i, j, k): nodes in the y-z plane
+			final int n0 = faceId % nx + nx * ((faceId / nx) % nbYCells) + nxy * (faceId / (nx * nbYCells));
+			return new int[] { n0, n0 + nx, n0 + nx + nxy, n0 + nxy };
+		}
+		else if (faceId < nbXFaces + nbYFaces)
+		{
+			final int f = faceId - nbXFaces;
+			final int n0 = f % nbXCells + nx * ((f / nbXCells) % (nbYCells + 1)) + nxy * (f / (nbXCells * (nbYCells + 1)));
+			return new int[] { n0, n0 + nxy, n0 + 1 + nxy, n0 + 1 };
+		}
+		else
+		{
+			final int f = faceId - nbXFaces - nbYFaces;
+			final int n0 = f % nbXCells + nx * ((f / nbXCells) % nbYCells) + nxy * (f / (nbXCells * nbYCells));
+			return new int[] { n0, n0 + 1, n0 + 1 + nx, n0 + nx };
+		}
+	}
+
+	public int[] getCellsOfNode(int nodeId)
+	{
+		final int nx = nbXCells + 1;
+		final int i = nodeId % nx;
+		final int j = (nodeId / nx) % (nbYCells + 1);
+		final int k = nodeId / (nx * (nbYCells + 1));
+		final int[] cells = new int[MaxNbCellsOfNode];
+		int nb = 0;
+		for (int ck = k - 1; ck <= k; ck++)
+			for (int cj = j - 1; cj <= j; cj++)
+				for (int ci = i - 1; ci <= i; ci++)
+					if (ci >= 0 && ci < nbXCells && cj >= 0 && cj < nbYCells && ck >= 0 && ck < nbZCells)
+						cells[nb++] = getCell(ci, cj, ck);
+		return trim(cells, nb);
+	}
+
+	public int[] getCellsOfFace(int faceId)
+	{
+		final int[] cells = new int[MaxNbCellsOfFace];
+		int nb = 0;
+		if (faceId < nbXFaces)
+		{
+			final int nx = nbXCells + 1;
+			final int i = faceId % nx;
+			final int j = (faceId / nx) % nbYCells;
+			final int k = faceId / (nx * nbYCells);
+			if (i > 0) cells[nb++] = getCell(i - 1, j, k);
+			if (i < nbXCells) cells[nb++] = getCell(i, j, k);
+		}
+		else if (faceId < nbXFaces + nbYFaces)
+		{
+			final int f = faceId - nbXFaces;
+			final int i = f % nbXCells;
+			final int j = (f / nbXCells) % (nbYCells + 1);
+			final int k = f / (nbXCells * (nbYCells + 1));
+			if (j > 0) cells[nb++] = getCell(i, j - 1, k);
+			if (j < nbYCells) cells[nb++] = getCell(i, j, k);
+		}
+		else
+		{
+			final int f = faceId - nbXFaces - nbYFaces;
+			final int i = f % nbXCells;
+			final int j = (f / nbXCells) % nbYCells;
+			final int k = f / (nbXCells * nbYCells);
+			if (k > 0) cells[nb++] = getCell(i, j, k - 1);
+			if (k < nbZCells) cells[nb++] = getCell(i, j, k);
+		}
+		return trim(cells, nb);
+	}
+
+	/** Neighbour cells sharing a face, in increasing order */
+	public int[] getNeighbourCells(int cellId)
+	{
+		final int i = cellId % nbXCells;
+		final int j = (cellId / nbXCells) % nbYCells;
+		final int k = cellId / (nbXCells * nbYCells);
+		final int[] cells = new int[MaxNbNeighbourCells];
+		int nb = 0;
+		if (k > 0) cells[nb++] = getCell(i, j, k - 1);
+		if (j > 0) cells[nb++] = getCell(i, j - 1, k);
+		if (i > 0) cells[nb++] = getCell(i - 1, j, k);
+		if (i < nbXCells - 1) cells[nb++] = getCell(i + 1, j, k);
+		if (j < nbYCells - 1) cells[nb++] = getCell(i, j + 1, k);
+		if (k < nbZCells - 1) cells[nb++] = getCell(i, j, k + 1);
+		return trim(cells, nb);
+	}
+
+	/** Faces of the cell: left, right, bottom, top, back, front */
+	public int[] getFacesOfCell(int cellId)
+	{
+		return new int[] { getLeftFaceOfCell(cellId), getRightFaceOfCell(cellId),
+				getBottomFaceOfCell(cellId), getTopFaceOfCell(cellId),
+				getBackFaceOfCell(cellId), getFrontFaceOfCell(cellId) };
+	}
+
+	public int getLeftFaceOfCell(int cellId)
+	{
+		final int i = cellId % nbXCells;
+		final int jk = cellId / nbXCells;
+		return i + (nbXCells + 1) * jk;
+	}
+
+	public int getRightFaceOfCell(int cellId)
+	{
+		return getLeftFaceOfCell(cellId) + 1;
+	}
+
+	public int getBottomFaceOfCell(int cellId)
+	{
+		final int ij = cellId % (nbXCells * nbYCells);
+		final int k = cellId / (nbXCells * nbYCells);
+		return nbXFaces + ij + nbXCells * (nbYCells + 1) * k;
+	}
+
+	public int getTopFaceOfCell(int cellId)
+	{
+		return getBottomFaceOfCell(cellId) + nbXCells;
+	}
+
+	public int getBackFaceOfCell(int cellId)
+	{
+		return nbXFaces + nbYFaces + cellId;
+	}
+
+	public int getFrontFaceOfCell(int cellId)
+	{
+		return getBackFaceOfCell(cellId) + nbXCells * nbYCells;
+	}
+
+	public int getCommonFace(int cell1, int cell2)
+	{
+		final int[] faces1 = getFacesOfCell(cell1);
+		final int[] faces2 = getFacesOfCell(cell2);
+		for (int f1 : faces1)
+			for (int f2 : faces2)
+				if (f1 == f2) return f1;
+		return -1;
+	}
+
+	public int getBackCell(int faceId)
+	{
+		final int[] cells = getCellsOfFace(faceId);
+		if (cells.length < 2)
+			throw new RuntimeException("Error in getBackCell(" + faceId + "): please consider using this method with inner face only.");
+		else
+			return cells[0];
+	}
+
+	public int getFrontCell(int faceId)
+	{
+		final int[] cells = getCellsOfFace(faceId);
+		if (cells.length < 2)
+			throw new RuntimeException("Error in getFrontCell(" + faceId + "): please consider using this method with inner face only.");
+		else
+			return cells[1];
+	}
+
+	public void dump()
+	{
+		System.out.println("Mesh Geometry");
+		System.out.println("  nodes (" + getNbNodes() + ")");
+		System.out.println("  faces (" + getNbFaces() + ")");
+		System.out.println("  cells (" + getNbCells() + ")");
+	}
+
+	private void create(int nbXCells, int nbYCells, int nbZCells, double xSize, double ySize, double zSize)
+	{
+		if (nbXCells <= 0 || nbYCells <= 0 || nbZCells <= 0)
+			throw new RuntimeException("Wrong mesh size: " + nbXCells + " x " + nbYCells + " x " + nbZCells);
+		// faces are the most numerous items: less than 3 per node
+		if (3L * (nbXCells + 1) * (nbYCells + 1) * (nbZCells + 1) > Integer.MAX_VALUE)
+			throw new RuntimeException("Mesh too large for int ids: " + nbXCells + " x " + nbYCells + " x " + nbZCells);
+
+		this.nbXCells = nbXCells;
+		this.nbYCells = nbYCells;
+		this.nbZCells = nbZCells;
+		this.xSize = xSize;
+		this.ySize = ySize;
+		this.zSize = zSize;
+		this.nbXFaces = (nbXCells + 1) * nbYCells * nbZCells;
+		this.nbYFaces = nbXCells * (nbYCells + 1) * nbZCells;
+		this.nbZFaces = nbXCells * nbYCells * (nbZCells + 1);
+	}
+
+	private int getCell(int i, int j, int k)
+	{
+		return i + nbXCells * (j + nbYCells * k);
+	}
+
+	private boolean isOuterNode(int nodeId)
+	{
+		final int i = nodeId % (nbXCells + 1);
+		final int j = (nodeId / (nbXCells + 1)) % (nbYCells + 1);
+		final int k = nodeId / ((nbXCells + 1) * (nbYCells + 1));
+		return i == 0 || i == nbXCells || j == 0 || j == nbYCells || k == 0 || k == nbZCells;
+	}
+
+	private boolean isOuterCell(int cellId)
+	{
+		final int i = cellId % nbXCells;
+		final int j = (cellId / nbXCells) % nbYCells;
+		final int k = cellId / (nbXCells * nbYCells);
+		return i == 0 || i == nbXCells - 1 || j == 0 || j == nbYCells - 1 || k == 0 || k == nbZCells - 1;
+	}
+
+	private boolean isOuterFace(int faceId)
+	{
+		return getCellsOfFace(faceId).length == 1;
+	}
+
+	private static int[] trim(int[] values, int size)
+	{
+		if (size == values.length) return values;
+		final int[] result = new int[size];
+		System.arraycopy(values, 0, result, 0, size);
+		return result;
+	}
+}
@@ -0,0 +1,369 @@
+/**
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ */
+package fr.cea.nabla.javalib.mesh;
+
+import fr.cea.nabla.javalib.ChunkedIntArray;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Compressed sparse row storage of a multiple connectivity.
+ * Elements of item i are values[offsets[i]] ... values[offsets[i+1]-1].
+ * Accessors do not allocate, except getElems which returns a copy.
+ *
+ * Tables with more elements than the size limit of Java arrays are stored
+ * in chunks, with long offsets: getOffsets, getValues, getOffset and
+ * getLocalIndicesIn are then unavailable, getLongOffset and getValue
+ * give access to the elements without allocation.
+ */
+public class CsrConnectivity
+{
+	/** Fills buffer with the elements of item and returns their number */
+	@FunctionalInterface
+	public interface ItemElems
+	{
+		int fill(int item, int[] buffer);
+	}
+
+	private static final int BlockSize = 4096;
+
+	// array storage, or chunked storage if chunkedValues != null
+	private final int[] offsets;
+	private final int[] values;
+	private final long[] chunkedOffsets;
+	private final ChunkedIntArray chunkedValues;
+	// last computed local indices, immutable once published
+	private volatile LocalIndices localIndices;
+	private volatile CsrConnectivity colouring;
+
+	public CsrConnectivity(int[] offsets, int[] values)
+	{
+		this.offsets = offsets;
+		this.values = values;
+		this.chunkedOffsets = null;
+		this.chunkedValues = null;
+	}
+
+	public CsrConnectivity(long[] offsets, ChunkedIntArray values)
+	{
+		this.offsets = null;
+		this.values = null;
+		this.chunkedOffsets = offsets;
+		this.chunkedValues = values;
+	}
+
+	/** Builds a table with a constant number of elements per item, f is called concurrently */
+	public static CsrConnectivity create(int nbItems, int nbElemsPerItem, ItemElems f)
+	{
+		final long nbValues = (long) nbItems * nbElemsPerItem;
+		if (nbValues > Utils.MaxArraySize)
+		{
+			final long[] offsets = new long[nbItems + 1];
+			final ChunkedIntArray values = new ChunkedIntArray(nbValues);
+			forEachBlock(nbItems, nbElemsPerItem, (item, buffer) ->
+			{
+				offsets[item] = (long) item * nbElemsPerItem;
+				final int nbElems = fill(f, item, buffer, nbElemsPerItem);
+				values.copyFrom(buffer, 0, offsets[item], nbElems);
+				return nbElems;
+			});
+			offsets[nbItems] = nbValues;
+			return new CsrConnectivity(offsets, values);
+		}
+
+		final int[] values = new int[(int) nbValues];
+		final int[] offsets = new int[nbItems + 1];
+		forEachBlock(nbItems, nbElemsPerItem, (item, buffer) ->
+		{
+			offsets[item] = item * nbElemsPerItem;
+			final int nbElems = fill(f, item, buffer, nbElemsPerItem);
+			System.arraycopy(buffer, 0, values, offsets[item], nbElems);
+			return nbElems;
+		});
+		offsets[nbItems] = values.length;
+		return new CsrConnectivity(offsets, values);
+	}
+
+	private static int fill(ItemElems f, int item, int[] buffer, int nbElemsPerItem)
+	{
+		final int nbElems = f.fill(item, buffer);
+		if (nbElems != nbElemsPerItem)
+			throw new RuntimeException("Unexpected number of elements for item " + item + ": " + nbElems);
+		return nbElems;
+	}
+
+	/**
+	 * Builds a table with at most maxNbElemsPerItem elements per item, f is called concurrently.
+	 * Blocks of items are filled in parallel into compact block buffers,
+	 * then copied to the table once their offsets are known.
+	 */
+	public static CsrConnectivity create(int nbItems, int maxNbElemsPerItem, boolean sorted, ItemElems f)
+	{
+		final int[] offsets = new int[nbItems + 1];
+		final int nbBlocks = (nbItems + BlockSize - 1) / BlockSize;
+		final int[][] blockValues = new int[nbBlocks][];
+		IntStream.range(0, nbBlocks).parallel().forEach(block ->
+		{
+			final int begin = block * BlockSize;
+			final int end = Math.min(nbItems, begin + BlockSize);
+			final int[] itemBuffer = new int[maxNbElemsPerItem];
+			final int[] buffer = new int[(end - begin) * maxNbElemsPerItem];
+			int offset = 0;
+			for (int item = begin; item < end; item++)
+			{
+				final int nbElems = f.fill(item, itemBuffer);
+				if (sorted) Arrays.sort(itemBuffer, 0, nbElems);
+				System.arraycopy(itemBuffer, 0, buffer, offset, nbElems);
+				offset += nbElems;
+				offsets[item + 1] = nbElems;
+			}
+			blockValues[block] = buffer;
+		});
+		long nbValues = 0;
+		for (int item = 0; item < nbItems; item++)
+			nbValues += offsets[item + 1];
+		if (nbValues > Utils.MaxArraySize)
+		{
+			final long[] chunkedOffsets = new long[nbItems + 1];
+			for (int item = 0; item < nbItems; item++)
+				chunkedOffsets[item + 1] = chunkedOffsets[item] + offsets[item + 1];
+			final ChunkedIntArray chunkedValues = new ChunkedIntArray(nbValues);
+			IntStream.range(0, nbBlocks).parallel().forEach(block ->
+			{
+				final long begin = chunkedOffsets[block * BlockSize];
+				final long end = chunkedOffsets[Math.min(nbItems, (block + 1) * BlockSize)];
+				chunkedValues.copyFrom(blockValues[block], 0, begin, (int) (end - begin));
+			});
+			return new CsrConnectivity(chunkedOffsets, chunkedValues);
+		}
+
+		for (int item = 0; item < nbItems; item++)
+			offsets[item + 1] += offsets[item];
+		final int[] values = new int[offsets[nbItems]];
+		IntStream.range(0, nbBlocks).parallel().forEach(block ->
+		{
+			final int begin = offsets[block * BlockSize];
+			final int end = offsets[Math.min(nbItems, (block + 1) * BlockSize)];
+			System.arraycopy(blockValues[block], 0, values, begin, end - begin);
+		});
+		return new CsrConnectivity(offsets, values);
+	}
+
+	/** Calls f on all the items, by blocks processed in parallel, each block with its own buffer */
+	private static void forEachBlock(int nbItems, int bufferSize, ItemElems f)
+	{
+		final int nbBlocks = (nbItems + BlockSize - 1) / BlockSize;
+		IntStream.range(0, nbBlocks).parallel().forEach(block ->
+		{
+			final int[] buffer = new int[bufferSize];
+			for (int item = block * BlockSize, end = Math.min(nbItems, item + BlockSize); item < end; item++)
+				f.fill(item, buffer);
+		});
+	}
+
+	/**
+	 * Returns the table of renumbered items: item i of the new table is item
+	 * itemOrder[i] of this one and elements are renamed by elemRenaming[elem].
+	 */
+	public CsrConnectivity permute(int[] itemOrder, int[] elemRenaming, boolean sorted)
+	{
+		final int nbItems = getNbItems();
+		if (isChunked())
+		{
+			final long[] newOffsets = new long[nbItems + 1];
+			for (int item = 0; item < nbItems; item++)
+				newOffsets[item + 1] = newOffsets[item] + getNbElems(itemOrder[item]);
+			final ChunkedIntArray newValues = new ChunkedIntArray(chunkedValues.getSize(), chunkedValues.getChunkBits());
+			IntStream.range(0, nbItems).parallel().forEach(item ->
+			{
+				final int[] elems = getElems(itemOrder[item]);
+				for (int k = 0; k < elems.length; k++)
+					elems[k] = elemRenaming[elems[k]];
+				if (sorted) Arrays.sort(elems);
+				newValues.copyFrom(elems, 0, newOffsets[item], elems.length);
+			});
+			return new CsrConnectivity(newOffsets, newValues);
+		}
+
+		final int[] newOffsets = new int[nbItems + 1];
+		for (int item = 0; item < nbItems; item++)
+			newOffsets[item + 1] = newOffsets[item] + getNbElems(itemOrder[item]);
+		final int[] newValues = new int[values.length];
+		IntStream.range(0, nbItems).parallel().forEach(item ->
+		{
+			final int oldOffset = offsets[itemOrder[item]];
+			for (int k = 0, n = newOffsets[item + 1] - newOffsets[item]; k < n; k++)
+				newValues[newOffsets[item] + k] = elemRenaming[values[oldOffset + k]];
+			if (sorted) Arrays.sort(newValues, newOffsets[item], newOffsets[item + 1]);
+		});
+		return new CsrConnectivity(newOffsets, newValues);
+	}
+
+	public boolean isChunked() { return chunkedValues != null; }
+	public int getNbItems() { return (isChunked() ? chunkedOffsets.length : offsets.length) - 1; }
+	public long getNbValues() { return isChunked() ? chunkedValues.getSize() : values.length; }
+	public int[] getOffsets() { checkArrays("getOffsets"); return offsets; }
+	public int[] getValues() { checkArrays("getValues"); return values; }
+
+	public int getOffset(int item) { checkArrays("getOffset"); return offsets[item]; }
+	public long getLongOffset(int item) { return isChunked() ? chunkedOffsets[item] : offsets[item]; }
+	public int getValue(long i) { return isChunked() ? chunkedValues.get(i) : values[(int) i]; }
+	public int getNbElems(int item) { return (int) (getLongOffset(item + 1) - getLongOffset(item)); }
+	public int getElem(int item, int k) { return getValue(getLongOffset(item) + k); }
+
+	public int[] getElems(int item)
+	{
+		if (!isChunked())
+			return Arrays.copyOfRange(values, offsets[item], offsets[item + 1]);
+		final int[] elems = new int[getNbElems(item)];
+		chunkedValues.copyTo(chunkedOffsets[item], elems, 0, elems.length);
+		return elems;
+	}
+
+	/** Applies action to each element of item, in order */
+	public void forEach(int item, IntConsumer action)
+	{
+		for (long i = getLongOffset(item), end = getLongOffset(item + 1); i < end; ++i)
+			action.accept(getValue(i));
+	}
+
+	/** Returns the local index of value in item elements, -1 if not found */
+	public int indexOf(int item, int value)
+	{
+		final long begin = getLongOffset(item);
+		for (long i = begin, end = getLongOffset(item + 1); i < end; ++i)
+			if (getValue(i) == value)
+				return (int) (i - begin);
+		return -1;
+	}
+
+	/**
+	 * Returns the local indices of the items of this table in the elements of other,
+	 * aligned with the values: for the k-th element e of item i,
+	 * result[getOffset(i)+k] == other.indexOf(e, i), e.g. the local index of a node
+	 * in the nodes of each of its cells, -1 if i is not an element of e in other.
+	 * Computed in parallel and kept until called with another table.
+	 */
+	public int[] getLocalIndicesIn(CsrConnectivity other)
+	{
+		checkArrays("getLocalIndicesIn");
+		final LocalIndices cached = localIndices;
+		if (cached != null && cached.other == other)
+			return cached.indices;
+
+		final int[] indices = new int[values.length];
+		IntStream.range(0, getNbItems()).parallel().forEach(item ->
+		{
+			for (int i = offsets[item], end = offsets[item + 1]; i < end; ++i)
+				indices[i] = other.indexOf(values[i], item);
+		});
+		localIndices = new LocalIndices(other, indices);
+		return indices;
+	}
+
+	/** Returns the table of the items of each element, in increasing order, elements being in [0, nbElems) */
+	public CsrConnectivity transpose(int nbElems)
+	{
+		if (isChunked())
+		{
+			final long[] newOffsets = new long[nbElems + 1];
+			final long nbValues = chunkedValues.getSize();
+			for (long i = 0; i < nbValues; ++i)
+				newOffsets[chunkedValues.get(i) + 1]++;
+			for (int elem = 0; elem < nbElems; elem++)
+				newOffsets[elem + 1] += newOffsets[elem];
+			final ChunkedIntArray newValues = new ChunkedIntArray(nbValues, chunkedValues.getChunkBits());
+			final long[] next = Arrays.copyOf(newOffsets, nbElems);
+			for (int item = 0, nbItems = getNbItems(); item < nbItems; item++)
+				for (long i = chunkedOffsets[item], end = chunkedOffsets[item + 1]; i < end; ++i)
+					newValues.set(next[chunkedValues.get(i)]++, item);
+			return new CsrConnectivity(newOffsets, newValues);
+		}
+
+		final int[] newOffsets = new int[nbElems + 1];
+		for (int value : values)
+			newOffsets[value + 1]++;
+		for (int elem = 0; elem < nbElems; elem++)
+			newOffsets[elem + 1] += newOffsets[elem];
+		final int[] newValues = new int[values.length];
+		final int[] next = Arrays.copyOf(newOffsets, nbElems);
+		for (int item = 0, nbItems = getNbItems(); item < nbItems; item++)
+			for (int i = offsets[item], end = offsets[item + 1]; i < end; ++i)
+				newValues[next[values[i]]++] = item;
+		return new CsrConnectivity(newOffsets, newValues);
+	}
+
+	/**
+	 * Returns the items of each colour, in increasing order: items of the same colour
+	 * share no element, e.g. cells of a colour of nodesOfCell have no common node.
+	 * Loops scattering values to the elements of the items can then run in parallel
+	 * on the items of a colour, colour after colour.
+	 * Greedy colouring in the order of the items, computed on first call.
+	 */
+	public CsrConnectivity getColouring()
+	{
+		if (colouring == null)
+			synchronized (this) { if (colouring == null) colouring = createColouring(); }
+		return colouring;
+	}
+
+	private CsrConnectivity createColouring()
+	{
+		final int nbItems = getNbItems();
+		int nbElems = 0;
+		for (long i = 0, nbValues = getNbValues(); i < nbValues; ++i)
+			nbElems = Math.max(nbElems, getValue(i) + 1);
+		final CsrConnectivity itemsOfElem = transpose(nbElems);
+
+		// forbiddenBy[colour] == item + 1 if a neighbour of item already has this colour
+		final int[] itemColours = new int[nbItems];
+		int[] forbiddenBy = new int[8];
+		int nbColours = 0;
+		for (int item = 0; item < nbItems; item++)
+		{
+			for (long i = getLongOffset(item), end = getLongOffset(item + 1); i < end; ++i)
+			{
+				final int elem = getValue(i);
+				for (long j = itemsOfElem.getLongOffset(elem), jEnd = itemsOfElem.getLongOffset(elem + 1); j < jEnd; ++j)
+				{
+					final int neighbour = itemsOfElem.getValue(j);
+					if (neighbour < item) forbiddenBy[itemColours[neighbour]] = item + 1;
+				}
+			}
+			int colour = 0;
+			while (colour < nbColours && forbiddenBy[colour] == item + 1)
+				colour++;
+			if (colour == nbColours && ++nbColours > forbiddenBy.length)
+				forbiddenBy = Arrays.copyOf(forbiddenBy, 2 * forbiddenBy.length);
+			itemColours[item] = colour;
+		}
+		// one colour per item, transposed to the items of each colour
+		return new CsrConnectivity(IntStream.rangeClosed(0, nbItems).toArray(), itemColours).transpose(nbColours);
+	}
+
+	private void checkArrays(String accessor)
+	{
+		if (isChunked())
+			throw new RuntimeException(accessor + " unavailable on a connectivity table stored in chunks: " + chunkedValues.getSize() + " elements");
+	}
+
+	private static class LocalIndices
+	{
+		final CsrConnectivity other;
+		final int[] indices;
+
+		LocalIndices(CsrConnectivity other, int[] indices)
+		{
+			this.other = other;
+			this.indices = indices;
+		}
+	}
+}
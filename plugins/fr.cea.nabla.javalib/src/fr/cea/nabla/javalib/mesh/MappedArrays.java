@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ */
+package fr.cea.nabla.javalib.mesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Little endian int and double arrays of memory mapped files.
+ * A mapped buffer is limited to 2GB: arrays are read and written by chunks
+ * of at most 1GB, each one in its own mapped window.
+ */
+final class MappedArrays
+{
+	private static final int MaxChunkSize = 1 << 30;
+
+	private MappedArrays() {}
+
+	/** Window of size bytes at position: read only windows must be in the file */
+	static ByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long size) throws IOException
+	{
+		if (mode == FileChannel.MapMode.READ_ONLY && position + size > channel.size())
+			throw new IOException("Truncated file: " + channel.size() + " bytes, expected at least " + (position + size));
+		return channel.map(mode, position, size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	static long readDoubles(FileChannel channel, long position, double[] values) throws IOException
+	{
+		for (int done = 0, n; done < values.length; done += n, position += (long) n * Double.BYTES)
+		{
+			n = Math.min(values.length - done, MaxChunkSize / Double.BYTES);
+			map(channel, FileChannel.MapMode.READ_ONLY, position, (long) n * Double.BYTES).asDoubleBuffer().get(values, done, n);
+		}
+		return position;
+	}
+
+	static long readInts(FileChannel channel, long position, int[] values) throws IOException
+	{
+		for (int done = 0, n; done < values.length; done += n, position += (long) n * Integer.BYTES)
+		{
+			n = Math.min(values.length - done, MaxChunkSize / Integer.BYTES);
+			map(channel, FileChannel.MapMode.READ_ONLY, position, (long) n * Integer.BYTES).asIntBuffer().get(values, done, n);
+		}
+		return position;
+	}
+
+	static long writeDoubles(FileChannel channel, long position, double[] values) throws IOException
+	{
+		for (int done = 0, n; done < values.length; done += n, position += (long) n * Double.BYTES)
+		{
+			n = Math.min(values.length - done, MaxChunkSize / Double.BYTES);
+			map(channel, FileChannel.MapMode.READ_WRITE, position, (long) n * Double.BYTES).asDoubleBuffer().put(values, done, n);
+		}
+		return position;
+	}
+
+	static long writeInts(FileChannel channel, long position, int[] values) throws IOException
+	{
+		for (int done = 0, n; done < values.length; done += n, position += (long) n * Integer.BYTES)
+		{
+			n = Math.min(values.length - done, MaxChunkSize / Integer.BYTES);
+			map(channel, FileChannel.MapMode.READ_WRITE, position, (long) n * Integer.BYTES).asIntBuffer().put(values, done, n);
+		}
+		return position;
+	}
+}
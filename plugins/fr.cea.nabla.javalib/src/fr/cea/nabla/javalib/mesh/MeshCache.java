@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ */
+package fr.cea.nabla.javalib.mesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Binary file of named int and double arrays describing a built mesh,
+ * read and written through memory mapped windows.
+ * Little endian layout, shared with the C++ nablalib:
+ * magic, version, key, number of arrays, then for each array its name,
+ * its type ('I' or 'D'), its length and its values aligned on 8 bytes.
+ * The key identifies the mesh parameters: a file with another key is ignored.
+ */
+public class MeshCache
+{
+	private static final long Magic = 0x48534d414c42414eL; // "NABLAMSH" in little endian
+	private static final int Version = 1;
+
+	private final Map<String, int[]> ints = new LinkedHashMap<>();
+	private final Map<String, double[]> doubles = new LinkedHashMap<>();
+
+	public void put(String name, int[] values)
+	{
+		if (values != null) ints.put(name, values);
+	}
+
+	public void put(String name, double[] values)
+	{
+		if (values != null) doubles.put(name, values);
+	}
+
+	/** Returns the array, null if absent */
+	public int[] getInts(String name) { return ints.get(name); }
+
+	/** Returns the array, null if absent */
+	public double[] getDoubles(String name) { return doubles.get(name); }
+
+	/** Returns the cache file of the key in directory, the key being a valid file name */
+	public static Path getFile(String directory, String key)
+	{
+		return Path.of(directory, key + ".bin");
+	}
+
+	/**
+	 * Returns the arrays of the file, null if the file does not exist,
+	 * has another key or another version.
+	 */
+	public static MeshCache read(Path file, String key)
+	{
+		if (!Files.isRegularFile(file)) return null;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			final ByteBuffer header = MappedArrays.map(channel, FileChannel.MapMode.READ_ONLY, 0, Long.BYTES + Integer.BYTES);
+			if (header.getLong() != Magic || header.getInt() != Version)
+				return null;
+			long position = Long.BYTES + Integer.BYTES;
+			final String fileKey = getString(channel, position);
+			if (!key.equals(fileKey))
+				return null;
+			position += stringSize(fileKey);
+			final int nbArrays = MappedArrays.map(channel, FileChannel.MapMode.READ_ONLY, position, Integer.BYTES).getInt();
+			position += Integer.BYTES;
+
+			final MeshCache cache = new MeshCache();
+			for (int i = 0; i < nbArrays; i++)
+			{
+				final String name = getString(channel, position);
+				final ByteBuffer arrayHeader = MappedArrays.map(channel, FileChannel.MapMode.READ_ONLY, position + stringSize(name), 1 + Integer.BYTES);
+				final byte type = arrayHeader.get();
+				final int length = arrayHeader.getInt();
+				position = alignedSize(position + headerSize(name));
+				if (type == 'I')
+				{
+					final int[] values = new int[length];
+					position = MappedArrays.readInts(channel, position, values);
+					cache.ints.put(name, values);
+				}
+				else if (type == 'D')
+				{
+					final double[] values = new double[length];
+					position = MappedArrays.readDoubles(channel, position, values);
+					cache.doubles.put(name, values);
+				}
+				else
+					throw new RuntimeException("Unknown array type in mesh cache " + file + ": " + type);
+			}
+			return cache;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			// truncated or corrupted file: the mesh is built again
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the arrays into a temporary file of the same directory,
+	 * then moves it to file: concurrent runs never read a partial file.
+	 * Arrays are written by chunks: the file can be larger than 2GB.
+	 */
+	public void write(Path file, String key)
+	{
+		try
+		{
+			final Path directory = file.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			final Path tmpFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+			try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.READ, StandardOpenOption.WRITE))
+			{
+				final int headerSize = Long.BYTES + Integer.BYTES + stringSize(key) + Integer.BYTES;
+				final ByteBuffer header = MappedArrays.map(channel, FileChannel.MapMode.READ_WRITE, 0, headerSize);
+				header.putLong(Magic);
+				header.putInt(Version);
+				putString(header, key);
+				header.putInt(ints.size() + doubles.size());
+				long position = headerSize;
+				for (Map.Entry<String, int[]> e : ints.entrySet())
+				{
+					position = putHeader(channel, position, e.getKey(), 'I', e.getValue().length);
+					position = MappedArrays.writeInts(channel, position, e.getValue());
+				}
+				for (Map.Entry<String, double[]> e : doubles.entrySet())
+				{
+					position = putHeader(channel, position, e.getKey(), 'D', e.getValue().length);
+					position = MappedArrays.writeDoubles(channel, position, e.getValue());
+				}
+				channel.force(true);
+			}
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException("Unable to write mesh cache " + file + ": " + e.getMessage(), e);
+		}
+	}
+
+	private static int stringSize(String s)
+	{
+		return Integer.BYTES + s.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	private static int headerSize(String name)
+	{
+		return stringSize(name) + 1 + Integer.BYTES;
+	}
+
+	private static long alignedSize(long size)
+	{
+		return (size + 7) & ~7L;
+	}
+
+	/** Writes the header of an array at position, returns the aligned position of its values */
+	private static long putHeader(FileChannel channel, long position, String name, char type, int length) throws IOException
+	{
+		final long valuesPosition = alignedSize(position + headerSize(name));
+		final ByteBuffer buffer = MappedArrays.map(channel, FileChannel.MapMode.READ_WRITE, position, valuesPosition - position);
+		putString(buffer, name);
+		buffer.put((byte) type);
+		buffer.putInt(length);
+		return valuesPosition;
+	}
+
+	private static void putString(ByteBuffer buffer, String s)
+	{
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static String getString(FileChannel channel, long position) throws IOException
+	{
+		final int length = MappedArrays.map(channel, FileChannel.MapMode.READ_ONLY, position, Integer.BYTES).getInt();
+		if (length < 0) throw new IOException("Invalid string length in mesh cache: " + length);
+		final byte[] bytes = new byte[length];
+		MappedArrays.map(channel, FileChannel.MapMode.READ_ONLY, position + Integer.BYTES, length).get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -9,47 +9,189 @@
  */
 package fr.cea.nabla.javalib.mesh;
 
+/**
+ * Nodes coordinates and, for explicit geometries, edge and cell objects.
+ * Coordinates are interleaved in a flat array: x0, y0, x1, y1...
+ * Implicit geometries have no per-item object: nodes of cells are computed
+ * on the fly by a function, e.g. by index arithmetic for cartesian meshes.
+ */
 public class MeshGeometry 
 {
-	private  double[][] nodes;
+	public static final int Dimension = 2;
+
+	private  double[] coordinates;
 	private  Edge[] edges;
-	private  Quad[] quads;
+	private  NodeIdContainer[] cells;
+	// implicit geometry: no edge and cell objects
+	private  int nbEdges;
+	private  int nbCells;
+	private  int maxNbNodesOfCell;
+	private  CsrConnectivity.ItemElems nodesOfCell;
+	// original ids of renumbered items: originalNodeIds[nodeId], null if not renumbered
+	private  int[] originalNodeIds;
+	private  int[] originalCellIds;
 
-	public MeshGeometry( double[][] nodes,  Edge[] edges,  Quad[] quads) {
-		this.nodes = nodes;
+	public MeshGeometry( double[] coordinates,  Edge[] edges,  NodeIdContainer[] cells) {
+		this.coordinates = coordinates;
 		this.edges = edges;
-		this.quads = quads;
+		this.cells = cells;
+		this.nbEdges = edges.length;
+		this.nbCells = cells.length;
+	}
+
+	public MeshGeometry( double[] coordinates,  int nbEdges,  int nbCells,  int maxNbNodesOfCell,  CsrConnectivity.ItemElems nodesOfCell) {
+		this.coordinates = coordinates;
+		this.nbEdges = nbEdges;
+		this.nbCells = nbCells;
+		this.maxNbNodesOfCell = maxNbNodesOfCell;
+		this.nodesOfCell = nodesOfCell;
+	}
+
+	public boolean isImplicit()
+	{
+		return this.cells == null;
+	}
+
+	public int getNbNodes()
+	{
+		return this.coordinates.length / Dimension;
+	}
+
+	/** Interleaved node coordinates: x of node r is coordinates[2*r], y is coordinates[2*r+1] */
+	public double[] getCoordinates()
+	{
+		return this.coordinates;
 	}
 
+	public double getX(int nodeId)
+	{
+		return this.coordinates[Dimension * nodeId];
+	}
+
+	public double getY(int nodeId)
+	{
+		return this.coordinates[Dimension * nodeId + 1];
+	}
+
+	/** Copy of the coordinates with one array per node: prefer getCoordinates() */
 	public double[][] getNodes() 
 	{
-		return this.nodes;
+		return toNodes(this.coordinates);
+	}
+
+	public static double[][] toNodes(double[] coordinates)
+	{
+		final double[][] nodes = new double[coordinates.length / Dimension][];
+		for (int r = 0; r < nodes.length; r++)
+			nodes[r] = new double[] { coordinates[Dimension * r], coordinates[Dimension * r + 1] };
+		return nodes;
+	}
+
+	public static double[] toCoordinates(double[][] nodes)
+	{
+		final double[] coordinates = new double[Dimension * nodes.length];
+		for (int r = 0; r < nodes.length; r++)
+		{
+			coordinates[Dimension * r] = nodes[r][0];
+			coordinates[Dimension * r + 1] = nodes[r][1];
+		}
+		return coordinates;
 	}
 
 	public Edge[] getEdges() 
 	{
+		if (isImplicit())
+			throw new RuntimeException("Implicit mesh geometry has no edge objects: use getNbEdges()");
 		return this.edges;
 	}
 
+	public NodeIdContainer[] getCells() 
+	{
+		if (isImplicit())
+			throw new RuntimeException("Implicit mesh geometry has no cell objects: use getNodesOfCell(cellId, buffer)");
+		return this.cells;
+	}
+
 	public Quad[] getQuads() 
 	{
-		return this.quads;
+		if (isImplicit())
+			throw new RuntimeException("Implicit mesh geometry has no cell objects: use getNodesOfCell(cellId, buffer)");
+		if (cells instanceof Quad[])
+			return (Quad[]) this.cells;
+		else
+			throw new RuntimeException("Mesh cells are not quadrangles: use getCells()");
+	}
+
+	public int getNbEdges()
+	{
+		return this.nbEdges;
+	}
+
+	public int getNbCells()
+	{
+		return this.nbCells;
+	}
+
+	public int getMaxNbNodesOfCell()
+	{
+		if (isImplicit())
+			return this.maxNbNodesOfCell;
+		int max = 0;
+		for (NodeIdContainer cell : cells)
+			max = Math.max(max, cell.getNodeIds().length);
+		return max;
+	}
+
+	/** Fills buffer with the nodes of the cell and returns their number, explicit or implicit geometry */
+	public int getNodesOfCell(int cellId, int[] buffer)
+	{
+		if (isImplicit())
+			return nodesOfCell.fill(cellId, buffer);
+		final int[] nodeIds = cells[cellId].getNodeIds();
+		System.arraycopy(nodeIds, 0, buffer, 0, nodeIds.length);
+		return nodeIds.length;
+	}
+
+	public boolean isRenumbered()
+	{
+		return this.originalNodeIds != null;
+	}
+
+	public int[] getOriginalNodeIds()
+	{
+		return this.originalNodeIds;
+	}
+
+	public int[] getOriginalCellIds()
+	{
+		return this.originalCellIds;
+	}
+
+	public void setOriginalIds(int[] originalNodeIds, int[] originalCellIds)
+	{
+		this.originalNodeIds = originalNodeIds;
+		this.originalCellIds = originalCellIds;
 	}
 
 	public void dump()
 	{
 		System.out.println("Mesh Geometry");
+		if (isImplicit())
+		{
+			System.out.println("  implicit: " + getNbNodes() + " nodes, " + nbEdges + " edges, " + nbCells + " cells");
+			return;
+		}
 		String nodesList = "";
 		String edgesList = "";
-		String quadsList = "";
-		for (int i = 0; i < nodes.length; i++)
-			nodesList += nodes[i].toString() + (i < nodes.length-1 ? ", " : "");
-		System.out.println("  nodes (" + nodes.length + ") : " + nodesList);
+		String cellsList = "";
+		for (int i = 0; i < getNbNodes(); i++)
+			nodesList += "[" + getX(i) + "," + getY(i) + "]" + (i < getNbNodes()-1 ? ", " : "");
+		System.out.println("  nodes (" + getNbNodes() + ") : " + nodesList);
 		for (int i = 0; i < edges.length; i++)
 			edgesList += edges[i].toString() + (i < edges.length-1 ? ", " : "");
 		System.out.println("  edges (" + edges.length + ") : " + edgesList);
-		for (int i = 0; i < quads.length; i++)
-			quadsList += quads[i].toString() + (i < quads.length-1 ? ", " : "");
-		System.out.println("  quads (" + quads.length + ") : " + quadsList);
+		for (int i = 0; i < cells.length; i++)
+			cellsList += cells[i].toString() + (i < cells.length-1 ? ", " : "");
+		System.out.println("  cells (" + cells.length + ") : " + cellsList);
 	}
 }
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ */
+package fr.cea.nabla.javalib.mesh;
+
+import java.util.function.IntConsumer;
+
+import fr.cea.nabla.javalib.WorkerPool;
+
+/**
+ * Split of a mesh into nbParts subdomains for the threads of a shared memory.
+ *
+ * Subdomain p owns a contiguous range of the ids of each item type:
+ * [begin(p, nbParts, nbItems), begin(p+1, nbParts, nbItems)).
+ * Ranges are spatially compact when the mesh numbering is: see the
+ * renumbering option of the meshes.
+ *
+ * Loops run with parallelFor give chunk p to worker p, so that each worker
+ * always works on the same subdomain. Threads read the items of the other
+ * subdomains in the shared arrays: there are no ghost items.
+ */
+public class MeshPartition
+{
+	/** Default number of subdomains, overridden by the nabla.subdomains system property */
+	public static final String NbSubdomainsProperty = "nabla.subdomains";
+
+	public static class Subdomain
+	{
+		private final int id;
+		private final int cellBegin, cellEnd;
+		private final int nodeBegin, nodeEnd;
+		private final int faceBegin, faceEnd;
+
+		Subdomain(int id, int cellBegin, int cellEnd, int nodeBegin, int nodeEnd, int faceBegin, int faceEnd)
+		{
+			this.id = id;
+			this.cellBegin = cellBegin;
+			this.cellEnd = cellEnd;
+			this.nodeBegin = nodeBegin;
+			this.nodeEnd = nodeEnd;
+			this.faceBegin = faceBegin;
+			this.faceEnd = faceEnd;
+		}
+
+		public int getId() { return id; }
+
+		public int getCellBegin() { return cellBegin; }
+		public int getCellEnd() { return cellEnd; }
+		public int getNbOwnedCells() { return cellEnd - cellBegin; }
+		public boolean ownsCell(int cellId) { return cellId >= cellBegin && cellId < cellEnd; }
+
+		public int getNodeBegin() { return nodeBegin; }
+		public int getNodeEnd() { return nodeEnd; }
+		public int getNbOwnedNodes() { return nodeEnd - nodeBegin; }
+		public boolean ownsNode(int nodeId) { return nodeId >= nodeBegin && nodeId < nodeEnd; }
+
+		public int getFaceBegin() { return faceBegin; }
+		public int getFaceEnd() { return faceEnd; }
+		public int getNbOwnedFaces() { return faceEnd - faceBegin; }
+		public boolean ownsFace(int faceId) { return faceId >= faceBegin && faceId < faceEnd; }
+	}
+
+	private final Subdomain[] subdomains;
+	private final WorkerPool pool;
+
+	public MeshPartition(int nbNodes, int nbCells, int nbFaces, int nbParts)
+	{
+		if (nbParts < 1 || nbParts > Math.max(1, nbCells))
+			throw new RuntimeException("Invalid number of subdomains: " + nbParts + " for " + nbCells + " cells");
+
+		this.subdomains = new Subdomain[nbParts];
+		this.pool = WorkerPool.get(nbParts);
+		for (int p = 0; p < nbParts; p++)
+			subdomains[p] = new Subdomain(p, begin(p, nbParts, nbCells), begin(p + 1, nbParts, nbCells),
+				begin(p, nbParts, nbNodes), begin(p + 1, nbParts, nbNodes), begin(p, nbParts, nbFaces), begin(p + 1, nbParts, nbFaces));
+	}
+
+	/** Partition with the default number of subdomains */
+	public static MeshPartition create(int nbNodes, int nbCells, int nbFaces)
+	{
+		final int nbParts = Math.min(getDefaultNbSubdomains(), Math.max(1, nbCells));
+		return new MeshPartition(nbNodes, nbCells, nbFaces, nbParts);
+	}
+
+	public static int getDefaultNbSubdomains()
+	{
+		return Integer.getInteger(NbSubdomainsProperty, Runtime.getRuntime().availableProcessors());
+	}
+
+	/** First item of part p when nbItems items are split into nbParts contiguous balanced parts */
+	public static int begin(int p, int nbParts, int nbItems)
+	{
+		return (int) ((long) nbItems * p / nbParts);
+	}
+
+	public int getNbSubdomains() { return subdomains.length; }
+	public Subdomain getSubdomain(int p) { return subdomains[p]; }
+	public Subdomain[] getSubdomains() { return subdomains; }
+
+	/** Subdomain owning a cell */
+	public int getCellOwner(int cellId)
+	{
+		int p = (int) (((long) cellId * subdomains.length) / Math.max(1, subdomains[subdomains.length - 1].cellEnd));
+		while (cellId < subdomains[p].cellBegin) p--;
+		while (cellId >= subdomains[p].cellEnd) p++;
+		return p;
+	}
+
+	/**
+	 * Executes action on each element of [0, nbElems), worker p taking chunk p.
+	 * With nbElems equal to the number of cells (resp. nodes, faces),
+	 * worker p works on the cells (resp. nodes, faces) owned by subdomain p.
+	 */
+	public void parallelFor(int nbElems, IntConsumer action)
+	{
+		final int nbParts = subdomains.length;
+		pool.run(p ->
+		{
+			for (int i = begin(p, nbParts, nbElems), e = begin(p + 1, nbParts, nbElems); i < e; i++)
+				action.accept(i);
+		});
+	}
+}
@@ -9,6 +9,7 @@
  */
 package fr.cea.nabla.javalib.mesh;
 
+import fr.cea.nabla.javalib.ChunkedDoubleArray;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
@@ -28,6 +29,14 @@ public class PvdFileWriter2D
 	private State state;
 	private Logger logger;
 
+	// Renumbered mesh: items are written in their original order.
+	// Values of the current array are stored by original id until the array is closed.
+	private int[] originalNodeIds;
+	private int[] originalCellIds;
+	private int[] arrayOriginalIds;
+	private String[] arrayValues;
+	private int arrayItem;
+
 	public PvdFileWriter2D(final String moduleName, final String directoryName)
 	{
 		this.fileNameByTimes = new LinkedHashMap<Double, String>();
@@ -58,9 +67,65 @@ public class PvdFileWriter2D
 		return directoryName;
 	}
 
-	public void startVtpFile(final int iteration, final double time, final double[][] nodes, final Quad[] cells) throws FileNotFoundException
+	/**
+	 * If the mesh has been renumbered, nodes, cells and data arrays are written
+	 * in the original order. Data arrays must then be written with one write call per item.
+	 * Connectivity of implicit geometries is written from their nodes of cell function.
+	 * Coordinates are interleaved: x0, y0, x1, y1...
+	 */
+	public void startVtpFile(final int iteration, final double time, final double[] coordinates, final MeshGeometry geometry) throws FileNotFoundException
 	{
 		if (isDisabled()) return;
+		if (!geometry.isRenumbered())
+		{
+			startVtpFile(iteration, time, coordinates, geometry.getNbCells(), geometry.getMaxNbNodesOfCell(), geometry::getNodesOfCell);
+			return;
+		}
+
+		final int[] nodeIds = geometry.getOriginalNodeIds();
+		final int[] cellIds = geometry.getOriginalCellIds();
+		final int[] cellIdsOfOriginal = SpaceFillingCurve.inverse(cellIds);
+		final double[] originalCoordinates = new double[coordinates.length];
+		for (int r=0 ; r<nodeIds.length ; ++r)
+		{
+			originalCoordinates[2*nodeIds[r]] = coordinates[2*r];
+			originalCoordinates[2*nodeIds[r]+1] = coordinates[2*r+1];
+		}
+		startVtpFile(iteration, time, originalCoordinates, cellIds.length, geometry.getMaxNbNodesOfCell(), (originalCellId, cellNodes) ->
+		{
+			final int nbCellNodes = geometry.getNodesOfCell(cellIdsOfOriginal[originalCellId], cellNodes);
+			for (int k=0 ; k<nbCellNodes ; ++k)
+				cellNodes[k] = nodeIds[cellNodes[k]];
+			return nbCellNodes;
+		});
+		originalNodeIds = nodeIds;
+		originalCellIds = cellIds;
+	}
+
+	public void startVtpFile(final int iteration, final double time, final double[][] nodes, final MeshGeometry geometry) throws FileNotFoundException
+	{
+		if (isDisabled()) return;
+		startVtpFile(iteration, time, MeshGeometry.toCoordinates(nodes), geometry);
+	}
+
+	public void startVtpFile(final int iteration, final double time, final double[][] nodes, final NodeIdContainer[] cells) throws FileNotFoundException
+	{
+		if (isDisabled()) return;
+		int maxNbNodesOfCell = 0;
+		for (NodeIdContainer cell : cells)
+			maxNbNodesOfCell = Math.max(maxNbNodesOfCell, cell.getNodeIds().length);
+		startVtpFile(iteration, time, MeshGeometry.toCoordinates(nodes), cells.length, maxNbNodesOfCell, (cellId, cellNodes) ->
+		{
+			final int[] nodeIds = cells[cellId].getNodeIds();
+			System.arraycopy(nodeIds, 0, cellNodes, 0, nodeIds.length);
+			return nodeIds.length;
+		});
+	}
+
+	private void startVtpFile(final int iteration, final double time, final double[] coordinates, final int nbCells, final int maxNbNodesOfCell, final CsrConnectivity.ItemElems nodesOfCell) throws FileNotFoundException
+	{
+		originalNodeIds = null;
+		originalCellIds = null;
 		changeState(State.closed, State.ready);
 
 		final String fileName = moduleName + "." + iteration + ".vtp";
@@ -75,27 +140,32 @@ public class PvdFileWriter2D
 		vtpWriter.println("<?xml version=\"1.0\"?>");
 		vtpWriter.println("<VTKFile type=\"PolyData\">");
 		vtpWriter.println("	<PolyData>");
-		vtpWriter.println("		<Piece NumberOfPoints=\"" + nodes.length + "\" NumberOfPolys=\"" + cells.length + "\">");
+		vtpWriter.println("		<Piece NumberOfPoints=\"" + coordinates.length / 2 + "\" NumberOfPolys=\"" + nbCells + "\">");
 		vtpWriter.println("			<Points>");
 		vtpWriter.println("				<DataArray type=\"Float32\" NumberOfComponents=\"3\" format=\"ascii\">");
-		for (int r=0 ; r<nodes.length ; ++r)
-			vtpWriter.print(" " + nodes[r][0] + " " + nodes[r][1] + " " + 0.0);
+		for (int r=0 ; r<coordinates.length/2 ; ++r)
+			vtpWriter.print(" " + coordinates[2*r] + " " + coordinates[2*r+1] + " " + 0.0);
 		vtpWriter.println();
 		vtpWriter.println("				</DataArray>");
 		vtpWriter.println("			</Points>");
 		vtpWriter.println("			<Polys>");
 		vtpWriter.println("				<DataArray type=\"Int32\" Name=\"connectivity\" format=\"ascii\">");
-		for (int j=0 ; j<cells.length ; ++j)
+		final int[] cellNodes = new int[maxNbNodesOfCell];
+		for (int j=0 ; j<nbCells ; ++j)
 		{
 			vtpWriter.print(" ");
-			for (int nodeId : cells[j].getNodeIds())
-				vtpWriter.print(" " + nodeId);
+			for (int k=0, nbCellNodes=nodesOfCell.fill(j, cellNodes) ; k<nbCellNodes ; ++k)
+				vtpWriter.print(" " + cellNodes[k]);
 		}
 		vtpWriter.println();
 		vtpWriter.println("				</DataArray>");
 		vtpWriter.println("				<DataArray type=\"Int32\" Name=\"offsets\" format=\"ascii\">");
-		for (int j=1 ; j<=cells.length ; ++j)
-			vtpWriter.print(" " + j * 4);
+		int offset = 0;
+		for (int j=0 ; j<nbCells ; ++j)
+		{
+			offset += nodesOfCell.fill(j, cellNodes);
+			vtpWriter.print(" " + offset);
+		}
 		vtpWriter.println();
 		vtpWriter.println("				</DataArray>");
 		vtpWriter.println("			</Polys>");
@@ -119,6 +189,7 @@ public class PvdFileWriter2D
 	{
 		if (isDisabled()) return;
 		changeState(State.onNodes, State.onNodeArray);
+		startArray(originalNodeIds);
 		vtpWriter.println("				<DataArray Name=\"" + name + "\" type=\"Float32\" NumberOfComponents=\"" + arraySize + "\" format=\"ascii\">");
 	}
 
@@ -126,6 +197,7 @@ public class PvdFileWriter2D
 	{
 		if (isDisabled()) return;
 		changeState(State.onCells, State.onCellArray);
+		startArray(originalCellIds);
 		vtpWriter.println("				<DataArray Name=\"" + name + "\" type=\"Float32\" NumberOfComponents=\"" + arraySize + "\" format=\"ascii\">");
 	}
 
@@ -147,6 +219,7 @@ public class PvdFileWriter2D
 	{
 		if (isDisabled()) return;
 		changeState(State.onNodeArray, State.onNodes);
+		flushArray();
 		vtpWriter.println();
 		vtpWriter.println("				</DataArray>");
 	}
@@ -155,6 +228,7 @@ public class PvdFileWriter2D
 	{
 		if (isDisabled()) return;
 		changeState(State.onCellArray, State.onCells);
+		flushArray();
 		vtpWriter.println();
 		vtpWriter.println("				</DataArray>");
 	}
@@ -182,13 +256,77 @@ public class PvdFileWriter2D
 
 	public void write(final double data)
 	{
-		vtpWriter.print(" " + data);
+		if (arrayValues == null)
+			vtpWriter.print(" " + data);
+		else
+			arrayValues[arrayOriginalIds[arrayItem++]] = " " + data;
 	}
 
 	public void write(final double[] data)
 	{
-		for (int i=0 ; i<data.length ; ++i)
-			vtpWriter.print(" " + data[i]);
+		if (arrayValues == null)
+		{
+			for (int i=0 ; i<data.length ; ++i)
+				vtpWriter.print(" " + data[i]);
+		}
+		else
+		{
+			final StringBuilder values = new StringBuilder();
+			for (int i=0 ; i<data.length ; ++i)
+				values.append(" ").append(data[i]);
+			arrayValues[arrayOriginalIds[arrayItem++]] = values.toString();
+		}
+	}
+
+	/** Writes the length values of data from offset: block of a flat array */
+	public void write(final double[] data, final int offset, final int length)
+	{
+		if (arrayValues == null)
+		{
+			for (int i=offset ; i<offset+length ; ++i)
+				vtpWriter.print(" " + data[i]);
+		}
+		else
+		{
+			final StringBuilder values = new StringBuilder();
+			for (int i=offset ; i<offset+length ; ++i)
+				values.append(" ").append(data[i]);
+			arrayValues[arrayOriginalIds[arrayItem++]] = values.toString();
+		}
+	}
+
+	/** Writes the length values of data from offset: block of a chunked array */
+	public void write(final ChunkedDoubleArray data, final long offset, final int length)
+	{
+		if (arrayValues == null)
+		{
+			for (long i=offset ; i<offset+length ; ++i)
+				vtpWriter.print(" " + data.get(i));
+		}
+		else
+		{
+			final StringBuilder values = new StringBuilder();
+			for (long i=offset ; i<offset+length ; ++i)
+				values.append(" ").append(data.get(i));
+			arrayValues[arrayOriginalIds[arrayItem++]] = values.toString();
+		}
+	}
+
+	private void startArray(final int[] originalIds)
+	{
+		arrayOriginalIds = originalIds;
+		arrayValues = (originalIds == null ? null : new String[originalIds.length]);
+		arrayItem = 0;
+	}
+
+	private void flushArray()
+	{
+		if (arrayValues == null) return;
+		if (arrayItem != arrayValues.length)
+			throw new RuntimeException("Unexpected number of written items: " + arrayItem + " (expected " + arrayValues.length + ")");
+		for (String values : arrayValues)
+			vtpWriter.print(values);
+		arrayValues = null;
 	}
 
 	private void changeState(final State expectedState, final State newState)
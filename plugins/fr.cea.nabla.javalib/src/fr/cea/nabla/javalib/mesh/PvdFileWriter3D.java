@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ */
+package fr.cea.nabla.javalib.mesh;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class PvdFileWriter3D
+{
+	enum State { closed, ready, onNodes, nodesFinished, onCells, cellsFinished, onNodeArray, onCellArray };
+
+	private static final int VtkHexahedron = 12;
+
+	private PrintWriter vtuWriter;
+	private LinkedHashMap<Double, String> fileNameByTimes;
+	private String moduleName;
+	private String directoryName;
+	private State state;
+	private Logger logger;
+
+	public PvdFileWriter3D(final String moduleName, final String directoryName)
+	{
+		this.fileNameByTimes = new LinkedHashMap<Double, String>();
+		this.moduleName = moduleName;
+		this.directoryName = directoryName;
+		this.state = State.closed;
+
+		if (!isDisabled())
+		{
+			File outputDir = new File(directoryName);
+			if (!outputDir.exists())
+				outputDir.mkdir();
+		}
+	}
+
+	public void setLogger(Logger value)
+	{
+		this.logger = value;
+	}
+
+	public boolean isDisabled()
+	{
+		return (directoryName == null || directoryName.isEmpty());
+	}
+
+	public String getOutputDirectory()
+	{
+		return directoryName;
+	}
+
+	public void startVtuFile(final int iteration, final double time, final double[][] nodes, final CartesianMesh3D mesh) throws FileNotFoundException
+	{
+		if (isDisabled()) return;
+		final double[] coordinates = new double[3 * nodes.length];
+		for (int r=0 ; r<nodes.length ; ++r)
+			System.arraycopy(nodes[r], 0, coordinates, 3*r, 3);
+		startVtuFile(iteration, time, coordinates, mesh);
+	}
+
+	/**
+	 * Hexahedra are written from the mesh index arithmetic:
+	 * no connectivity array is needed.
+	 * Coordinates are interleaved: x0, y0, z0, x1...
+	 */
+	public void startVtuFile(final int iteration, final double time, final double[] coordinates, final CartesianMesh3D mesh) throws FileNotFoundException
+	{
+		if (isDisabled()) return;
+		changeState(State.closed, State.ready);
+
+		final String fileName = moduleName + "." + iteration + ".vtu";
+		if (logger == null)
+			System.out.println("Writing vtu file: " + fileName);
+		else
+			logger.log(Level.INFO, "Writing vtu file: " + fileName);
+
+		final int nbCells = mesh.getNbCells();
+		fileNameByTimes.put(time, fileName);
+		vtuWriter = new PrintWriter(directoryName + "/" + fileName);
+
+		vtuWriter.println("<?xml version=\"1.0\"?>");
+		vtuWriter.println("<VTKFile type=\"UnstructuredGrid\">");
+		vtuWriter.println("	<UnstructuredGrid>");
+		vtuWriter.println("		<Piece NumberOfPoints=\"" + coordinates.length / 3 + "\" NumberOfCells=\"" + nbCells + "\">");
+		vtuWriter.println("			<Points>");
+		vtuWriter.println("				<DataArray type=\"Float32\" NumberOfComponents=\"3\" format=\"ascii\">");
+		for (int r=0 ; r<coordinates.length/3 ; ++r)
+			vtuWriter.print(" " + coordinates[3*r] + " " + coordinates[3*r+1] + " " + coordinates[3*r+2]);
+		vtuWriter.println();
+		vtuWriter.println("				</DataArray>");
+		vtuWriter.println("			</Points>");
+		vtuWriter.println("			<Cells>");
+		vtuWriter.println("				<DataArray type=\"Int32\" Name=\"connectivity\" format=\"ascii\">");
+		final int[] nodesOfCell = new int[CartesianMesh3D.MaxNbNodesOfCell];
+		for (int j=0 ; j<nbCells ; ++j)
+		{
+			mesh.getNodesOfCell(j, nodesOfCell);
+			vtuWriter.print(" ");
+			for (int nodeId : nodesOfCell)
+				vtuWriter.print(" " + nodeId);
+		}
+		vtuWriter.println();
+		vtuWriter.println("				</DataArray>");
+		vtuWriter.println("				<DataArray type=\"Int32\" Name=\"offsets\" format=\"ascii\">");
+		for (int j=1 ; j<=nbCells ; ++j)
+			vtuWriter.print(" " + j * CartesianMesh3D.MaxNbNodesOfCell);
+		vtuWriter.println();
+		vtuWriter.println("				</DataArray>");
+		vtuWriter.println("				<DataArray type=\"UInt8\" Name=\"types\" format=\"ascii\">");
+		for (int j=0 ; j<nbCells ; ++j)
+			vtuWriter.print(" " + VtkHexahedron);
+		vtuWriter.println();
+		vtuWriter.println("				</DataArray>");
+		vtuWriter.println("			</Cells>");
+	}
+
+	public void openNodeData()
+	{
+		if (isDisabled()) return;
+		changeState(State.ready, State.onNodes);
+		vtuWriter.println("			<PointData>");
+	}
+
+	public void openCellData()
+	{
+		if (isDisabled()) return;
+		changeState(State.nodesFinished, State.onCells);
+		vtuWriter.println("			<CellData>");
+	}
+
+	public void openNodeArray(final String name, final int arraySize)
+	{
+		if (isDisabled()) return;
+		changeState(State.onNodes, State.onNodeArray);
+		vtuWriter.println("				<DataArray Name=\"" + name + "\" type=\"Float32\" NumberOfComponents=\"" + arraySize + "\" format=\"ascii\">");
+	}
+
+	public void openCellArray(final String name, final int arraySize)
+	{
+		if (isDisabled()) return;
+		changeState(State.onCells, State.onCellArray);
+		vtuWriter.println("				<DataArray Name=\"" + name + "\" type=\"Float32\" NumberOfComponents=\"" + arraySize + "\" format=\"ascii\">");
+	}
+
+	public void closeNodeData()
+	{
+		if (isDisabled()) return;
+		changeState(State.onNodes, State.nodesFinished);
+		vtuWriter.println("			</PointData>");
+	}
+
+	public void closeCellData()
+	{
+		if (isDisabled()) return;
+		changeState(State.onCells, State.cellsFinished);
+		vtuWriter.println("			</CellData>");
+	}
+
+	public void closeNodeArray()
+	{
+		if (isDisabled()) return;
+		changeState(State.onNodeArray, State.onNodes);
+		vtuWriter.println();
+		vtuWriter.println("				</DataArray>");
+	}
+
+	public void closeCellArray()
+	{
+		if (isDisabled()) return;
+		changeState(State.onCellArray, State.onCells);
+		vtuWriter.println();
+		vtuWriter.println("				</DataArray>");
+	}
+
+	public void closeVtuFile() throws FileNotFoundException
+	{
+		if (isDisabled()) return;
+		changeState(State.cellsFinished, State.closed);
+		vtuWriter.println("		</Piece>");
+		vtuWriter.println("	</UnstructuredGrid>");
+		vtuWriter.println("</VTKFile>");
+		vtuWriter.close();
+
+		String fileName = directoryName + "/" + moduleName + ".pvd";
+		PrintWriter pvdWriter = new PrintWriter(fileName);
+		pvdWriter.println("<?xml version=\"1.0\"?>");
+		pvdWriter.println("<VTKFile type=\"Collection\" version=\"0.1\">");
+		pvdWriter.println("	<Collection>");
+		for (Map.Entry<Double, String> e : fileNameByTimes.entrySet())
+			pvdWriter.println("			<DataSet timestep=\"" + e.getKey() + "\" group=\"\" part=\"0\" file=\"" + e.getValue() + "\"/>");
+		pvdWriter.println("	</Collection>");
+		pvdWriter.println("</VTKFile>");
+		pvdWriter.close();
+	}
+
+	public void write(final double data)
+	{
+		vtuWriter.print(" " + data);
+	}
+
+	public void write(final double[] data)
+	{
+		for (int i=0 ; i<data.length ; ++i)
+			vtuWriter.print(" " + data[i]);
+	}
+
+	private void changeState(final State expectedState, final State newState)
+	{
+		if (state != expectedState)
+			throw new RuntimeException("Unexpected pvd file writer state. Expected: " + expectedState + ", but was: " + state);
+		state = newState;
+	}
+}
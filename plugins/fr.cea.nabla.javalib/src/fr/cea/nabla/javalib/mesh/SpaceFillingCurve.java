@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ */
+package fr.cea.nabla.javalib.mesh;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Orders of mesh items along a space filling curve.
+ * Items close in space get close ids: loops over items
+ * and their neighbours access memory with a better locality.
+ *
+ * Orders are permutations: order[newId] = oldId.
+ */
+public class SpaceFillingCurve
+{
+	public enum Curve { none, morton, hilbert };
+
+	/** Bits of a curve coordinate: keys fit in 32 bits, ids in the 31 remaining ones */
+	private static final int MaxBits = 16;
+
+	public static Curve parse(final String name)
+	{
+		try
+		{
+			return Curve.valueOf(name.toLowerCase());
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new RuntimeException("Unknown mesh renumbering: " + name + ". Expected one of " + Arrays.toString(Curve.values()));
+		}
+	}
+
+	/** Order of the items of a nbX x nbY grid, item (i, j) having id i + nbX * j */
+	public static int[] order(final Curve curve, final int nbX, final int nbY)
+	{
+		final int bits = bits(Math.max(nbX, nbY));
+		final int shift = Math.max(0, bits - MaxBits);
+		final int curveBits = bits - shift;
+		final long[] keys = new long[nbX * nbY];
+		IntStream.range(0, keys.length).parallel().forEach(id ->
+			keys[id] = key(curve, curveBits, (id % nbX) >> shift, (id / nbX) >> shift));
+		return sort(keys);
+	}
+
+	/** Order of points, their coordinates being quantized on the curve grid */
+	public static int[] order(final Curve curve, final double[][] points)
+	{
+		double xMin = Double.MAX_VALUE, yMin = Double.MAX_VALUE;
+		double xMax = -Double.MAX_VALUE, yMax = -Double.MAX_VALUE;
+		for (double[] p : points)
+		{
+			xMin = Math.min(xMin, p[0]); xMax = Math.max(xMax, p[0]);
+			yMin = Math.min(yMin, p[1]); yMax = Math.max(yMax, p[1]);
+		}
+		final int maxCoord = (1 << MaxBits) - 1;
+		final double x0 = xMin, y0 = yMin;
+		final double scale = maxCoord / Math.max(Math.max(xMax - xMin, yMax - yMin), Double.MIN_NORMAL);
+		final long[] keys = new long[points.length];
+		IntStream.range(0, keys.length).parallel().forEach(id ->
+		{
+			final int x = Math.min(maxCoord, (int) ((points[id][0] - x0) * scale));
+			final int y = Math.min(maxCoord, (int) ((points[id][1] - y0) * scale));
+			keys[id] = key(curve, MaxBits, x, y);
+		});
+		return sort(keys);
+	}
+
+	/** Inverse permutation: inverse[oldId] = newId */
+	public static int[] inverse(final int[] order)
+	{
+		final int[] inverse = new int[order.length];
+		for (int newId = 0; newId < order.length; newId++)
+			inverse[order[newId]] = newId;
+		return inverse;
+	}
+
+	/** Position of (x, y) on the curve covering a 2^bits x 2^bits grid */
+	public static long key(final Curve curve, final int bits, final int x, final int y)
+	{
+		switch (curve)
+		{
+			case morton: return mortonKey(x, y);
+			case hilbert: return hilbertKey(bits, x, y);
+			default: throw new RuntimeException("No key for curve: " + curve);
+		}
+	}
+
+	public static long mortonKey(final int x, final int y)
+	{
+		return spread(x) | (spread(y) << 1);
+	}
+
+	public static long hilbertKey(final int bits, int x, int y)
+	{
+		final int n = 1 << bits;
+		long d = 0;
+		for (int s = n / 2; s > 0; s /= 2)
+		{
+			final int rx = (x & s) > 0 ? 1 : 0;
+			final int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			// rotate the quadrant
+			if (ry == 0)
+			{
+				if (rx == 1)
+				{
+					x = n - 1 - x;
+					y = n - 1 - y;
+				}
+				final int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+	/** Ids sorted by key, ties broken by id */
+	private static int[] sort(final long[] keys)
+	{
+		final long[] packed = new long[keys.length];
+		IntStream.range(0, keys.length).parallel().forEach(id -> packed[id] = (keys[id] << 31) | id);
+		Arrays.parallelSort(packed);
+		final int[] order = new int[keys.length];
+		IntStream.range(0, keys.length).parallel().forEach(k -> order[k] = (int) (packed[k] & Integer.MAX_VALUE));
+		return order;
+	}
+
+	/** Inserts a zero bit between the 16 lower bits of v */
+	private static long spread(final int v)
+	{
+		long x = v & 0xffffL;
+		x = (x | (x << 8)) & 0x00ff00ffL;
+		x = (x | (x << 4)) & 0x0f0f0f0fL;
+		x = (x | (x << 2)) & 0x33333333L;
+		x = (x | (x << 1)) & 0x55555555L;
+		return x;
+	}
+
+	/** Number of bits of the smallest power of 2 greater or equal to n */
+	private static int bits(final int n)
+	{
+		return n <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(n - 1);
+	}
+}
@@ -0,0 +1,439 @@
+/**
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ */
+package fr.cea.nabla.javalib.mesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Unstructured 2D mesh of polygons, read from a binary file.
+ *
+ * File format, little endian:
+ *   int magic, int version, int nbNodes, int nbCells, int nbCellNodes
+ *   double[2*nbNodes] node coordinates: x0, y0, x1, y1...
+ *   int[nbCells+1] cell offsets in cell nodes
+ *   int[nbCellNodes] node ids of cells, counterclockwise
+ *
+ * The file is read through memory mapping. Faces are the cell edges,
+ * built at load time. Nodes and cells can be renumbered along a space
+ * filling curve, cells by their centroid.
+ */
+public class UnstructuredMesh2D
+{
+	public static final int FileMagic = 0x4d4c424e; // "NBLM"
+	public static final int FileVersion = 1;
+	private static final int HeaderSize = 5 * Integer.BYTES;
+
+	public static final int MaxNbNodesOfFace = 2;
+	public static final int MaxNbCellsOfFace = 2;
+
+	private MeshGeometry geometry;
+
+	// maximum numbers of elements of the connectivities depending on the cells of the mesh
+	private int maxNbNodesOfCell;
+	private int maxNbCellsOfNode;
+
+	private int[] innerNodes;
+	private int[] outerNodes;
+	private int[] innerCells;
+	private int[] outerCells;
+	private int[] innerFaces;
+	private int[] outerFaces;
+
+	private CsrConnectivity nodesOfCell;
+	private CsrConnectivity nodesOfFace;
+	private CsrConnectivity facesOfCell;
+	private CsrConnectivity cellsOfNode;
+	private CsrConnectivity cellsOfFace;
+	private CsrConnectivity neighbourCells;
+
+	public UnstructuredMesh2D(double[] coordinates, int[] cellOffsets, int[] cellNodes)
+	{
+		create(coordinates, cellOffsets, cellNodes);
+	}
+
+	public UnstructuredMesh2D(double[] coordinates, int[] cellOffsets, int[] cellNodes, SpaceFillingCurve.Curve renumbering)
+	{
+		create(coordinates, cellOffsets, cellNodes, renumbering);
+	}
+
+	/** Constructor for Json creation */
+	public UnstructuredMesh2D() {}
+
+	public void jsonInit(final String jsonContent)
+	{
+		final JsonObject o = JsonParser.parseString(jsonContent).getAsJsonObject();
+		assert(o.has("fileName"));
+		final JsonElement valueof_fileName = o.get("fileName");
+		assert(valueof_fileName.isJsonPrimitive());
+		String fileName = valueof_fileName.getAsJsonPrimitive().getAsString();
+		// optional: "none" (default), "morton" or "hilbert"
+		SpaceFillingCurve.Curve renumbering = SpaceFillingCurve.Curve.none;
+		if (o.has("renumbering"))
+		{
+			final JsonElement valueof_renumbering = o.get("renumbering");
+			assert(valueof_renumbering.isJsonPrimitive());
+			renumbering = SpaceFillingCurve.parse(valueof_renumbering.getAsJsonPrimitive().getAsString());
+		}
+
+		read(fileName, renumbering);
+	}
+
+	public void read(String fileName)
+	{
+		read(fileName, SpaceFillingCurve.Curve.none);
+	}
+
+	public void read(String fileName, SpaceFillingCurve.Curve renumbering)
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ))
+		{
+			final ByteBuffer header = MappedArrays.map(channel, FileChannel.MapMode.READ_ONLY, 0, HeaderSize);
+			if (header.getInt() != FileMagic)
+				throw new RuntimeException("Not a mesh file: " + fileName);
+			final int version = header.getInt();
+			if (version != FileVersion)
+				throw new RuntimeException("Unsupported mesh file version: " + version + " (expected " + FileVersion + ")");
+			final int nbNodes = header.getInt();
+			final int nbCells = header.getInt();
+			final int nbCellNodes = header.getInt();
+
+			final long expectedSize = getFileSize(nbNodes, nbCells, nbCellNodes);
+			if (channel.size() < expectedSize)
+				throw new RuntimeException("Truncated mesh file: " + fileName + " (" + channel.size() + " bytes, expected " + expectedSize + ")");
+
+			final double[] coordinates = new double[2 * nbNodes];
+			final int[] cellOffsets = new int[nbCells + 1];
+			final int[] cellNodes = new int[nbCellNodes];
+			long position = HeaderSize;
+			position = MappedArrays.readDoubles(channel, position, coordinates);
+			position = MappedArrays.readInts(channel, position, cellOffsets);
+			MappedArrays.readInts(channel, position, cellNodes);
+
+			create(coordinates, cellOffsets, cellNodes, renumbering);
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException("Unable to read mesh file: " + fileName, e);
+		}
+	}
+
+	public static void write(String fileName, double[] coordinates, int[] cellOffsets, int[] cellNodes) throws IOException
+	{
+		final int nbNodes = coordinates.length / 2;
+		final int nbCells = cellOffsets.length - 1;
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			final ByteBuffer header = MappedArrays.map(channel, FileChannel.MapMode.READ_WRITE, 0, HeaderSize);
+			header.putInt(FileMagic).putInt(FileVersion).putInt(nbNodes).putInt(nbCells).putInt(cellNodes.length);
+			long position = HeaderSize;
+			position = MappedArrays.writeDoubles(channel, position, coordinates);
+			position = MappedArrays.writeInts(channel, position, cellOffsets);
+			MappedArrays.writeInts(channel, position, cellNodes);
+		}
+	}
+
+	public MeshGeometry getGeometry() { return geometry; }
+
+	public int getNbNodes() { return geometry.getNbNodes(); }
+	public int[] getNodes() { return IntStream.range(0, this.getNbNodes()).toArray(); }
+
+	public int getNbCells() { return geometry.getCells().length; }
+	public int[] getCells() { return IntStream.range(0, this.getNbCells()).toArray(); }
+
+	public int getMaxNbNodesOfCell() { return maxNbNodesOfCell; }
+	public int getMaxNbNodesOfFace() { return MaxNbNodesOfFace; }
+	public int getMaxNbCellsOfNode() { return maxNbCellsOfNode; }
+	public int getMaxNbCellsOfFace() { return MaxNbCellsOfFace; }
+	/** Faces of a cell are its edges */
+	public int getMaxNbFacesOfCell() { return maxNbNodesOfCell; }
+	/** A neighbour cell shares a face */
+	public int getMaxNbNeighbourCells() { return maxNbNodesOfCell; }
+
+	public int getNbFaces() { return geometry.getEdges().length; }
+	public int[] getFaces() { return IntStream.range(0, this.getNbFaces()).toArray(); }
+
+	public int getNbInnerNodes() { return innerNodes.length; }
+	public int[] getInnerNodes() { return innerNodes; }
+	public int getNbOuterNodes() { return outerNodes.length; }
+	public int[] getOuterNodes() { return outerNodes; }
+
+	public int getNbInnerCells() { return innerCells.length; }
+	public int[] getInnerCells() { return innerCells; }
+	public int getNbOuterCells() { return outerCells.length; }
+	public int[] getOuterCells() { return outerCells; }
+
+	public int getNbInnerFaces() { return innerFaces.length; }
+	public int[] getInnerFaces() { return innerFaces; }
+	public int getNbOuterFaces() { return outerFaces.length; }
+	public int[] getOuterFaces() { return outerFaces; }
+
+	public int[] getNodesOfCell(int cellId)
+	{
+		return nodesOfCell.getElems(cellId);
+	}
+
+	public int[] getNodesOfFace(int faceId)
+	{
+		return nodesOfFace.getElems(faceId);
+	}
+
+	public int getFirstNodeOfFace(int faceId)
+	{
+		return nodesOfFace.getElem(faceId, 0);
+	}
+
+	public int getSecondNodeOfFace(int faceId)
+	{
+		return nodesOfFace.getElem(faceId, 1);
+	}
+
+	public int[] getCellsOfNode(int nodeId)
+	{
+		return cellsOfNode.getElems(nodeId);
+	}
+
+	public int[] getCellsOfFace(int faceId)
+	{
+		return cellsOfFace.getElems(faceId);
+	}
+
+	public int[] getNeighbourCells(int cellId)
+	{
+		return neighbourCells.getElems(cellId);
+	}
+
+	public int[] getFacesOfCell(int cellId)
+	{
+		return facesOfCell.getElems(cellId);
+	}
+
+	public int getCommonFace(int cell1, int cell2)
+	{
+		for (int k1 = 0, n1 = facesOfCell.getNbElems(cell1); k1 < n1; k1++)
+		{
+			final int face = facesOfCell.getElem(cell1, k1);
+			if (facesOfCell.indexOf(cell2, face) != -1)
+				return face;
+		}
+		return -1;
+	}
+
+	public int getBackCell(int faceId)
+	{
+		if (cellsOfFace.getNbElems(faceId) < 2)
+			throw new RuntimeException("Error in getBackCell(" + faceId + "): please consider using this method with inner face only.");
+		else
+			return cellsOfFace.getElem(faceId, 0);
+	}
+
+	public int getFrontCell(int faceId)
+	{
+		if (cellsOfFace.getNbElems(faceId) < 2)
+			throw new RuntimeException("Error in getFrontCell(" + faceId + "): please consider using this method with inner face only.");
+		else
+			return cellsOfFace.getElem(faceId, 1);
+	}
+
+	/*
+	 * CSR connectivity tables, built once at mesh creation.
+	 * They give access to connectivities without any allocation.
+	 */
+	public CsrConnectivity getNodesOfCellConnectivity() { return nodesOfCell; }
+	public CsrConnectivity getNodesOfFaceConnectivity() { return nodesOfFace; }
+	public CsrConnectivity getFacesOfCellConnectivity() { return facesOfCell; }
+	public CsrConnectivity getCellsOfNodeConnectivity() { return cellsOfNode; }
+	public CsrConnectivity getCellsOfFaceConnectivity() { return cellsOfFace; }
+	public CsrConnectivity getNeighbourCellsConnectivity() { return neighbourCells; }
+
+	/*
+	 * Colourings for parallel scatter loops: items of a colour share no node,
+	 * or no cell for nodes. Computed on first access.
+	 */
+	public CsrConnectivity getCellColouring() { return nodesOfCell.getColouring(); }
+	public CsrConnectivity getFaceColouring() { return nodesOfFace.getColouring(); }
+	public CsrConnectivity getNodeColouring() { return cellsOfNode.getColouring(); }
+
+	private void create(double[] coordinates, int[] cellOffsets, int[] cellNodes, SpaceFillingCurve.Curve renumbering)
+	{
+		if (renumbering == SpaceFillingCurve.Curve.none)
+		{
+			create(coordinates, cellOffsets, cellNodes);
+			return;
+		}
+
+		final int nbNodes = coordinates.length / 2;
+		final int nbCells = cellOffsets.length - 1;
+		final double[][] points = new double[nbNodes][];
+		IntStream.range(0, nbNodes).parallel().forEach(r -> points[r] = new double[] { coordinates[2*r], coordinates[2*r+1] });
+		final double[][] centroids = new double[nbCells][];
+		IntStream.range(0, nbCells).parallel().forEach(c ->
+		{
+			final double[] centroid = new double[2];
+			for (int i = cellOffsets[c]; i < cellOffsets[c + 1]; i++)
+			{
+				centroid[0] += coordinates[2*cellNodes[i]];
+				centroid[1] += coordinates[2*cellNodes[i]+1];
+			}
+			centroid[0] /= (cellOffsets[c + 1] - cellOffsets[c]);
+			centroid[1] /= (cellOffsets[c + 1] - cellOffsets[c]);
+			centroids[c] = centroid;
+		});
+
+		final int[] originalNodeIds = SpaceFillingCurve.order(renumbering, points);
+		final int[] originalCellIds = SpaceFillingCurve.order(renumbering, centroids);
+		final int[] nodeIds = SpaceFillingCurve.inverse(originalNodeIds);
+		final double[] newCoordinates = new double[coordinates.length];
+		for (int r = 0; r < nbNodes; r++)
+		{
+			newCoordinates[2*r] = coordinates[2*originalNodeIds[r]];
+			newCoordinates[2*r+1] = coordinates[2*originalNodeIds[r]+1];
+		}
+		final CsrConnectivity cells = new CsrConnectivity(cellOffsets, cellNodes).permute(originalCellIds, nodeIds, false);
+
+		create(newCoordinates, cells.getOffsets(), cells.getValues());
+		geometry.setOriginalIds(originalNodeIds, originalCellIds);
+	}
+
+	private void create(double[] coordinates, int[] cellOffsets, int[] cellNodes)
+	{
+		final int nbNodes = coordinates.length / 2;
+		final int nbCells = cellOffsets.length - 1;
+
+		final Polygon[] polygons = new Polygon[nbCells];
+		IntStream.range(0, nbCells).parallel().forEach(c -> polygons[c] = new Polygon(Arrays.copyOfRange(cellNodes, cellOffsets[c], cellOffsets[c+1])));
+
+		nodesOfCell = new CsrConnectivity(cellOffsets, cellNodes);
+		maxNbNodesOfCell = IntStream.range(0, nbCells).map(nodesOfCell::getNbElems).max().orElse(0);
+
+		// cellsOfNode: cells are visited in increasing order, the table is sorted
+		maxNbCellsOfNode = 0;
+		final int[] cellsOfNodeOffsets = new int[nbNodes + 1];
+		for (int r : cellNodes) cellsOfNodeOffsets[r + 1]++;
+		for (int r = 0; r < nbNodes; r++)
+		{
+			maxNbCellsOfNode = Math.max(maxNbCellsOfNode, cellsOfNodeOffsets[r + 1]);
+			cellsOfNodeOffsets[r + 1] += cellsOfNodeOffsets[r];
+		}
+		final int[] cellsOfNodeValues = new int[cellNodes.length];
+		final int[] cursor = Arrays.copyOf(cellsOfNodeOffsets, nbNodes);
+		for (int c = 0; c < nbCells; c++)
+			for (int i = cellOffsets[c]; i < cellOffsets[c + 1]; i++)
+				cellsOfNodeValues[cursor[cellNodes[i]]++] = c;
+		cellsOfNode = new CsrConnectivity(cellsOfNodeOffsets, cellsOfNodeValues);
+
+		// Faces: half edges (one per cell node) are bucketed by their smallest node id.
+		// Two half edges of the same bucket with the same other node are the same face.
+		final int[] bucketOffsets = new int[nbNodes + 1];
+		for (int c = 0; c < nbCells; c++)
+			for (int i = cellOffsets[c]; i < cellOffsets[c + 1]; i++)
+				bucketOffsets[Math.min(cellNodes[i], cellNodes[nextInCell(cellOffsets, c, i)]) + 1]++;
+		for (int r = 0; r < nbNodes; r++)
+			bucketOffsets[r + 1] += bucketOffsets[r];
+		final int[] bucketHalfEdges = new int[cellNodes.length];
+		final int[] bucketCells = new int[cellNodes.length];
+		System.arraycopy(bucketOffsets, 0, cursor, 0, nbNodes);
+		for (int c = 0; c < nbCells; c++)
+			for (int i = cellOffsets[c]; i < cellOffsets[c + 1]; i++)
+			{
+				final int pos = cursor[Math.min(cellNodes[i], cellNodes[nextInCell(cellOffsets, c, i)])]++;
+				bucketHalfEdges[pos] = i;
+				bucketCells[pos] = c;
+			}
+
+		final int[] faceOfHalfEdge = new int[cellNodes.length];
+		final int[] faceNodes = new int[2 * cellNodes.length];
+		final int[] faceCells = new int[2 * cellNodes.length];
+		final int[] nbCellsOfFace = new int[cellNodes.length];
+		int nbFaces = 0;
+		for (int r = 0; r < nbNodes; r++)
+		{
+			final int firstFace = nbFaces;
+			for (int pos = bucketOffsets[r]; pos < bucketOffsets[r + 1]; pos++)
+			{
+				final int i = bucketHalfEdges[pos];
+				final int c = bucketCells[pos];
+				final int otherNode = Math.max(cellNodes[i], cellNodes[nextInCell(cellOffsets, c, i)]);
+				int f = firstFace;
+				while (f < nbFaces && Math.max(faceNodes[2*f], faceNodes[2*f+1]) != otherNode) f++;
+				if (f == nbFaces)
+				{
+					faceNodes[2*f] = cellNodes[i];
+					faceNodes[2*f+1] = cellNodes[nextInCell(cellOffsets, c, i)];
+					nbFaces++;
+				}
+				else if (nbCellsOfFace[f] == MaxNbCellsOfFace)
+					throw new RuntimeException("Non manifold mesh: more than " + MaxNbCellsOfFace + " cells on face " + f);
+				faceCells[2*f + nbCellsOfFace[f]++] = c;
+				faceOfHalfEdge[i] = f;
+			}
+		}
+
+		final Edge[] edges = new Edge[nbFaces];
+		IntStream.range(0, nbFaces).parallel().forEach(f -> edges[f] = new Edge(faceNodes[2*f], faceNodes[2*f+1]));
+		nodesOfFace = new CsrConnectivity(IntStream.rangeClosed(0, nbFaces).map(f -> 2*f).toArray(), Arrays.copyOf(faceNodes, 2*nbFaces));
+		cellsOfFace = CsrConnectivity.create(nbFaces, MaxNbCellsOfFace, false, (f, b) ->
+		{
+			for (int k = 0; k < nbCellsOfFace[f]; k++) b[k] = faceCells[2*f+k];
+			return nbCellsOfFace[f];
+		});
+		facesOfCell = new CsrConnectivity(cellOffsets, faceOfHalfEdge);
+		neighbourCells = CsrConnectivity.create(nbCells, getMaxNbNeighbourCells(), true, (c, b) ->
+		{
+			int nb = 0;
+			for (int i = cellOffsets[c]; i < cellOffsets[c + 1]; i++)
+			{
+				final int f = faceOfHalfEdge[i];
+				if (nbCellsOfFace[f] == 2)
+					b[nb++] = (faceCells[2*f] == c ? faceCells[2*f+1] : faceCells[2*f]);
+			}
+			return nb;
+		});
+
+		this.geometry = new MeshGeometry(coordinates, edges, polygons);
+
+		// boundary sets: outer faces have a single cell
+		final boolean[] isOuterNode = new boolean[nbNodes];
+		final boolean[] isOuterCell = new boolean[nbCells];
+		for (int f = 0; f < nbFaces; f++)
+			if (nbCellsOfFace[f] == 1)
+			{
+				isOuterNode[faceNodes[2*f]] = true;
+				isOuterNode[faceNodes[2*f+1]] = true;
+				isOuterCell[faceCells[2*f]] = true;
+			}
+		outerFaces = IntStream.range(0, nbFaces).filter(f -> nbCellsOfFace[f] == 1).toArray();
+		innerFaces = IntStream.range(0, nbFaces).filter(f -> nbCellsOfFace[f] != 1).toArray();
+		outerNodes = IntStream.range(0, nbNodes).filter(r -> isOuterNode[r]).toArray();
+		innerNodes = IntStream.range(0, nbNodes).filter(r -> !isOuterNode[r]).toArray();
+		outerCells = IntStream.range(0, nbCells).filter(c -> isOuterCell[c]).toArray();
+		innerCells = IntStream.range(0, nbCells).filter(c -> !isOuterCell[c]).toArray();
+	}
+
+	/** Index in cellNodes of the node following index i in cell c */
+	private static int nextInCell(int[] cellOffsets, int c, int i)
+	{
+		return (i + 1 < cellOffsets[c + 1] ? i + 1 : cellOffsets[c]);
+	}
+
+	private static long getFileSize(int nbNodes, int nbCells, int nbCellNodes)
+	{
+		return HeaderSize + 2L * nbNodes * Double.BYTES + (nbCells + 1L + nbCellNodes) * Integer.BYTES;
+	}
+}
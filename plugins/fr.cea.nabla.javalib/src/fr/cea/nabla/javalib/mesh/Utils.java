@@ -9,20 +9,27 @@
  */
 package fr.cea.nabla.javalib.mesh;
 
+import java.util.Arrays;
+
 public class Utils 
 {
+	/** Largest array size accepted by all JVMs: items ids are int */
+	public static final int MaxArraySize = Integer.MAX_VALUE - 8;
+
+	/** Returns size as an array size, exception if too large */
+	public static int arraySize(long size, String description)
+	{
+		if (size > MaxArraySize)
+			throw new RuntimeException("Too many " + description + " for a Java array: " + size + " (max " + MaxArraySize + ")");
+		return (int) size;
+	}
+
 	public static int indexOf( int[] array,  int value)
 	{
-		String arrayContent = "";
 		for (int i = 0; i < array.length; i++)
-		{
-			arrayContent += array[i];
-			if (i < array.length -1)
-				arrayContent += ",";
 			if (array[i] == value)
 				return i;
-		}
 
-		throw new RuntimeException("Value '" + value + "' not in array [" + arrayContent + "]");
+		throw new RuntimeException("Value '" + value + "' not in array " + Arrays.toString(array));
 	}
 }
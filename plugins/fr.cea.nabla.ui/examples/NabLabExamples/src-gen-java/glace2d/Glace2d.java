@@ -216,11 +216,11 @@ public final class Glace2d
 		Ajr = new double[nbCells][maxNodesOfCell][2][2];
 
 		// Copy node coordinates
-		double[][] gNodes = mesh.getGeometry().getNodes();
+		double[] gNodes = mesh.getGeometry().getCoordinates();
 		IntStream.range(0, nbNodes).parallel().forEach(rNodes ->
 		{
-			X_n0[rNodes][0] = gNodes[rNodes][0];
-			X_n0[rNodes][1] = gNodes[rNodes][1];
+			X_n0[rNodes][0] = gNodes[2 * rNodes];
+			X_n0[rNodes][1] = gNodes[2 * rNodes + 1];
 		});
 	}
 
@@ -235,12 +235,13 @@ public final class Glace2d
 		{
 			final int jId = jCells;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
-					final int rPlus1Id = nodesOfCellJ[(rNodesOfCellJ+1+nbNodesOfCellJ)%nbNodesOfCellJ];
-					final int rMinus1Id = nodesOfCellJ[(rNodesOfCellJ-1+nbNodesOfCellJ)%nbNodesOfCellJ];
+					final int rPlus1Id = nodesOfCellJ[nodesOfCellJOffset+(rNodesOfCellJ+1+nbNodesOfCellJ)%nbNodesOfCellJ];
+					final int rMinus1Id = nodesOfCellJ[nodesOfCellJOffset+(rNodesOfCellJ-1+nbNodesOfCellJ)%nbNodesOfCellJ];
 					final int rPlus1Nodes = rPlus1Id;
 					final int rMinus1Nodes = rMinus1Id;
 					C[jCells][rNodesOfCellJ] = ArrayOperations.multiply(0.5, perp(ArrayOperations.minus(X_n[rPlus1Nodes], X_n[rMinus1Nodes])));
@@ -273,12 +274,13 @@ public final class Glace2d
 		{
 			final int jId = jCells;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
-					final int rPlus1Id = nodesOfCellJ[(rNodesOfCellJ+1+nbNodesOfCellJ)%nbNodesOfCellJ];
-					final int rMinus1Id = nodesOfCellJ[(rNodesOfCellJ-1+nbNodesOfCellJ)%nbNodesOfCellJ];
+					final int rPlus1Id = nodesOfCellJ[nodesOfCellJOffset+(rNodesOfCellJ+1+nbNodesOfCellJ)%nbNodesOfCellJ];
+					final int rMinus1Id = nodesOfCellJ[nodesOfCellJOffset+(rNodesOfCellJ-1+nbNodesOfCellJ)%nbNodesOfCellJ];
 					final int rPlus1Nodes = rPlus1Id;
 					final int rMinus1Nodes = rMinus1Id;
 					Cjr_ic[jCells][rNodesOfCellJ] = ArrayOperations.multiply(0.5, perp(ArrayOperations.minus(X_n0[rPlus1Nodes], X_n0[rMinus1Nodes])));
@@ -308,8 +310,9 @@ public final class Glace2d
 		{
 			final int jId = jCells;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
 					l[jCells][rNodesOfCellJ] = norm(C[jCells][rNodesOfCellJ]);
@@ -330,11 +333,12 @@ public final class Glace2d
 			final int jId = jCells;
 			double reduction0 = 0.0;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
-					final int rId = nodesOfCellJ[rNodesOfCellJ];
+					final int rId = nodesOfCellJ[nodesOfCellJOffset+rNodesOfCellJ];
 					final int rNodes = rId;
 					reduction0 = sumR0(reduction0, dot(C[jCells][rNodesOfCellJ], X_n[rNodes]));
 				}
@@ -357,11 +361,12 @@ public final class Glace2d
 			double p_ic;
 			double[] reduction0 = new double[] {0.0, 0.0};
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
-					final int rId = nodesOfCellJ[rNodesOfCellJ];
+					final int rId = nodesOfCellJ[nodesOfCellJOffset+rNodesOfCellJ];
 					final int rNodes = rId;
 					reduction0 = sumR1(reduction0, X_n0[rNodes]);
 				}
@@ -379,11 +384,12 @@ public final class Glace2d
 			}
 			double reduction1 = 0.0;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
-					final int rId = nodesOfCellJ[rNodesOfCellJ];
+					final int rId = nodesOfCellJ[nodesOfCellJOffset+rNodesOfCellJ];
 					final int rNodes = rId;
 					reduction1 = sumR0(reduction1, dot(Cjr_ic[jCells][rNodesOfCellJ], X_n0[rNodes]));
 				}
@@ -530,8 +536,9 @@ public final class Glace2d
 		{
 			final int jId = jCells;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
 					Ajr[jCells][rNodesOfCellJ] = ArrayOperations.multiply(((rho[jCells] * c[jCells]) / l[jCells][rNodesOfCellJ]), tensProduct(C[jCells][rNodesOfCellJ], C[jCells][rNodesOfCellJ]));
@@ -552,8 +559,9 @@ public final class Glace2d
 			final int jId = jCells;
 			double reduction0 = 0.0;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
 					reduction0 = sumR0(reduction0, l[jCells][rNodesOfCellJ]);
@@ -570,18 +578,20 @@ public final class Glace2d
 	 */
 	protected void computeAr()
 	{
+		final int[] cellsOfNodeLocalIndicesInNodesOfCell = mesh.getCellsOfNodeConnectivity().getLocalIndicesIn(mesh.getNodesOfCellConnectivity());
 		IntStream.range(0, nbNodes).parallel().forEach(rNodes -> 
 		{
 			final int rId = rNodes;
 			double[][] reduction0 = new double[][] {{0.0, 0.0}, {0.0, 0.0}};
 			{
-				final int[] cellsOfNodeR = mesh.getCellsOfNode(rId);
-				final int nbCellsOfNodeR = cellsOfNodeR.length;
+				final int[] cellsOfNodeR = mesh.getCellsOfNodeConnectivity().getValues();
+				final int cellsOfNodeROffset = mesh.getCellsOfNodeConnectivity().getOffset(rId);
+				final int nbCellsOfNodeR = mesh.getCellsOfNodeConnectivity().getNbElems(rId);
 				for (int jCellsOfNodeR=0; jCellsOfNodeR<nbCellsOfNodeR; jCellsOfNodeR++)
 				{
-					final int jId = cellsOfNodeR[jCellsOfNodeR];
+					final int jId = cellsOfNodeR[cellsOfNodeROffset+jCellsOfNodeR];
 					final int jCells = jId;
-					final int rNodesOfCellJ = Utils.indexOf(mesh.getNodesOfCell(jId), rId);
+					final int rNodesOfCellJ = cellsOfNodeLocalIndicesInNodesOfCell[cellsOfNodeROffset+jCellsOfNodeR];
 					reduction0 = sumR2(reduction0, Ajr[jCells][rNodesOfCellJ]);
 				}
 			}
@@ -602,18 +612,20 @@ public final class Glace2d
 	 */
 	protected void computeBr()
 	{
+		final int[] cellsOfNodeLocalIndicesInNodesOfCell = mesh.getCellsOfNodeConnectivity().getLocalIndicesIn(mesh.getNodesOfCellConnectivity());
 		IntStream.range(0, nbNodes).parallel().forEach(rNodes -> 
 		{
 			final int rId = rNodes;
 			double[] reduction0 = new double[] {0.0, 0.0};
 			{
-				final int[] cellsOfNodeR = mesh.getCellsOfNode(rId);
-				final int nbCellsOfNodeR = cellsOfNodeR.length;
+				final int[] cellsOfNodeR = mesh.getCellsOfNodeConnectivity().getValues();
+				final int cellsOfNodeROffset = mesh.getCellsOfNodeConnectivity().getOffset(rId);
+				final int nbCellsOfNodeR = mesh.getCellsOfNodeConnectivity().getNbElems(rId);
 				for (int jCellsOfNodeR=0; jCellsOfNodeR<nbCellsOfNodeR; jCellsOfNodeR++)
 				{
-					final int jId = cellsOfNodeR[jCellsOfNodeR];
+					final int jId = cellsOfNodeR[cellsOfNodeROffset+jCellsOfNodeR];
 					final int jCells = jId;
-					final int rNodesOfCellJ = Utils.indexOf(mesh.getNodesOfCell(jId), rId);
+					final int rNodesOfCellJ = cellsOfNodeLocalIndicesInNodesOfCell[cellsOfNodeROffset+jCellsOfNodeR];
 					reduction0 = sumR1(reduction0, ArrayOperations.plus(ArrayOperations.multiply(p[jCells], C[jCells][rNodesOfCellJ]), matVectProduct(Ajr[jCells][rNodesOfCellJ], uj_n[jCells])));
 				}
 			}
@@ -632,15 +644,10 @@ public final class Glace2d
 	protected void computeDt()
 	{
 		double reduction0 = Double.MAX_VALUE;
-		reduction0 = IntStream.range(0, nbCells).boxed().parallel().reduce
-		(
-			Double.MAX_VALUE,
-			(accu, jCells) ->
-			{
-				return minR0(accu, deltatj[jCells]);
-			},
-			(r1, r2) -> minR0(r1, r2)
-		);
+		reduction0 = IntStream.range(0, nbCells).parallel().mapToDouble(jCells ->
+		{
+			return deltatj[jCells];
+		}).reduce(Double.MAX_VALUE, (r1, r2) -> minR0(r1, r2));
 		deltat = Math.min((options.deltatCfl * reduction0), (options.stopTime - t_n));
 	}
 
@@ -797,11 +804,12 @@ public final class Glace2d
 		{
 			final int jId = jCells;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
-					final int rId = nodesOfCellJ[rNodesOfCellJ];
+					final int rId = nodesOfCellJ[nodesOfCellJOffset+rNodesOfCellJ];
 					final int rNodes = rId;
 					F[jCells][rNodesOfCellJ] = ArrayOperations.plus(ArrayOperations.multiply(p[jCells], C[jCells][rNodesOfCellJ]), matVectProduct(Ajr[jCells][rNodesOfCellJ], (ArrayOperations.minus(uj_n[jCells], ur[rNodes]))));
 				}
@@ -834,11 +842,12 @@ public final class Glace2d
 			final int jId = jCells;
 			double reduction0 = 0.0;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
-					final int rId = nodesOfCellJ[rNodesOfCellJ];
+					final int rId = nodesOfCellJ[nodesOfCellJOffset+rNodesOfCellJ];
 					final int rNodes = rId;
 					reduction0 = sumR0(reduction0, dot(F[jCells][rNodesOfCellJ], ur[rNodes]));
 				}
@@ -859,8 +868,9 @@ public final class Glace2d
 			final int jId = jCells;
 			double[] reduction0 = new double[] {0.0, 0.0};
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
 					reduction0 = sumR1(reduction0, F[jCells][rNodesOfCellJ]);
@@ -1005,8 +1015,7 @@ public final class Glace2d
 		{
 			try
 			{
-				Quad[] quads = mesh.getGeometry().getQuads();
-				writer.startVtpFile(iteration, t_n, X_n, quads);
+				writer.startVtpFile(iteration, t_n, X_n, mesh.getGeometry());
 				writer.openNodeData();
 				writer.closeNodeData();
 				writer.openCellData();
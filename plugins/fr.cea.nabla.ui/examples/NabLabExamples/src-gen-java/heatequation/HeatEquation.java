@@ -132,11 +132,11 @@ public final class HeatEquation
 		surface = new double[nbFaces];
 
 		// Copy node coordinates
-		double[][] gNodes = mesh.getGeometry().getNodes();
+		double[] gNodes = mesh.getGeometry().getCoordinates();
 		IntStream.range(0, nbNodes).parallel().forEach(rNodes ->
 		{
-			X[rNodes][0] = gNodes[rNodes][0];
-			X[rNodes][1] = gNodes[rNodes][1];
+			X[rNodes][0] = gNodes[2 * rNodes];
+			X[rNodes][1] = gNodes[2 * rNodes + 1];
 		});
 	}
 
@@ -152,11 +152,12 @@ public final class HeatEquation
 			final int j1Id = j1Cells;
 			double reduction0 = 0.0;
 			{
-				final int[] neighbourCellsJ1 = mesh.getNeighbourCells(j1Id);
-				final int nbNeighbourCellsJ1 = neighbourCellsJ1.length;
+				final int[] neighbourCellsJ1 = mesh.getNeighbourCellsConnectivity().getValues();
+				final int neighbourCellsJ1Offset = mesh.getNeighbourCellsConnectivity().getOffset(j1Id);
+				final int nbNeighbourCellsJ1 = mesh.getNeighbourCellsConnectivity().getNbElems(j1Id);
 				for (int j2NeighbourCellsJ1=0; j2NeighbourCellsJ1<nbNeighbourCellsJ1; j2NeighbourCellsJ1++)
 				{
-					final int j2Id = neighbourCellsJ1[j2NeighbourCellsJ1];
+					final int j2Id = neighbourCellsJ1[neighbourCellsJ1Offset+j2NeighbourCellsJ1];
 					final int j2Cells = j2Id;
 					final int cfId = mesh.getCommonFace(j1Id, j2Id);
 					final int cfFaces = cfId;
@@ -180,12 +181,13 @@ public final class HeatEquation
 			final int fId = fFaces;
 			double reduction0 = 0.0;
 			{
-				final int[] nodesOfFaceF = mesh.getNodesOfFace(fId);
-				final int nbNodesOfFaceF = nodesOfFaceF.length;
+				final int[] nodesOfFaceF = mesh.getNodesOfFaceConnectivity().getValues();
+				final int nodesOfFaceFOffset = mesh.getNodesOfFaceConnectivity().getOffset(fId);
+				final int nbNodesOfFaceF = mesh.getNodesOfFaceConnectivity().getNbElems(fId);
 				for (int rNodesOfFaceF=0; rNodesOfFaceF<nbNodesOfFaceF; rNodesOfFaceF++)
 				{
-					final int rId = nodesOfFaceF[rNodesOfFaceF];
-					final int rPlus1Id = nodesOfFaceF[(rNodesOfFaceF+1+nbNodesOfFaceF)%nbNodesOfFaceF];
+					final int rId = nodesOfFaceF[nodesOfFaceFOffset+rNodesOfFaceF];
+					final int rPlus1Id = nodesOfFaceF[nodesOfFaceFOffset+(rNodesOfFaceF+1+nbNodesOfFaceF)%nbNodesOfFaceF];
 					final int rNodes = rId;
 					final int rPlus1Nodes = rPlus1Id;
 					reduction0 = sumR0(reduction0, norm(ArrayOperations.minus(X[rNodes], X[rPlus1Nodes])));
@@ -217,12 +219,13 @@ public final class HeatEquation
 			final int jId = jCells;
 			double reduction0 = 0.0;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
-					final int rId = nodesOfCellJ[rNodesOfCellJ];
-					final int rPlus1Id = nodesOfCellJ[(rNodesOfCellJ+1+nbNodesOfCellJ)%nbNodesOfCellJ];
+					final int rId = nodesOfCellJ[nodesOfCellJOffset+rNodesOfCellJ];
+					final int rPlus1Id = nodesOfCellJ[nodesOfCellJOffset+(rNodesOfCellJ+1+nbNodesOfCellJ)%nbNodesOfCellJ];
 					final int rNodes = rId;
 					final int rPlus1Nodes = rPlus1Id;
 					reduction0 = sumR0(reduction0, det(X[rNodes], X[rPlus1Nodes]));
@@ -244,11 +247,12 @@ public final class HeatEquation
 			final int jId = jCells;
 			double[] reduction0 = new double[] {0.0, 0.0};
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int rNodesOfCellJ=0; rNodesOfCellJ<nbNodesOfCellJ; rNodesOfCellJ++)
 				{
-					final int rId = nodesOfCellJ[rNodesOfCellJ];
+					final int rId = nodesOfCellJ[nodesOfCellJOffset+rNodesOfCellJ];
 					final int rNodes = rId;
 					reduction0 = sumR1(reduction0, X[rNodes]);
 				}
@@ -429,8 +433,7 @@ public final class HeatEquation
 		{
 			try
 			{
-				Quad[] quads = mesh.getGeometry().getQuads();
-				writer.startVtpFile(iteration, t_n, X, quads);
+				writer.startVtpFile(iteration, t_n, X, mesh.getGeometry());
 				writer.openNodeData();
 				writer.closeNodeData();
 				writer.openCellData();
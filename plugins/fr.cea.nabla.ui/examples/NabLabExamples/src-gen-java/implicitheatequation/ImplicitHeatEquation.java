@@ -132,11 +132,11 @@ public final class ImplicitHeatEquation
 		alpha = new linearalgebrajava.Matrix("alpha", nbCells, nbCells);
 
 		// Copy node coordinates
-		double[][] gNodes = mesh.getGeometry().getNodes();
+		double[] gNodes = mesh.getGeometry().getCoordinates();
 		IntStream.range(0, nbNodes).parallel().forEach(rNodes ->
 		{
-			X[rNodes][0] = gNodes[rNodes][0];
-			X[rNodes][1] = gNodes[rNodes][1];
+			X[rNodes][0] = gNodes[2 * rNodes];
+			X[rNodes][1] = gNodes[2 * rNodes + 1];
 		});
 	}
 
@@ -152,12 +152,13 @@ public final class ImplicitHeatEquation
 			final int fId = fFaces;
 			double reduction0 = 0.0;
 			{
-				final int[] nodesOfFaceF = mesh.getNodesOfFace(fId);
-				final int nbNodesOfFaceF = nodesOfFaceF.length;
+				final int[] nodesOfFaceF = mesh.getNodesOfFaceConnectivity().getValues();
+				final int nodesOfFaceFOffset = mesh.getNodesOfFaceConnectivity().getOffset(fId);
+				final int nbNodesOfFaceF = mesh.getNodesOfFaceConnectivity().getNbElems(fId);
 				for (int pNodesOfFaceF=0; pNodesOfFaceF<nbNodesOfFaceF; pNodesOfFaceF++)
 				{
-					final int pId = nodesOfFaceF[pNodesOfFaceF];
-					final int pPlus1Id = nodesOfFaceF[(pNodesOfFaceF+1+nbNodesOfFaceF)%nbNodesOfFaceF];
+					final int pId = nodesOfFaceF[nodesOfFaceFOffset+pNodesOfFaceF];
+					final int pPlus1Id = nodesOfFaceF[nodesOfFaceFOffset+(pNodesOfFaceF+1+nbNodesOfFaceF)%nbNodesOfFaceF];
 					final int pNodes = pId;
 					final int pPlus1Nodes = pPlus1Id;
 					reduction0 = sumR0(reduction0, norm(ArrayOperations.minus(X[pNodes], X[pPlus1Nodes])));
@@ -189,12 +190,13 @@ public final class ImplicitHeatEquation
 			final int jId = jCells;
 			double reduction0 = 0.0;
 			{
-				final int[] nodesOfCellJ = mesh.getNodesOfCell(jId);
-				final int nbNodesOfCellJ = nodesOfCellJ.length;
+				final int[] nodesOfCellJ = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellJOffset = mesh.getNodesOfCellConnectivity().getOffset(jId);
+				final int nbNodesOfCellJ = mesh.getNodesOfCellConnectivity().getNbElems(jId);
 				for (int pNodesOfCellJ=0; pNodesOfCellJ<nbNodesOfCellJ; pNodesOfCellJ++)
 				{
-					final int pId = nodesOfCellJ[pNodesOfCellJ];
-					final int pPlus1Id = nodesOfCellJ[(pNodesOfCellJ+1+nbNodesOfCellJ)%nbNodesOfCellJ];
+					final int pId = nodesOfCellJ[nodesOfCellJOffset+pNodesOfCellJ];
+					final int pPlus1Id = nodesOfCellJ[nodesOfCellJOffset+(pNodesOfCellJ+1+nbNodesOfCellJ)%nbNodesOfCellJ];
 					final int pNodes = pId;
 					final int pPlus1Nodes = pPlus1Id;
 					reduction0 = sumR0(reduction0, det(X[pNodes], X[pPlus1Nodes]));
@@ -239,11 +241,12 @@ public final class ImplicitHeatEquation
 			final int cId = cCells;
 			double[] reduction0 = new double[] {0.0, 0.0};
 			{
-				final int[] nodesOfCellC = mesh.getNodesOfCell(cId);
-				final int nbNodesOfCellC = nodesOfCellC.length;
+				final int[] nodesOfCellC = mesh.getNodesOfCellConnectivity().getValues();
+				final int nodesOfCellCOffset = mesh.getNodesOfCellConnectivity().getOffset(cId);
+				final int nbNodesOfCellC = mesh.getNodesOfCellConnectivity().getNbElems(cId);
 				for (int pNodesOfCellC=0; pNodesOfCellC<nbNodesOfCellC; pNodesOfCellC++)
 				{
-					final int pId = nodesOfCellC[pNodesOfCellC];
+					final int pId = nodesOfCellC[nodesOfCellCOffset+pNodesOfCellC];
 					final int pNodes = pId;
 					reduction0 = sumR1(reduction0, X[pNodes]);
 				}
@@ -270,15 +273,10 @@ public final class ImplicitHeatEquation
 	protected void computeDeltaTn()
 	{
 		double reduction0 = Double.MAX_VALUE;
-		reduction0 = IntStream.range(0, nbCells).boxed().parallel().reduce
-		(
-			Double.MAX_VALUE,
-			(accu, cCells) ->
-			{
-				return minR0(accu, V[cCells] / D[cCells]);
-			},
-			(r1, r2) -> minR0(r1, r2)
-		);
+		reduction0 = IntStream.range(0, nbCells).parallel().mapToDouble(cCells ->
+		{
+			return V[cCells] / D[cCells];
+		}).reduce(Double.MAX_VALUE, (r1, r2) -> minR0(r1, r2));
 		deltat = reduction0 * 0.24;
 	}
 
@@ -294,22 +292,24 @@ public final class ImplicitHeatEquation
 			final int fId = fFaces;
 			double reduction0 = 1.0;
 			{
-				final int[] cellsOfFaceF = mesh.getCellsOfFace(fId);
-				final int nbCellsOfFaceF = cellsOfFaceF.length;
+				final int[] cellsOfFaceF = mesh.getCellsOfFaceConnectivity().getValues();
+				final int cellsOfFaceFOffset = mesh.getCellsOfFaceConnectivity().getOffset(fId);
+				final int nbCellsOfFaceF = mesh.getCellsOfFaceConnectivity().getNbElems(fId);
 				for (int c1CellsOfFaceF=0; c1CellsOfFaceF<nbCellsOfFaceF; c1CellsOfFaceF++)
 				{
-					final int c1Id = cellsOfFaceF[c1CellsOfFaceF];
+					final int c1Id = cellsOfFaceF[cellsOfFaceFOffset+c1CellsOfFaceF];
 					final int c1Cells = c1Id;
 					reduction0 = prodR0(reduction0, D[c1Cells]);
 				}
 			}
 			double reduction1 = 0.0;
 			{
-				final int[] cellsOfFaceF = mesh.getCellsOfFace(fId);
-				final int nbCellsOfFaceF = cellsOfFaceF.length;
+				final int[] cellsOfFaceF = mesh.getCellsOfFaceConnectivity().getValues();
+				final int cellsOfFaceFOffset = mesh.getCellsOfFaceConnectivity().getOffset(fId);
+				final int nbCellsOfFaceF = mesh.getCellsOfFaceConnectivity().getNbElems(fId);
 				for (int c2CellsOfFaceF=0; c2CellsOfFaceF<nbCellsOfFaceF; c2CellsOfFaceF++)
 				{
-					final int c2Id = cellsOfFaceF[c2CellsOfFaceF];
+					final int c2Id = cellsOfFaceF[cellsOfFaceFOffset+c2CellsOfFaceF];
 					final int c2Cells = c2Id;
 					reduction1 = sumR0(reduction1, D[c2Cells]);
 				}
@@ -356,11 +356,12 @@ public final class ImplicitHeatEquation
 			final int cId = cCells;
 			double alphaDiag = 0.0;
 			{
-				final int[] neighbourCellsC = mesh.getNeighbourCells(cId);
-				final int nbNeighbourCellsC = neighbourCellsC.length;
+				final int[] neighbourCellsC = mesh.getNeighbourCellsConnectivity().getValues();
+				final int neighbourCellsCOffset = mesh.getNeighbourCellsConnectivity().getOffset(cId);
+				final int nbNeighbourCellsC = mesh.getNeighbourCellsConnectivity().getNbElems(cId);
 				for (int dNeighbourCellsC=0; dNeighbourCellsC<nbNeighbourCellsC; dNeighbourCellsC++)
 				{
-					final int dId = neighbourCellsC[dNeighbourCellsC];
+					final int dId = neighbourCellsC[neighbourCellsCOffset+dNeighbourCellsC];
 					final int dCells = dId;
 					final int fId = mesh.getCommonFace(cId, dId);
 					final int fFaces = fId;
@@ -495,8 +496,7 @@ public final class ImplicitHeatEquation
 		{
 			try
 			{
-				Quad[] quads = mesh.getGeometry().getQuads();
-				writer.startVtpFile(iteration, t_n, X, quads);
+				writer.startVtpFile(iteration, t_n, X, mesh.getGeometry());
 				writer.openNodeData();
 				writer.closeNodeData();
 				writer.openCellData();
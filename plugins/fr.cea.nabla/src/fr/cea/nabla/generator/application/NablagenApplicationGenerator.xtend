@@ -27,6 +27,7 @@ import fr.cea.nabla.nablagen.NablagenApplication
 import fr.cea.nabla.nablagen.Target
 import fr.cea.nabla.nablagen.TargetType
 import java.util.ArrayList
+import java.util.HashMap
 import org.eclipse.emf.ecore.util.EcoreUtil
 
 import static extension fr.cea.nabla.LatexLabelServices.*
@@ -124,7 +125,9 @@ class NablagenApplicationGenerator extends StandaloneGeneratorBase
 	{
 		if (type == TargetType::JAVA)
 		{
-			new JavaApplicationGenerator(levelDB !== null)
+			val options = new HashMap<String, String>
+			variables.forEach[x | options.put(x.key, x.value)]
+			new JavaApplicationGenerator(levelDB !== null, outputPath, options)
 		}
 		else
 		{
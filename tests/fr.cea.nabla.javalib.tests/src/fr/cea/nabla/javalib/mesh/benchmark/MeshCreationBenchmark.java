@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.mesh.benchmark;
+
+import fr.cea.nabla.javalib.mesh.CartesianMesh2D;
+import java.util.Arrays;
+
+/**
+ * Time of CartesianMesh2D creation.
+ * Usage: MeshCreationBenchmark [nbRuns] [size1 size2...]
+ * for square meshes of size x size quads (default: 5 runs, 1024 2048 4096).
+ * Run with a large heap, e.g. -Xmx16g for 4096.
+ */
+public class MeshCreationBenchmark
+{
+	private static final int NbWarmupRuns = 2;
+
+	public static void main(String[] args)
+	{
+		final int nbRuns = (args.length > 0 ? Integer.parseInt(args[0]) : 5);
+		final int[] sizes = (args.length > 1
+				? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+				: new int[] {1024, 2048, 4096});
+
+		System.out.println("Mesh creation, " + Runtime.getRuntime().availableProcessors() + " processors, best and mean of " + nbRuns + " runs");
+		for (int size : sizes)
+		{
+			for (int i = 0; i < NbWarmupRuns; i++)
+				create(size);
+			long best = Long.MAX_VALUE;
+			long total = 0;
+			for (int i = 0; i < nbRuns; i++)
+			{
+				final long time = create(size);
+				best = Math.min(best, time);
+				total += time;
+			}
+			System.out.printf("  %5d x %-5d : %8.1f ms (best) %8.1f ms (mean)%n", size, size, best / 1e6, total / 1e6 / nbRuns);
+		}
+	}
+
+	private static long create(int size)
+	{
+		System.gc();
+		final long start = System.nanoTime();
+		final CartesianMesh2D mesh = new CartesianMesh2D(size, size, 1.0, 1.0);
+		final long time = System.nanoTime() - start;
+		if (mesh.getNbCells() != size * size)
+			throw new RuntimeException("Unexpected number of cells: " + mesh.getNbCells());
+		return time;
+	}
+}
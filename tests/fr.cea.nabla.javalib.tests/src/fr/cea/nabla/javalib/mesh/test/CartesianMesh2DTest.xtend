@@ -10,6 +10,8 @@
 package fr.cea.nabla.javalib.mesh.test
 
 import fr.cea.nabla.javalib.mesh.CartesianMesh2D
+import fr.cea.nabla.javalib.mesh.SpaceFillingCurve.Curve
+import java.nio.file.Files
 import org.junit.Test
 
 import static org.junit.Assert.*
@@ -41,7 +43,8 @@ class CartesianMesh2DTest
 		assertEquals(nbQuads, mesh.geometry.getQuads.size)
 
 		val nbNodes = (nbXQuads + 1) * (nbYQuads + 1)
-		assertEquals(nbNodes, mesh.geometry.getNodes.size)
+		assertEquals(nbNodes, mesh.geometry.nbNodes)
+		assertEquals(2 * nbNodes, mesh.geometry.coordinates.size)
 
 		val nbEdges = ((nbXQuads + 1) * nbYQuads) + ((nbYQuads + 1) * nbXQuads)
 		assertEquals(nbEdges, mesh.geometry.getEdges.size)
@@ -55,9 +58,9 @@ class CartesianMesh2DTest
 			for (i : 0 ..< nbXQuads)
 			{
 				val currentQuad = mesh.geometry.getQuads.get(quadIndex)
-				val upperLeftNode = mesh.geometry.getNodes.get(currentQuad.nodeIds.get(0))
-				assertEquals(xUpperLeftNode, upperLeftNode.get(0), 0.0)
-				assertEquals(yUpperLeftNode, upperLeftNode.get(1), 0.0)
+				val upperLeftNode = currentQuad.nodeIds.get(0)
+				assertEquals(xUpperLeftNode, mesh.geometry.getX(upperLeftNode), 0.0)
+				assertEquals(yUpperLeftNode, mesh.geometry.getY(upperLeftNode), 0.0)
 				xUpperLeftNode += xSize
 				quadIndex++
 			}
@@ -199,4 +202,128 @@ class CartesianMesh2DTest
 //		println("  Elapsed time : " + duration.toMillis + "ms")
 		assertArrayEquals(#[1742, 1743, 1745, 2543], mesh.getFacesOfCell(870))
 	}
+
+	@Test(expected = RuntimeException)
+	def void testTooLargeMesh()
+	{
+		// 2 x 50001^2 coordinates do not fit in an array
+		new CartesianMesh2D(50000, 50000, xSize, ySize, Curve.none, true)
+	}
+
+	@Test
+	def void testImplicitMode()
+	{
+		for (curve : #[Curve.none, Curve.hilbert])
+		{
+			val explicitMesh = new CartesianMesh2D(nbXQuads, nbYQuads, xSize, ySize, curve, false)
+			val mesh = new CartesianMesh2D(nbXQuads, nbYQuads, xSize, ySize, curve, true)
+			assertTrue(mesh.geometry.implicit)
+			assertEquals(explicitMesh.nbCells, mesh.nbCells)
+			assertEquals(explicitMesh.nbFaces, mesh.nbFaces)
+
+			for (c : 0..<mesh.nbCells)
+			{
+				assertArrayEquals(explicitMesh.getNodesOfCell(c), mesh.getNodesOfCell(c))
+				assertArrayEquals(explicitMesh.getFacesOfCell(c), mesh.getFacesOfCell(c))
+				assertArrayEquals(explicitMesh.getNeighbourCells(c), mesh.getNeighbourCells(c))
+			}
+			for (f : 0..<mesh.nbFaces)
+			{
+				assertArrayEquals(explicitMesh.getNodesOfFace(f), mesh.getNodesOfFace(f))
+				assertArrayEquals(explicitMesh.getCellsOfFace(f), mesh.getCellsOfFace(f))
+			}
+			for (f : mesh.innerFaces)
+			{
+				assertEquals(explicitMesh.getBackCell(f), mesh.getBackCell(f))
+				assertEquals(explicitMesh.getFrontCell(f), mesh.getFrontCell(f))
+			}
+			for (r : 0..<mesh.nbNodes)
+				assertArrayEquals(explicitMesh.getCellsOfNode(r), mesh.getCellsOfNode(r))
+
+			// tables built on demand
+			assertArrayEquals(explicitMesh.cellsOfNodeConnectivity.values, mesh.cellsOfNodeConnectivity.values)
+			assertArrayEquals(explicitMesh.cellsOfNodeConnectivity.offsets, mesh.cellsOfNodeConnectivity.offsets)
+			assertArrayEquals(explicitMesh.nodesOfCellConnectivity.values, mesh.nodesOfCellConnectivity.values)
+			assertArrayEquals(explicitMesh.cellsOfFaceConnectivity.values, mesh.cellsOfFaceConnectivity.values)
+		}
+	}
+
+	@Test
+	def void testStructuredNumbering()
+	{
+		// arithmetic of the structured loops generated with loops = "structured"
+		val mesh = new CartesianMesh2D(nbXQuads, nbYQuads, xSize, ySize)
+		assertEquals(nbXQuads, mesh.nbXQuads)
+		assertEquals(nbYQuads, mesh.nbYQuads)
+		for (y : 0..<nbYQuads)
+			for (x : 0..<nbXQuads)
+			{
+				val c = y * nbXQuads + x
+				val bottomFace = 2 * x + y * (2 * nbXQuads + 1)
+				assertEquals(if (x == 0) c else c - 1, mesh.getLeftCell(c))
+				assertEquals(if (x == nbXQuads - 1) c else c + 1, mesh.getRightCell(c))
+				assertEquals(if (y == 0) c else c - nbXQuads, mesh.getBottomCell(c))
+				assertEquals(if (y == nbYQuads - 1) c else c + nbXQuads, mesh.getTopCell(c))
+				assertEquals(bottomFace, mesh.getBottomFaceOfCell(c))
+				assertEquals(bottomFace + 1, mesh.getLeftFaceOfCell(c))
+				assertEquals(bottomFace + (if (x == nbXQuads - 1) 2 else 3), mesh.getRightFaceOfCell(c))
+				assertEquals(bottomFace + (if (y < nbYQuads - 1) 2 * nbXQuads + 1 else 2 * nbXQuads + 1 - x), mesh.getTopFaceOfCell(c))
+				assertEquals(CartesianMesh2D.MaxNbNodesOfCell * c, mesh.nodesOfCellConnectivity.getOffset(c))
+				assertEquals(CartesianMesh2D.MaxNbFacesOfCell * c, mesh.facesOfCellConnectivity.getOffset(c))
+			}
+	}
+
+	@Test
+	def void testCache()
+	{
+		val cacheDir = Files.createTempDirectory("meshcache")
+		for (implicit : #[false, true])
+		{
+			val json = '{"nbXQuads":' + nbXQuads + ',"nbYQuads":' + nbYQuads + ',"xSize":' + xSize + ',"ySize":' + ySize
+				+ ',"renumbering":"hilbert","implicit":' + implicit + ',"cache":"' + cacheDir.toString.replace('\\', '/') + '"}'
+			val ref = new CartesianMesh2D(nbXQuads, nbYQuads, xSize, ySize, Curve.hilbert, implicit)
+			val builtMesh = new CartesianMesh2D
+			builtMesh.jsonInit(json)
+			val loadedMesh = new CartesianMesh2D
+			loadedMesh.jsonInit(json)
+
+			for (mesh : #[builtMesh, loadedMesh])
+			{
+				assertEquals(implicit, mesh.geometry.implicit)
+				assertArrayEquals(ref.geometry.coordinates, mesh.geometry.coordinates, 0.0)
+				assertArrayEquals(ref.geometry.originalCellIds, mesh.geometry.originalCellIds)
+				for (c : 0..<mesh.nbCells)
+				{
+					assertArrayEquals(ref.getNodesOfCell(c), mesh.getNodesOfCell(c))
+					assertArrayEquals(ref.getFacesOfCell(c), mesh.getFacesOfCell(c))
+					assertEquals(ref.getTopFaceOfCell(c), mesh.getTopFaceOfCell(c))
+				}
+				for (f : 0..<mesh.nbFaces)
+					assertArrayEquals(ref.getCellsOfFace(f), mesh.getCellsOfFace(f))
+				assertArrayEquals(ref.innerNodes, mesh.innerNodes)
+				assertArrayEquals(ref.topNodes, mesh.topNodes)
+				assertArrayEquals(ref.outerFaces, mesh.outerFaces)
+				assertArrayEquals(ref.rightCells, mesh.rightCells)
+				assertEquals(ref.topRightNode, mesh.topRightNode)
+				assertArrayEquals(ref.cellsOfNodeConnectivity.values, mesh.cellsOfNodeConnectivity.values)
+			}
+		}
+		assertEquals(2, Files.list(cacheDir).count)
+	}
+
+	@Test
+	def void testCacheNotWritten()
+	{
+		// the cache directory is a file: the mesh is built without cache
+		val cacheFile = Files.createTempFile("meshcache", ".bin")
+		val json = '{"nbXQuads":' + nbXQuads + ',"nbYQuads":' + nbYQuads + ',"xSize":' + xSize + ',"ySize":' + ySize
+			+ ',"cache":"' + cacheFile.toString.replace('\\', '/') + '"}'
+		val ref = new CartesianMesh2D(nbXQuads, nbYQuads, xSize, ySize)
+		val mesh = new CartesianMesh2D
+		mesh.jsonInit(json)
+		assertArrayEquals(ref.geometry.coordinates, mesh.geometry.coordinates, 0.0)
+		for (c : 0..<mesh.nbCells)
+			assertArrayEquals(ref.getNodesOfCell(c), mesh.getNodesOfCell(c))
+		assertEquals(0, Files.size(cacheFile))
+	}
 }
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.mesh.test
+
+import fr.cea.nabla.javalib.mesh.CartesianMesh3D
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+/* 3 x 2 x 2 cells: 36 nodes, 12 cells.
+ * Faces: 16 X faces [0..15], 18 Y faces [16..33], 18 Z faces [34..51].
+ */
+class CartesianMesh3DTest
+{
+	val mesh = new CartesianMesh3D(3, 2, 2, 1.0, 2.0, 3.0)
+
+	@Test
+	def void testSizes()
+	{
+		assertEquals(36, mesh.nbNodes)
+		assertEquals(12, mesh.nbCells)
+		assertEquals(52, mesh.nbFaces)
+		assertEquals(2, mesh.nbInnerNodes)
+		assertArrayEquals(#[17, 18], mesh.innerNodes)
+		assertEquals(0, mesh.nbInnerCells)
+		assertEquals(12, mesh.outerCells.size)
+		assertEquals(32, mesh.nbOuterFaces)
+		assertEquals(mesh.nbInnerFaces, mesh.innerFaces.size)
+	}
+
+	@Test
+	def void testConnectivities()
+	{
+		assertArrayEquals(#[0, 1, 5, 4, 12, 13, 17, 16], mesh.getNodesOfCell(0))
+		assertArrayEquals(#[18, 19, 23, 22, 30, 31, 35, 34], mesh.getNodesOfCell(11))
+		assertArrayEquals(#[0, 1, 16, 19, 34, 40], mesh.getFacesOfCell(0))
+		assertArrayEquals(#[1, 3, 6], mesh.getNeighbourCells(0))
+		assertArrayEquals(#[0, 1, 3, 4, 6, 7, 9, 10], mesh.getCellsOfNode(17))
+		assertArrayEquals(#[0], mesh.getCellsOfNode(0))
+		assertArrayEquals(#[0, 1], mesh.getCellsOfFace(1))
+		assertArrayEquals(#[0, 6], mesh.getCellsOfFace(40))
+		assertEquals(40, mesh.getCommonFace(0, 6))
+		assertEquals(0, mesh.getBackCell(40))
+		assertEquals(6, mesh.getFrontCell(40))
+		assertArrayEquals(#[1, 5, 17, 13], mesh.getNodesOfFace(1))
+		assertArrayEquals(#[0.0, 4.0, 3.0], mesh.getNodeCoordinates(20), 0.0)
+	}
+
+	@Test
+	def void testBoundaries()
+	{
+		assertArrayEquals(#[0, 4, 8, 12], mesh.leftFaces)
+		assertArrayEquals(#[3, 7, 11, 15], mesh.rightFaces)
+		assertArrayEquals(#[16, 17, 18, 25, 26, 27], mesh.bottomFaces)
+		assertArrayEquals(#[22, 23, 24, 31, 32, 33], mesh.topFaces)
+		assertArrayEquals(#[34, 35, 36, 37, 38, 39], mesh.backFaces)
+		assertArrayEquals(#[46, 47, 48, 49, 50, 51], mesh.frontFaces)
+		for (f : mesh.outerFaces)
+			assertEquals(1, mesh.getCellsOfFace(f).size)
+	}
+}
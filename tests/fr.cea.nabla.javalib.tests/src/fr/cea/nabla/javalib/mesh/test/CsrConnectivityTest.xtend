@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.mesh.test
+
+import fr.cea.nabla.javalib.ChunkedIntArray
+import fr.cea.nabla.javalib.mesh.CartesianMesh2D
+import fr.cea.nabla.javalib.mesh.CsrConnectivity
+import fr.cea.nabla.javalib.mesh.Utils
+import java.util.stream.IntStream
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class CsrConnectivityTest
+{
+	@Test
+	def void testAccessors()
+	{
+		val c = new CsrConnectivity(#[0, 2, 2, 5], #[7, 3, 1, 4, 9])
+		assertEquals(3, c.nbItems)
+		assertEquals(2, c.getNbElems(0))
+		assertEquals(0, c.getNbElems(1))
+		assertEquals(3, c.getNbElems(2))
+		assertEquals(2, c.getOffset(2))
+		assertEquals(4, c.getElem(2, 1))
+		assertArrayEquals(#[7, 3], c.getElems(0))
+		assertArrayEquals(newIntArrayOfSize(0), c.getElems(1))
+		assertEquals(2, c.indexOf(2, 9))
+		assertEquals(-1, c.indexOf(0, 9))
+		val visited = <Integer>newArrayList
+		c.forEach(2, [visited += it])
+		assertEquals(#[1, 4, 9], visited)
+	}
+
+	@Test
+	def void testCreate()
+	{
+		val c = CsrConnectivity.create(3, 2, true, [item, buffer |
+			for (k : 0..<item) buffer.set(k, 10 - k)
+			item
+		])
+		assertArrayEquals(#[0, 0, 1, 3], c.offsets)
+		assertArrayEquals(#[10, 9, 10], c.values)
+	}
+
+	@Test
+	def void testCartesianMesh2DTables()
+	{
+		val mesh = new CartesianMesh2D(4, 3, 5.0, 10.0)
+		for (c : 0..<mesh.nbCells)
+		{
+			assertArrayEquals(mesh.getNodesOfCell(c), mesh.nodesOfCellConnectivity.getElems(c))
+			assertArrayEquals(mesh.getFacesOfCell(c), mesh.facesOfCellConnectivity.getElems(c))
+			assertArrayEquals(mesh.getNeighbourCells(c), mesh.neighbourCellsConnectivity.getElems(c))
+		}
+		for (f : 0..<mesh.nbFaces)
+			assertArrayEquals(mesh.getNodesOfFace(f), mesh.nodesOfFaceConnectivity.getElems(f))
+		assertArrayEquals(#[0, 1, 4, 5], mesh.cellsOfNodeConnectivity.getElems(6))
+		assertEquals(3, mesh.cellsOfNodeConnectivity.indexOf(6, 5))
+		assertEquals(2, mesh.cellsOfFaceConnectivity.getNbElems(3))
+		assertEquals(1, mesh.cellsOfFaceConnectivity.getElem(3, 1))
+	}
+
+	@Test
+	def void testLocalIndicesIn()
+	{
+		val mesh = new CartesianMesh2D(4, 3, 5.0, 10.0)
+		val cellsOfNode = mesh.cellsOfNodeConnectivity
+		val nodesOfCell = mesh.nodesOfCellConnectivity
+		val localIndices = cellsOfNode.getLocalIndicesIn(nodesOfCell)
+		assertSame(localIndices, cellsOfNode.getLocalIndicesIn(nodesOfCell))
+		for (r : 0..<mesh.nbNodes)
+			for (k : 0..<cellsOfNode.getNbElems(r))
+			{
+				val j = cellsOfNode.getElem(r, k)
+				assertEquals(Utils.indexOf(mesh.getNodesOfCell(j), r), localIndices.get(cellsOfNode.getOffset(r) + k))
+			}
+
+		val c = new CsrConnectivity(#[0, 2, 3], #[1, 0, 1])
+		assertArrayEquals(#[1, -1, -1], c.getLocalIndicesIn(new CsrConnectivity(#[0, 1, 3], #[1, 5, 0])))
+	}
+
+	@Test
+	def void testTranspose()
+	{
+		val c = new CsrConnectivity(#[0, 2, 3], #[1, 0, 1])
+		val t = c.transpose(3)
+		assertArrayEquals(#[0, 1, 3, 3], t.offsets)
+		assertArrayEquals(#[0, 0, 1], t.values)
+	}
+
+	@Test
+	def void testColouring()
+	{
+		val mesh = new CartesianMesh2D(4, 3, 5.0, 10.0)
+		for (c : #[mesh.nodesOfCellConnectivity, mesh.nodesOfFaceConnectivity, mesh.cellsOfNodeConnectivity, mesh.cellsOfFaceConnectivity])
+		{
+			val colouring = c.colouring
+			assertSame(colouring, c.colouring)
+			val coloured = newBooleanArrayOfSize(c.nbItems)
+			for (colour : 0..<colouring.nbItems)
+			{
+				val elems = <Integer>newHashSet
+				for (item : colouring.getElems(colour))
+				{
+					assertFalse(coloured.get(item))
+					coloured.set(item, true)
+					for (elem : c.getElems(item))
+						assertTrue(elems.add(elem))
+				}
+			}
+			assertTrue(coloured.forall[x | x])
+		}
+		assertEquals(4, mesh.cellColouring.nbItems)
+		assertArrayEquals(#[0, 2, 8, 10], mesh.cellColouring.getElems(0))
+	}
+
+	@Test
+	def void testChunkedStorage()
+	{
+		val mesh = new CartesianMesh2D(4, 3, 5.0, 10.0)
+		for (c : #[mesh.nodesOfCellConnectivity, mesh.cellsOfNodeConnectivity, mesh.neighbourCellsConnectivity])
+		{
+			val chunked = c.inChunks
+			assertTrue(chunked.chunked)
+			assertEquals(c.nbItems, chunked.nbItems)
+			assertEquals(c.values.length, chunked.nbValues)
+			for (item : 0..<c.nbItems)
+			{
+				assertEquals(c.getOffset(item), chunked.getLongOffset(item))
+				assertEquals(c.getNbElems(item), chunked.getNbElems(item))
+				assertArrayEquals(c.getElems(item), chunked.getElems(item))
+				for (k : 0..<c.getNbElems(item))
+				{
+					assertEquals(c.getElem(item, k), chunked.getElem(item, k))
+					assertEquals(k, chunked.indexOf(item, c.getElem(item, k)))
+				}
+			}
+			assertSameTable(c.transpose(mesh.nbNodes + mesh.nbCells), chunked.transpose(mesh.nbNodes + mesh.nbCells))
+			assertSameTable(c.colouring, chunked.colouring)
+		}
+
+		val c = new CsrConnectivity(#[0, 2, 3], #[1, 0, 1])
+		assertSameTable(c.permute(#[1, 0], #[2, 3], true), c.inChunks.permute(#[1, 0], #[2, 3], true))
+	}
+
+	@Test(expected = RuntimeException)
+	def void testChunkedValues()
+	{
+		// the elements are not in an array
+		new CsrConnectivity(#[0, 2, 3], #[1, 0, 1]).inChunks.values
+	}
+
+	/** Same table stored in chunks of 4 values */
+	private def inChunks(CsrConnectivity c)
+	{
+		val values = new ChunkedIntArray(c.values.length, 2)
+		values.copyFrom(c.values, 0, 0, c.values.length)
+		new CsrConnectivity(IntStream.of(c.offsets).asLongStream.toArray, values)
+	}
+
+	private def assertSameTable(CsrConnectivity expected, CsrConnectivity actual)
+	{
+		assertEquals(expected.nbItems, actual.nbItems)
+		for (item : 0..<expected.nbItems)
+			assertArrayEquals(expected.getElems(item), actual.getElems(item))
+	}
+}
@@ -12,13 +12,35 @@ package fr.cea.nabla.javalib.mesh.test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import fr.cea.nabla.javalib.test.ArrayOperationsTest;
+import fr.cea.nabla.javalib.test.ChunkedArraysTest;
+import fr.cea.nabla.javalib.test.ConcurrentJobsTest;
+import fr.cea.nabla.javalib.test.FlatArraysTest;
+import fr.cea.nabla.javalib.test.JobTimersTest;
+import fr.cea.nabla.javalib.test.ParallelExecutorTest;
+import fr.cea.nabla.javalib.test.ReductionsTest;
+import fr.cea.nabla.javalib.test.WorkerPoolTest;
+
 @RunWith(Suite.class)
 
 @Suite.SuiteClasses
 ({
+	ArrayOperationsTest.class,
 	CartesianMesh2DTest.class,
+	CartesianMesh3DTest.class,
+	ChunkedArraysTest.class,
+	ConcurrentJobsTest.class,
+	CsrConnectivityTest.class,
 	EdgeTest.class,
-	QuadTest.class
+	FlatArraysTest.class,
+	JobTimersTest.class,
+	MeshPartitionTest.class,
+	ParallelExecutorTest.class,
+	QuadTest.class,
+	ReductionsTest.class,
+	SpaceFillingCurveTest.class,
+	UnstructuredMesh2DTest.class,
+	WorkerPoolTest.class
 })
 
 public class JavalibTestSuite
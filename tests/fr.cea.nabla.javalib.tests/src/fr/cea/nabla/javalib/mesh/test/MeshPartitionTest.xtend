@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.mesh.test
+
+import fr.cea.nabla.javalib.mesh.CartesianMesh2D
+import fr.cea.nabla.javalib.mesh.MeshPartition
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+/* Numbering nodes and cells
+ *
+ *  15---16---17---18---19
+ *   | 8  | 9  | 10 | 11 |
+ *  10---11---12---13---14
+ *   | 4  | 5  | 6  | 7  |
+ *   5----6----7----8----9
+ *   | 0  | 1  | 2  | 3  |
+ *   0----1----2----3----4
+ */
+class MeshPartitionTest
+{
+	@Test
+	def void testSubdomains()
+	{
+		val mesh = new CartesianMesh2D(4, 3, 1.0, 1.0)
+		val partition = new MeshPartition(mesh.nbNodes, mesh.nbCells, mesh.nbFaces, 2)
+		assertEquals(2, partition.nbSubdomains)
+
+		val s0 = partition.getSubdomain(0)
+		assertEquals(0, s0.cellBegin)
+		assertEquals(6, s0.cellEnd)
+		assertEquals(10, s0.nodeEnd)
+		assertEquals(15, s0.faceEnd)
+		assertTrue(s0.ownsCell(5))
+		assertFalse(s0.ownsNode(10))
+
+		val s1 = partition.getSubdomain(1)
+		assertEquals(6, s1.cellBegin)
+		assertEquals(12, s1.cellEnd)
+		assertEquals(10, s1.nodeBegin)
+		assertEquals(20, s1.nodeEnd)
+
+		assertEquals(0, partition.getCellOwner(5))
+		assertEquals(1, partition.getCellOwner(6))
+	}
+
+	@Test
+	def void testParallelFor()
+	{
+		val mesh = new CartesianMesh2D(4, 3, 1.0, 1.0)
+		val partition = new MeshPartition(mesh.nbNodes, mesh.nbCells, mesh.nbFaces, 3)
+		val threads = <String>newArrayOfSize(mesh.nbCells)
+		partition.parallelFor(mesh.nbCells, [c | threads.set(c, Thread.currentThread.name)])
+
+		// each worker works on the owned cells of its subdomain
+		for (s : partition.subdomains)
+			for (c : s.cellBegin..<s.cellEnd)
+				assertEquals(threads.get(s.cellBegin), threads.get(c))
+		assertEquals(3, threads.toSet.size)
+
+		// a nested loop runs on the thread of the outer chunk: the calling thread for chunk 0
+		val nestedThreads = <String>newArrayOfSize(mesh.nbCells)
+		partition.parallelFor(3, [p |
+			val outer = Thread.currentThread.name
+			partition.parallelFor(mesh.nbCells, [c | if (c % 3 == p) nestedThreads.set(c, outer)])
+		])
+		for (c : 0..<mesh.nbCells)
+			assertEquals(threads.get(partition.getSubdomain(c % 3).cellBegin), nestedThreads.get(c))
+
+		try
+		{
+			partition.parallelFor(mesh.nbCells, [c | if (c == 7) throw new RuntimeException("failure")])
+			fail("Exception expected")
+		}
+		catch (RuntimeException e)
+		{
+			assertEquals("failure", e.message)
+		}
+	}
+}
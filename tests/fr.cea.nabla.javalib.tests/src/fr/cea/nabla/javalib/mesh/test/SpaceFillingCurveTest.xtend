@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.mesh.test
+
+import fr.cea.nabla.javalib.mesh.CartesianMesh2D
+import fr.cea.nabla.javalib.mesh.PvdFileWriter2D
+import fr.cea.nabla.javalib.mesh.SpaceFillingCurve
+import fr.cea.nabla.javalib.mesh.SpaceFillingCurve.Curve
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.util.Arrays
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class SpaceFillingCurveTest
+{
+	@Test
+	def void testOrder()
+	{
+		assertArrayEquals(#[0, 1, 2, 3], SpaceFillingCurve.order(Curve.morton, 2, 2))
+		assertArrayEquals(#[0, 2, 3, 1], SpaceFillingCurve.order(Curve.hilbert, 2, 2))
+		assertArrayEquals(#[2, 0, 3, 1], SpaceFillingCurve.inverse(#[1, 3, 0, 2]))
+
+		// consecutive items of a hilbert order are neighbours
+		val order = SpaceFillingCurve.order(Curve.hilbert, 8, 8)
+		for (k : 1..<order.size)
+		{
+			val dx = Math.abs(order.get(k) % 8 - order.get(k-1) % 8)
+			val dy = Math.abs(order.get(k) / 8 - order.get(k-1) / 8)
+			assertEquals(1, dx + dy)
+		}
+	}
+
+	@Test
+	def void testRenumberedMesh()
+	{
+		val natural = new CartesianMesh2D(5, 3, 1.0, 2.0)
+		for (curve : #[Curve.morton, Curve.hilbert])
+		{
+			val mesh = new CartesianMesh2D(5, 3, 1.0, 2.0, curve)
+			val nodeIds = mesh.naturalNodeIds
+			val cellIds = mesh.naturalCellIds
+			val faceIds = mesh.naturalFaceIds
+			assertTrue(mesh.geometry.renumbered)
+
+			for (r : 0..<mesh.nbNodes)
+			{
+				assertArrayEquals(natural.geometry.nodes.get(nodeIds.get(r)), mesh.geometry.nodes.get(r), 0.0)
+				assertArrayEquals(natural.getCellsOfNode(nodeIds.get(r)), sorted(mesh.getCellsOfNode(r).renamed(cellIds)))
+			}
+			for (c : 0..<mesh.nbCells)
+			{
+				val n = cellIds.get(c)
+				assertArrayEquals(natural.getNodesOfCell(n), mesh.getNodesOfCell(c).renamed(nodeIds))
+				assertArrayEquals(natural.getFacesOfCell(n), mesh.getFacesOfCell(c).renamed(faceIds))
+				assertArrayEquals(natural.getNeighbourCells(n), sorted(mesh.getNeighbourCells(c).renamed(cellIds)))
+				assertEquals(natural.getTopCell(n), cellIds.get(mesh.getTopCell(c)))
+				assertEquals(natural.getLeftCell(n), cellIds.get(mesh.getLeftCell(c)))
+				assertEquals(natural.getRightFaceOfCell(n), faceIds.get(mesh.getRightFaceOfCell(c)))
+				assertEquals(natural.getBottomFaceOfCell(n), faceIds.get(mesh.getBottomFaceOfCell(c)))
+			}
+			for (f : 0..<mesh.nbFaces)
+			{
+				val n = faceIds.get(f)
+				assertArrayEquals(natural.getNodesOfFace(n), mesh.getNodesOfFace(f).renamed(nodeIds))
+				assertArrayEquals(natural.getCellsOfFace(n), mesh.getCellsOfFace(f).renamed(cellIds))
+			}
+			for (f : mesh.innerVerticalFaces)
+			{
+				val n = natural.getTopRightFaceNeighbour(faceIds.get(f))
+				if (n < natural.nbFaces) assertEquals(n, faceIds.get(mesh.getTopRightFaceNeighbour(f)))
+			}
+
+			assertArrayEquals(natural.topNodes, mesh.topNodes.renamed(nodeIds))
+			assertArrayEquals(natural.leftFaces, mesh.leftFaces.renamed(faceIds))
+			assertArrayEquals(natural.innerCells, sorted(mesh.innerCells.renamed(cellIds)))
+			assertArrayEquals(sorted(natural.topCells), sorted(mesh.topCells.renamed(cellIds)))
+			assertArrayEquals(natural.innerHorizontalFaces, sorted(mesh.innerHorizontalFaces.renamed(faceIds)))
+			assertEquals(natural.topRightNode, nodeIds.get(mesh.topRightNode))
+		}
+	}
+
+	@Test
+	def void testVtkOriginalOrder()
+	{
+		val natural = new CartesianMesh2D(4, 3, 1.0, 1.0)
+		val mesh = new CartesianMesh2D(4, 3, 1.0, 1.0, Curve.hilbert)
+		val naturalDir = Files.createTempDirectory("natural")
+		val renumberedDir = Files.createTempDirectory("renumbered")
+		writeCellIds(new PvdFileWriter2D("Mesh", naturalDir.toString), natural, natural.cells)
+		writeCellIds(new PvdFileWriter2D("Mesh", renumberedDir.toString), mesh, mesh.naturalCellIds)
+		assertEquals(Files.readAllLines(Paths.get(naturalDir.toString, "Mesh.0.vtp")), Files.readAllLines(Paths.get(renumberedDir.toString, "Mesh.0.vtp")))
+	}
+
+	private def writeCellIds(PvdFileWriter2D writer, CartesianMesh2D mesh, int[] naturalCellIds)
+	{
+		writer.startVtpFile(0, 0.0, mesh.geometry.nodes, mesh.geometry)
+		writer.openNodeData()
+		writer.closeNodeData()
+		writer.openCellData()
+		writer.openCellArray("id", 1)
+		for (c : 0..<mesh.nbCells)
+			writer.write(naturalCellIds.get(c))
+		writer.closeCellArray()
+		writer.closeCellData()
+		writer.closeVtpFile()
+	}
+
+	private def int[] renamed(int[] ids, int[] renaming)
+	{
+		val result = newIntArrayOfSize(ids.size)
+		for (k : 0..<ids.size)
+			result.set(k, renaming.get(ids.get(k)))
+		return result
+	}
+
+	private def int[] sorted(int[] values)
+	{
+		val result = values.clone
+		Arrays.sort(result)
+		return result
+	}
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.mesh.test
+
+import fr.cea.nabla.javalib.mesh.UnstructuredMesh2D
+import java.io.File
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+/* Numbering nodes and cells
+ *
+ *       6
+ *     / 2 \
+ *   3-------4-------5		Faces: 0=[0,1] 1=[3,0] 2=[1,4]
+ *   |   0   |   1   |		       3=[1,2] 4=[2,5] 5=[4,3]
+ *   0-------1-------2		       6=[6,3] 7=[5,4] 8=[4,6]
+ */
+class UnstructuredMesh2DTest
+{
+	val double[] coordinates = #[0.0, 0.0, 1.0, 0.0, 2.0, 0.0, 0.0, 1.0, 1.0, 1.0, 2.0, 1.0, 1.0, 2.0]
+	val int[] cellOffsets = #[0, 4, 8, 11]
+	val int[] cellNodes = #[0, 1, 4, 3, 1, 2, 5, 4, 3, 4, 6]
+
+	@Test
+	def void testConnectivities()
+	{
+		val mesh = new UnstructuredMesh2D(coordinates, cellOffsets, cellNodes)
+		assertEquals(7, mesh.nbNodes)
+		assertEquals(3, mesh.nbCells)
+		assertEquals(9, mesh.nbFaces)
+		assertEquals(4, mesh.maxNbNodesOfCell)
+		assertEquals(3, mesh.maxNbCellsOfNode)
+		// the maximums belong to the mesh: a mesh of one triangle does not change them
+		val triangle = new UnstructuredMesh2D(#[0.0, 0.0, 1.0, 0.0, 0.0, 1.0], #[0, 3], #[0, 1, 2])
+		assertEquals(3, triangle.maxNbNodesOfCell)
+		assertEquals(1, triangle.maxNbCellsOfNode)
+		assertEquals(4, mesh.maxNbNodesOfCell)
+		assertEquals(4, mesh.maxNbFacesOfCell)
+
+		assertArrayEquals(#[3, 4, 6], mesh.getNodesOfCell(2))
+		assertArrayEquals(#[0, 2, 5, 1], mesh.getFacesOfCell(0))
+		assertArrayEquals(#[5, 8, 6], mesh.getFacesOfCell(2))
+		assertArrayEquals(#[4, 3], mesh.getNodesOfFace(5))
+		assertEquals(1, mesh.getFirstNodeOfFace(2))
+		assertEquals(4, mesh.getSecondNodeOfFace(2))
+		assertArrayEquals(#[0, 1, 2], mesh.getCellsOfNode(4))
+		assertArrayEquals(#[0, 1], mesh.getCellsOfFace(2))
+		assertArrayEquals(#[1, 2], mesh.getNeighbourCells(0))
+		assertArrayEquals(#[0], mesh.getNeighbourCells(2))
+		assertEquals(5, mesh.getCommonFace(0, 2))
+		assertEquals(-1, mesh.getCommonFace(1, 2))
+		assertEquals(0, mesh.getBackCell(5))
+		assertEquals(2, mesh.getFrontCell(5))
+	}
+
+	@Test
+	def void testBoundaries()
+	{
+		val mesh = new UnstructuredMesh2D(coordinates, cellOffsets, cellNodes)
+		assertArrayEquals(#[2, 5], mesh.innerFaces)
+		assertArrayEquals(#[0, 1, 3, 4, 6, 7, 8], mesh.outerFaces)
+		assertEquals(0, mesh.nbInnerNodes)
+		assertEquals(7, mesh.nbOuterNodes)
+		assertEquals(0, mesh.nbInnerCells)
+		assertArrayEquals(#[0, 1, 2], mesh.outerCells)
+	}
+
+	@Test
+	def void testReadWrite()
+	{
+		val file = File.createTempFile("mesh", ".nblm")
+		file.deleteOnExit
+		UnstructuredMesh2D.write(file.path, coordinates, cellOffsets, cellNodes)
+
+		val mesh = new UnstructuredMesh2D
+		mesh.jsonInit('{"fileName":"' + file.path + '"}')
+		assertEquals(7, mesh.nbNodes)
+		assertEquals(3, mesh.geometry.cells.size)
+		assertArrayEquals(#[3, 4, 6], mesh.geometry.cells.get(2).nodeIds)
+		assertArrayEquals(#[1.0, 2.0], mesh.geometry.nodes.get(6), 0.0)
+		assertArrayEquals(#[1, 2, 5, 4], mesh.getNodesOfCell(1))
+	}
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.test
+
+import fr.cea.nabla.javalib.ArrayOperations
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class ArrayOperationsTest
+{
+	@Test
+	def void testInto()
+	{
+		val double[] a = #[1.0, 2.0]
+		val double[] b = #[3.0, 5.0]
+		val double[] dest = newDoubleArrayOfSize(2)
+
+		assertSame(dest, ArrayOperations.plusInto(dest, a, b))
+		assertArrayEquals(ArrayOperations.plus(a, b), dest, 0.0)
+		ArrayOperations.multiplyInto(dest, 2, b)
+		assertArrayEquals(#[6.0, 10.0], dest, 0.0)
+
+		// dest as an operand
+		ArrayOperations.minusInto(a, a, b)
+		assertArrayEquals(#[-2.0, -3.0], a, 0.0)
+		ArrayOperations.minusInto(a, a)
+		assertArrayEquals(#[2.0, 3.0], a, 0.0)
+
+		val double[][] m = #[#[1.0, 2.0], #[3.0, 4.0]]
+		val double[][] m2 = #[newDoubleArrayOfSize(2), newDoubleArrayOfSize(2)]
+		ArrayOperations.divideInto(m2, m, 2)
+		assertArrayEquals(#[0.5, 1.0], m2.get(0), 0.0)
+		assertArrayEquals(#[1.5, 2.0], m2.get(1), 0.0)
+		ArrayOperations.copyInto(m2, m)
+		assertArrayEquals(#[3.0, 4.0], m2.get(1), 0.0)
+		assertSame(m2, ArrayOperations.clear(m2))
+		assertArrayEquals(#[0.0, 0.0], m2.get(0), 0.0)
+	}
+}
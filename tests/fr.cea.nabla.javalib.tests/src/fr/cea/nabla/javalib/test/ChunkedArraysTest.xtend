@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.test
+
+import fr.cea.nabla.javalib.ChunkedIntArray
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class ChunkedArraysTest
+{
+	@Test
+	def void testIntArray()
+	{
+		// 10 values in chunks of 4
+		val a = new ChunkedIntArray(10, 2)
+		assertEquals(10, a.size)
+		for (i : 0..<10) a.set(i, 100 + i)
+		for (i : 0..<10) assertEquals(100 + i, a.get(i))
+
+		// copies across chunks
+		a.copyFrom(#[-1, -2, -3, -4, -5], 1, 3, 4)
+		val int[] b = newIntArrayOfSize(7)
+		a.copyTo(2, b, 1, 6)
+		assertArrayEquals(#[0, 102, -2, -3, -4, -5, 107], b)
+	}
+
+	@Test(expected = RuntimeException)
+	def void testInvalidChunks()
+	{
+		new ChunkedIntArray(10, 31)
+	}
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.test
+
+import fr.cea.nabla.javalib.ConcurrentJobs
+import java.util.concurrent.atomic.AtomicInteger
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class ConcurrentJobsTest
+{
+	@Test
+	def void testRun()
+	{
+		val double[] results = newDoubleArrayOfSize(3)
+		ConcurrentJobs.run([results.set(0, 1.0)], [results.set(1, 2.0)], [results.set(2, 3.0)])
+		assertArrayEquals(#[1.0, 2.0, 3.0], results, 0.0)
+
+		val count = new AtomicInteger
+		ConcurrentJobs.run([count.incrementAndGet])
+		assertEquals(1, count.get)
+	}
+
+	@Test(expected = IllegalStateException)
+	def void testRunFailure()
+	{
+		ConcurrentJobs.run([], [throw new IllegalStateException("job failure")])
+	}
+}
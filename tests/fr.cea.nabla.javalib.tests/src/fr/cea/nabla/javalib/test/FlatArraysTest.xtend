@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.test
+
+import fr.cea.nabla.javalib.FlatArrays
+import fr.cea.nabla.javalib.LevelDBUtils
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class FlatArraysTest
+{
+	@Test
+	def void testGetAndSet()
+	{
+		// 3 items of 2 x 2 blocks
+		val double[] a = newDoubleArrayOfSize(12)
+		for (i : 0..<12) a.set(i, i)
+
+		assertArrayEquals(#[4.0, 5.0], FlatArrays.get(a, 4, 2), 0.0)
+		val block = FlatArrays.get(a, 8, 2, 2)
+		assertArrayEquals(#[8.0, 9.0], block.get(0), 0.0)
+		assertArrayEquals(#[10.0, 11.0], block.get(1), 0.0)
+
+		val double[][] b = #[#[-1.0, -2.0], #[-3.0, -4.0]]
+		FlatArrays.set(a, 4, b)
+		assertArrayEquals(#[0.0, 1.0, 2.0, 3.0, -1.0, -2.0, -3.0, -4.0, 8.0, 9.0, 10.0, 11.0], a, 0.0)
+		FlatArrays.set(a, 0, #[7.0, 7.0])
+		assertEquals(7.0, a.get(1), 0.0)
+		assertEquals(2.0, a.get(2), 0.0)
+	}
+
+	@Test
+	def void testSerializeAsNested()
+	{
+		val double[] flat = #[1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0]
+		val double[][] nested2d = #[#[1.0, 2.0], #[3.0, 4.0], #[5.0, 6.0], #[7.0, 8.0]]
+		val double[][][] nested3d = #[#[#[1.0, 2.0], #[3.0, 4.0]], #[#[5.0, 6.0], #[7.0, 8.0]]]
+
+		assertEquals(new String(LevelDBUtils.serialize(flat)), new String(LevelDBUtils.serialize(flat, #[8])))
+		assertEquals(new String(LevelDBUtils.serialize(nested2d)), new String(LevelDBUtils.serialize(flat, #[4, 2])))
+		assertEquals(new String(LevelDBUtils.serialize(nested3d)), new String(LevelDBUtils.serialize(flat, #[2, 2, 2])))
+	}
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.test
+
+import fr.cea.nabla.javalib.JobTimers
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class JobTimersTest
+{
+	@Test
+	def void testShares()
+	{
+		// init, time loop calling compute and update
+		val timers = new JobTimers("test", #["init", "loop", "compute", "update"], #[-1, -1, 1, 1])
+		timers.add(0, 1000)
+		for (i : 0..<4)
+		{
+			timers.add(2, 300)
+			timers.add(3, 100)
+			timers.add(1, 500)
+		}
+
+		assertEquals(4, timers.getCalls(2))
+		assertEquals(1200, timers.getTotal(2))
+		assertEquals(300.0, timers.getMean(2), 0.0)
+		// jobs without caller job: part of their sum
+		assertEquals(1000.0 / 3000, timers.getShare(0), 1e-12)
+		assertEquals(2000.0 / 3000, timers.getShare(1), 1e-12)
+		// jobs of the time loop: part of the time loop
+		assertEquals(0.6, timers.getShare(2), 1e-12)
+		assertEquals(0.2, timers.getShare(3), 1e-12)
+
+		val csv = timers.toCsv.split("\n")
+		assertEquals("job,caller,calls,total_ns,mean_ns,share", csv.get(0))
+		assertEquals("compute,loop,4,1200,300.0,0.600000", csv.get(3))
+		assertTrue(timers.toJson.contains('{"job": "init", "caller": null, "calls": 1, "totalNs": 1000, "meanNs": 1000.0, "share": 0.333333}'))
+	}
+
+	@Test
+	def void testStartStop()
+	{
+		val timers = new JobTimers("test", #["job"], #[-1])
+		timers.start(0)
+		Thread.sleep(2)
+		timers.stop(0)
+		assertEquals(1, timers.getCalls(0))
+		assertTrue(timers.getTotal(0) >= 2000000)
+		assertEquals(1.0, timers.getShare(0), 0.0)
+	}
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.test
+
+import fr.cea.nabla.javalib.ArrayOperations
+import fr.cea.nabla.javalib.ParallelExecutor
+import java.util.concurrent.atomic.AtomicIntegerArray
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class ParallelExecutorTest
+{
+	@Test
+	def void testParallelFor()
+	{
+		// contiguous chunks and chunks of 7 indexes
+		for (grain : #[0, 7])
+		{
+			val executor = ParallelExecutor.get(3, grain)
+			assertSame(executor, ParallelExecutor.get(3, grain))
+			val counts = new AtomicIntegerArray(1000)
+			executor.parallelFor(1000, [i | counts.incrementAndGet(i)])
+			for (i : 0..<1000) assertEquals(1, counts.get(i))
+
+			// nested loops are sequential
+			val nestedCounts = new AtomicIntegerArray(100)
+			executor.parallelFor(10, [i | executor.parallelFor(10, [j | nestedCounts.incrementAndGet(i * 10 + j)])])
+			for (i : 0..<100) assertEquals(1, nestedCounts.get(i))
+		}
+	}
+
+	@Test
+	def void testReduce()
+	{
+		val executor = ParallelExecutor.get(4, 0)
+		val n = 100000
+		assertEquals(n * (n - 1.0) / 2, executor.reduceDouble(n, 0.0, [accu, i | accu + i], [r1, r2 | r1 + r2]), 0.0)
+		assertEquals(n - 1, executor.reduceInt(n, Integer.MIN_VALUE, [accu, i | Math.max(accu, i)], [r1, r2 | Math.max(r1, r2)]))
+		val double[] sum = executor.reduce(n, [newDoubleArrayOfSize(2)],
+			[accu, i | ArrayOperations.plusInto(accu, accu, #[i as double, 1.0])],
+			[r1, r2 | ArrayOperations.plusInto(r1, r1, r2)])
+		assertArrayEquals(#[n * (n - 1.0) / 2, n as double], sum, 0.0)
+	}
+
+	@Test(expected = IllegalStateException)
+	def void testFailure()
+	{
+		ParallelExecutor.get(2, 0).parallelFor(100, [i | if (i == 99) throw new IllegalStateException("loop failure")])
+	}
+}
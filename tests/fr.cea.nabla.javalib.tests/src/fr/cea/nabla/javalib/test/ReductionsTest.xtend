@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.test
+
+import fr.cea.nabla.javalib.ArrayOperations
+import fr.cea.nabla.javalib.Reductions
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class ReductionsTest
+{
+	@Test
+	def void testReduce()
+	{
+		// accumulators modified in place
+		val n = 100000
+		val double[] sum = Reductions.reduce(n, [newDoubleArrayOfSize(2)],
+			[accu, i | ArrayOperations.plusInto(accu, accu, #[i as double, 1.0])],
+			[r1, r2 | ArrayOperations.plusInto(r1, r1, r2)])
+		assertArrayEquals(#[n * (n - 1.0) / 2, n as double], sum, 0.0)
+
+		// sequential below the grain
+		assertEquals(45, Reductions.reduce(10, [0], [accu, i | accu + i], [r1, r2 | r1 + r2]))
+		assertEquals(-1, Reductions.reduce(0, [-1], [accu, i | accu + i], [r1, r2 | r1 + r2]))
+	}
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.javalib.test
+
+import fr.cea.nabla.javalib.WorkerPool
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicIntegerArray
+import org.junit.Test
+
+import static org.junit.Assert.*
+
+class WorkerPoolTest
+{
+	@Test
+	def void testRun()
+	{
+		val pool = WorkerPool.get(4)
+		assertSame(pool, WorkerPool.get(4))
+		assertEquals(4, pool.nbWorkers)
+
+		// each worker once, on its own thread, worker 0 being the caller
+		for (run : 0..<3)
+		{
+			val counts = new AtomicIntegerArray(4)
+			val threads = new ConcurrentHashMap<Integer, Thread>
+			pool.run([w | counts.incrementAndGet(w); threads.put(w, Thread.currentThread)])
+			for (w : 0..<4) assertEquals(1, counts.get(w))
+			assertSame(Thread.currentThread, threads.get(0))
+			assertEquals(4, threads.values.toSet.size)
+		}
+	}
+
+	@Test
+	def void testNestedRun()
+	{
+		val pool = WorkerPool.get(3)
+		val counts = new AtomicIntegerArray(9)
+		val threads = new ConcurrentHashMap<Integer, Thread>
+		pool.run([w1 | pool.run([w2 | counts.incrementAndGet(w1 * 3 + w2); threads.put(w1 * 3 + w2, Thread.currentThread)])])
+		for (i : 0..<9) assertEquals(1, counts.get(i))
+		// nested runs execute all the tasks on the current worker
+		for (w1 : 0..<3)
+			for (w2 : 0..<3)
+				assertSame(threads.get(w1 * 3), threads.get(w1 * 3 + w2))
+	}
+
+	@Test
+	def void testSingleWorker()
+	{
+		val threads = new ConcurrentHashMap<Integer, Thread>
+		WorkerPool.get(1).run([w | threads.put(w, Thread.currentThread)])
+		assertEquals(1, threads.size)
+		assertSame(Thread.currentThread, threads.get(0))
+	}
+
+	@Test
+	def void testFailure()
+	{
+		val pool = WorkerPool.get(2)
+		try
+		{
+			pool.run([w | if (w == 1) throw new IllegalStateException("worker failure")])
+			fail("IllegalStateException expected")
+		}
+		catch (IllegalStateException e)
+		{
+			assertEquals("worker failure", e.message)
+		}
+		// the pool is still usable
+		val counts = new AtomicIntegerArray(2)
+		pool.run([w | counts.incrementAndGet(w)])
+		assertEquals(1, counts.get(0))
+		assertEquals(1, counts.get(1))
+	}
+}
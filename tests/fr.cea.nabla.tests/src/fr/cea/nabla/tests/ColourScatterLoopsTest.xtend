@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.tests
+
+import com.google.inject.Inject
+import fr.cea.nabla.ir.ir.IrRoot
+import fr.cea.nabla.ir.ir.Job
+import fr.cea.nabla.ir.ir.Loop
+import org.eclipse.xtext.testing.InjectWith
+import org.eclipse.xtext.testing.XtextRunner
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+import static extension fr.cea.nabla.ir.LoopExtensions.*
+
+@RunWith(XtextRunner)
+@InjectWith(NablaInjectorProvider)
+class ColourScatterLoopsTest
+{
+	@Inject CompilationChainHelper compilationHelper
+	@Inject extension TestUtils
+
+	@Test
+	def void testGatherLoop()
+	{
+		val model =
+		'''
+		«testModule»
+		ℝ x{cells}, y{cells};
+		ℝ[2] X{nodes};
+
+		InitX: ∀j∈cells(), x{j} = 1.0;
+		Gather: ∀j∈cells(), y{j} = x{j} + 1.0;
+		'''
+
+		val ir = compilationHelper.getIrForInterpretation(model, testGenModel)
+		val loop = ir.getOuterLoop('Gather')
+		Assert.assertTrue(loop.multithreadable)
+		Assert.assertFalse(loop.coloured)
+	}
+
+	@Test
+	def void testScatterLoop()
+	{
+		val model =
+		'''
+		«testModule»
+		ℝ x{cells}, u{nodes};
+		ℝ[2] X{nodes};
+
+		InitX: ∀j∈cells(), x{j} = 1.0;
+		Scatter: ∀j∈cells(), ∀r∈nodesOfCell(j), u{r} = x{j};
+		'''
+
+		val ir = compilationHelper.getIrForInterpretation(model, testGenModel)
+		val loop = ir.getOuterLoop('Scatter')
+		Assert.assertTrue(loop.multithreadable)
+		Assert.assertTrue(loop.coloured)
+		Assert.assertEquals('nodesOfCell', loop.colouringConnectivity)
+	}
+
+	@Test
+	def void testNotColourableScatterLoop()
+	{
+		val model =
+		'''
+		«testModule»
+		ℝ x{cells}, u{nodes}, v{cells};
+		ℝ[2] X{nodes};
+
+		InitX: ∀j∈cells(), x{j} = 1.0;
+		Scatter: ∀j∈cells(),
+		{
+			∀r∈nodesOfCell(j), u{r} = x{j};
+			∀k∈neighbourCells(j), v{k} = x{j};
+		}
+		'''
+
+		val ir = compilationHelper.getIrForInterpretation(model, testGenModel)
+		val loop = ir.getOuterLoop('Scatter')
+		Assert.assertFalse(loop.multithreadable)
+		Assert.assertFalse(loop.coloured)
+	}
+
+	private def getOuterLoop(IrRoot ir, String jobName)
+	{
+		val job = ir.eAllContents.filter(Job).findFirst[x | x.name == jobName]
+		Assert.assertNotNull(job)
+		return job.eAllContents.filter(Loop).head
+	}
+}
@@ -0,0 +1,340 @@
+/*******************************************************************************
+ * Copyright (c) 2021 CEA
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ * Contributors: see AUTHORS file
+ *******************************************************************************/
+package fr.cea.nabla.tests
+
+import com.google.gson.Gson
+import com.google.inject.Inject
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.nio.file.Files
+import javax.tools.ToolProvider
+import org.eclipse.xtext.testing.InjectWith
+import org.eclipse.xtext.testing.XtextRunner
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Java code generated with the options of the Java target:
+ * the code of a small application is checked, then compiled.
+ */
+@RunWith(XtextRunner)
+@InjectWith(NablaInjectorProvider)
+class JavaGeneratorOptionsTest
+{
+	static val ProjectName = 'JavaGeneratorOptionsTest'
+
+	@Inject CompilationChainHelper compilationHelper
+	@Inject extension TestUtils
+
+	/** Project of the last generated application */
+	String projectPath
+
+	val model =
+	'''
+		module Test;
+
+		with Math.*;
+		with CartesianMesh2D.*;
+
+		def scale: x | ℝ × ℝ[x] → ℝ[x], (a, b) → return a * b;
+
+		option ℝ stopTime = 0.1;
+		option ℕ maxIterations = 10;
+
+		let ℝ δt = 0.01;
+		ℝ t;
+		ℝ[2] X{nodes}, Xc{cells}, v{cells};
+		ℝ u{cells}, V{cells}, w{cells}, e{cells}, m{nodes};
+
+		iterate n while (t^{n+1} < stopTime && n+1 < maxIterations);
+
+		InitTime: t^{n=0} = 0.0;
+		InitXc: ∀c∈cells(), Xc{c} = 0.25 * ∑{p∈nodesOfCell(c)}(X{p});
+		InitV: ∀c∈cells(), V{c} = 0.5 * ∑{p∈nodesOfCell(c)}(det(X{p}, X{p+1}));
+		InitU: ∀c∈cells(), u^{n}{c} = norm(Xc{c});
+		InitVelocity: ∀c∈cells(), v^{n}{c} = scale(2.0, Xc{c});
+		ComputeM: ∀r∈nodes(), m{r} = ∑{c∈cellsOfNode(r)}(V{c});
+		UpdateU: ∀c∈cells(), ∀rc∈rightCell(c), u^{n+1}{c} = 0.5 * (u^{n}{c} + u^{n}{rc});
+		ComputeW: ∀c∈cells(), w{c} = u^{n+1}{c} * V{c};
+		ComputeE: ∀c∈cells(), e{c} = 2.0 * u^{n+1}{c};
+		UpdateVelocity: ∀c∈cells(), v^{n+1}{c} = v^{n}{c} + scale(δt, Xc{c});
+		ComputeTn: t^{n+1} = t^{n} + δt;
+	'''
+
+	/** Scatter loop from cells to their nodes, coloured by nodesOfCell */
+	val scatterModel =
+	'''
+		module Test;
+
+		with CartesianMesh2D.*;
+
+		option ℝ stopTime = 0.1;
+		option ℕ maxIterations = 10;
+
+		let ℝ δt = 0.01;
+		ℝ t;
+		ℝ[2] X{nodes};
+		ℝ V{cells}, m{nodes};
+
+		iterate n while (t^{n+1} < stopTime && n+1 < maxIterations);
+
+		InitTime: t^{n=0} = 0.0;
+		InitV: ∀c∈cells(), V{c} = 1.0;
+		ComputeM: ∀c∈cells(), ∀p∈nodesOfCell(c), m{p} = V{c};
+		ComputeTn: t^{n+1} = t^{n} + δt;
+	'''
+
+	/** Gather on an unstructured mesh: maximum numbers of elements known at runtime only */
+	val unstructuredModel =
+	'''
+		module Test;
+
+		with Math.*;
+		with UnstructuredMesh2D.*;
+
+		option ℝ stopTime = 0.1;
+		option ℕ maxIterations = 10;
+
+		let ℝ δt = 0.01;
+		ℝ t;
+		ℝ[2] X{nodes};
+		ℝ m{nodes}, C{cells, nodesOfCell}, V{cells};
+
+		iterate n while (t^{n+1} < stopTime && n+1 < maxIterations);
+
+		InitTime: t^{n=0} = 0.0;
+		InitC: ∀c∈cells(), ∀p∈nodesOfCell(c), C{c, p} = 0.5 * X{p}[0];
+		ComputeV: ∀c∈cells(), V{c} = ∑{p∈nodesOfCell(c)}(C{c, p});
+		ComputeM: ∀r∈nodes(), m{r} = ∑{c∈cellsOfNode(r)}(V{c});
+		ComputeTn: t^{n+1} = t^{n} + δt;
+	'''
+
+	@Test
+	def void testStructuredLoops()
+	{
+		val code = generate('loops = "structured";')
+		code.assertContains('nbXQuads = mesh.getNbXQuads();')
+		code.assertContains('IntStream.range(0, nbYQuads).parallel().forEach(cCellsY -> ')
+		code.assertContains('for (int cCellsX=0; cCellsX<nbXQuads; cCellsX++)')
+		// neighbours and nodes of the cell by index arithmetic
+		code.assertContains('final int rcId = (cCellsX == nbXQuads - 1 ? cCells : cCells + 1);')
+		code.assertContains('final int nbNodesOfCellC = CartesianMesh2D.MaxNbNodesOfCell;')
+	}
+
+	@Test
+	def void testFlatStorage()
+	{
+		val code = generate('storage = "flat";')
+		code.assertContains('protected double[] Xc;')
+		code.assertContains('Xc = new double[Utils.arraySize((long) nbCells * 2, "values of Xc")];')
+		code.assertContains('FlatArrays.set(Xc, cCells * 2, ArrayOperations.multiply(0.25, reduction0));')
+		code.assertContains('u_n[cCells] = norm(FlatArrays.get(Xc, cCells * 2, 2));')
+	}
+
+	@Test
+	def void testScalarExpressions()
+	{
+		val code = generate('expressions = "scalar";')
+		code.assertContains('Xc[cCells][0] = 0.25 * reduction0[0];')
+		code.assertContains('Xc[cCells][1] = 0.25 * reduction0[1];')
+	}
+
+	@Test
+	def void testDestinationResults()
+	{
+		val code = generate('results = "destination";')
+		code.assertContains('ArrayOperations.multiplyInto(Xc[cCells], 0.25, reduction0);')
+		code.assertContains('sumR1Into(reduction0, reduction0, X[pNodes]);')
+		code.assertContains('private static double[] sumR1Into(double[] dest, double[] a, double[] b)')
+	}
+
+	@Test
+	def void testSwapBuffers()
+	{
+		val code = generate('buffers = "swap";')
+		code.assertContains('if (continueLoop)')
+		code.assertContains('final double[][] swap = v_n;')
+		code.assertContains('v_nplus1 = swap;')
+		code.assertContains('final double[] swap = u_n;')
+		code.assertContains('u_nplus1 = swap;')
+	}
+
+	@Test
+	def void testConcurrentJobs()
+	{
+		val code = generate('jobs = "concurrent";')
+		code.assertContains('ConcurrentJobs.run(() -> computeTn(), () -> updateU(), () -> updateVelocity()); // @1.0')
+		code.assertContains('ConcurrentJobs.run(() -> computeE(), () -> computeW()); // @2.0')
+	}
+
+	@Test
+	def void testLoopFusion()
+	{
+		val code = generate('fusion = "loops";')
+		code.assertContains('protected void initVInitXc()')
+		code.assertContains('protected void updateUUpdateVelocityComputeEComputeW()')
+		code.assertContains('updateUUpdateVelocityComputeEComputeW(); // @1.0')
+		Assert.assertFalse(code.contains('protected void computeW()'))
+	}
+
+	@Test
+	def void testVectorSimd()
+	{
+		val code = generate('simd = "vector";')
+		code.assertContains('private static final VectorSpecies<Double> DoubleSpecies = DoubleVector.SPECIES_PREFERRED;')
+		code.assertContains('IntStream.range(0, (nbCells + 1023) / 1024).parallel().forEach(cCellsChunk -> ')
+		code.assertContains('DoubleVector.broadcast(DoubleSpecies, 2.0).mul(DoubleVector.fromArray(DoubleSpecies, u_nplus1, cCells)).intoArray(e, cCells);')
+		code.assertContains('DoubleVector.fromArray(DoubleSpecies, u_nplus1, cCells).mul(DoubleVector.fromArray(DoubleSpecies, V, cCells)).intoArray(w, cCells);')
+	}
+
+	@Test
+	def void testJobTimers()
+	{
+		val code = generate('timers = "jobs";')
+		code.assertContains('protected final JobTimers timers;')
+		code.assertContains('timers = new JobTimers("Test",')
+		code.assertContains('timers.start(0);')
+		code.assertContains('timers.stop(0);')
+	}
+
+	@Test
+	def void testJmhBenchmark()
+	{
+		val code = generate('benchmark = "jmh";')
+		code.assertContains('public void updateU()')
+
+		// Maven module next to the source folder, not compiled with the application
+		Assert.assertFalse(new File(projectPath + '/src-gen-java/test/jmh').exists)
+		val benchmark = readFileAsString(projectPath + '/jmh/test/src/main/java/test/jmh/TestBenchmark.java')
+		benchmark.assertContains('package test.jmh;')
+		benchmark.assertContains('public void executeTimeLoopNStep()')
+		val pom = readFileAsString(projectPath + '/jmh/test/pom.xml')
+		pom.assertContains('<source>${project.basedir}/../../src-gen-java</source>')
+	}
+
+	@Test
+	def void testPoolParallelism()
+	{
+		val code = generate('parallelism = "pool"; threads = "2";')
+		code.assertContains('executor = ParallelExecutor.get(2, 0);')
+		code.assertContains('executor.parallelFor(nbCells, cCells -> ')
+	}
+
+	@Test
+	def void testSubdomainParallelism()
+	{
+		val code = generate('parallelism = "subdomains";')
+		code.assertContains('partition = MeshPartition.create(mesh.getNbNodes(), mesh.getNbCells(), mesh.getNbFaces());')
+		code.assertContains('partition.parallelFor(nbCells, cCells -> ')
+	}
+
+	@Test
+	def void testColouredScatterLoop()
+	{
+		for (parallelism : #['streams', 'pool', 'subdomains'])
+		{
+			val code = generate(scatterModel, 'parallelism = "' + parallelism + '";')
+			code.assertContains('final CsrConnectivity cCellsColours = mesh.getNodesOfCellConnectivity().getColouring();')
+			code.assertContains('final int cCells = cCellsColourItems[cCellsColourOffset + cCellsK];')
+		}
+	}
+
+	@Test
+	def void testUnstructuredMesh()
+	{
+		for (storage : #['arrays', 'flat'])
+		{
+			val code = generate(unstructuredModel, 'storage = "' + storage + '";')
+			code.assertContains('final UnstructuredMesh2D mesh;')
+			code.assertContains('mesh.getMaxNbNodesOfCell()')
+		}
+	}
+
+	@Test
+	def void testChunkedStorage()
+	{
+		val code = generate('storage = "chunked";')
+		code.assertContains('protected ChunkedDoubleArray Xc;')
+		code.assertContains('Xc = new ChunkedDoubleArray((long) nbCells * 2);')
+		code.assertContains('FlatArrays.set(Xc, (long) cCells * 2, ArrayOperations.multiply(0.25, reduction0));')
+		code.assertContains('u_n.set(cCells, norm(FlatArrays.get(Xc, (long) cCells * 2, 2)));')
+		code.assertContains('final long nodesOfCellCOffset = nodesOfCellC.getLongOffset(cId);')
+		code.assertContains('final int pId = nodesOfCellC.getValue(nodesOfCellCOffset+pNodesOfCellC);')
+
+		val unstructuredCode = generate(unstructuredModel, 'storage = "chunked";')
+		unstructuredCode.assertContains('C = new ChunkedDoubleArray((long) nbCells * mesh.getMaxNbNodesOfCell());')
+		unstructuredCode.assertContains('C.set((long) cCells * maxNbNodesOfCell + pNodesOfCellC, 0.5 * X.get((long) pNodes * 2 + 0));')
+	}
+
+	private def getGenModel(CharSequence options)
+	'''
+		Application Test;
+
+		MainModule Test test
+		{
+			nodeCoord = X;
+			time = t;
+			timeStep = δt;
+			iterationMax = maxIterations;
+			timeMax = stopTime;
+		}
+
+		Java
+		{
+			outputPath = "/«ProjectName»/src-gen-java";
+			«options»
+		}
+	'''
+
+	private def generate(CharSequence options)
+	{
+		generate(model, options)
+	}
+
+	/** Generates the application in a temporary workspace, compiles it and returns the code of Test.java */
+	private def generate(CharSequence model, CharSequence options)
+	{
+		val wsPath = Files.createTempDirectory("nablabtest-options-").toString
+		projectPath = wsPath + '/' + ProjectName
+		val outputPath = projectPath + '/src-gen-java'
+		new File(outputPath).mkdirs
+		compilationHelper.generateCode(model, options.genModel, wsPath, ProjectName)
+		val javaFile = new File(outputPath + '/test/Test.java')
+		Assert.assertTrue(javaFile.exists)
+		val code = Files.readString(javaFile.toPath)
+		javaFile.compile(code.contains('jdk.incubator.vector'))
+		return code
+	}
+
+	/** Compiles the file with javalib and the libraries of the generated code, as NablaExamplesTest */
+	private def compile(File javaFile, boolean vectorApi)
+	{
+		val basePath = System.getProperty("user.dir").replace("tests/fr.cea.nabla.tests", "")
+		val classpath = #[
+			basePath + "plugins/fr.cea.nabla.javalib/bin/",
+			basePath + "plugins/fr.cea.nabla.javalib/target/*",
+			basePath + "plugins/commons-math3/*",
+			basePath + "plugins/leveldb/*",
+			new File(Gson.protectionDomain.codeSource.location.toURI).path,
+			System.getProperty("java.class.path")].join(File.pathSeparator)
+		val outputDir = Files.createTempDirectory("nablabtest-classes-").toString
+		val errors = new ByteArrayOutputStream
+		val options = newArrayList('-nowarn', '-classpath', classpath, '-d', outputDir, javaFile.path)
+		if (vectorApi) options.addAll(0, #['--add-modules', 'jdk.incubator.vector'])
+		val status = ToolProvider.systemJavaCompiler.run(null, null, errors, options)
+		Assert.assertEquals(errors.toString, 0, status)
+	}
+
+	private def assertContains(String code, String expected)
+	{
+		Assert.assertTrue('Missing in the generated code: ' + expected, code.contains(expected))
+	}
+}
@@ -19,9 +19,11 @@ import fr.cea.nabla.tests.validation.NabLabValidationTestSuite;
 
 @Suite.SuiteClasses
 ({
+	ColourScatterLoopsTest.class,
 	DeclarationProviderTest.class,
 	ExpressionTypeProviderTest.class,
 	IteratorExtensionsTest.class,
+	JavaGeneratorOptionsTest.class,
 	NablaExamplesTest.class,
 	NablagenParsingTest.class,
 	NablagenScopeProviderTest.class,
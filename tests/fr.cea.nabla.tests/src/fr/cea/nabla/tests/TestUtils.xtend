@@ -37,8 +37,10 @@ class TestUtils
 	public static val PluginsBasePath = TestProjectPath.replace("/tests/fr.cea.nabla.tests", "/plugins/fr.cea.nabla")
 	public static val MathPath = PluginsBasePath + "/nablalib/Math.n"
 	public static val CartesianMesh2DPath = PluginsBasePath + "/nablalib/CartesianMesh2D.n"
+	public static val UnstructuredMesh2DPath = PluginsBasePath + "/nablalib/UnstructuredMesh2D.n"
 	public static val LinearAlgebraPath = PluginsBasePath + "/nablalib/LinearAlgebra.n"
 	public static val CartesianMesh2DGenPath = PluginsBasePath + "/nablalib/CartesianMesh2D.ngen"
+	public static val UnstructuredMesh2DGenPath = PluginsBasePath + "/nablalib/UnstructuredMesh2D.ngen"
 	public static val LinearAlgebraGenPath = PluginsBasePath + "/nablalib/LinearAlgebra.ngen"
 
 	def getAllVars(EObject it)